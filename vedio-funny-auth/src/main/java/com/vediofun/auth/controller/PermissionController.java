@@ -2,6 +2,7 @@ package com.vediofun.auth.controller;
 
 import com.vediofun.auth.entity.Permission;
 import com.vediofun.auth.repository.PermissionRepository;
+import com.vediofun.auth.service.PermissionGraph;
 import com.vediofun.common.result.Result;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +21,7 @@ import java.util.stream.Collectors;
 public class PermissionController {
 
     private final PermissionRepository permissionRepository;
+    private final PermissionGraph permissionGraph;
 
     /**
      * 获取所有权限列表（仅菜单权限）
@@ -53,6 +55,7 @@ public class PermissionController {
             }
             
             Permission savedPermission = permissionRepository.save(permission);
+            permissionGraph.onPermissionSaved(savedPermission);
             log.info("添加权限成功: {}", savedPermission.getPermissionName());
             return Result.success(savedPermission);
         } catch (Exception e) {
@@ -76,6 +79,7 @@ public class PermissionController {
             }
             
             Permission savedPermission = permissionRepository.save(permission);
+            permissionGraph.onPermissionSaved(savedPermission);
             log.info("更新权限成功: {}", savedPermission.getPermissionName());
             return Result.success(savedPermission);
         } catch (Exception e) {
@@ -95,6 +99,7 @@ public class PermissionController {
             }
             
             permissionRepository.deleteById(id);
+            permissionGraph.onPermissionDeleted(id);
             log.info("删除权限成功，ID: {}", id);
             return Result.success("删除成功");
         } catch (Exception e) {
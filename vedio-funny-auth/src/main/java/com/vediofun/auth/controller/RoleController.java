@@ -5,6 +5,7 @@ import com.vediofun.auth.entity.Permission;
 import com.vediofun.auth.repository.RoleRepository;
 import com.vediofun.auth.repository.PermissionRepository;
 import com.vediofun.auth.repository.RolePermissionRepository;
+import com.vediofun.auth.service.PermissionGraph;
 import com.vediofun.common.result.Result;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +28,7 @@ public class RoleController {
     private final RoleRepository roleRepository;
     private final PermissionRepository permissionRepository;
     private final RolePermissionRepository rolePermissionRepository;
+    private final PermissionGraph permissionGraph;
 
     /**
      * 获取角色列表
@@ -55,6 +57,7 @@ public class RoleController {
             }
             
             Role savedRole = roleRepository.save(role);
+            permissionGraph.onRoleSaved(savedRole);
             log.info("添加角色成功: {}", savedRole.getRoleName());
             return Result.success(savedRole);
         } catch (Exception e) {
@@ -78,6 +81,7 @@ public class RoleController {
             }
             
             Role savedRole = roleRepository.save(role);
+            permissionGraph.onRoleSaved(savedRole);
             log.info("更新角色成功: {}", savedRole.getRoleName());
             return Result.success(savedRole);
         } catch (Exception e) {
@@ -122,6 +126,7 @@ public class RoleController {
                     rolePermissionRepository.insertRolePermission(roleId, permissionId);
                 }
             }
+            permissionGraph.onRolePermissionsReplaced(roleId, permissionIds);
 
             log.info("更新角色权限成功，角色ID: {}, 权限数量: {}", roleId, permissionIds.size());
             return Result.success("权限更新成功");
@@ -142,6 +147,7 @@ public class RoleController {
             }
             
             roleRepository.deleteById(id);
+            permissionGraph.onRoleDeleted(id);
             log.info("删除角色成功，ID: {}", id);
             return Result.success("删除成功");
         } catch (Exception e) {
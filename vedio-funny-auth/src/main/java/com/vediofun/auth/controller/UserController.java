@@ -17,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class UserController {
     private final UserRepository userRepository;
+    private final PasswordUtil passwordUtil;
 
     @GetMapping("/list")
     public Result<?> list(@RequestParam(name = "page", defaultValue = "1") int page,
@@ -44,7 +45,7 @@ public class UserController {
         dbUser.setEmail(user.getEmail());
         dbUser.setStatus(user.getStatus());
         if (user.getPassword() != null && !user.getPassword().isEmpty()) {
-            dbUser.setPassword(PasswordUtil.encode(user.getPassword()));
+            dbUser.setPassword(passwordUtil.encodePassword(user.getPassword()));
         }
         userRepository.save(dbUser);
         return Result.success();
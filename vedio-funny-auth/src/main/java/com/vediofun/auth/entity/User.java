@@ -49,10 +49,13 @@ public class User {
     @Column(nullable = false)
     private Integer status = 1;
 
-    @Column(name = "last_login_time")
+    /**
+     * 最近登录时间和IP只由 LastLoginRecorder 批量更新，保存整个实体时不写这两列，避免旧值覆盖刚写入的登录信息
+     */
+    @Column(name = "last_login_time", updatable = false)
     private LocalDateTime lastLoginTime;
 
-    @Column(name = "last_login_ip", length = 50)
+    @Column(name = "last_login_ip", length = 50, updatable = false)
     private String lastLoginIp;
 
     @CreationTimestamp
@@ -0,0 +1,123 @@
+package com.vediofun.auth.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最近登录信息延迟写入
+ * 登录时只在内存中记录每个用户最新的登录时间和IP，同一用户多次登录合并为一条；
+ * 定时用JDBC批量更新 users 表的这两列，登录路径不再写用户表。写入失败的记录放回内存，下个周期重试
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LastLoginRecorder {
+
+    private static final String UPDATE_SQL = "UPDATE users SET last_login_time = ?, last_login_ip = ? WHERE id = ?";
+
+    /**
+     * 批量写入周期(毫秒)
+     */
+    @Value("${auth.last-login.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    /**
+     * 每批最多更新的用户数
+     */
+    @Value("${auth.last-login.batch-size:500}")
+    private int batchSize;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 用户ID -> 待写入的最近登录
+     */
+    private final Map<Long, LastLogin> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "last-login-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(100, flushIntervalMs);
+        scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        flush();
+    }
+
+    /**
+     * 记录一次成功登录，保留时间较新的一次
+     */
+    public void record(Long userId, LocalDateTime loginTime, String clientIp) {
+        pending.merge(userId, new LastLogin(loginTime, clientIp), LastLogin::newer);
+    }
+
+    /**
+     * 尚未写入数据库的最近登录时间，没有时返回 null
+     */
+    public LocalDateTime pendingLoginTime(Long userId) {
+        LastLogin lastLogin = pending.get(userId);
+        return lastLogin != null ? lastLogin.loginTime() : null;
+    }
+
+    private synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = new ArrayList<>(pending.keySet());
+        for (int from = 0; from < userIds.size(); from += batchSize) {
+            List<Object[]> batch = new ArrayList<>();
+            Map<Long, LastLogin> taken = new HashMap<>();
+            for (Long userId : userIds.subList(from, Math.min(from + batchSize, userIds.size()))) {
+                LastLogin lastLogin = pending.remove(userId);
+                if (lastLogin != null) {
+                    taken.put(userId, lastLogin);
+                    batch.add(new Object[]{Timestamp.valueOf(lastLogin.loginTime()), lastLogin.clientIp(), userId});
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+            } catch (Exception e) {
+                log.warn("批量更新最近登录信息失败，{}条下个周期重试: {}", batch.size(), e.getMessage());
+                taken.forEach((userId, lastLogin) -> pending.merge(userId, lastLogin, LastLogin::newer));
+                return;
+            }
+        }
+    }
+
+    private record LastLogin(LocalDateTime loginTime, String clientIp) {
+
+        static LastLogin newer(LastLogin a, LastLogin b) {
+            return b.loginTime.isAfter(a.loginTime) ? b : a;
+        }
+    }
+}
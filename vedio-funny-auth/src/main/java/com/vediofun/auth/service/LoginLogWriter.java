@@ -0,0 +1,436 @@
+package com.vediofun.auth.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vediofun.auth.entity.LoginLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录日志异步写入
+ * 登录线程只把日志放入有界队列；写入线程按条数或时间攒批，用一条多行 INSERT 写入 login_logs。
+ * 队列已满或写库失败时，日志追加到本地溢出文件（每行一条JSON），数据库恢复后由写入线程补写：
+ * 每轮只补写一批，与新日志交替进行；无法解析的行移入 .bad 文件，不阻塞其余日志的补写。
+ * 写入前按列长截断字符串字段；整批因个别行被数据库拒绝时改为逐条写入，只有被拒绝的行移入 .bad 文件
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoginLogWriter {
+
+    private static final String INSERT_PREFIX = "INSERT INTO login_logs (user_id, username, login_type, login_status, "
+            + "client_ip, user_agent, failure_reason, session_id, login_time) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Value("${auth.login-log.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 内存队列上限
+     */
+    @Value("${auth.login-log.queue-capacity:10000}")
+    private int queueCapacity;
+
+    /**
+     * 每批最多写入的条数
+     */
+    @Value("${auth.login-log.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 未攒满一批时的最长等待时间(毫秒)
+     */
+    @Value("${auth.login-log.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    /**
+     * 溢出文件路径
+     */
+    @Value("${auth.login-log.spill-file:logs/login-log-spill.jsonl}")
+    private String spillFile;
+
+    /**
+     * 补写溢出文件的检查周期(秒)
+     */
+    @Value("${auth.login-log.replay-interval-seconds:60}")
+    private long replayIntervalSeconds;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private BlockingQueue<LoginLog> queue;
+    private Path spillPath;
+    private Path replayPath;
+    private Path deadLetterPath;
+    private final Object spillLock = new Object();
+
+    private Thread writerThread;
+    private volatile boolean running;
+
+    /**
+     * 补写状态，只由写入线程访问：打开中的待补写文件、已读出但尚未写入的一批、本轮已补写条数、下次允许补写的时间
+     */
+    private BufferedReader replayReader;
+    private final List<LoginLog> replayBatch = new ArrayList<>();
+    private int replayed;
+    private long nextReplayAt;
+
+    private Timer flushTimer;
+    private Counter spilledCounter;
+    private Counter failedFlushCounter;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        spillPath = Paths.get(spillFile);
+        replayPath = spillPath.resolveSibling(spillPath.getFileName() + ".replay");
+        deadLetterPath = spillPath.resolveSibling(spillPath.getFileName() + ".bad");
+
+        Gauge.builder("auth.login-log.queue.size", queue, BlockingQueue::size)
+                .description("等待写入的登录日志数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("auth.login-log.flush")
+                .description("登录日志批量写入耗时")
+                .register(meterRegistry);
+        spilledCounter = Counter.builder("auth.login-log.spilled")
+                .description("写入溢出文件的登录日志数")
+                .register(meterRegistry);
+        failedFlushCounter = Counter.builder("auth.login-log.flush.failures")
+                .description("登录日志批量写入失败次数")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "login-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writerThread == null) {
+            return;
+        }
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 未写入的日志落盘，下次启动补写
+        List<LoginLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            spill(remaining);
+        }
+    }
+
+    /**
+     * 提交一条登录日志，不阻塞调用方
+     */
+    public void submit(LoginLog loginLog) {
+        if (!enabled) {
+            return;
+        }
+        if (!queue.offer(loginLog)) {
+            spill(Collections.singletonList(loginLog));
+        }
+    }
+
+    private void runWriter() {
+        List<LoginLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                // 补写进行中时不等待新日志，每轮补写一批
+                LoginLog first = queue.poll(replayPending() ? 0 : flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long remainingNanos = deadline - System.nanoTime();
+                        if (batch.size() >= batchSize || remainingNanos <= 0) {
+                            break;
+                        }
+                        LoginLog next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    flushOrSpill(batch);
+                    batch.clear();
+                }
+                replaySpillIfDue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("登录日志写入线程异常: {}", e.getMessage());
+            }
+        }
+        // 未补写完的部分保留在待补写文件中，下次启动重新补写
+        closeReplayReader();
+        if (!batch.isEmpty()) {
+            spill(batch);
+        }
+    }
+
+    private void flushOrSpill(List<LoginLog> batch) {
+        try {
+            flush(batch);
+        } catch (Exception e) {
+            failedFlushCounter.increment();
+            List<LoginLog> unwritten = isRowError(e) ? flushEach(batch) : batch;
+            if (!unwritten.isEmpty()) {
+                log.warn("登录日志写入数据库失败，{}条写入溢出文件: {}", unwritten.size(), e.getMessage());
+                spill(unwritten);
+            }
+        }
+    }
+
+    /**
+     * 逐条写入，被数据库拒绝的行移入 .bad 文件
+     *
+     * @return 数据库不可用时尚未写入的日志
+     */
+    private List<LoginLog> flushEach(List<LoginLog> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            LoginLog loginLog = batch.get(i);
+            try {
+                flush(Collections.singletonList(loginLog));
+            } catch (Exception e) {
+                if (!isRowError(e)) {
+                    return new ArrayList<>(batch.subList(i, batch.size()));
+                }
+                log.warn("登录日志被数据库拒绝，移入 {}: {}", deadLetterPath, e.getMessage());
+                deadLetterLog(loginLog);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 是否为个别行数据导致的失败；连接失败、超时等数据库不可用的情况整批保留重试
+     */
+    private boolean isRowError(Exception e) {
+        return e instanceof DataAccessException
+                && !(e instanceof DataAccessResourceFailureException)
+                && !(e instanceof TransientDataAccessException)
+                && !(e instanceof RecoverableDataAccessException);
+    }
+
+    private void flush(List<LoginLog> batch) {
+        long startTime = System.nanoTime();
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + batch.size() * (ROW_PLACEHOLDER.length() + 2))
+                .append(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(batch.size() * 9);
+        for (int i = 0; i < batch.size(); i++) {
+            LoginLog loginLog = batch.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+            // 溢出文件中可能有旧版本写入的超长字段，按列长截断
+            args.add(loginLog.getUserId());
+            args.add(truncate(loginLog.getUsername(), 50));
+            args.add(loginLog.getLoginType() != null ? loginLog.getLoginType().name() : LoginLog.LoginType.PASSWORD.name());
+            args.add(loginLog.getLoginStatus());
+            args.add(truncate(loginLog.getClientIp(), 50));
+            args.add(truncate(loginLog.getUserAgent(), 500));
+            args.add(truncate(loginLog.getFailureReason(), 500));
+            args.add(truncate(loginLog.getSessionId(), 100));
+            args.add(Timestamp.valueOf(loginLog.getLoginTime()));
+        }
+        jdbcTemplate.update(sql.toString(), args.toArray());
+        flushTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    private void spill(List<LoginLog> logs) {
+        synchronized (spillLock) {
+            try {
+                if (spillPath.getParent() != null) {
+                    Files.createDirectories(spillPath.getParent());
+                }
+                try (BufferedWriter writer = Files.newBufferedWriter(spillPath, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (LoginLog loginLog : logs) {
+                        writer.write(objectMapper.writeValueAsString(loginLog));
+                        writer.newLine();
+                    }
+                }
+                spilledCounter.increment(logs.size());
+            } catch (IOException e) {
+                log.error("登录日志写入溢出文件失败，丢弃{}条: {}", logs.size(), e.getMessage());
+            }
+        }
+    }
+
+    private boolean replayPending() {
+        return (replayReader != null || !replayBatch.isEmpty()) && System.currentTimeMillis() >= nextReplayAt;
+    }
+
+    /**
+     * 队列空闲时补写溢出文件的一批：先把溢出文件移为待补写文件，新的溢出继续追加到原文件；
+     * 写库失败时保留已读出的一批，下个周期重试；待补写文件读完后删除
+     */
+    private void replaySpillIfDue() {
+        long now = System.currentTimeMillis();
+        if (!queue.isEmpty() || now < nextReplayAt) {
+            return;
+        }
+        try {
+            if (replayBatch.isEmpty()) {
+                if (replayReader == null && !openReplay()) {
+                    nextReplayAt = now + TimeUnit.SECONDS.toMillis(replayIntervalSeconds);
+                    return;
+                }
+                readReplayBatch();
+            }
+            if (!replayBatch.isEmpty()) {
+                flushReplayBatch();
+            }
+            if (replayReader == null) {
+                Files.delete(replayPath);
+                log.info("登录日志溢出文件已补写 - 条数: {}", replayed);
+                replayed = 0;
+                nextReplayAt = now + TimeUnit.SECONDS.toMillis(replayIntervalSeconds);
+            }
+        } catch (IOException e) {
+            // 从头重新读取待补写文件，已写入的部分会重复写入，登录日志允许少量重复
+            closeReplayReader();
+            replayBatch.clear();
+            nextReplayAt = now + TimeUnit.SECONDS.toMillis(replayIntervalSeconds);
+            log.warn("读取登录日志溢出文件失败，稍后重试: {}", e.getMessage());
+        } catch (Exception e) {
+            nextReplayAt = now + TimeUnit.SECONDS.toMillis(replayIntervalSeconds);
+            log.warn("补写登录日志溢出文件失败，稍后重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 写入读出的一批；个别行被拒绝时逐条写入，数据库不可用时只保留尚未写入的部分，下个周期重试
+     */
+    private void flushReplayBatch() {
+        int size = replayBatch.size();
+        try {
+            flush(replayBatch);
+        } catch (RuntimeException e) {
+            if (!isRowError(e)) {
+                throw e;
+            }
+            List<LoginLog> unwritten = flushEach(replayBatch);
+            if (!unwritten.isEmpty()) {
+                replayed += size - unwritten.size();
+                replayBatch.clear();
+                replayBatch.addAll(unwritten);
+                throw new IllegalStateException("数据库不可用，剩余" + unwritten.size() + "条稍后重试");
+            }
+        }
+        replayed += size;
+        replayBatch.clear();
+    }
+
+    /**
+     * 打开待补写文件，没有时把溢出文件移为待补写文件
+     *
+     * @return 没有需要补写的日志时返回 false
+     */
+    private boolean openReplay() throws IOException {
+        if (!Files.exists(replayPath)) {
+            synchronized (spillLock) {
+                if (!Files.exists(spillPath)) {
+                    return false;
+                }
+                Files.move(spillPath, replayPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        replayReader = Files.newBufferedReader(replayPath, StandardCharsets.UTF_8);
+        replayed = 0;
+        return true;
+    }
+
+    /**
+     * 读出一批日志，读到文件末尾时关闭文件
+     */
+    private void readReplayBatch() throws IOException {
+        String line;
+        while (replayBatch.size() < batchSize && (line = replayReader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                replayBatch.add(objectMapper.readValue(line, LoginLog.class));
+            } catch (JsonProcessingException e) {
+                log.warn("登录日志溢出文件存在无法解析的行，移入 {}: {}", deadLetterPath, e.getOriginalMessage());
+                deadLetter(line);
+            }
+        }
+        if (replayBatch.size() < batchSize) {
+            closeReplayReader();
+        }
+    }
+
+    private void deadLetter(String line) throws IOException {
+        Files.writeString(deadLetterPath, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void deadLetterLog(LoginLog loginLog) {
+        try {
+            deadLetter(objectMapper.writeValueAsString(loginLog));
+        } catch (IOException e) {
+            log.error("登录日志写入 {} 失败，丢弃: {}", deadLetterPath, e.getMessage());
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private void closeReplayReader() {
+        if (replayReader == null) {
+            return;
+        }
+        try {
+            replayReader.close();
+        } catch (IOException e) {
+            log.debug("关闭登录日志溢出文件失败: {}", e.getMessage());
+        }
+        replayReader = null;
+    }
+}
@@ -0,0 +1,121 @@
+package com.vediofun.auth.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录限流
+ * 客户端IP按全部登录尝试计数；用户名只按失败次数计数，避免他人以该用户名频繁登录即可锁住正常用户。
+ * 检查在密码哈希之前执行。计数保存在Redis，多实例共享：按固定窗口计数，键在首次计数时设置周期过期，
+ * 每次检查或记录只需一次往返。Redis不可用时放行，不影响正常登录
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoginRateLimiter {
+
+    private static final String USERNAME_KEY_PREFIX = "auth:login-count:user:";
+    private static final String IP_KEY_PREFIX = "auth:login-count:ip:";
+
+    /**
+     * KEYS[1] 计数键, ARGV[1] 统计周期(毫秒)
+     * 计数加一，新建的键（或没有过期时间的键）设置周期过期，返回加一后的计数
+     */
+    private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>("""
+            local count = redis.call('INCR', KEYS[1])
+            if count == 1 or redis.call('PTTL', KEYS[1]) < 0 then
+                redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            end
+            return count
+            """, Long.class);
+
+    /**
+     * KEYS[1] 计数键，返回当前计数，键不存在时为0
+     */
+    private static final RedisScript<Long> COUNT_SCRIPT = new DefaultRedisScript<>("""
+            local count = redis.call('GET', KEYS[1])
+            return count and tonumber(count) or 0
+            """, Long.class);
+
+    @Value("${auth.login.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 统计周期(秒)
+     */
+    @Value("${auth.login.rate-limit.interval-seconds:60}")
+    private long intervalSeconds;
+
+    /**
+     * 每个用户名在统计周期内允许的登录失败次数
+     */
+    @Value("${auth.login.rate-limit.username-permits:10}")
+    private long usernamePermits;
+
+    /**
+     * 每个IP在统计周期内允许的登录尝试次数
+     */
+    @Value("${auth.login.rate-limit.ip-permits:60}")
+    private long ipPermits;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 登录前检查：先占用一次IP的尝试机会，再检查用户名的失败次数是否已用完（不占用）。任一超限即返回 false
+     */
+    public boolean tryAcquire(String username, String clientIp) {
+        if (!enabled) {
+            return true;
+        }
+        try {
+            if (clientIp != null && increment(IP_KEY_PREFIX + clientIp) > ipPermits) {
+                log.warn("IP {}登录尝试过于频繁", clientIp);
+                return false;
+            }
+            if (username != null && count(usernameKey(username)) >= usernamePermits) {
+                log.warn("用户{}登录失败过于频繁", username);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            log.warn("登录限流检查失败，放行请求: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 记录一次用户名或密码错误，占用该用户名的失败次数
+     */
+    public void recordFailure(String username) {
+        if (!enabled || username == null) {
+            return;
+        }
+        try {
+            increment(usernameKey(username));
+        } catch (Exception e) {
+            log.warn("记录登录失败次数失败: {}", e.getMessage());
+        }
+    }
+
+    private static String usernameKey(String username) {
+        return USERNAME_KEY_PREFIX + username.toLowerCase();
+    }
+
+    private long increment(String key) {
+        Long count = redisTemplate.execute(INCREMENT_SCRIPT, List.of(key), TimeUnit.SECONDS.toMillis(intervalSeconds));
+        return count != null ? count : 0;
+    }
+
+    private long count(String key) {
+        Long count = redisTemplate.execute(COUNT_SCRIPT, List.of(key));
+        return count != null ? count : 0;
+    }
+}
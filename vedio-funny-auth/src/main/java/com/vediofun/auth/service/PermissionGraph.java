@@ -0,0 +1,338 @@
+package com.vediofun.auth.service;
+
+import com.vediofun.auth.entity.Permission;
+import com.vediofun.auth.entity.Role;
+import com.vediofun.auth.entity.RolePermission;
+import com.vediofun.auth.repository.PermissionRepository;
+import com.vediofun.auth.repository.RolePermissionRepository;
+import com.vediofun.auth.repository.RoleRepository;
+import com.vediofun.auth.repository.UserRoleRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存中的RBAC权限图
+ * 启动时一次性加载角色、权限和角色权限关系：每个权限分配一个位序号，权限代码按位序号存入字典数组，
+ * 角色持有权限位集。用户的有效权限为其各角色位集按位或，再与启用权限位集按位与。
+ * 角色、权限的增删改由管理接口调用对应方法增量更新；用户角色按用户ID缓存，过期后重新查询 user_roles。
+ * 图以不可变快照整体替换，读取无锁；定时全量重新加载，兜底其他实例或直接改库造成的偏差
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PermissionGraph {
+
+    /**
+     * 用户没有角色时返回的默认角色
+     */
+    private static final List<String> GUEST_ROLES = List.of("ROLE_GUEST");
+
+    /**
+     * 用户没有任何权限时返回的默认权限
+     */
+    private static final List<String> GUEST_PERMISSIONS = List.of("dashboard:view", "model:menu", "model:list", "model:market");
+
+    private static final long[] NO_ROLES = new long[0];
+
+    /**
+     * 用户角色缓存时长(秒)
+     */
+    @Value("${auth.rbac.user-roles-ttl-seconds:300}")
+    private long userRolesTtlSeconds;
+
+    /**
+     * 用户角色缓存上限，超出时清空重建
+     */
+    @Value("${auth.rbac.user-roles-max-size:100000}")
+    private int userRolesMaxSize;
+
+    /**
+     * 全量重新加载周期(秒)，0表示不重新加载
+     */
+    @Value("${auth.rbac.reload-interval-seconds:300}")
+    private long reloadIntervalSeconds;
+
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+    private final RolePermissionRepository rolePermissionRepository;
+    private final UserRoleRepository userRoleRepository;
+
+    private volatile Graph graph;
+
+    /**
+     * 用户ID -> 角色ID
+     */
+    private final Map<Long, CachedRoles> userRoles = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        if (reloadIntervalSeconds <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "permission-graph-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+            } catch (Exception e) {
+                log.warn("重新加载权限图失败: {}", e.getMessage());
+            }
+        }, reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 从数据库全量加载，保留已有权限的位序号
+     */
+    public synchronized void reload() {
+        long startTime = System.currentTimeMillis();
+        Graph previous = graph;
+        Graph next = new Graph();
+        if (previous != null) {
+            next.permissionBits.putAll(previous.permissionBits);
+            next.codes = Arrays.copyOf(previous.codes, previous.codes.length);
+        }
+        for (Permission permission : permissionRepository.findAll()) {
+            next.putPermission(permission);
+        }
+
+        Map<Long, BitSet> rolePermissions = new HashMap<>();
+        for (RolePermission relation : rolePermissionRepository.findAll()) {
+            Integer bit = next.permissionBits.get(relation.getPermissionId());
+            if (bit != null) {
+                rolePermissions.computeIfAbsent(relation.getRoleId(), key -> new BitSet()).set(bit);
+            }
+        }
+        for (Role role : roleRepository.findAll()) {
+            next.roles.put(role.getId(), new RoleNode(role.getRoleCode(), role.getStatus() != null && role.getStatus() == 1,
+                    rolePermissions.getOrDefault(role.getId(), new BitSet())));
+        }
+        graph = next;
+        log.info("权限图已加载 - 角色: {}, 权限: {}, 耗时: {}ms",
+                next.roles.size(), next.permissionBits.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 用户的启用角色代码，没有角色时返回访客角色
+     */
+    public List<String> getUserRoles(Long userId) {
+        long[] roleIds = roleIdsOf(userId);
+        if (roleIds.length == 0) {
+            log.warn("用户{}没有分配任何角色", userId);
+            return GUEST_ROLES;
+        }
+        Graph current = current();
+        List<String> roleCodes = new ArrayList<>(roleIds.length);
+        for (long roleId : roleIds) {
+            RoleNode role = current.roles.get(roleId);
+            if (role != null && role.enabled) {
+                roleCodes.add(role.roleCode);
+            }
+        }
+        return roleCodes;
+    }
+
+    /**
+     * 用户的有效权限代码：各角色权限位集按位或，过滤已停用的权限
+     */
+    public List<String> getUserPermissions(Long userId) {
+        long[] roleIds = roleIdsOf(userId);
+        if (roleIds.length == 0) {
+            log.warn("用户{}没有分配任何角色", userId);
+            return GUEST_PERMISSIONS;
+        }
+        Graph current = current();
+        BitSet granted = new BitSet();
+        for (long roleId : roleIds) {
+            RoleNode role = current.roles.get(roleId);
+            if (role != null) {
+                granted.or(role.permissions);
+            }
+        }
+        if (granted.isEmpty()) {
+            log.warn("用户{}的角色没有分配任何权限", userId);
+            return GUEST_PERMISSIONS;
+        }
+        granted.and(current.enabledPermissions);
+        List<String> codes = new ArrayList<>(granted.cardinality());
+        for (int bit = granted.nextSetBit(0); bit >= 0; bit = granted.nextSetBit(bit + 1)) {
+            codes.add(current.codes[bit]);
+        }
+        return codes;
+    }
+
+    /**
+     * 新增或更新角色（不影响角色的权限）
+     */
+    public synchronized void onRoleSaved(Role role) {
+        Graph next = current().copy();
+        RoleNode existing = next.roles.get(role.getId());
+        next.roles.put(role.getId(), new RoleNode(role.getRoleCode(), role.getStatus() != null && role.getStatus() == 1,
+                existing != null ? existing.permissions : new BitSet()));
+        graph = next;
+    }
+
+    public synchronized void onRoleDeleted(Long roleId) {
+        Graph next = current().copy();
+        next.roles.remove(roleId);
+        graph = next;
+    }
+
+    /**
+     * 角色的权限被整体替换
+     */
+    public synchronized void onRolePermissionsReplaced(Long roleId, Collection<Long> permissionIds) {
+        Graph next = current().copy();
+        RoleNode existing = next.roles.get(roleId);
+        if (existing == null) {
+            return;
+        }
+        BitSet permissions = new BitSet();
+        if (permissionIds != null) {
+            for (Long permissionId : permissionIds) {
+                Integer bit = next.permissionBits.get(permissionId);
+                if (bit != null) {
+                    permissions.set(bit);
+                }
+            }
+        }
+        next.roles.put(roleId, new RoleNode(existing.roleCode, existing.enabled, permissions));
+        graph = next;
+    }
+
+    /**
+     * 新增或更新权限，已有权限沿用原位序号
+     */
+    public synchronized void onPermissionSaved(Permission permission) {
+        Graph next = current().copy();
+        next.putPermission(permission);
+        graph = next;
+    }
+
+    /**
+     * 删除权限：停用其位，位序号不回收，角色位集中的残留位被启用位集过滤
+     */
+    public synchronized void onPermissionDeleted(Long permissionId) {
+        Graph next = current().copy();
+        Integer bit = next.permissionBits.get(permissionId);
+        if (bit != null) {
+            next.enabledPermissions.clear(bit);
+        }
+        graph = next;
+    }
+
+    /**
+     * 用户的角色分配发生变化
+     */
+    public void evictUser(Long userId) {
+        userRoles.remove(userId);
+    }
+
+    private Graph current() {
+        Graph current = graph;
+        if (current == null) {
+            synchronized (this) {
+                if (graph == null) {
+                    reload();
+                }
+                current = graph;
+            }
+        }
+        return current;
+    }
+
+    private long[] roleIdsOf(Long userId) {
+        long now = System.currentTimeMillis();
+        CachedRoles cached = userRoles.get(userId);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.roleIds;
+        }
+        List<Long> roleIds = userRoleRepository.findRoleIdsByUserId(userId);
+        long[] ids = roleIds.isEmpty() ? NO_ROLES : roleIds.stream().mapToLong(Long::longValue).toArray();
+        if (userRoles.size() >= userRolesMaxSize) {
+            userRoles.clear();
+        }
+        userRoles.put(userId, new CachedRoles(ids, now + TimeUnit.SECONDS.toMillis(userRolesTtlSeconds)));
+        return ids;
+    }
+
+    private record CachedRoles(long[] roleIds, long expiresAt) {
+    }
+
+    /**
+     * 角色节点，权限位集创建后不再修改
+     */
+    private record RoleNode(String roleCode, boolean enabled, BitSet permissions) {
+    }
+
+    /**
+     * 权限图快照，修改时先复制
+     */
+    private static class Graph {
+
+        /**
+         * 权限ID -> 位序号
+         */
+        private final Map<Long, Integer> permissionBits = new HashMap<>();
+
+        /**
+         * 位序号 -> 权限代码
+         */
+        private String[] codes = new String[16];
+
+        private final BitSet enabledPermissions = new BitSet();
+
+        private final Map<Long, RoleNode> roles = new HashMap<>();
+
+        Graph copy() {
+            Graph copy = new Graph();
+            copy.permissionBits.putAll(permissionBits);
+            copy.codes = Arrays.copyOf(codes, codes.length);
+            copy.enabledPermissions.or(enabledPermissions);
+            copy.roles.putAll(roles);
+            return copy;
+        }
+
+        void putPermission(Permission permission) {
+            Integer bit = permissionBits.get(permission.getId());
+            if (bit == null) {
+                bit = permissionBits.size();
+                permissionBits.put(permission.getId(), bit);
+                if (bit >= codes.length) {
+                    codes = Arrays.copyOf(codes, codes.length * 2);
+                }
+            }
+            codes[bit] = permission.getPermissionCode() != null ? permission.getPermissionCode().intern() : null;
+            enabledPermissions.set(bit, permission.getStatus() != null && permission.getStatus() == 1);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.vediofun.auth.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 登录会话存储
+ * 会话令牌集合、旧令牌黑名单、失效事件发布和刷新令牌写入由一个Lua脚本在Redis端原子执行，
+ * 每次登录或刷新只需一次往返，同一用户并发登录时不会交错。
+ * 参数经 RedisTemplate 的值序列化器(JSON)传入，与 opsForValue/opsForSet 写入的格式一致。
+ * <p>
+ * 需要单机或哨兵模式的Redis，不支持Redis Cluster：旧令牌的黑名单键由脚本根据会话集合的成员拼出，
+ * 无法预先通过 KEYS 声明，且会话、刷新令牌、黑名单各键不在同一哈希槽。
+ * 改用Redis Cluster时需先读出会话集合、把黑名单键作为 KEYS 传入，并为各键加上相同的哈希标签
+ */
+@Service
+@RequiredArgsConstructor
+public class SessionStore {
+
+    private static final String TOKEN_BLACKLIST_PREFIX = "auth:blacklist:";
+    private static final String TOKEN_BLACKLIST_CHANNEL = "auth:blacklist:events";
+    private static final String USER_SESSION_PREFIX = "auth:session:";
+    private static final String REFRESH_TOKEN_PREFIX = "auth:refresh:";
+
+    /**
+     * KEYS[1] 会话集合, KEYS[2] 刷新令牌；黑名单键 ARGV[6]..旧令牌 未在 KEYS 中声明（见类注释）
+     * ARGV[1] 新访问令牌, ARGV[2] 刷新令牌数据, ARGV[3] 会话有效期(毫秒), ARGV[4] 刷新令牌有效期(毫秒),
+     * ARGV[5] 是否使旧令牌失效, ARGV[6] 黑名单键前缀, ARGV[7] 失效事件频道, ARGV[8] 黑名单标记值
+     * 返回被替换的旧令牌
+     */
+    private static final RedisScript<List> REPLACE_SESSION_SCRIPT = new DefaultRedisScript<>("""
+            local old = redis.call('SMEMBERS', KEYS[1])
+            if ARGV[5] == 'true' and #old > 0 then
+                local prefix = cjson.decode(ARGV[6])
+                local channel = cjson.decode(ARGV[7])
+                for _, member in ipairs(old) do
+                    local token = cjson.decode(member)
+                    redis.call('SET', prefix .. token, ARGV[8], 'PX', ARGV[3])
+                    redis.call('PUBLISH', channel, token)
+                end
+            end
+            redis.call('DEL', KEYS[1])
+            redis.call('SADD', KEYS[1], ARGV[1])
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[4])
+            return old
+            """, List.class);
+
+    @Value("${jwt.expiration:86400000}")
+    private Long expiration;
+
+    @Value("${jwt.refresh-expiration:604800000}")
+    private Long refreshExpiration;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 用新访问令牌替换用户会话，并写入刷新令牌数据
+     *
+     * @param revokeExisting 是否把会话中的旧令牌加入黑名单并通知网关（SSO登录）
+     * @return 被替换的旧令牌
+     */
+    public List<String> replaceSession(Long userId, String accessToken, String refreshToken,
+                                       Map<String, Object> refreshData, boolean revokeExisting) {
+        List<?> replaced = redisTemplate.execute(REPLACE_SESSION_SCRIPT,
+                List.of(USER_SESSION_PREFIX + userId, REFRESH_TOKEN_PREFIX + refreshToken),
+                accessToken, refreshData, expiration, refreshExpiration, revokeExisting,
+                TOKEN_BLACKLIST_PREFIX, TOKEN_BLACKLIST_CHANNEL, "blacklisted");
+        List<String> tokens = new ArrayList<>();
+        if (replaced != null) {
+            replaced.forEach(token -> tokens.add(String.valueOf(token)));
+        }
+        return tokens;
+    }
+}
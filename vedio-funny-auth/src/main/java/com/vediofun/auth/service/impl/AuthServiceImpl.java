@@ -9,20 +9,28 @@ import com.vediofun.auth.entity.Role;
 import com.vediofun.auth.repository.UserRepository;
 import com.vediofun.auth.repository.RoleRepository;
 import com.vediofun.auth.repository.UserRoleRepository;
-import com.vediofun.auth.repository.RolePermissionRepository;
-import com.vediofun.auth.repository.PermissionRepository;
 import com.vediofun.auth.service.AuthService;
+import com.vediofun.auth.service.LastLoginRecorder;
+import com.vediofun.auth.service.LoginLogWriter;
+import com.vediofun.auth.service.LoginRateLimiter;
+import com.vediofun.auth.service.PermissionGraph;
+import com.vediofun.auth.service.SessionStore;
 import com.vediofun.auth.util.JwtUtil;
 import com.vediofun.auth.util.PasswordUtil;
 import com.vediofun.auth.dto.RegisterRequest;
 import com.vediofun.common.exception.BusinessException;
+import com.vediofun.common.result.ResultCode;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -31,9 +39,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 /**
  * 认证服务实现类 - 轻量级实现
@@ -41,8 +47,8 @@ import java.util.stream.Collectors;
  * 
  * 权限查询架构：
  * - 禁用JOIN查询，各表独立查询，支持分布式数据库扩展
- * - 用户角色查询：user_roles -> roles (两步查询)
- * - 用户权限查询：user_roles -> role_permissions -> permissions (三步查询)
+ * - 用户角色ID查询：user_roles 单表查询，按用户缓存
+ * - 角色、角色权限、权限代码：常驻内存的权限图（PermissionGraph），不再逐次查询
  * - 每个Repository只负责单表查询，避免跨表关联
  */
 @Slf4j
@@ -53,21 +59,23 @@ public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final UserRoleRepository userRoleRepository;
-    private final RolePermissionRepository rolePermissionRepository;
-    private final PermissionRepository permissionRepository;
+    private final PermissionGraph permissionGraph;
+    private final SessionStore sessionStore;
+    private final LoginRateLimiter loginRateLimiter;
+    private final LoginLogWriter loginLogWriter;
+    private final LastLoginRecorder lastLoginRecorder;
     private final JwtUtil jwtUtil;
     private final PasswordUtil passwordUtil;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
     private final PasswordEncoder passwordEncoder;
     
     @Value("${jwt.expiration:86400000}")
     private Long expiration;
-    
-    @Value("${jwt.refresh-expiration:604800000}")
-    private Long refreshExpiration;
 
     // Redis键前缀
     private static final String TOKEN_BLACKLIST_PREFIX = "auth:blacklist:";
+    private static final String TOKEN_BLACKLIST_CHANNEL = "auth:blacklist:events";
     private static final String USER_SESSION_PREFIX = "auth:session:";
     private static final String REFRESH_TOKEN_PREFIX = "auth:refresh:";
 
@@ -76,36 +84,43 @@ public class AuthServiceImpl implements AuthService {
     public LoginResponse login(LoginRequest request) {
         log.info("用户登录尝试: {}", request.getUsername());
 
+        // 已查到用户时，失败的登录日志同样记录用户ID
+        Long userId = null;
         try {
+            // 限流在密码哈希之前执行
+            String clientIp = getClientIp();
+            if (!loginRateLimiter.tryAcquire(request.getUsername(), clientIp)) {
+                throw new BusinessException(ResultCode.TOO_MANY_REQUESTS.getCode(), "登录尝试过于频繁，请稍后重试");
+            }
+
             // 查找用户
-            User user = userRepository.findByUsername(request.getUsername())
-                    .orElseThrow(() -> new RuntimeException("用户名或密码错误"));
+            User user = userRepository.findByUsername(request.getUsername()).orElse(null);
+            if (user == null) {
+                loginRateLimiter.recordFailure(request.getUsername());
+                throw new RuntimeException("用户名或密码错误");
+            }
+            userId = user.getId();
 
             // 验证密码
             if (!passwordUtil.verifyPassword(request.getPassword(), user.getPassword())) {
                 log.warn("用户{}密码验证失败", request.getUsername());
+                loginRateLimiter.recordFailure(request.getUsername());
                 throw new RuntimeException("用户名或密码错误");
             }
 
+            // 哈希轮数配置变化后，用当前轮数重新加密
+            if (passwordUtil.needsRehash(user.getPassword())) {
+                user.setPassword(passwordUtil.encodePassword(request.getPassword()));
+                userRepository.save(user);
+                log.info("用户{}密码已按当前哈希轮数重新加密", user.getUsername());
+            }
+
             // 检查用户状态
             if (user.getStatus() == null || user.getStatus() != 1) {
                 log.warn("用户{}状态异常: {}", request.getUsername(), user.getStatus());
                 throw new RuntimeException("用户已被禁用或锁定");
             }
 
-            // 实现SSO：检查是否已有活跃会话，如果有则使旧令牌失效
-            String existingSessionKey = USER_SESSION_PREFIX + user.getId();
-            Set<Object> existingTokens = redisTemplate.opsForSet().members(existingSessionKey);
-            if (existingTokens != null && !existingTokens.isEmpty()) {
-                log.info("检测到用户{}已有活跃会话，执行SSO令牌更新", user.getUsername());
-                for (Object token : existingTokens) {
-                    // 将旧令牌加入黑名单
-                    addToBlacklist((String) token);
-                }
-                // 清除旧会话
-                redisTemplate.delete(existingSessionKey);
-            }
-
             // 生成新的JWT令牌
             String accessToken = jwtUtil.generateToken(
                     user.getUsername(),
@@ -114,25 +129,21 @@ public class AuthServiceImpl implements AuthService {
             );
             String refreshToken = jwtUtil.generateRefreshToken(user.getUsername());
 
-            // SSO会话管理：记录新的会话令牌
-            redisTemplate.opsForSet().add(existingSessionKey, accessToken);
-            redisTemplate.expire(existingSessionKey, expiration, TimeUnit.MILLISECONDS);
-
-            // 存储刷新令牌
-            String refreshKey = REFRESH_TOKEN_PREFIX + refreshToken;
+            // 实现SSO：旧会话令牌加入黑名单，记录新的会话令牌并存储刷新令牌（一次Redis往返）
             Map<String, Object> refreshData = new HashMap<>();
             refreshData.put("userId", user.getId());
             refreshData.put("username", user.getUsername());
             refreshData.put("accessToken", accessToken);
-            redisTemplate.opsForValue().set(refreshKey, refreshData, refreshExpiration, TimeUnit.MILLISECONDS);
+            List<String> revokedTokens = sessionStore.replaceSession(user.getId(), accessToken, refreshToken, refreshData, true);
+            if (!revokedTokens.isEmpty()) {
+                log.info("检测到用户{}已有活跃会话，已使{}个旧令牌失效", user.getUsername(), revokedTokens.size());
+            }
 
-            // 更新用户登录信息
-            user.setLastLoginTime(LocalDateTime.now());
-            user.setLastLoginIp(getClientIp()); // 需要从请求中获取IP
-            userRepository.save(user);
+            // 更新用户登录信息（延迟批量写入，登录路径不更新用户表）
+            lastLoginRecorder.record(user.getId(), LocalDateTime.now(), clientIp);
 
             // 记录登录日志
-            saveLoginLog(user, LoginLog.LoginType.PASSWORD, true, "登录成功");
+            saveLoginLog(user.getId(), user.getUsername(), LoginLog.LoginType.PASSWORD, true, "登录成功");
 
             // 获取用户角色和权限
             List<String> userRoles = getUserRoles(user.getId());
@@ -171,6 +182,11 @@ public class AuthServiceImpl implements AuthService {
 
         } catch (Exception e) {
             log.error("用户登录失败: {}, 错误: {}", request.getUsername(), e.getMessage());
+            saveLoginLog(userId, request.getUsername(), LoginLog.LoginType.PASSWORD, false, e.getMessage());
+            // 业务异常保留错误码（如限流429、哈希繁忙503），由全局异常处理映射为对应HTTP状态
+            if (e instanceof BusinessException businessException) {
+                throw businessException;
+            }
             // 直接抛出原始错误信息，不包装成"运行时错误"
             throw new RuntimeException(e.getMessage());
         }
@@ -279,15 +295,9 @@ public class AuthServiceImpl implements AuthService {
                     user.getUserType().name()
             );
             
-            // 更新Redis中的令牌信息
+            // 更新Redis中的令牌信息和用户会话（一次Redis往返）
             refreshData.put("accessToken", newAccessToken);
-            redisTemplate.opsForValue().set(refreshKey, refreshData, refreshExpiration, TimeUnit.MILLISECONDS);
-            
-            // 更新用户会话
-            String sessionKey = USER_SESSION_PREFIX + user.getId();
-            redisTemplate.delete(sessionKey);
-            redisTemplate.opsForSet().add(sessionKey, newAccessToken);
-            redisTemplate.expire(sessionKey, expiration, TimeUnit.MILLISECONDS);
+            sessionStore.replaceSession(user.getId(), newAccessToken, refreshToken, refreshData, false);
             
             // 构建用户信息
             LoginResponse.UserInfo userInfo = LoginResponse.UserInfo.builder()
@@ -349,7 +359,8 @@ public class AuthServiceImpl implements AuthService {
             userInfo.put("email", user.getEmail());
             userInfo.put("userType", user.getUserType().name());
             userInfo.put("enabled", user.getStatus() == 1);
-            userInfo.put("lastLoginTime", user.getLastLoginTime());
+            LocalDateTime pendingLoginTime = lastLoginRecorder.pendingLoginTime(user.getId());
+            userInfo.put("lastLoginTime", pendingLoginTime != null ? pendingLoginTime : user.getLastLoginTime());
             userInfo.put("roles", userRoles);
             userInfo.put("permissions", userPermissions);
             
@@ -369,23 +380,8 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public List<String> getUserRoles(Long userId) {
         try {
-            // 无JOIN查询架构 - 第一步：查询用户的角色ID列表
-            // 只查询user_roles表，避免跨表JOIN，支持分布式数据库
-            List<Long> roleIds = userRoleRepository.findRoleIdsByUserId(userId);
-            
-            if (roleIds.isEmpty()) {
-                log.warn("用户{}没有分配任何角色", userId);
-                return Collections.singletonList("ROLE_GUEST");
-            }
-            
-            // 无JOIN查询架构 - 第二步：根据角色ID查询角色信息
-            // 只查询roles表，各表独立查询
-            List<Role> roles = roleRepository.findRolesByIds(roleIds);
-            
-            return roles.stream()
-                    .filter(role -> role.getStatus() == 1) // 只返回启用的角色
-                    .map(Role::getRoleCode)
-                    .collect(Collectors.toList());
+            // 用户角色ID来自 user_roles（按用户缓存），角色信息从内存权限图读取
+            return permissionGraph.getUserRoles(userId);
         } catch (Exception e) {
             log.error("获取用户角色失败: {}", e.getMessage());
             // 返回默认角色为访客
@@ -396,31 +392,8 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public List<String> getUserPermissions(Long userId) {
         try {
-            // 无JOIN查询架构 - 第一步：查询用户的角色ID列表
-            // 只查询user_roles表，避免跨表JOIN，支持分布式数据库
-            List<Long> roleIds = userRoleRepository.findRoleIdsByUserId(userId);
-            
-            if (roleIds.isEmpty()) {
-                log.warn("用户{}没有分配任何角色", userId);
-                return Arrays.asList("dashboard:view", "model:menu", "model:list", "model:market");
-            }
-            
-            // 无JOIN查询架构 - 第二步：根据角色ID查询权限ID列表
-            // 只查询role_permissions表，各表独立查询
-            List<Long> permissionIds = rolePermissionRepository.findPermissionIdsByRoleIds(roleIds);
-            
-            if (permissionIds.isEmpty()) {
-                log.warn("用户{}的角色没有分配任何权限", userId);
-                return Arrays.asList("dashboard:view", "model:menu", "model:list", "model:market");
-            }
-            
-            // 无JOIN查询架构 - 第三步：根据权限ID查询权限代码
-            // 只查询permissions表，各表独立查询
-            List<String> permissions = permissionRepository.findPermissionCodesByIds(permissionIds);
-            
-            return permissions.stream()
-                    .distinct() // 去重
-                    .collect(Collectors.toList());
+            // 角色权限位集按位或后映射为权限代码，不再逐次查询 role_permissions 和 permissions
+            return permissionGraph.getUserPermissions(userId);
         } catch (Exception e) {
             log.error("获取用户权限失败: {}", e.getMessage());
             // 返回访客默认权限
@@ -435,6 +408,8 @@ public class AuthServiceImpl implements AuthService {
         try {
             String blacklistKey = TOKEN_BLACKLIST_PREFIX + token;
             redisTemplate.opsForValue().set(blacklistKey, "blacklisted", expiration, TimeUnit.MILLISECONDS);
+            // 通知网关更新本地黑名单
+            stringRedisTemplate.convertAndSend(TOKEN_BLACKLIST_CHANNEL, token);
             log.debug("令牌已加入黑名单: {}", token.substring(0, Math.min(20, token.length())) + "...");
         } catch (Exception e) {
             log.error("加入黑名单失败: {}", e.getMessage());
@@ -458,23 +433,57 @@ public class AuthServiceImpl implements AuthService {
      * 获取客户端IP地址
      */
     private String getClientIp() {
-        // 简化实现，实际应该从HttpServletRequest中获取
-        return "127.0.0.1";
+        HttpServletRequest request = currentRequest();
+        if (request == null) {
+            return "127.0.0.1";
+        }
+        // 经网关转发时取 X-Forwarded-For 中的最后一个地址，即网关追加的对端地址；之前的地址可由客户端伪造
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            String[] hops = forwardedFor.split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                if (!hops[i].isBlank()) {
+                    return hops[i].trim();
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private HttpServletRequest currentRequest() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return attributes.getRequest();
+        }
+        return null;
     }
 
     /**
-     * 保存登录日志
+     * 保存登录日志，由 LoginLogWriter 异步批量写入数据库
      */
-    private void saveLoginLog(User user, LoginLog.LoginType loginType, boolean success, String message) {
+    private void saveLoginLog(Long userId, String username, LoginLog.LoginType loginType, boolean success, String message) {
         try {
-            // 简化实现，可以根据需要记录详细的登录日志
-            log.info("登录日志 - 用户: {}, 类型: {}, 结果: {}, 消息: {}", 
-                    user.getUsername(), loginType, success ? "成功" : "失败", message);
+            log.info("登录日志 - 用户: {}, 类型: {}, 结果: {}, 消息: {}",
+                    username, loginType, success ? "成功" : "失败", message);
+            HttpServletRequest request = currentRequest();
+            LoginLog loginLog = new LoginLog();
+            loginLog.setUserId(userId);
+            loginLog.setUsername(truncate(username, 50));
+            loginLog.setLoginType(loginType);
+            loginLog.setLoginStatus(success ? 1 : 0);
+            loginLog.setClientIp(truncate(getClientIp(), 50));
+            loginLog.setUserAgent(request != null ? truncate(request.getHeader("User-Agent"), 500) : null);
+            loginLog.setFailureReason(success ? null : truncate(message, 500));
+            loginLog.setLoginTime(LocalDateTime.now());
+            loginLogWriter.submit(loginLog);
         } catch (Exception e) {
             log.error("保存登录日志失败: {}", e.getMessage());
         }
     }
 
+    private String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
     @Override
     @Transactional
     public User register(RegisterRequest request) {
@@ -512,6 +521,7 @@ public class AuthServiceImpl implements AuthService {
         
         // 直接在user_roles表中插入角色关系
         userRoleRepository.insertUserRole(savedUser.getId(), userRole.getId());
+        permissionGraph.evictUser(savedUser.getId());
         
         log.info("用户注册成功: {}, 默认角色: {}", savedUser.getUsername(), userRole.getRoleCode());
         
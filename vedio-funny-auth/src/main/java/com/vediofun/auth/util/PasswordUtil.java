@@ -1,42 +1,135 @@
 package com.vediofun.auth.util;
 
+import com.vediofun.common.exception.BusinessException;
+import com.vediofun.common.result.ResultCode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
  * 密码加密工具类
- * 使用BCrypt算法进行密码加密和验证
+ * 使用BCrypt算法进行密码加密和验证。哈希计算在按CPU核数设定的专用线程池中执行，队列有界，
+ * 队列满时立即拒绝，避免登录高峰或撞库请求占满Web线程；哈希轮数可配置，旧轮数的密码在登录成功后重新加密
  */
+@Slf4j
 @Component
 public class PasswordUtil {
 
-    private static final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+    /**
+     * BCrypt哈希格式：$2a$10$...，第二段为轮数
+     */
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
 
     /**
-     * 加密密码
+     * BCrypt轮数(4-31)，每加1计算时间翻倍
      */
-    public static String encode(String rawPassword) {
-        return encoder.encode(rawPassword);
-    }
+    @Value("${auth.password.bcrypt-strength:10}")
+    private int bcryptStrength;
 
     /**
-     * 验证密码
+     * 哈希线程数，0表示CPU核数
      */
-    public static boolean matches(String rawPassword, String encodedPassword) {
-        return encoder.matches(rawPassword, encodedPassword);
+    @Value("${auth.password.hash-threads:0}")
+    private int hashThreads;
+
+    /**
+     * 等待哈希的请求上限
+     */
+    @Value("${auth.password.hash-queue-capacity:64}")
+    private int hashQueueCapacity;
+
+    /**
+     * 单次哈希的最长等待时间(毫秒)，含排队时间
+     */
+    @Value("${auth.password.hash-timeout-ms:3000}")
+    private long hashTimeoutMs;
+
+    private BCryptPasswordEncoder encoder;
+
+    private ThreadPoolExecutor hashExecutor;
+
+    @PostConstruct
+    public void init() {
+        encoder = new BCryptPasswordEncoder(bcryptStrength);
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        hashExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, hashQueueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("密码哈希线程池已启动 - 线程数: {}, 队列上限: {}, BCrypt轮数: {}", threads, hashQueueCapacity, bcryptStrength);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (hashExecutor != null) {
+            hashExecutor.shutdownNow();
+        }
     }
 
     /**
      * 生成随机盐值的加密密码
      */
     public String encodePassword(String rawPassword) {
-        return encode(rawPassword);
+        return hash(() -> encoder.encode(rawPassword));
     }
 
     /**
      * 验证密码是否匹配
      */
     public boolean verifyPassword(String rawPassword, String encodedPassword) {
-        return matches(rawPassword, encodedPassword);
+        return hash(() -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * 已加密密码的轮数与当前配置不同（调高或调低），需要重新加密
+     */
+    public boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != bcryptStrength;
+    }
+
+    private <T> T hash(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = hashExecutor.submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("密码哈希队列已满，拒绝请求");
+            throw new BusinessException(ResultCode.SERVICE_UNAVAILABLE.getCode(), "登录请求过多，请稍后重试");
+        }
+        try {
+            return future.get(hashTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new BusinessException(ResultCode.SERVICE_UNAVAILABLE.getCode(), "登录请求过多，请稍后重试");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("密码校验被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("密码校验失败: " + e.getCause().getMessage(), e.getCause());
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package com.vediofun.auth.service;
+
+import com.vediofun.auth.entity.Permission;
+import com.vediofun.auth.entity.Role;
+import com.vediofun.auth.entity.RolePermission;
+import com.vediofun.auth.repository.PermissionRepository;
+import com.vediofun.auth.repository.RolePermissionRepository;
+import com.vediofun.auth.repository.RoleRepository;
+import com.vediofun.auth.repository.UserRoleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 内存RBAC权限图测试
+ * 角色、权限、角色权限关系和用户角色由模拟的仓库提供
+ */
+class PermissionGraphTest {
+
+    private final List<Role> roles = new ArrayList<>();
+    private final List<Permission> permissions = new ArrayList<>();
+    private final List<RolePermission> rolePermissions = new ArrayList<>();
+
+    private UserRoleRepository userRoleRepository;
+    private PermissionGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        RoleRepository roleRepository = mock(RoleRepository.class);
+        PermissionRepository permissionRepository = mock(PermissionRepository.class);
+        RolePermissionRepository rolePermissionRepository = mock(RolePermissionRepository.class);
+        userRoleRepository = mock(UserRoleRepository.class);
+        when(roleRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(roles));
+        when(permissionRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(permissions));
+        when(rolePermissionRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(rolePermissions));
+
+        graph = new PermissionGraph(roleRepository, permissionRepository, rolePermissionRepository, userRoleRepository);
+        ReflectionTestUtils.setField(graph, "userRolesTtlSeconds", 300L);
+        ReflectionTestUtils.setField(graph, "userRolesMaxSize", 100);
+        ReflectionTestUtils.setField(graph, "reloadIntervalSeconds", 0L);
+
+        permissions.add(permission(1L, "model:list", 1));
+        permissions.add(permission(2L, "model:deploy", 1));
+        permissions.add(permission(3L, "user:manage", 1));
+        permissions.add(permission(4L, "system:legacy", 0));
+        roles.add(role(10L, "ROLE_USER", 1));
+        roles.add(role(20L, "ROLE_OPERATOR", 1));
+        roles.add(role(30L, "ROLE_RETIRED", 0));
+        rolePermissions.add(new RolePermission(1L, 10L, 1L));
+        rolePermissions.add(new RolePermission(2L, 20L, 1L));
+        rolePermissions.add(new RolePermission(3L, 20L, 2L));
+        rolePermissions.add(new RolePermission(4L, 20L, 4L));
+        rolePermissions.add(new RolePermission(5L, 30L, 3L));
+    }
+
+    @Test
+    void permissionsAreUnionOfRolesWithoutDisabledPermissions() {
+        when(userRoleRepository.findRoleIdsByUserId(1L)).thenReturn(List.of(10L, 20L));
+
+        assertEquals(List.of("model:list", "model:deploy"), graph.getUserPermissions(1L));
+        assertEquals(List.of("ROLE_USER", "ROLE_OPERATOR"), graph.getUserRoles(1L));
+    }
+
+    @Test
+    void disabledRoleIsNotReported() {
+        when(userRoleRepository.findRoleIdsByUserId(1L)).thenReturn(List.of(10L, 30L));
+
+        assertEquals(List.of("ROLE_USER"), graph.getUserRoles(1L));
+    }
+
+    @Test
+    void userWithoutRolesGetsGuestDefaults() {
+        when(userRoleRepository.findRoleIdsByUserId(1L)).thenReturn(List.of());
+
+        assertEquals(List.of("ROLE_GUEST"), graph.getUserRoles(1L));
+        assertTrue(graph.getUserPermissions(1L).contains("dashboard:view"));
+    }
+
+    @Test
+    void userRolesAreCachedUntilEvicted() {
+        when(userRoleRepository.findRoleIdsByUserId(1L)).thenReturn(List.of(10L));
+
+        graph.getUserPermissions(1L);
+        graph.getUserRoles(1L);
+        verify(userRoleRepository, times(1)).findRoleIdsByUserId(1L);
+
+        when(userRoleRepository.findRoleIdsByUserId(1L)).thenReturn(List.of(20L));
+        graph.evictUser(1L);
+
+        assertEquals(List.of("ROLE_OPERATOR"), graph.getUserRoles(1L));
+        verify(userRoleRepository, times(2)).findRoleIdsByUserId(1L);
+    }
+
+    @Test
+    void incrementalUpdatesApplyWithoutReload() {
+        when(userRoleRepository.findRoleIdsByUserId(1L)).thenReturn(List.of(10L));
+        assertEquals(List.of("model:list"), graph.getUserPermissions(1L));
+
+        graph.onPermissionSaved(permission(5L, "model:export", 1));
+        graph.onRolePermissionsReplaced(10L, Set.of(1L, 3L, 5L));
+        assertEquals(List.of("model:list", "user:manage", "model:export"), graph.getUserPermissions(1L));
+
+        graph.onPermissionDeleted(3L);
+        assertEquals(List.of("model:list", "model:export"), graph.getUserPermissions(1L));
+
+        graph.onRoleSaved(role(10L, "ROLE_MEMBER", 1));
+        assertEquals(List.of("ROLE_MEMBER"), graph.getUserRoles(1L));
+        assertEquals(List.of("model:list", "model:export"), graph.getUserPermissions(1L));
+
+        graph.onRoleDeleted(10L);
+        assertEquals(List.of(), graph.getUserRoles(1L));
+    }
+
+    @Test
+    void reloadKeepsBitsAndPicksUpChanges() {
+        when(userRoleRepository.findRoleIdsByUserId(1L)).thenReturn(List.of(10L));
+        assertEquals(List.of("model:list"), graph.getUserPermissions(1L));
+
+        // 位序号按加载顺序分配，重新加载时列表顺序变化不影响已有权限
+        permissions.add(0, permissions.remove(3));
+        rolePermissions.add(new RolePermission(6L, 10L, 2L));
+        graph.reload();
+
+        assertEquals(List.of("model:list", "model:deploy"), graph.getUserPermissions(1L));
+    }
+
+    private static Permission permission(Long id, String code, int status) {
+        Permission permission = new Permission();
+        permission.setId(id);
+        permission.setPermissionCode(code);
+        permission.setStatus(status);
+        return permission;
+    }
+
+    private static Role role(Long id, String code, int status) {
+        Role role = new Role();
+        role.setId(id);
+        role.setRoleCode(code);
+        role.setStatus(status);
+        return role;
+    }
+}
@@ -47,6 +47,19 @@ public class GlobalExceptionHandler {
                 .body(Result.error("系统内部错误: " + e.getMessage()));
     }
 
+    /**
+     * 处理业务异常，错误码是HTTP状态码时（如429、503）按该状态返回，否则返回500
+     */
+    @ExceptionHandler(BusinessException.class)
+    public ResponseEntity<Result<String>> handleBusinessException(BusinessException e, HttpServletRequest request) {
+        log.warn("业务异常 - URI: {} {}, 错误码: {}, 错误信息: {}", request.getMethod(), request.getRequestURI(),
+                e.getCode(), e.getMessage());
+
+        HttpStatus status = e.getCode() != null ? HttpStatus.resolve(e.getCode()) : null;
+        return ResponseEntity.status(status != null ? status : HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Result.error(e.getCode(), e.getMessage()));
+    }
+
     /**
      * 处理运行时异常
      */
@@ -5,7 +5,6 @@ import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
-import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.env.Environment;
 
@@ -13,13 +12,12 @@ import org.springframework.core.env.Environment;
  * Gateway网关服务启动类
  * 
  * 基于Spring Cloud Gateway的响应式网关
- * 集成Nacos服务发现、Sentinel流量控制、Feign客户端
+ * 集成Nacos服务发现、Sentinel流量控制
  * 
  * @author VedioFun Team
  */
 @SpringBootApplication
 @EnableDiscoveryClient
-@EnableFeignClients(basePackages = "com.vediofun.gateway.feign")
 public class GatewayApplication {
 
     public static void main(String[] args) {
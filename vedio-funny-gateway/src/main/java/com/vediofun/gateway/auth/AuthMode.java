@@ -0,0 +1,37 @@
+package com.vediofun.gateway.auth;
+
+/**
+ * 路由认证方式
+ */
+public enum AuthMode {
+
+    /**
+     * 不需要认证
+     */
+    SKIP,
+
+    /**
+     * 网关本地验签（未配置密钥时退化为远程验证）
+     */
+    LOCAL,
+
+    /**
+     * 调用认证服务验证
+     */
+    REMOTE;
+
+    /**
+     * 按配置值解析，忽略大小写；无法识别时返回 null
+     */
+    public static AuthMode parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (value.trim().toLowerCase()) {
+            case "skip", "none", "anonymous" -> SKIP;
+            case "local" -> LOCAL;
+            case "remote", "sso" -> REMOTE;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package com.vediofun.gateway.auth;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 认证规则路径匹配器（按路径段构建的前缀树，构建后只读）
+ * 规则按路径段前缀生效：/api/auth/login 同时匹配 /api/auth/login 及其下级路径，结尾的 /** 可省略；
+ * 单个 * 匹配任意一个路径段。匹配时每段只查一次子节点（精确段优先于 *），取最长匹配的规则，
+ * 耗时只与请求路径长度有关，与规则数量无关
+ */
+public class AuthPathMatcher {
+
+    private static final String WILDCARD = "*";
+
+    private final Node root = new Node();
+
+    /**
+     * 添加规则，同一路径重复添加时后者覆盖前者
+     */
+    public AuthPathMatcher add(String pattern, AuthMode mode) {
+        String normalized = pattern.trim();
+        if (normalized.endsWith("/**")) {
+            normalized = normalized.substring(0, normalized.length() - 3);
+        }
+        Node node = root;
+        int start = 0;
+        int length = normalized.length();
+        while (start < length) {
+            int end = normalized.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                node = node.child(normalized.substring(start, end));
+            }
+            start = end + 1;
+        }
+        node.mode = mode;
+        return this;
+    }
+
+    /**
+     * 查找路径对应的认证方式，没有规则时返回 null
+     */
+    public AuthMode match(String path) {
+        Node node = root;
+        AuthMode matched = node.mode;
+        int start = 0;
+        int length = path.length();
+        while (start < length && node != null) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                Node next = node.children != null ? node.children.get(path.substring(start, end)) : null;
+                node = next != null ? next : node.wildcard;
+                if (node != null && node.mode != null) {
+                    matched = node.mode;
+                }
+            }
+            start = end + 1;
+        }
+        return matched;
+    }
+
+    private static class Node {
+        private Map<String, Node> children;
+        private Node wildcard;
+        private AuthMode mode;
+
+        Node child(String segment) {
+            if (WILDCARD.equals(segment)) {
+                if (wildcard == null) {
+                    wildcard = new Node();
+                }
+                return wildcard;
+            }
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(segment, s -> new Node());
+        }
+    }
+}
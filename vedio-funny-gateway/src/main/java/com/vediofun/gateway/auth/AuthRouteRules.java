@@ -0,0 +1,106 @@
+package com.vediofun.gateway.auth;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 网关路由认证规则
+ * 内置白名单之外的规则从 gateway.auth.rules 读取（键为认证方式 skip/local/remote，值为路径列表），
+ * Nacos配置变更后自动重建匹配器；未命中任何规则的路径使用 gateway.auth.mode
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuthRouteRules {
+
+    private static final String RULES_PREFIX = "gateway.auth.rules";
+
+    /**
+     * 内置的免认证路径
+     */
+    private static final List<String> DEFAULT_SKIP_PATHS = Arrays.asList(
+        "/api/auth/auth/login",
+        "/api/auth/auth/register",
+        "/api/auth/auth/health",
+        "/api/auth/auth/test",
+        "/api/auth/auth/check-username",
+        "/api/auth/auth/validate",
+        "/api/auth/auth/refresh",
+        "/gateway/info",
+        "/gateway/routes",
+        "/gateway/status",
+        "/actuator",
+        "/doc.html",
+        "/webjars",
+        "/swagger-resources",
+        "/v3/api-docs"
+    );
+
+    private final Environment environment;
+
+    private volatile AuthPathMatcher matcher = new AuthPathMatcher();
+    private volatile AuthMode defaultMode = AuthMode.LOCAL;
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().anyMatch(key -> key.startsWith(RULES_PREFIX) || key.equals("gateway.auth.mode"))) {
+            reload();
+        }
+    }
+
+    /**
+     * 查找路径的认证方式
+     */
+    public AuthMode resolve(String path) {
+        AuthMode mode = matcher.match(path);
+        return mode != null ? mode : defaultMode;
+    }
+
+    /**
+     * 重新构建匹配器，新规则整体替换旧规则
+     */
+    public synchronized void reload() {
+        AuthPathMatcher rebuilt = new AuthPathMatcher();
+        DEFAULT_SKIP_PATHS.forEach(path -> rebuilt.add(path, AuthMode.SKIP));
+
+        Map<String, String[]> configured = Binder.get(environment)
+                .bind(RULES_PREFIX, Bindable.mapOf(String.class, String[].class))
+                .orElse(Map.of());
+        int count = 0;
+        for (Map.Entry<String, String[]> entry : configured.entrySet()) {
+            AuthMode mode = AuthMode.parse(entry.getKey());
+            if (mode == null) {
+                log.warn("忽略未知的认证方式: {}", entry.getKey());
+                continue;
+            }
+            for (String path : entry.getValue()) {
+                if (path != null && !path.isBlank()) {
+                    rebuilt.add(path, mode);
+                    count++;
+                }
+            }
+        }
+
+        AuthMode configuredDefault = AuthMode.parse(environment.getProperty("gateway.auth.mode", "local"));
+        defaultMode = configuredDefault != null && configuredDefault != AuthMode.SKIP ? configuredDefault : AuthMode.LOCAL;
+        matcher = rebuilt;
+        log.info("网关认证规则已加载: 内置免认证路径 {} 条, 配置规则 {} 条, 默认方式 {}",
+                DEFAULT_SKIP_PATHS.size(), count, defaultMode);
+    }
+}
@@ -0,0 +1,110 @@
+package com.vediofun.gateway.auth;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * 网关本地JWT验证器
+ * 使用与认证服务相同的密钥在网关内验证签名和有效期，无需远程调用认证服务。
+ * 配置 jwt.public-key 时按RS算法验签，否则使用 jwt.secret 按HS算法验签
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JwtTokenVerifier {
+
+    @Value("${jwt.secret:}")
+    private String secret;
+
+    /**
+     * RSA公钥（PEM或Base64编码的X.509格式）
+     */
+    @Value("${jwt.public-key:}")
+    private String publicKey;
+
+    private final TokenBlacklist tokenBlacklist;
+
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        Key key = resolveKey();
+        if (key == null) {
+            log.warn("未配置JWT密钥，网关将调用认证服务验证令牌");
+            return;
+        }
+        parser = Jwts.parserBuilder().setSigningKey(key).build();
+        log.info("网关本地JWT验证已启用: {}", key.getAlgorithm());
+    }
+
+    /**
+     * 是否可以在本地验证令牌
+     */
+    public boolean isEnabled() {
+        return parser != null;
+    }
+
+    /**
+     * 验证令牌签名、有效期和黑名单
+     */
+    public TokenValidationResult verify(String token) {
+        if (parser == null) {
+            return TokenValidationResult.invalid("令牌验证未启用");
+        }
+        if (tokenBlacklist.isRevoked(token)) {
+            return TokenValidationResult.invalid("令牌已失效");
+        }
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Object userId = claims.get("userId");
+            if (userId == null) {
+                // 刷新令牌不含用户信息，不能用于访问接口
+                return TokenValidationResult.invalid("令牌无效或已过期");
+            }
+            Object username = claims.get("username");
+            return TokenValidationResult.valid(
+                    String.valueOf(userId),
+                    username != null ? String.valueOf(username) : claims.getSubject(),
+                    String.valueOf(claims.get("userType")));
+        } catch (ExpiredJwtException e) {
+            return TokenValidationResult.invalid("令牌无效或已过期");
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("令牌验证失败: {}", e.getMessage());
+            return TokenValidationResult.invalid("令牌无效或已过期");
+        }
+    }
+
+    private Key resolveKey() {
+        if (publicKey != null && !publicKey.isBlank()) {
+            try {
+                String base64 = publicKey
+                        .replace("-----BEGIN PUBLIC KEY-----", "")
+                        .replace("-----END PUBLIC KEY-----", "")
+                        .replaceAll("\\s", "");
+                X509EncodedKeySpec spec = new X509EncodedKeySpec(Base64.getDecoder().decode(base64));
+                return KeyFactory.getInstance("RSA").generatePublic(spec);
+            } catch (Exception e) {
+                throw new IllegalStateException("JWT公钥格式错误: " + e.getMessage(), e);
+            }
+        }
+        if (secret != null && !secret.isBlank()) {
+            return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,192 @@
+package com.vediofun.gateway.auth;
+
+import com.alibaba.csp.sentinel.adapter.reactor.SentinelReactorTransformer;
+import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.degrade.DegradeRule;
+import com.alibaba.csp.sentinel.slots.block.degrade.DegradeRuleManager;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 认证服务响应式客户端
+ * 基于WebClient在事件循环线程上调用认证服务的令牌验证接口，不占用阻塞线程。
+ * 通过负载均衡按服务名发现实例，使用独立的连接池和请求超时，并由Sentinel熔断保护：
+ * 认证服务持续出错或超时时快速失败，返回“认证服务不可用”的临时结果
+ */
+@Slf4j
+@Component
+public class ReactiveAuthClient {
+
+    /**
+     * Sentinel资源名，可在Nacos的熔断规则中按此名称覆盖默认规则
+     */
+    public static final String RESOURCE_NAME = "vedio-funny-auth:validate";
+
+    private static final ParameterizedTypeReference<Map<String, Object>> RESPONSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    @Value("${gateway.auth-service-url:lb://vedio-funny-auth}")
+    private String authServiceUrl;
+
+    @Value("${gateway.auth.client.max-connections:500}")
+    private int maxConnections;
+
+    @Value("${gateway.auth.client.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    /**
+     * 单次验证请求超时(毫秒)
+     */
+    @Value("${gateway.auth.client.timeout-ms:2000}")
+    private long timeoutMs;
+
+    /**
+     * 熔断：10秒统计窗口内请求数不少于min-requests且异常比例超过error-ratio时，熔断open-seconds秒
+     */
+    @Value("${gateway.auth.client.breaker.error-ratio:0.5}")
+    private double breakerErrorRatio;
+
+    @Value("${gateway.auth.client.breaker.min-requests:20}")
+    private int breakerMinRequests;
+
+    @Value("${gateway.auth.client.breaker.open-seconds:10}")
+    private int breakerOpenSeconds;
+
+    private final WebClient.Builder webClientBuilder;
+    private final LoadBalancedExchangeFilterFunction loadBalancerFunction;
+
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+
+    public ReactiveAuthClient(WebClient.Builder webClientBuilder,
+                              LoadBalancedExchangeFilterFunction loadBalancerFunction) {
+        this.webClientBuilder = webClientBuilder;
+        this.loadBalancerFunction = loadBalancerFunction;
+    }
+
+    @PostConstruct
+    public void init() {
+        connectionProvider = ConnectionProvider.builder("gateway-auth-client")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(timeoutMs))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .evictInBackground(Duration.ofSeconds(60))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(timeoutMs));
+
+        webClient = webClientBuilder
+                .baseUrl(authServiceUrl.replaceFirst("^lb://", "http://"))
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(loadBalancerFunction)
+                .build();
+
+        registerDefaultDegradeRule();
+        log.info("认证服务响应式客户端已初始化: {}, 最大连接数={}, 超时={}ms", authServiceUrl, maxConnections, timeoutMs);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+    }
+
+    /**
+     * 调用认证服务验证令牌
+     * 401/403视为令牌无效；5xx、超时、熔断视为认证服务不可用（临时失败，不缓存）
+     */
+    public Mono<TokenValidationResult> validateToken(String authHeader) {
+        return webClient.post()
+                .uri("/auth/validate")
+                .header(HttpHeaders.AUTHORIZATION, authHeader)
+                .exchangeToMono(response -> {
+                    HttpStatus status = HttpStatus.resolve(response.statusCode().value());
+                    if (status == HttpStatus.UNAUTHORIZED) {
+                        return response.releaseBody().thenReturn(TokenValidationResult.invalid("令牌无效或已过期"));
+                    }
+                    if (status == HttpStatus.FORBIDDEN) {
+                        return response.releaseBody().thenReturn(TokenValidationResult.invalid("权限不足"));
+                    }
+                    if (response.statusCode().isError()) {
+                        // 以异常形式抛出，计入熔断统计
+                        return response.createException().flatMap(Mono::error);
+                    }
+                    return response.bodyToMono(RESPONSE_TYPE).map(this::parseResponse);
+                })
+                .timeout(Duration.ofMillis(timeoutMs))
+                .transform(new SentinelReactorTransformer<>(RESOURCE_NAME))
+                .onErrorResume(ex -> {
+                    if (BlockException.isBlockException(ex)) {
+                        log.warn("认证服务已熔断，令牌验证快速失败");
+                        return Mono.just(TokenValidationResult.unavailable("认证服务暂时不可用"));
+                    }
+                    if (ex instanceof TimeoutException) {
+                        log.warn("令牌验证超时: {}ms", timeoutMs);
+                        return Mono.just(TokenValidationResult.unavailable("认证服务响应超时"));
+                    }
+                    log.warn("令牌验证服务异常: {}", ex.getMessage());
+                    return Mono.just(TokenValidationResult.unavailable("认证服务异常"));
+                });
+    }
+
+    /**
+     * 解析认证服务响应：{"code":200,"data":{"valid":true,"userId":..,"username":..,"userType":..}}
+     */
+    @SuppressWarnings("unchecked")
+    private TokenValidationResult parseResponse(Map<String, Object> response) {
+        Object data = response.get("data");
+        if (Integer.valueOf(200).equals(response.get("code")) && data instanceof Map) {
+            Map<String, Object> dataMap = (Map<String, Object>) data;
+            if (Boolean.TRUE.equals(dataMap.get("valid"))) {
+                return TokenValidationResult.valid(
+                        String.valueOf(dataMap.get("userId")),
+                        String.valueOf(dataMap.get("username")),
+                        String.valueOf(dataMap.get("userType")));
+            }
+            if (dataMap.get("error") != null) {
+                return TokenValidationResult.invalid(String.valueOf(dataMap.get("error")));
+            }
+        }
+        Object message = response.get("message");
+        return TokenValidationResult.invalid(message != null ? String.valueOf(message) : "令牌验证失败");
+    }
+
+    /**
+     * 注册默认熔断规则；Nacos中已配置同名资源的规则时不覆盖
+     */
+    private void registerDefaultDegradeRule() {
+        List<DegradeRule> rules = new ArrayList<>(DegradeRuleManager.getRules());
+        if (rules.stream().anyMatch(rule -> RESOURCE_NAME.equals(rule.getResource()))) {
+            return;
+        }
+        rules.add(new DegradeRule(RESOURCE_NAME)
+                .setGrade(RuleConstant.DEGRADE_GRADE_EXCEPTION_RATIO)
+                .setCount(breakerErrorRatio)
+                .setMinRequestAmount(breakerMinRequests)
+                .setStatIntervalMs(10000)
+                .setTimeWindow(breakerOpenSeconds));
+        DegradeRuleManager.loadRules(rules);
+    }
+}
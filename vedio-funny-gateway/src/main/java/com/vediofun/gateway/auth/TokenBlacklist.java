@@ -0,0 +1,156 @@
+package com.vediofun.gateway.auth;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 网关本地令牌黑名单
+ * 启动时从Redis的 auth:blacklist:* 键加载已失效的令牌，之后通过Redis发布订阅接收认证服务的失效事件，
+ * 请求路径上只查询内存。订阅断开重连后会重新全量加载，避免遗漏断线期间的事件
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TokenBlacklist {
+
+    public static final String BLACKLIST_PREFIX = "auth:blacklist:";
+    public static final String BLACKLIST_CHANNEL = "auth:blacklist:events";
+
+    /**
+     * 令牌最长有效期，超过后黑名单条目即可清除
+     */
+    @Value("${jwt.expiration:86400000}")
+    private long tokenLifetimeMs;
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final ReactiveRedisConnectionFactory reactiveRedisConnectionFactory;
+
+    /**
+     * 令牌 -> 条目过期时间
+     */
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private final List<Consumer<String>> revocationListeners = new CopyOnWriteArrayList<>();
+
+    private volatile ReactiveRedisMessageListenerContainer listenerContainer;
+    private Disposable subscription;
+    private Disposable purgeTask;
+
+    @PostConstruct
+    public void start() {
+        subscription = Flux.defer(this::listen)
+                .doOnNext(this::revoke)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("令牌黑名单订阅中断，准备重连: {}",
+                                signal.failure().getMessage())))
+                .subscribe();
+        purgeTask = Flux.interval(Duration.ofMinutes(1))
+                .subscribe(tick -> purgeExpired());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (purgeTask != null) {
+            purgeTask.dispose();
+        }
+        closeContainer();
+    }
+
+    /**
+     * 令牌是否已失效
+     */
+    public boolean isRevoked(String token) {
+        Long expiresAt = revokedTokens.get(token);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * 记录失效令牌
+     */
+    public void revoke(String token) {
+        if (token != null && !token.isEmpty()) {
+            revokedTokens.put(token, System.currentTimeMillis() + tokenLifetimeMs);
+            revocationListeners.forEach(listener -> listener.accept(token));
+        }
+    }
+
+    /**
+     * 注册令牌失效监听，本地或其他副本失效令牌时都会回调
+     */
+    public void onRevoke(Consumer<String> listener) {
+        revocationListeners.add(listener);
+    }
+
+    /**
+     * 当前黑名单条目数
+     */
+    public int size() {
+        return revokedTokens.size();
+    }
+
+    /**
+     * 先建立订阅，确认订阅成功后再全量加载，保证加载与订阅之间不会漏掉事件
+     */
+    private Flux<String> listen() {
+        closeContainer();
+        ReactiveRedisMessageListenerContainer container =
+                new ReactiveRedisMessageListenerContainer(reactiveRedisConnectionFactory);
+        listenerContainer = container;
+        return container.receiveLater(ChannelTopic.of(BLACKLIST_CHANNEL))
+                .flatMapMany(messages -> reload().thenMany(messages.map(ReactiveSubscription.Message::getMessage)));
+    }
+
+    /**
+     * 从Redis全量加载黑名单
+     */
+    private Mono<Void> reload() {
+        ScanOptions options = ScanOptions.scanOptions().match(BLACKLIST_PREFIX + "*").count(1000).build();
+        return reactiveStringRedisTemplate.scan(options)
+                .doOnNext(key -> revoke(key.substring(BLACKLIST_PREFIX.length())))
+                .count()
+                .doOnNext(count -> log.info("令牌黑名单加载完成: {} 条", count))
+                .then();
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    private void closeContainer() {
+        ReactiveRedisMessageListenerContainer container = listenerContainer;
+        listenerContainer = null;
+        if (container != null) {
+            try {
+                container.destroy();
+            } catch (Exception e) {
+                log.debug("关闭黑名单订阅容器失败: {}", e.getMessage());
+            }
+        }
+    }
+}
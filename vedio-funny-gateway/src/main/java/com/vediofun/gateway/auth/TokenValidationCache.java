@@ -0,0 +1,152 @@
+package com.vediofun.gateway.auth;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 令牌验证结果缓存（远程验证模式使用）
+ * 以令牌摘要为键缓存认证服务的验证结果：有效结果的缓存时间不超过令牌的exp，无效结果短时缓存，
+ * 认证服务不可用的结果不缓存；同一令牌的并发请求合并为一次远程调用。
+ * 令牌失效事件通过 {@link TokenBlacklist} 在所有网关副本上同步清除对应缓存
+ */
+@Component
+public class TokenValidationCache {
+
+    private static final String CACHE_NAME = "gateway.token.validation";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AsyncCache<String, CachedResult> cache;
+    private final Counter invalidations;
+
+    public TokenValidationCache(TokenBlacklist tokenBlacklist,
+                                MeterRegistry meterRegistry,
+                                @Value("${gateway.auth.cache.max-size:100000}") long maxSize,
+                                @Value("${gateway.auth.cache.positive-ttl-seconds:300}") long positiveTtlSeconds,
+                                @Value("${gateway.auth.cache.negative-ttl-seconds:5}") long negativeTtlSeconds) {
+        long positiveTtlNanos = TimeUnit.SECONDS.toNanos(positiveTtlSeconds);
+        long negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, CachedResult>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResult value, long currentTime) {
+                        return value.ttlNanos(positiveTtlNanos, negativeTtlNanos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResult value, long currentTime, long currentDuration) {
+                        return value.ttlNanos(positiveTtlNanos, negativeTtlNanos);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResult value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.invalidations = Counter.builder(CACHE_NAME + ".invalidations")
+                .description("因令牌失效事件清除的缓存条目")
+                .register(meterRegistry);
+        tokenBlacklist.onRevoke(this::invalidate);
+    }
+
+    /**
+     * 获取验证结果，未命中时调用加载函数；同一令牌同时只有一次加载
+     */
+    public Mono<TokenValidationResult> get(String token, Function<String, Mono<TokenValidationResult>> loader) {
+        String key = digest(token);
+        return Mono.fromFuture(() -> cache.get(key, (k, executor) -> loader.apply(token)
+                        .map(result -> new CachedResult(result, expiresAt(token)))
+                        .toFuture()))
+                .map(CachedResult::getResult);
+    }
+
+    /**
+     * 清除令牌的缓存结果
+     */
+    public void invalidate(String token) {
+        String key = digest(token);
+        if (cache.getIfPresent(key) != null) {
+            cache.synchronous().invalidate(key);
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * 读取令牌的exp声明（只用于限制缓存时间，签名由认证服务验证）
+     */
+    private long expiresAt(String token) {
+        try {
+            String[] parts = token.split("\\.");
+            if (parts.length < 2) {
+                return 0;
+            }
+            JsonNode payload = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            return payload.has("exp") ? payload.get("exp").asLong() * 1000 : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    /**
+     * 缓存条目，附带令牌过期时间
+     */
+    private static class CachedResult {
+        private final TokenValidationResult result;
+        private final long expiresAtMillis;
+
+        CachedResult(TokenValidationResult result, long expiresAtMillis) {
+            this.result = result;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        TokenValidationResult getResult() {
+            return result;
+        }
+
+        /**
+         * 有效结果不超过令牌剩余有效期，无效结果使用短TTL，临时失败不缓存
+         */
+        long ttlNanos(long positiveTtlNanos, long negativeTtlNanos) {
+            if (result.isTransientFailure()) {
+                return 0;
+            }
+            if (!result.isValid()) {
+                return negativeTtlNanos;
+            }
+            if (expiresAtMillis <= 0) {
+                return positiveTtlNanos;
+            }
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(expiresAtMillis - System.currentTimeMillis());
+            return Math.max(0, Math.min(positiveTtlNanos, remainingNanos));
+        }
+    }
+}
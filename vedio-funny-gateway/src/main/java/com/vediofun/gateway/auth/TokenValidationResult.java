@@ -0,0 +1,46 @@
+package com.vediofun.gateway.auth;
+
+/**
+ * 令牌验证结果
+ */
+public class TokenValidationResult {
+
+    private final boolean valid;
+    private final String userId;
+    private final String username;
+    private final String userType;
+    private final String errorMessage;
+    /**
+     * 认证服务不可用等临时失败，结果不应缓存
+     */
+    private final boolean transientFailure;
+
+    private TokenValidationResult(boolean valid, String userId, String username, String userType,
+                                  String errorMessage, boolean transientFailure) {
+        this.valid = valid;
+        this.userId = userId;
+        this.username = username;
+        this.userType = userType;
+        this.errorMessage = errorMessage;
+        this.transientFailure = transientFailure;
+    }
+
+    public static TokenValidationResult valid(String userId, String username, String userType) {
+        return new TokenValidationResult(true, userId, username, userType, null, false);
+    }
+
+    public static TokenValidationResult invalid(String errorMessage) {
+        return new TokenValidationResult(false, null, null, null, errorMessage, false);
+    }
+
+    public static TokenValidationResult unavailable(String errorMessage) {
+        return new TokenValidationResult(false, null, null, null, errorMessage, true);
+    }
+
+    public boolean isValid() { return valid; }
+    public String getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public String getUserType() { return userType; }
+    public String getErrorMessage() { return errorMessage; }
+    public boolean isTransientFailure() { return transientFailure; }
+}
@@ -0,0 +1,98 @@
+package com.vediofun.gateway.filter;
+
+import com.vediofun.gateway.logging.AccessLogRecord;
+import com.vediofun.gateway.logging.AccessLogWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问日志全局过滤器
+ * 每个请求在结束时生成一条结构化记录，交给 {@link AccessLogWriter} 异步写出。
+ * 正常请求按 gateway.access-log.sample-rate 采样，错误响应(4xx/5xx)、异常和慢请求始终记录
+ */
+@Component
+@RequiredArgsConstructor
+public class AccessLogGlobalFilter implements GlobalFilter, Ordered {
+
+    private static final String ACCESS_LOG_ERROR_ATTR = AccessLogGlobalFilter.class.getName() + ".error";
+
+    @Value("${gateway.access-log.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 正常请求的采样比例 (0~1)
+     */
+    @Value("${gateway.access-log.sample-rate:0.1}")
+    private double sampleRate;
+
+    /**
+     * 慢请求阈值(毫秒)，超过后始终记录
+     */
+    @Value("${gateway.access-log.slow-threshold-ms:1000}")
+    private long slowThresholdMs;
+
+    private final AccessLogWriter accessLogWriter;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnError(error -> exchange.getAttributes().put(ACCESS_LOG_ERROR_ATTR, error))
+                .doFinally(signal -> record(exchange, signal, startTime, startNanos));
+    }
+
+    private void record(ServerWebExchange exchange, SignalType signal, long startTime, long startNanos) {
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        Throwable error = exchange.getAttribute(ACCESS_LOG_ERROR_ATTR);
+        int status = statusCode != null ? statusCode.value() : (error != null ? 500 : 200);
+
+        boolean mustLog = error != null || signal == SignalType.CANCEL
+                || status >= 400 || durationMs >= slowThresholdMs;
+        if (!mustLog && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String errorMessage = error != null ? error.getClass().getSimpleName() + ": " + error.getMessage()
+                : (signal == SignalType.CANCEL ? "cancelled" : null);
+
+        accessLogWriter.submit(new AccessLogRecord(
+                startTime,
+                request.getMethod().name(),
+                request.getPath().value(),
+                request.getURI().getRawQuery(),
+                route != null ? route.getId() : null,
+                remoteAddress != null && remoteAddress.getAddress() != null
+                        ? remoteAddress.getAddress().getHostAddress() : null,
+                status,
+                durationMs,
+                errorMessage));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+}
@@ -0,0 +1,41 @@
+package com.vediofun.gateway.logging;
+
+/**
+ * 访问日志记录，每个请求一条
+ * 请求线程只采集原始字段，序列化在后台写入线程完成
+ */
+public class AccessLogRecord {
+
+    private final long timestamp;
+    private final String method;
+    private final String path;
+    private final String query;
+    private final String routeId;
+    private final String remoteAddress;
+    private final int status;
+    private final long durationMs;
+    private final String error;
+
+    public AccessLogRecord(long timestamp, String method, String path, String query, String routeId,
+                           String remoteAddress, int status, long durationMs, String error) {
+        this.timestamp = timestamp;
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.routeId = routeId;
+        this.remoteAddress = remoteAddress;
+        this.status = status;
+        this.durationMs = durationMs;
+        this.error = error;
+    }
+
+    public long getTimestamp() { return timestamp; }
+    public String getMethod() { return method; }
+    public String getPath() { return path; }
+    public String getQuery() { return query; }
+    public String getRouteId() { return routeId; }
+    public String getRemoteAddress() { return remoteAddress; }
+    public int getStatus() { return status; }
+    public long getDurationMs() { return durationMs; }
+    public String getError() { return error; }
+}
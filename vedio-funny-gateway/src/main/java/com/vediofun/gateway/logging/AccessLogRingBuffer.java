@@ -0,0 +1,70 @@
+package com.vediofun.gateway.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 无锁环形缓冲区（多生产者单消费者）
+ * 请求线程通过CAS占位写入，缓冲区满时直接丢弃而不阻塞事件循环；只允许一个后台线程读取
+ */
+class AccessLogRingBuffer {
+
+    private final AtomicReferenceArray<AccessLogRecord> slots;
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * 下一个写入位置，由生产者竞争占位
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个读取位置，只由消费者推进
+     */
+    private volatile long head;
+
+    AccessLogRingBuffer(int requestedCapacity) {
+        int size = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.capacity = size;
+        this.mask = size - 1;
+    }
+
+    /**
+     * 写入记录，缓冲区已满时返回 false
+     */
+    boolean offer(AccessLogRecord record) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+        slots.lazySet((int) (position & mask), record);
+        return true;
+    }
+
+    /**
+     * 读取下一条记录，为空或下一条尚未写完时返回 null
+     */
+    AccessLogRecord poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        AccessLogRecord record = slots.get(index);
+        if (record == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        head = position + 1;
+        return record;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
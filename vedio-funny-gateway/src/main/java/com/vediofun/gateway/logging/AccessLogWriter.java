@@ -0,0 +1,195 @@
+package com.vediofun.gateway.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 访问日志异步写入器
+ * 请求线程只把记录放入环形缓冲区，由单个后台线程批量序列化为JSON行后写出。
+ * 配置 gateway.access-log.file 时追加写入该文件，否则输出到名为 ACCESS_LOG 的日志器
+ */
+@Slf4j
+@Component
+public class AccessLogWriter {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("ACCESS_LOG");
+
+    private static final int BATCH_SIZE = 512;
+
+    @Value("${gateway.access-log.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${gateway.access-log.file:}")
+    private String file;
+
+    private final MeterRegistry meterRegistry;
+
+    private AccessLogRingBuffer buffer;
+    private Counter dropped;
+    private BufferedWriter fileWriter;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    public AccessLogWriter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        buffer = new AccessLogRingBuffer(bufferSize);
+        dropped = Counter.builder("gateway.access.log.dropped")
+                .description("缓冲区已满而丢弃的访问日志")
+                .register(meterRegistry);
+        Gauge.builder("gateway.access.log.pending", buffer, AccessLogRingBuffer::size)
+                .description("等待写出的访问日志")
+                .register(meterRegistry);
+
+        if (file != null && !file.isBlank()) {
+            Path path = Paths.get(file);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            fileWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        running = true;
+        writerThread = new Thread(this::drainLoop, "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("访问日志写入器已启动: 缓冲区={}, 输出={}", buffer.capacity(),
+                fileWriter != null ? file : "ACCESS_LOG");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (fileWriter != null) {
+            try {
+                fileWriter.close();
+            } catch (IOException e) {
+                log.warn("关闭访问日志文件失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 提交记录，缓冲区满时丢弃并计数，不阻塞调用线程
+     */
+    public void submit(AccessLogRecord record) {
+        if (!buffer.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drainBatch() == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+        while (drainBatch() > 0) {
+            // 停止前写完剩余记录
+        }
+    }
+
+    private int drainBatch() {
+        int count = 0;
+        AccessLogRecord record;
+        while (count < BATCH_SIZE && (record = buffer.poll()) != null) {
+            write(record);
+            count++;
+        }
+        if (count > 0 && fileWriter != null) {
+            try {
+                fileWriter.flush();
+            } catch (IOException e) {
+                log.warn("写入访问日志文件失败: {}", e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    private void write(AccessLogRecord record) {
+        try {
+            String json = toJson(record);
+            if (fileWriter != null) {
+                fileWriter.write(json);
+                fileWriter.newLine();
+            } else {
+                ACCESS_LOG.info(json);
+            }
+        } catch (Exception e) {
+            log.warn("写入访问日志失败: {}", e.getMessage());
+        }
+    }
+
+    private String toJson(AccessLogRecord record) {
+        StringBuilder sb = line;
+        sb.setLength(0);
+        sb.append("{\"ts\":\"").append(Instant.ofEpochMilli(record.getTimestamp())).append('"');
+        appendField(sb, "method", record.getMethod());
+        appendField(sb, "path", record.getPath());
+        appendField(sb, "query", record.getQuery());
+        appendField(sb, "route", record.getRouteId());
+        appendField(sb, "remote", record.getRemoteAddress());
+        sb.append(",\"status\":").append(record.getStatus());
+        sb.append(",\"durationMs\":").append(record.getDurationMs());
+        appendField(sb, "error", record.getError());
+        return sb.append('}').toString();
+    }
+
+    private static void appendField(StringBuilder sb, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        sb.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+}
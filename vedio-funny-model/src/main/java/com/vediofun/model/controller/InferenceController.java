@@ -0,0 +1,116 @@
+package com.vediofun.model.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vediofun.model.service.InferenceProxyService;
+import com.vediofun.model.service.InferenceRouter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenAI兼容推理接口
+ * 按请求体中的 model 字段路由到该模型运行中的部署实例，响应原样透传（含 stream=true 的SSE逐token响应）
+ */
+@Slf4j
+@Tag(name = "推理服务", description = "OpenAI兼容的推理请求转发")
+@RestController
+@RequestMapping("/v1")
+@RequiredArgsConstructor
+public class InferenceController {
+
+    private final InferenceProxyService inferenceProxyService;
+    private final InferenceRouter inferenceRouter;
+    private final ObjectMapper objectMapper;
+
+    @PostMapping("/chat/completions")
+    @Operation(summary = "对话补全", description = "转发到模型推理端点的 /v1/chat/completions")
+    public void chatCompletions(@RequestBody byte[] body, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        proxy("/v1/chat/completions", body, request, response);
+    }
+
+    @PostMapping("/completions")
+    @Operation(summary = "文本补全", description = "转发到模型推理端点的 /v1/completions")
+    public void completions(@RequestBody byte[] body, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        proxy("/v1/completions", body, request, response);
+    }
+
+    @PostMapping("/embeddings")
+    @Operation(summary = "向量化", description = "转发到模型推理端点的 /v1/embeddings")
+    public void embeddings(@RequestBody byte[] body, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        proxy("/v1/embeddings", body, request, response);
+    }
+
+    @GetMapping("/models")
+    @Operation(summary = "可用模型", description = "列出有运行中部署实例的模型")
+    public Map<String, Object> models() {
+        List<Map<String, Object>> data = inferenceRouter.listModels().stream()
+                .map(name -> Map.<String, Object>of("id", name, "object", "model", "owned_by", "vedio-funny"))
+                .toList();
+        return Map.of("object", "list", "data", data);
+    }
+
+    private void proxy(String path, byte[] body, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String modelName;
+        try {
+            JsonNode model = objectMapper.readTree(body).path("model");
+            modelName = model.isTextual() ? model.asText() : null;
+        } catch (IOException e) {
+            modelName = null;
+        }
+        if (modelName == null || modelName.isBlank()) {
+            writeError(response, HttpStatus.BAD_REQUEST, "invalid_request_error", "请求体缺少 model 字段");
+            return;
+        }
+
+        InferenceProxyService.ProxyResponse upstream;
+        try {
+            upstream = inferenceProxyService.forward(modelName, path, body,
+                    request.getContentType(), request.getHeader("Accept"));
+        } catch (IllegalStateException e) {
+            writeError(response, HttpStatus.SERVICE_UNAVAILABLE, "service_unavailable", e.getMessage());
+            return;
+        } catch (IOException e) {
+            log.warn("推理请求转发失败 - 模型: {}: {}", modelName, e.getMessage());
+            writeError(response, HttpStatus.BAD_GATEWAY, "upstream_error", "推理端点请求失败: " + e.getMessage());
+            return;
+        }
+
+        response.setStatus(upstream.response().statusCode());
+        response.setContentType(upstream.contentType());
+        boolean streaming = upstream.isEventStream();
+        if (streaming) {
+            response.setHeader("Cache-Control", "no-cache");
+            // 关闭反向代理缓冲，保证逐token到达客户端
+            response.setHeader("X-Accel-Buffering", "no");
+        }
+        inferenceProxyService.transfer(upstream, response.getOutputStream(), streaming);
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String type, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(),
+                Map.of("error", Map.of("message", message, "type", type, "code", status.value())));
+    }
+}
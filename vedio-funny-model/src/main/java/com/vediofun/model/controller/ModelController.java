@@ -23,7 +23,21 @@ import com.vediofun.model.dto.RayClusterStatus;
 import com.vediofun.model.dto.ModelDownloadRequest;
 import com.vediofun.model.dto.ModelDownloadData;
 import com.vediofun.model.service.ModelDownloadService;
+import com.vediofun.model.service.DownloadScheduler;
 import com.vediofun.model.service.ModelScopeDownloadService;
+import com.vediofun.model.service.ModelBlobStore;
+import com.vediofun.model.service.PeerModelDistributor;
+import com.vediofun.model.service.SegmentedDownloadService;
+import com.vediofun.model.service.ReadinessService;
+import com.vediofun.model.service.DeploymentJobService;
+import com.vediofun.model.service.ProcessSupervisor;
+import com.vediofun.model.service.NodeInventoryService;
+import com.vediofun.model.service.PlacementService;
+import com.vediofun.model.service.RayClusterRegistry;
+import com.vediofun.model.service.InferenceProxyService;
+import com.vediofun.model.service.InferenceRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vediofun.model.dto.PlacementPlan;
 import com.vediofun.common.result.Result;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
@@ -32,9 +46,21 @@ import org.springframework.http.ResponseEntity;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.util.StringUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +94,17 @@ public class ModelController {
     private final CosService cosService;
     private final ModelDownloadService modelDownloadService;
     private final ModelScopeDownloadService modelScopeDownloadService;
+    private final ModelBlobStore modelBlobStore;
+    private final PeerModelDistributor peerModelDistributor;
+    private final ReadinessService readinessService;
+    private final DeploymentJobService deploymentJobService;
+    private final ProcessSupervisor processSupervisor;
+    private final NodeInventoryService nodeInventoryService;
+    private final PlacementService placementService;
+    private final RayClusterRegistry clusterRegistry;
+    private final InferenceProxyService inferenceProxyService;
+    private final InferenceRouter inferenceRouter;
+    private final ObjectMapper objectMapper;
     
     @Autowired
     private ResourceUtil resourceUtil;
@@ -106,7 +143,8 @@ public class ModelController {
     }
 
     /**
-     * 模拟模型推理
+     * 模型推理
+     * 把输入作为一条用户消息转发到模型的 /v1/chat/completions，流式及OpenAI格式请求请使用 /v1 接口
      */
     @PostMapping("/inference")
     @Operation(summary = "模型推理", description = "执行AI模型推理任务")
@@ -115,15 +153,27 @@ public class ModelController {
         
         String modelName = (String) request.getOrDefault("modelName", "default-model");
         Object inputData = request.get("inputData");
-        
-        // 模拟推理过程
         result.put("modelName", modelName);
         result.put("inputData", inputData);
-        result.put("result", "推理结果: " + Math.random());
-        result.put("confidence", Math.random());
-        result.put("processTime", "150ms");
+        
+        long startTime = System.currentTimeMillis();
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(Map.of(
+                    "model", modelName,
+                    "messages", List.of(Map.of("role", "user", "content", String.valueOf(inputData)))));
+            InferenceProxyService.ProxyResponse upstream = inferenceProxyService.forward(
+                    modelName, "/v1/chat/completions", body, "application/json", "application/json");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            inferenceProxyService.transfer(upstream, out, false);
+            result.put("result", objectMapper.readValue(out.toByteArray(), Map.class));
+            result.put("status", upstream.response().statusCode() == 200 ? "success" : "error");
+        } catch (Exception e) {
+            log.warn("模型推理失败 - 模型: {}: {}", modelName, e.getMessage());
+            result.put("status", "error");
+            result.put("error", e.getMessage());
+        }
+        result.put("processTime", (System.currentTimeMillis() - startTime) + "ms");
         result.put("timestamp", LocalDateTime.now());
-        result.put("status", "success");
         
         return result;
     }
@@ -370,6 +420,24 @@ public class ModelController {
         }
     }
     
+    /**
+     * 停止当前节点的Ray进程
+     */
+    @PostMapping("/ray/stop")
+    @Operation(summary = "停止Ray节点", description = "停止当前节点托管的RayLLM、Ray Worker和Ray Head进程")
+    public ResponseEntity<Result<RayClusterInfo>> stopRayNode() {
+        return ResponseEntity.ok(Result.success(modelService.stopRayNode()));
+    }
+    
+    /**
+     * 已登记的Ray集群
+     */
+    @GetMapping("/ray/clusters")
+    @Operation(summary = "预热集群状态", description = "查看本节点登记的可复用Ray集群、承载的部署和空闲时长")
+    public ResponseEntity<Result<Map<String, Object>>> rayClusters() {
+        return ResponseEntity.ok(Result.success(clusterRegistry.getStatus()));
+    }
+    
     @PostMapping("/ray/cluster-status")
     @Operation(summary = "查询Ray集群状态", description = "获取Ray集群的当前状态信息")
     public ResponseEntity<Map<String, Object>> getRayClusterStatus(
@@ -397,7 +465,7 @@ public class ModelController {
     }
     
     @PostMapping("/deploy-cluster")
-    @Operation(summary = "部署Ray集群", description = "将模型部署到Ray分布式集群")
+    @Operation(summary = "部署Ray集群", description = "提交模型部署任务，立即返回任务ID（即部署实例ID），进度通过 /deploy-cluster/{jobId}/events 订阅")
     public ResponseEntity<Map<String, Object>> deployModelToRayCluster(
             @RequestBody RayDeploymentRequest request,
             HttpServletRequest httpRequest) {
@@ -406,85 +474,31 @@ public class ModelController {
                     request.getModelId(), request.getModelSource(), 
                     request.getNodeIds() != null ? request.getNodeIds() : "null");
             
-            // 调用服务层部署模型
-            RayDeploymentResponse result = modelService.deployModelToRayCluster(request);
+            Long jobId = deploymentJobService.submit(request);
             
-            // 创建部署实例记录（记录所有状态）
-                try {
-                    // 获取模型信息
-                    Model model = modelService.getModelById(request.getModelId());
-                    
-                    // 创建部署实例记录
-                    ModelDeploymentInstance instance = new ModelDeploymentInstance();
-                    instance.setModelId(request.getModelId());
-                    instance.setModelName(request.getModelName() != null ? request.getModelName() : 
-                            (model != null ? model.getName() : "Unknown Model"));
-                    instance.setModelPath(model != null ? model.getFilePath() : "");
-                    instance.setDeploymentType("RAY_CLUSTER");
-                    instance.setClusterAddress(result.getClusterAddress());
-                    instance.setServiceEndpoint(result.getServiceEndpoint());
-                
-                // 直接使用部署状态设置实例状态
-                ModelDeploymentInstance.DeploymentStatus instanceStatus;
-                try {
-                    instanceStatus = ModelDeploymentInstance.DeploymentStatus.valueOf(result.getStatus());
-                } catch (IllegalArgumentException e) {
-                    // 如果状态值不存在于枚举中，使用UNKNOWN
-                    instanceStatus = ModelDeploymentInstance.DeploymentStatus.UNKNOWN;
-                }
-                instance.setStatus(instanceStatus);
-                
-                // 如果部署失败，记录错误信息
-                if (ModelDeploymentInstance.DeploymentStatus.FAILED.equals(instanceStatus) && result.getError() != null) {
-                    instance.setErrorMessage(result.getError());
-                }
-                
-                                    instance.setModelEngine("VLLM"); // 默认使用VLLM，可以后续从请求中获取
-                instance.setNodeIds(request.getNodeIds() != null ? 
-                        String.join(",", request.getNodeIds()) : "");
-                instance.setDeployedBy(request.getUserId());
-                
-                // 设置最大并发数（基于CPU核心数估算）
-                instance.setMaxConcurrency(request.getRayConfig() != null && 
-                        request.getRayConfig().getNumCpus() != null ? 
-                        request.getRayConfig().getNumCpus() * 2 : 10);
-                
-                // 设置部署配置（将请求信息序列化存储）
-                try {
-                    String deploymentConfig = String.format(
-                        "{\"modelSource\":\"%s\",\"deploymentType\":\"%s\",\"nodeCount\":%d,\"rayConfig\":%s}",
-                        request.getModelSource() != null ? request.getModelSource() : "",
-                        request.getDeploymentType() != null ? request.getDeploymentType() : "RAY_CLUSTER",
-                        request.getNodeIds() != null ? request.getNodeIds().size() : 0,
-                        request.getRayConfig() != null ? "\"configured\"" : "\"default\""
-                    );
-                    instance.setDeploymentConfig(deploymentConfig);
-                } catch (Exception e) {
-                    log.warn("设置部署配置失败", e);
-                    instance.setDeploymentConfig("{}");
-                }
-                
-                // 设置最后健康检查时间为当前时间
-                instance.setLastHealthCheck(LocalDateTime.now());
-                    
-                    // 保存部署实例记录
-                    ModelDeploymentInstance savedInstance = modelService.saveDeploymentInstance(instance);
-                    log.info("部署实例记录已保存 - 实例ID: {}, 模型ID: {}, 状态: {}", 
-                            savedInstance.getId(), savedInstance.getModelId(), savedInstance.getStatus());
-                            
-                    // 将实例ID添加到响应中
-                    result.setDeploymentId(savedInstance.getId().toString());
-                } catch (Exception e) {
-                    log.error("保存部署实例记录失败", e);
-                // 不阻断部署响应，只记录错误日志
-            }
+            RayDeploymentResponse result = new RayDeploymentResponse();
+            result.setDeploymentId(jobId.toString());
+            result.setStatus("IN_PROGRESS");
+            result.setMessage("部署任务已提交");
+            result.setSteps(new ArrayList<>());
+            result.setTimestamp(LocalDateTime.now());
             
             Map<String, Object> response = new HashMap<>();
             response.put("code", 200);
             response.put("message", "Ray集群部署请求已提交");
             response.put("data", result);
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("code", 400);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (IllegalStateException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("code", 503);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
         } catch (Exception e) {
             log.error("Ray集群部署请求处理失败", e);
             Map<String, Object> errorResponse = new HashMap<>();
@@ -494,6 +508,29 @@ public class ModelController {
         }
     }
     
+    /**
+     * 查询部署任务
+     */
+    @GetMapping("/deploy-cluster/{jobId}")
+    @Operation(summary = "查询部署任务", description = "查询部署任务的状态和已完成的步骤")
+    public ResponseEntity<Result<Map<String, Object>>> getDeploymentJob(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.ok(Result.success(deploymentJobService.getJob(jobId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Result.error(404, e.getMessage()));
+        }
+    }
+    
+    /**
+     * 订阅部署进度（SSE）
+     * 事件 step 为 DeploymentStep，任务结束时推送 result 事件（RayDeploymentResponse）后关闭连接
+     */
+    @GetMapping(value = "/deploy-cluster/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "订阅部署进度", description = "通过SSE推送部署步骤，任务结束后推送最终结果")
+    public SseEmitter subscribeDeploymentJob(@PathVariable Long jobId) {
+        return deploymentJobService.subscribe(jobId);
+    }
+    
     @GetMapping("/deployment-instances")
     @Operation(summary = "获取运行中的部署实例", description = "获取所有运行中的模型部署实例")
     public ResponseEntity<Result<List<ModelDeploymentInstance>>> getRunningDeploymentInstances() {
@@ -508,6 +545,18 @@ public class ModelController {
         }
     }
 
+    @PostMapping("/deployment-instances/health-check")
+    @Operation(summary = "部署实例健康检查", description = "并发探测运行中部署实例的服务端点，不可连接的实例标记为错误")
+    public ResponseEntity<Result<Map<Long, Boolean>>> checkDeploymentInstancesHealth() {
+        try {
+            return ResponseEntity.ok(Result.success(modelService.checkRunningDeploymentInstancesHealth()));
+        } catch (Exception e) {
+            log.error("部署实例健康检查失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Result.error("部署实例健康检查失败: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/deployment-instances/model/{modelId}")
     @Operation(summary = "根据模型ID获取部署实例", description = "根据模型ID获取该模型的所有部署实例")
     public ResponseEntity<Result<List<ModelDeploymentInstance>>> getDeploymentInstancesByModelId(@PathVariable Long modelId) {
@@ -540,16 +589,26 @@ public class ModelController {
     }
 
     @GetMapping("/check-environment")
-    @Operation(summary = "检查当前节点环境", description = "检查当前节点的环境信息，包括GPU、CPU、内存等")
-    public ResponseEntity<Result<NodeEnvironmentInfo>> checkCurrentNodeEnvironment() {
+    @Operation(summary = "检查当前节点环境", description = "检查当前节点的环境信息，包括GPU、CPU、内存等；refresh 指定需立即重新采集的分区（逗号分隔：cpu,memory,disk,network,gpu,ray）")
+    public ResponseEntity<Result<NodeEnvironmentInfo>> checkCurrentNodeEnvironment(
+            @RequestParam(required = false) String refresh) {
         try {
             log.info("接收当前节点环境检查请求");
             
+            if (StringUtils.hasText(refresh)) {
+                nodeInventoryService.refresh(Arrays.stream(refresh.split(","))
+                        .filter(StringUtils::hasText)
+                        .map(NodeInventoryService.Section::parse)
+                        .toList());
+            }
+            
             // 调用服务层检查当前节点环境
             NodeEnvironmentInfo result = modelService.checkCurrentNodeEnvironment();
             
             return ResponseEntity.ok(Result.success("当前节点环境检查完成", result));
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Result.error("未知的环境分区: " + refresh));
         } catch (Exception e) {
             log.error("当前节点环境检查失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -597,7 +656,8 @@ public class ModelController {
             Map<String, Object> result = modelDownloadService.downloadModel(
                     request.getModelName(), 
                     request.getModelSource(), 
-                    request.getModelId()
+                    request.getModelId(),
+                    DownloadScheduler.Priority.of(request.getPriority())
             );
             
             if ("SUCCESS".equals(result.get("status"))) {
@@ -607,6 +667,10 @@ public class ModelController {
                 data.setDownloadPath((String) result.get("downloadPath"));
                 data.setModelSize((String) result.get("modelSize"));
                 data.setChecksum((String) result.get("checksum"));
+                @SuppressWarnings("unchecked")
+                Map<String, String> fileChecksums = (Map<String, String>) result.get("fileChecksums");
+                data.setFileChecksums(fileChecksums);
+                data.setChecksumThroughput((String) result.get("checksumThroughput"));
                 data.setDownloadTime((String) result.get("downloadTime"));
                 data.setModelDirectory((String) result.get("modelDirectory"));
                 data.setNote((String) result.get("note"));
@@ -660,7 +724,8 @@ public class ModelController {
             
             // 调用服务层启动RayLLM
             Map<String, Object> launchResult = modelService.launchRayLLMService(
-                    modelName, modelPath, clusterAddress, maxConcurrency, modelEngine);
+                    modelName, modelPath, clusterAddress, maxConcurrency, modelEngine,
+                    request.getDeploymentInstanceId());
             
             if ("SUCCESS".equals(launchResult.get("status"))) {
                 log.info("RayLLM服务启动完成 - 模型: {}, 端点: {}", 
@@ -683,6 +748,10 @@ public class ModelController {
      * 从请求中获取模型路径
      */
     private String getModelPathFromRequest(RayLLMLaunchRequest request) {
+        // 部署流程传入下载步骤实际写入的目录
+        if (request.getModelPath() != null && !request.getModelPath().isBlank()) {
+            return request.getModelPath();
+        }
         // 这里可以根据modelSource和modelId构建路径
         String modelSource = request.getModelSource();
         Long modelId = request.getModelId();
@@ -786,4 +855,137 @@ public class ModelController {
                     .body(Result.error("资源验证失败: " + e.getMessage()));
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 提供本地存储中的文件给其他节点（支持Range分段请求）
+     * 文件仍在下载时，HEAD返回下载开始时间，Range请求返回从起点开始已下载的部分，尚未下载的范围返回503
+     */
+    @GetMapping(PeerModelDistributor.BLOB_ENDPOINT + "{digest}")
+    @Operation(summary = "获取模型文件", description = "按SHA-256从本地模型存储读取文件，供节点间分发使用")
+    public ResponseEntity<?> getBlob(@PathVariable String digest,
+                                     @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                     HttpServletRequest request) {
+        Path blob = modelBlobStore.find(digest);
+        if (blob != null) {
+            modelBlobStore.markBlobUsed(blob);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(new FileSystemResource(blob));
+        }
+        
+        Long startedAt = peerModelDistributor.downloadStartedAt(digest);
+        if (startedAt == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if ("HEAD".equals(request.getMethod())) {
+            return ResponseEntity.ok()
+                    .header(PeerModelDistributor.DOWNLOAD_STARTED_HEADER, String.valueOf(startedAt))
+                    .build();
+        }
+        SegmentedDownloadService.PartialFile partial = peerModelDistributor.findPartial(digest);
+        List<HttpRange> ranges = range != null ? HttpRange.parseRanges(range) : List.of();
+        if (partial == null || ranges.size() != 1) {
+            return notDownloadedYet();
+        }
+        long from = ranges.get(0).getRangeStart(partial.getSize());
+        long to = ranges.get(0).getRangeEnd(partial.getSize());
+        long available = partial.availableBytes(from);
+        if (available <= 0) {
+            return notDownloadedYet();
+        }
+        long length = Math.min(to - from + 1, available);
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new ResourceRegion(new FileSystemResource(partial.getPartFile()), from, length));
+    }
+    
+    private ResponseEntity<?> notDownloadedYet() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+    
+    /**
+     * 模型存储状态
+     */
+    @GetMapping("/store/status")
+    @Operation(summary = "模型存储状态", description = "查看内容寻址模型存储的blob数量、占用空间和配额")
+    public ResponseEntity<Result<Map<String, Object>>> storeStatus() {
+        return ResponseEntity.ok(Result.success(modelBlobStore.getStatus()));
+    }
+    
+    /**
+     * 回收模型存储
+     */
+    @PostMapping("/store/gc")
+    @Operation(summary = "回收模型存储", description = "超出配额时按LRU回收未被引用的blob")
+    public ResponseEntity<Result<Map<String, Object>>> storeGc() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("reclaimedBytes", modelBlobStore.collectGarbage());
+        result.put("status", modelBlobStore.getStatus());
+        return ResponseEntity.ok(Result.success("模型存储回收完成", result));
+    }
+    
+    /**
+     * 部署步骤就绪耗时
+     */
+    @GetMapping("/readiness/stats")
+    @Operation(summary = "部署就绪耗时", description = "查看各部署步骤等待就绪的次数、平均/最大/最近耗时")
+    public ResponseEntity<Result<Map<String, Object>>> readinessStats() {
+        return ResponseEntity.ok(Result.success(readinessService.getStatus()));
+    }
+    
+    /**
+     * 托管进程状态
+     */
+    @GetMapping("/processes")
+    @Operation(summary = "托管进程状态", description = "查看本节点托管的Ray/RayLLM进程状态、重启次数和最近输出")
+    public ResponseEntity<Result<Map<String, Object>>> processStatus() {
+        return ResponseEntity.ok(Result.success(processSupervisor.getStatus()));
+    }
+    
+    /**
+     * 停止托管进程
+     */
+    @PostMapping("/processes/{name}/stop")
+    @Operation(summary = "停止托管进程", description = "停止本节点的托管进程，不再自动重启")
+    public ResponseEntity<Result<Void>> stopProcess(@PathVariable String name) {
+        if (!processSupervisor.stop(name)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Result.error(404, "托管进程不存在: " + name));
+        }
+        return ResponseEntity.ok(Result.success());
+    }
+    
+    /**
+     * 推理端点负载
+     */
+    @GetMapping("/inference/status")
+    @Operation(summary = "推理端点负载", description = "查看各推理端点的进行中请求数、累计请求数和连接失败次数")
+    public ResponseEntity<Result<Map<String, Object>>> inferenceStatus() {
+        return ResponseEntity.ok(Result.success(inferenceRouter.getStatus()));
+    }
+    
+    /**
+     * 节点环境清单缓存状态
+     */
+    @GetMapping("/inventory/status")
+    @Operation(summary = "节点环境清单状态", description = "查看各环境分区的采集时间、缓存时长和采集耗时")
+    public ResponseEntity<Result<Map<String, Object>>> inventoryStatus() {
+        return ResponseEntity.ok(Result.success(nodeInventoryService.getStatus()));
+    }
+    
+    /**
+     * 预览放置方案
+     */
+    @PostMapping("/placement/preview")
+    @Operation(summary = "预览放置方案", description = "按资源需求和放置策略（BINPACK/SPREAD）计算主节点、工作节点及各节点资源分配，不执行部署")
+    public ResponseEntity<Result<PlacementPlan>> previewPlacement(@RequestBody RayDeploymentRequest request) {
+        try {
+            return ResponseEntity.ok(Result.success(placementService.plan(request)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Result.error(400, e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Result.error(409, e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.vediofun.model.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 模型目录校验清单DTO
+ * 记录目录内每个文件的校验和以及由清单派生的目录校验和
+ */
+@Data
+public class ChecksumManifest {
+
+    /**
+     * 目录校验和（对排序后的清单计算，格式 sha256:xxx）
+     */
+    private String manifestChecksum;
+
+    /**
+     * 文件校验清单（相对路径 -> sha256:xxx，按路径排序）
+     */
+    private Map<String, String> files;
+
+    /**
+     * 文件数量
+     */
+    private Integer fileCount;
+
+    /**
+     * 参与计算的总字节数
+     */
+    private Long totalBytes;
+
+    /**
+     * 计算耗时(毫秒)
+     */
+    private Long durationMs;
+
+    /**
+     * 计算吞吐量(MB/s)
+     */
+    private Double throughputMBps;
+}
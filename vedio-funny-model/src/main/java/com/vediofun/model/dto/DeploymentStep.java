@@ -3,6 +3,7 @@ package com.vediofun.model.dto;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 部署步骤DTO
@@ -37,6 +38,26 @@ public class DeploymentStep {
      */
     private String error;
     
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startTime;
+    
+    /**
+     * 结束时间
+     */
+    private LocalDateTime endTime;
+    
+    /**
+     * 耗时(毫秒)
+     */
+    private Long durationMs;
+    
+    /**
+     * 依赖的步骤
+     */
+    private List<String> dependsOn;
+    
     public DeploymentStep() {}
     
     public DeploymentStep(String name, String status, Object details) {
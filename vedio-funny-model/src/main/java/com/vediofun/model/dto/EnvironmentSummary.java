@@ -2,6 +2,8 @@ package com.vediofun.model.dto;
 
 import lombok.Data;
 
+import java.util.Map;
+
 /**
  * 环境检查摘要DTO
  * 
@@ -84,4 +86,9 @@ public class EnvironmentSummary {
      * 环境检查通过率(%)
      */
     private Double environmentPassRate;
-} 
\ No newline at end of file
+    
+    /**
+     * 各节点环境快照的时效(毫秒)，-1 表示快照缺失或过期、已直接查询节点
+     */
+    private Map<String, Long> snapshotAgeMs;
+}
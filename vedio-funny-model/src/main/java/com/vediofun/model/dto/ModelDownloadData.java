@@ -2,6 +2,8 @@ package com.vediofun.model.dto;
 
 import lombok.Data;
 
+import java.util.Map;
+
 /**
  * 模型下载结果数据DTO
  */
@@ -28,6 +30,16 @@ public class ModelDownloadData {
      */
     private String checksum;
     
+    /**
+     * 文件校验清单（相对路径 -> 校验和）
+     */
+    private Map<String, String> fileChecksums;
+    
+    /**
+     * 校验和计算吞吐量
+     */
+    private String checksumThroughput;
+    
     /**
      * 下载耗时
      */
@@ -22,4 +22,9 @@ public class ModelDownloadRequest {
      * 模型ID
      */
     private Long modelId;
+    
+    /**
+     * 下载优先级（HIGH/NORMAL/LOW），部署流程传 HIGH，未指定时为 NORMAL
+     */
+    private String priority;
 } 
\ No newline at end of file
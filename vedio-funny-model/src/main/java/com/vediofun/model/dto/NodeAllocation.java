@@ -0,0 +1,41 @@
+package com.vediofun.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个节点的资源分配DTO
+ *
+ * @author VedioFun Team
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeAllocation {
+
+    /**
+     * 节点ID
+     */
+    private String nodeId;
+
+    /**
+     * 分配的CPU核心数
+     */
+    private Integer numCpus;
+
+    /**
+     * 分配的GPU数量
+     */
+    private Integer numGpus;
+
+    /**
+     * 分配的内存(GB)
+     */
+    private Integer memoryGB;
+
+    /**
+     * 分配后节点的剩余资源比例(0~1)，装箱策略越小越好，分散策略越大越好
+     */
+    private Double score;
+}
@@ -0,0 +1,45 @@
+package com.vediofun.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ray部署放置方案DTO
+ *
+ * @author VedioFun Team
+ */
+@Data
+public class PlacementPlan {
+
+    /**
+     * 放置策略（BINPACK/SPREAD）
+     */
+    private String strategy;
+
+    /**
+     * 主节点ID
+     */
+    private String masterNode;
+
+    /**
+     * 工作节点ID列表
+     */
+    private List<String> workerNodes;
+
+    /**
+     * 节点ID -> 资源分配，主节点在前
+     */
+    private Map<String, NodeAllocation> allocations;
+
+    /**
+     * 参与评估的候选节点数
+     */
+    private Integer candidateNodes;
+
+    /**
+     * 未入选的节点及原因
+     */
+    private Map<String, String> rejectedNodes;
+}
@@ -41,4 +41,14 @@ public class RayClusterContext {
      * 额外信息
      */
     private String additionalInfo;
+    
+    /**
+     * 主节点上的模型路径
+     */
+    private String modelPath;
+    
+    /**
+     * 推理服务端点
+     */
+    private String serviceEndpoint;
 } 
\ No newline at end of file
@@ -46,4 +46,24 @@ public class RayDeploymentRequest {
      * 用户ID
      */
     private Long userId;
+    
+    /**
+     * 资源需求，为空且未指定节点时按Ray配置推导
+     */
+    private ResourceRequirement resources;
+    
+    /**
+     * 放置策略（BINPACK/SPREAD），为空时使用全局配置
+     */
+    private String placementStrategy;
+    
+    /**
+     * 调度器生成的放置方案，按节点设置Ray资源
+     */
+    private PlacementPlan placementPlan;
+    
+    /**
+     * 部署实例ID，由部署任务填写，用于登记集群承载的部署
+     */
+    private Long deploymentInstanceId;
 } 
\ No newline at end of file
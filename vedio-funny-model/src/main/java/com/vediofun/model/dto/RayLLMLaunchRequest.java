@@ -23,6 +23,11 @@ public class RayLLMLaunchRequest {
      */
     private String modelSource;
     
+    /**
+     * 模型目录，由部署流程的下载步骤返回；为空时按模型来源推断
+     */
+    private String modelPath;
+    
     /**
      * 集群地址
      */
@@ -33,6 +38,11 @@ public class RayLLMLaunchRequest {
      */
     private String deploymentType;
     
+    /**
+     * 部署实例ID，进程退出/重启时只更新该实例的状态；直接调用接口启动时为空
+     */
+    private Long deploymentInstanceId;
+    
     /**
      * Ray配置
      */
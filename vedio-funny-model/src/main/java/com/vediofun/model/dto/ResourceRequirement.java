@@ -0,0 +1,55 @@
+package com.vediofun.model.dto;
+
+import lombok.Data;
+
+/**
+ * 模型部署资源需求DTO
+ * CPU、GPU、内存为整个集群的总需求，由调度器拆分到各节点
+ *
+ * @author VedioFun Team
+ */
+@Data
+public class ResourceRequirement {
+
+    /**
+     * CPU核心总数
+     */
+    private Integer numCpus;
+
+    /**
+     * GPU总数
+     */
+    private Integer numGpus;
+
+    /**
+     * 每块GPU至少需要的空闲显存(MB)，为空时使用全局配置
+     */
+    private Long gpuMemoryMB;
+
+    /**
+     * 内存总量(GB)
+     */
+    private Integer memoryGB;
+
+    /**
+     * 每个节点至少需要的空闲磁盘(GB)，用于存放模型文件
+     */
+    private Integer diskGB;
+
+    /**
+     * 节点数量，为空时由调度策略决定
+     */
+    private Integer nodeCount;
+
+    /**
+     * 由Ray配置推导资源需求（单节点）
+     */
+    public static ResourceRequirement fromRayConfig(RayConfig rayConfig) {
+        RayConfig config = rayConfig != null ? rayConfig : new RayConfig();
+        ResourceRequirement requirement = new ResourceRequirement();
+        requirement.setNumCpus(config.getNumCpus());
+        requirement.setNumGpus(config.getNumGpus());
+        requirement.setMemoryGB(config.getMemory());
+        return requirement;
+    }
+}
@@ -2,10 +2,14 @@ package com.vediofun.model.repository;
 
 import com.vediofun.model.entity.ModelDeploymentInstance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +29,11 @@ public interface ModelDeploymentInstanceRepository extends JpaRepository<ModelDe
      */
     List<ModelDeploymentInstance> findByModelIdAndStatus(Long modelId, ModelDeploymentInstance.DeploymentStatus status);
 
+    /**
+     * 根据模型名称查找部署实例
+     */
+    List<ModelDeploymentInstance> findByModelName(String modelName);
+
     /**
      * 根据状态查找所有部署实例
      */
@@ -67,4 +76,27 @@ public interface ModelDeploymentInstanceRepository extends JpaRepository<ModelDe
      */
     @Query("SELECT d.status, COUNT(d) FROM ModelDeploymentInstance d GROUP BY d.status")
     List<Object[]> countByStatus();
+
+    /**
+     * 刷新仍处于指定状态的实例的心跳时间
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ModelDeploymentInstance d SET d.lastHealthCheck = :time WHERE d.id IN :ids AND d.status = :status")
+    int touchHealthCheck(@Param("ids") Collection<Long> ids,
+                         @Param("status") ModelDeploymentInstance.DeploymentStatus status,
+                         @Param("time") LocalDateTime time);
+
+    /**
+     * 将心跳早于指定时间的实例从一个状态改为另一个状态
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ModelDeploymentInstance d SET d.status = :to, d.errorMessage = :message, d.updatedTime = :time "
+            + "WHERE d.status = :from AND (d.lastHealthCheck IS NULL OR d.lastHealthCheck < :before)")
+    int updateStaleStatus(@Param("from") ModelDeploymentInstance.DeploymentStatus from,
+                          @Param("to") ModelDeploymentInstance.DeploymentStatus to,
+                          @Param("before") LocalDateTime before,
+                          @Param("message") String message,
+                          @Param("time") LocalDateTime time);
 } 
\ No newline at end of file
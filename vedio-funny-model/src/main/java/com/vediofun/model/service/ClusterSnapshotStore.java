@@ -0,0 +1,113 @@
+package com.vediofun.model.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vediofun.model.dto.NodeEnvironmentInfo;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群节点环境快照存储
+ * 各模型节点把自身环境快照写入同一个 Redis Hash（字段为节点ID），主节点一次 HGETALL 即可得到全集群视图；
+ * 超过 expire-seconds 未更新的节点视为已下线并从 Hash 中移除
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClusterSnapshotStore {
+
+    private static final String SNAPSHOT_KEY = "model:cluster:node-env";
+
+    /**
+     * 快照超过该时长(秒)视为过期，使用方应直接查询节点
+     */
+    @Value("${model.snapshot.stale-seconds:45}")
+    private long staleSeconds;
+
+    /**
+     * 快照超过该时长(秒)未更新则移除
+     */
+    @Value("${model.snapshot.expire-seconds:600}")
+    private long expireSeconds;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 写入本节点快照
+     */
+    public void publish(NodeEnvironmentInfo nodeInfo) throws Exception {
+        NodeSnapshot snapshot = new NodeSnapshot(nodeInfo, System.currentTimeMillis());
+        redisTemplate.opsForHash().put(SNAPSHOT_KEY, nodeInfo.getNodeId(), objectMapper.writeValueAsString(snapshot));
+    }
+
+    public void remove(String nodeId) {
+        redisTemplate.opsForHash().delete(SNAPSHOT_KEY, nodeId);
+    }
+
+    /**
+     * 读取全部节点快照，顺带清理已过期的节点
+     *
+     * @return 节点ID -> 快照
+     */
+    public Map<String, NodeSnapshot> readAll() {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(SNAPSHOT_KEY);
+        Map<String, NodeSnapshot> snapshots = new HashMap<>();
+        long expireBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(expireSeconds);
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String nodeId = entry.getKey().toString();
+            try {
+                NodeSnapshot snapshot = objectMapper.readValue(entry.getValue().toString(), NodeSnapshot.class);
+                if (snapshot.getPublishedAt() < expireBefore) {
+                    remove(nodeId);
+                    continue;
+                }
+                snapshot.setStale(snapshot.ageMs() > TimeUnit.SECONDS.toMillis(staleSeconds));
+                snapshots.put(nodeId, snapshot);
+            } catch (Exception e) {
+                log.warn("解析节点环境快照失败 - 节点: {}: {}", nodeId, e.getMessage());
+                remove(nodeId);
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * 节点环境快照
+     */
+    @Data
+    @NoArgsConstructor
+    public static class NodeSnapshot {
+
+        private NodeEnvironmentInfo nodeInfo;
+
+        /**
+         * 发布时间（毫秒时间戳）
+         */
+        private long publishedAt;
+
+        /**
+         * 读取时是否已过期，不写入存储
+         */
+        @JsonIgnore
+        private boolean stale;
+
+        NodeSnapshot(NodeEnvironmentInfo nodeInfo, long publishedAt) {
+            this.nodeInfo = nodeInfo;
+            this.publishedAt = publishedAt;
+        }
+
+        public long ageMs() {
+            return Math.max(0, System.currentTimeMillis() - publishedAt);
+        }
+    }
+}
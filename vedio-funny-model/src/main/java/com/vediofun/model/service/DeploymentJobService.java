@@ -0,0 +1,447 @@
+package com.vediofun.model.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vediofun.model.dto.DeploymentStep;
+import com.vediofun.model.dto.PlacementPlan;
+import com.vediofun.model.dto.RayDeploymentRequest;
+import com.vediofun.model.dto.RayDeploymentResponse;
+import com.vediofun.model.entity.Model;
+import com.vediofun.model.entity.ModelDeploymentInstance;
+import com.vediofun.model.repository.ModelDeploymentInstanceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 部署任务服务
+ * 部署请求提交后立即创建部署实例记录（DEPLOYING）并返回实例ID，部署工作流在有界的任务线程池中执行，
+ * 完成后更新实例状态。每个部署步骤通过SSE推送给订阅者，新订阅者会先收到已发生的步骤；
+ * 推送在独立的线程中按任务顺序执行，慢订阅者不会阻塞部署工作流。
+ * 进行中的任务定期刷新实例心跳，心跳超时的 DEPLOYING 实例（如服务重启后遗留的）被标记为 ERROR，释放其占用的资源。
+ * 请求未指定节点或给出资源需求时，由放置调度选择节点并拆分资源
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeploymentJobService {
+
+    /**
+     * 同时执行的部署任务数
+     */
+    @Value("${model.deploy.job-threads:4}")
+    private int jobThreads;
+
+    /**
+     * 等待执行的部署任务上限，超出后拒绝提交
+     */
+    @Value("${model.deploy.job-queue-size:32}")
+    private int jobQueueSize;
+
+    /**
+     * SSE连接超时(毫秒)
+     */
+    @Value("${model.deploy.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    /**
+     * 已结束任务在内存中保留的时间(分钟)，之后只能从部署实例记录查询
+     */
+    @Value("${model.deploy.job-retention-minutes:30}")
+    private long jobRetentionMinutes;
+
+    /**
+     * 进行中任务刷新实例心跳的周期(秒)
+     */
+    @Value("${model.deploy.heartbeat-seconds:30}")
+    private long heartbeatSeconds;
+
+    /**
+     * DEPLOYING 实例心跳超过该时间(秒)未刷新即视为任务已中断
+     */
+    @Value("${model.deploy.stale-seconds:120}")
+    private long staleSeconds;
+
+    private final ModelService modelService;
+    private final ModelDeploymentInstanceRepository deploymentInstanceRepository;
+    private final PlacementService placementService;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, DeploymentJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 放置方案计算与实例记录写入串行执行，避免并发提交按同一份已有分配重复分配；节点环境查询不在锁内
+     */
+    private final Object placementLock = new Object();
+
+    private ThreadPoolExecutor jobExecutor;
+
+    /**
+     * SSE推送线程，同一任务的事件通过 {@link DeploymentJob#sendChain} 串行执行
+     */
+    private ExecutorService sseExecutor;
+
+    private ScheduledExecutorService heartbeatScheduler;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        jobExecutor = new ThreadPoolExecutor(jobThreads, jobThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, jobQueueSize)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "deploy-job-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        AtomicInteger sseThreadIndex = new AtomicInteger();
+        sseExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "deploy-sse-" + sseThreadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "deploy-job-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, heartbeatSeconds);
+        // 启动时立即回收上次运行遗留的实例，之后与心跳一起定期检查
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, 0, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdownNow();
+        jobExecutor.shutdownNow();
+        sseExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交部署任务
+     *
+     * @return 部署实例ID，即任务ID
+     */
+    public Long submit(RayDeploymentRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("部署请求不能为空");
+        }
+        purgeFinishedJobs();
+
+        boolean needsPlacement = request.getResources() != null
+                || request.getNodeIds() == null || request.getNodeIds().isEmpty();
+        // 节点环境在锁外查询，锁内只按已有分配计算方案并写入实例记录
+        PlacementService.Candidates candidates = needsPlacement ? placementService.probe(request) : null;
+        ModelDeploymentInstance instance;
+        synchronized (placementLock) {
+            if (needsPlacement) {
+                PlacementPlan plan = placementService.plan(request, candidates);
+                request.setPlacementPlan(plan);
+                request.setNodeIds(new ArrayList<>(plan.getAllocations().keySet()));
+            }
+            instance = modelService.saveDeploymentInstance(buildInstance(request));
+        }
+        request.setDeploymentInstanceId(instance.getId());
+        Long jobId = instance.getId();
+        DeploymentJob job = new DeploymentJob(jobId);
+        jobs.put(jobId, job);
+
+        try {
+            jobExecutor.execute(() -> runJob(job, instance, request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            modelService.updateDeploymentInstanceStatus(jobId, ModelDeploymentInstance.DeploymentStatus.FAILED,
+                    "部署任务队列已满");
+            throw new IllegalStateException("部署任务过多，请稍后重试");
+        }
+        log.info("部署任务已提交 - 任务ID: {}, 模型: {}, 节点: {}", jobId, request.getModelName(), request.getNodeIds());
+        return jobId;
+    }
+
+    /**
+     * 订阅部署进度：先补发已完成的步骤，任务结束时发送 result 事件并关闭连接
+     */
+    public SseEmitter subscribe(Long jobId) {
+        DeploymentJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("部署任务不存在或已过期: " + jobId);
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onTimeout(() -> job.emitters.remove(emitter));
+        emitter.onError(error -> job.emitters.remove(emitter));
+
+        // 锁内只取快照并排入推送队列，排队顺序保证补发的步骤先于之后发生的步骤
+        synchronized (job) {
+            List<DeploymentStep> steps = new ArrayList<>(job.steps);
+            RayDeploymentResponse result = job.result;
+            if (result == null) {
+                job.emitters.add(emitter);
+            }
+            enqueue(job, () -> {
+                for (DeploymentStep step : steps) {
+                    if (!send(emitter, "step", step)) {
+                        job.emitters.remove(emitter);
+                        return;
+                    }
+                }
+                if (result != null && send(emitter, "result", result)) {
+                    emitter.complete();
+                }
+            });
+        }
+        return emitter;
+    }
+
+    /**
+     * 查询任务状态，内存中已过期的任务从部署实例记录读取
+     */
+    public Map<String, Object> getJob(Long jobId) {
+        DeploymentJob job = jobs.get(jobId);
+        if (job != null) {
+            synchronized (job) {
+                return Map.of(
+                        "jobId", jobId,
+                        "status", job.result != null ? job.result.getStatus() : "IN_PROGRESS",
+                        "steps", new ArrayList<>(job.steps),
+                        "result", job.result != null ? job.result : Map.of());
+            }
+        }
+        ModelDeploymentInstance instance = deploymentInstanceRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("部署任务不存在: " + jobId));
+        return Map.of("jobId", jobId, "status", instance.getStatus().name(), "instance", instance);
+    }
+
+    /**
+     * 任务执行状态
+     */
+    public Map<String, Object> getStatus() {
+        return Map.of(
+                "activeJobs", jobExecutor.getActiveCount(),
+                "queuedJobs", jobExecutor.getQueue().size(),
+                "trackedJobs", jobs.size());
+    }
+
+    private void runJob(DeploymentJob job, ModelDeploymentInstance instance, RayDeploymentRequest request) {
+        RayDeploymentResponse result;
+        try {
+            result = modelService.deployModelToRayCluster(request, step -> publishStep(job, step));
+        } catch (Exception e) {
+            log.error("部署任务执行失败 - 任务ID: {}", job.jobId, e);
+            result = new RayDeploymentResponse();
+            result.setStatus("FAILED");
+            result.setError(e.getMessage());
+            result.setSteps(new ArrayList<>());
+            result.setTimestamp(LocalDateTime.now());
+        }
+        result.setDeploymentId(job.jobId.toString());
+
+        try {
+            instance.setClusterAddress(result.getClusterAddress());
+            instance.setServiceEndpoint(result.getServiceEndpoint());
+            instance.setStatus(toInstanceStatus(result.getStatus()));
+            if (result.getError() != null) {
+                instance.setErrorMessage(result.getError());
+            }
+            instance.setLastHealthCheck(LocalDateTime.now());
+            modelService.saveDeploymentInstance(instance);
+        } catch (Exception e) {
+            log.error("更新部署实例记录失败 - 任务ID: {}", job.jobId, e);
+        }
+
+        publishResult(job, result);
+        log.info("部署任务结束 - 任务ID: {}, 状态: {}", job.jobId, result.getStatus());
+    }
+
+    private void publishStep(DeploymentJob job, DeploymentStep step) {
+        synchronized (job) {
+            job.steps.add(step);
+            List<SseEmitter> emitters = List.copyOf(job.emitters);
+            enqueue(job, () -> emitters.stream()
+                    .filter(emitter -> !send(emitter, "step", step))
+                    .forEach(job.emitters::remove));
+        }
+    }
+
+    private void publishResult(DeploymentJob job, RayDeploymentResponse result) {
+        synchronized (job) {
+            job.result = result;
+            job.finishedAt = System.currentTimeMillis();
+            List<SseEmitter> emitters = List.copyOf(job.emitters);
+            job.emitters.clear();
+            enqueue(job, () -> emitters.forEach(emitter -> {
+                if (send(emitter, "result", result)) {
+                    emitter.complete();
+                }
+            }));
+        }
+    }
+
+    /**
+     * 排入任务的推送队列，调用方持有任务锁
+     */
+    private void enqueue(DeploymentJob job, Runnable action) {
+        job.sendChain = job.sendChain
+                .thenRunAsync(action, sseExecutor)
+                .exceptionally(error -> {
+                    log.debug("推送部署进度失败 - 任务ID: {}, {}", job.jobId, error.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * 刷新进行中任务的实例心跳，并把心跳超时的 DEPLOYING 实例标记为 ERROR
+     */
+    private void heartbeat() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> activeJobIds = jobs.values().stream()
+                    .filter(job -> job.finishedAt == 0)
+                    .map(job -> job.jobId)
+                    .toList();
+            if (!activeJobIds.isEmpty()) {
+                deploymentInstanceRepository.touchHealthCheck(activeJobIds,
+                        ModelDeploymentInstance.DeploymentStatus.DEPLOYING, now);
+            }
+            int recovered = deploymentInstanceRepository.updateStaleStatus(
+                    ModelDeploymentInstance.DeploymentStatus.DEPLOYING,
+                    ModelDeploymentInstance.DeploymentStatus.ERROR,
+                    now.minusSeconds(Math.max(staleSeconds, heartbeatSeconds * 2)),
+                    "部署任务已中断（服务重启或心跳超时）", now);
+            if (recovered > 0) {
+                log.warn("回收中断的部署实例 {} 个，状态标记为 ERROR", recovered);
+            }
+        } catch (Exception e) {
+            log.warn("部署任务心跳失败: {}", e.getMessage());
+        }
+    }
+
+    private boolean send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("推送部署进度失败，订阅已断开: {}", e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void purgeFinishedJobs() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(jobRetentionMinutes);
+        jobs.values().removeIf(job -> job.finishedAt > 0 && job.finishedAt < expireBefore);
+    }
+
+    /**
+     * 工作流结果转为实例状态：工作流完成即服务已启动，实例为 RUNNING，路由、放置和集群回收都以此判断实例存活
+     */
+    private ModelDeploymentInstance.DeploymentStatus toInstanceStatus(String status) {
+        if ("COMPLETED".equals(status)) {
+            return ModelDeploymentInstance.DeploymentStatus.RUNNING;
+        }
+        if ("FAILED".equals(status)) {
+            return ModelDeploymentInstance.DeploymentStatus.FAILED;
+        }
+        try {
+            return ModelDeploymentInstance.DeploymentStatus.valueOf(status);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return ModelDeploymentInstance.DeploymentStatus.UNKNOWN;
+        }
+    }
+
+    /**
+     * 构建部署实例记录（状态为DEPLOYING）
+     */
+    private ModelDeploymentInstance buildInstance(RayDeploymentRequest request) {
+        Model model = null;
+        try {
+            model = modelService.getModelById(request.getModelId());
+        } catch (Exception e) {
+            log.warn("获取模型信息失败 - 模型ID: {}", request.getModelId());
+        }
+
+        ModelDeploymentInstance instance = new ModelDeploymentInstance();
+        instance.setModelId(request.getModelId());
+        instance.setModelName(request.getModelName() != null ? request.getModelName() :
+                (model != null ? model.getName() : "Unknown Model"));
+        instance.setModelPath(model != null ? model.getFilePath() : "");
+        instance.setDeploymentType("RAY_CLUSTER");
+        instance.setStatus(ModelDeploymentInstance.DeploymentStatus.DEPLOYING);
+        instance.setModelEngine("VLLM"); // 默认使用VLLM，可以后续从请求中获取
+        instance.setNodeIds(String.join(",", request.getNodeIds()));
+        instance.setDeployedBy(request.getUserId());
+        PlacementPlan plan = request.getPlacementPlan();
+        // 设置最大并发数（基于CPU核心数估算）
+        if (plan != null) {
+            instance.setMaxConcurrency(plan.getAllocations().values().stream()
+                    .mapToInt(allocation -> allocation.getNumCpus()).sum() * 2);
+        } else {
+            instance.setMaxConcurrency(request.getRayConfig() != null &&
+                    request.getRayConfig().getNumCpus() != null ?
+                    request.getRayConfig().getNumCpus() * 2 : 10);
+        }
+        instance.setDeploymentConfig(String.format(
+                "{\"modelSource\":\"%s\",\"deploymentType\":\"%s\",\"nodeCount\":%d,\"rayConfig\":%s,"
+                        + "\"placementStrategy\":%s,\"allocations\":%s}",
+                request.getModelSource() != null ? request.getModelSource() : "",
+                request.getDeploymentType() != null ? request.getDeploymentType() : "RAY_CLUSTER",
+                request.getNodeIds().size(),
+                request.getRayConfig() != null ? "\"configured\"" : "\"default\"",
+                plan != null ? "\"" + plan.getStrategy() + "\"" : "null",
+                writeAllocations(plan)));
+        instance.setLastHealthCheck(LocalDateTime.now());
+        return instance;
+    }
+
+    /**
+     * 放置方案中的资源分配，供后续调度扣除
+     */
+    private String writeAllocations(PlacementPlan plan) {
+        if (plan == null) {
+            return "{}";
+        }
+        try {
+            return objectMapper.writeValueAsString(plan.getAllocations());
+        } catch (JsonProcessingException e) {
+            log.warn("序列化资源分配失败: {}", e.getMessage());
+            return "{}";
+        }
+    }
+
+    /**
+     * 内存中的部署任务，记录已发生的步骤和当前订阅者
+     */
+    private static class DeploymentJob {
+        private final Long jobId;
+        private final List<DeploymentStep> steps = new ArrayList<>();
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private RayDeploymentResponse result;
+        private volatile long finishedAt;
+        /** SSE推送队列的尾部，持有任务锁时追加 */
+        private CompletableFuture<Void> sendChain = CompletableFuture.completedFuture(null);
+
+        DeploymentJob(Long jobId) {
+            this.jobId = jobId;
+        }
+    }
+}
@@ -4,8 +4,11 @@ import com.vediofun.model.dto.*;
 import com.vediofun.model.dto.RayLLMLaunchRequest;
 import com.vediofun.model.dto.RayClusterContext;
 import com.vediofun.common.result.Result;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.core.ParameterizedTypeReference;
@@ -17,13 +20,20 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * 部署运行时处理器
@@ -38,12 +48,79 @@ public class DeploymentService {
     
     private final RestTemplate restTemplate;
     private final DiscoveryClient discoveryClient;
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+    private final ReadinessService readinessService;
+    private final ClusterSnapshotStore snapshotStore;
+    private final RayClusterRegistry clusterRegistry;
+    
+    @Value("${spring.application.name:vedio-funny-model}")
+    private String applicationName;
+    
+    /**
+     * 节点级并行任务（环境检查、安装、下载等）的线程数
+     */
+    @Value("${model.deploy.node-task-threads:10}")
+    private int nodeTaskThreads;
+    
+    /**
+     * 工作流步骤执行线程数
+     */
+    @Value("${model.deploy.workflow-threads:16}")
+    private int workflowThreads;
+    
+    private ExecutorService executorService;
+    
+    /**
+     * 工作流步骤执行线程，与节点级并行任务使用的 executorService 分开，避免步骤等待自己提交的子任务时占满线程池。
+     * 步骤只在依赖完成后才提交，线程用满时后续步骤排队等待，不会互相阻塞
+     */
+    private ExecutorService workflowExecutor;
+    
+    private static final String STEP_ENV_CHECK = "环境检查";
+    private static final String STEP_INSTALL_MASTER = "环境安装(主节点)";
+    private static final String STEP_INSTALL_WORKERS = "环境安装(工作节点)";
+    private static final String STEP_DOWNLOAD = "模型下载";
+    private static final String STEP_HEAD_START = "主节点启动";
+    private static final String STEP_WORKERS_JOIN = "工作节点加入";
+    private static final String STEP_CLUSTER_VERIFY = "集群验证";
+    private static final String STEP_DISTRIBUTE = "模型分发";
+    private static final String STEP_LAUNCH = "RayLLM启动";
+    
+    @PostConstruct
+    public void init() {
+        executorService = Executors.newFixedThreadPool(Math.max(1, nodeTaskThreads), namedThreads("deployment-node-"));
+        workflowExecutor = Executors.newFixedThreadPool(Math.max(1, workflowThreads), namedThreads("deployment-workflow-"));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workflowExecutor.shutdownNow();
+        executorService.shutdownNow();
+    }
+    
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
     
     /**
      * 执行Ray部署工作流
+     * 步骤按依赖关系并行执行：环境检查、主节点/工作节点环境安装、模型下载互不依赖，同时开始；
+     * 主节点环境就绪即启动Ray Head，工作节点在安装完成且Head就绪后加入；
+     * 模型下载完成后立即向工作节点分发，集群就绪与模型分发都完成后启动RayLLM服务。
+     * 节点集合与已登记的集群一致时直接复用该集群，跳过环境安装、集群启动和验证
      */
     public RayDeploymentResponse executeRayDeploymentWorkflow(RayDeploymentRequest request) {
+        return executeRayDeploymentWorkflow(request, step -> { });
+    }
+    
+    /**
+     * 执行Ray部署工作流，每个步骤开始（RUNNING）和结束时回调监听器
+     */
+    public RayDeploymentResponse executeRayDeploymentWorkflow(RayDeploymentRequest request, Consumer<DeploymentStep> stepListener) {
         String deploymentId = UUID.randomUUID().toString();
         log.info("开始执行Ray部署工作流 - 部署ID: {}, 模型: {}", deploymentId, request.getModelName());
         
@@ -53,55 +130,198 @@ public class DeploymentService {
         response.setSteps(new ArrayList<>());
         response.setTimestamp(LocalDateTime.now());
         
-        // 创建部署上下文
-        RayClusterContext context = RayClusterContext.builder().build();
-        
+        RayClusterRegistry.WarmCluster warmCluster = null;
+        AtomicBoolean launched = new AtomicBoolean();
+        AtomicReference<String> launchedEndpoint = new AtomicReference<>();
         try {
             List<String> nodeIds = request.getNodeIds();
-            String masterNodeId = nodeIds.get(0);
             
             // 预先批量查找所有节点实例，供后续步骤使用
             Map<String, ServiceInstance> nodeInstanceMap = findAllNodeInstances(nodeIds);
             log.info("找到节点实例: {}/{}", nodeInstanceMap.size(), nodeIds.size());
             
-            // 步骤1: 检查节点环境
-            log.info("步骤1/5: 检查节点环境");
-            NodeEnvironmentCheckResponse envCheckResponse = checkNodesEnvironmentWithInstances(nodeIds, nodeInstanceMap);
-            addDeploymentStep(response, "环境检查", envCheckResponse.getStatus(), envCheckResponse);
+            // 复用已有集群时以集群的主节点为准
+            warmCluster = acquireWarmCluster(request, nodeIds, nodeInstanceMap);
+            RayClusterRegistry.WarmCluster warm = warmCluster;
+            String masterNodeId = warm != null ? warm.getMasterNode() : nodeIds.get(0);
             
-            // 步骤2: 安装Python和Ray环境
-            log.info("步骤2/5: 安装Python和Ray环境");
-            Map<String, Object> installResult = installRayEnvironmentWithInstances(nodeInstanceMap);
-            addDeploymentStep(response, "环境安装", "COMPLETED", installResult);
-            
-            // 步骤3: 创建Ray集群，更新上下文
-            log.info("步骤3/5: 创建Ray集群");
-            context = createRayClusterWithContext(masterNodeId, nodeInstanceMap, request, context);
-            addDeploymentStep(response, "集群创建", "COMPLETED", context);
-            
-            // 步骤4: 下载模型到主节点
-            log.info("步骤4/5: 下载模型到主节点");
             ServiceInstance masterInstance = nodeInstanceMap.get(masterNodeId);
-            Map<String, Object> downloadResult = downloadModelToMasterNode(masterInstance, request);
-            addDeploymentStep(response, "模型下载", "COMPLETED", downloadResult);
+            if (masterInstance == null) {
+                throw new RuntimeException("无法找到主节点实例: " + masterNodeId);
+            }
+            Map<String, ServiceInstance> workerInstanceMap = new LinkedHashMap<>(nodeInstanceMap);
+            workerInstanceMap.remove(masterNodeId);
             
-            // 步骤5: 启动RayLLM服务，使用上下文
-            log.info("步骤5/5: 启动RayLLM服务");
-            Map<String, Object> launchResult = launchRayLLMServiceWithContext(context, nodeInstanceMap, request);
-            addDeploymentStep(response, "RayLLM启动", "COMPLETED", launchResult);
+            // 部署上下文，各步骤的结果通过上下文传递给后续步骤
+            RayClusterContext context = RayClusterContext.builder()
+                    .masterNode(masterNodeId)
+                    .workerNodes(new ArrayList<>(workerInstanceMap.keySet()))
+                    .totalNodes(nodeInstanceMap.size())
+                    .clusterStatus("PENDING")
+                    .build();
+            if (warm != null) {
+                context.setClusterAddress(warm.getClusterAddress());
+                context.setClusterStatus("READY");
+                context.setAdditionalInfo("复用已有集群: " + warm.getClusterAddress());
+            }
             
-            response.setStatus("COMPLETED");
-            log.info("Ray部署工作流完成 - 部署ID: {}", deploymentId);
+            DeploymentWorkflow workflow = new DeploymentWorkflow(deploymentId, workflowExecutor, step -> {
+                if (!"RUNNING".equals(step.getStatus())) {
+                    addDeploymentStep(response, step);
+                }
+                notifyStep(stepListener, step);
+            });
+            workflow
+                .step(STEP_ENV_CHECK, List.of(),
+                        () -> checkNodesEnvironmentWithInstances(nodeIds, nodeInstanceMap),
+                        details -> ((NodeEnvironmentCheckResponse) details).getStatus())
+                .step(STEP_INSTALL_MASTER, List.of(),
+                        () -> warm != null ? reusedClusterStep(warm)
+                                : installRayEnvironmentWithInstances(Map.of(masterNodeId, masterInstance)))
+                .step(STEP_INSTALL_WORKERS, List.of(),
+                        () -> warm != null ? reusedClusterStep(warm)
+                                : workerInstanceMap.isEmpty()
+                                ? Map.of("status", "SKIPPED", "message", "没有工作节点")
+                                : installRayEnvironmentWithInstances(workerInstanceMap))
+                .step(STEP_DOWNLOAD, List.of(), () -> {
+                    Map<String, Object> downloadResult = downloadModelToNode(masterInstance, request);
+                    context.setModelPath((String) downloadResult.get("downloadPath"));
+                    return downloadResult;
+                })
+                .step(STEP_HEAD_START, List.of(STEP_INSTALL_MASTER),
+                        () -> warm != null ? reusedClusterStep(warm)
+                                : startRayHeadWithContext(masterInstance, request, context))
+                .step(STEP_WORKERS_JOIN, List.of(STEP_HEAD_START, STEP_INSTALL_WORKERS),
+                        () -> warm != null ? reusedClusterStep(warm)
+                                : joinWorkersWithContext(nodeInstanceMap, request, context))
+                .step(STEP_CLUSTER_VERIFY, List.of(STEP_WORKERS_JOIN),
+                        () -> warm != null ? reusedClusterStep(warm)
+                                : verifyClusterWithContext(masterInstance, context))
+                // 工作节点与主节点同时开始下载，已下载的范围在节点间互相拉取，源站只补齐缺失部分
+                .step(STEP_DISTRIBUTE, List.of(),
+                        () -> distributeModelToWorkerNodes(masterNodeId, nodeInstanceMap, request))
+                .step(STEP_LAUNCH, List.of(STEP_CLUSTER_VERIFY, STEP_DISTRIBUTE), () -> {
+                    // 主节点的推理进程从这里开始被替换
+                    launched.set(true);
+                    Map<String, Object> launchResult = launchRayLLMServiceWithContext(context, nodeInstanceMap, request);
+                    context.setServiceEndpoint((String) launchResult.get("serviceEndpoint"));
+                    launchedEndpoint.set(context.getServiceEndpoint());
+                    return launchResult;
+                });
+            
+            String failure = workflow.await();
+            // 新建且验证通过的集群登记后供后续部署复用，部署失败时同样保留，由空闲回收处理
+            if (warm == null && "READY".equals(context.getClusterStatus())) {
+                List<String> orphanedNodes = clusterRegistry.register(context, clusterResources(request, context),
+                        request.getDeploymentInstanceId(), request.getModelName());
+                if (!orphanedNodes.isEmpty()) {
+                    log.info("停止被替换集群的剩余节点: {}", orphanedNodes);
+                    stopRayCluster(orphanedNodes);
+                }
+            }
+            response.setClusterAddress(context.getClusterAddress());
+            response.setServiceEndpoint(context.getServiceEndpoint());
+            if (failure != null) {
+                response.setStatus("FAILED");
+                response.setError(failure);
+                log.error("Ray部署工作流失败 - 部署ID: {}, 原因: {}", deploymentId, failure);
+            } else {
+                response.setStatus("COMPLETED");
+                log.info("Ray部署工作流完成 - 部署ID: {}", deploymentId);
+            }
             
         } catch (Exception e) {
             log.error("Ray部署工作流失败 - 部署ID: {}", deploymentId, e);
             response.setStatus("FAILED");
             response.setError(e.getMessage());
-            addDeploymentStep(response, "部署失败", "FAILED", Map.of("error", e.getMessage()));
+            DeploymentStep failedStep = new DeploymentStep("部署失败", "FAILED", Map.of("error", String.valueOf(e.getMessage())));
+            addDeploymentStep(response, failedStep);
+            notifyStep(stepListener, failedStep);
+        } finally {
+            if (warmCluster != null) {
+                clusterRegistry.finishReuse(warmCluster, launched.get(), launchedEndpoint.get());
+                clusterRegistry.release(warmCluster.getClusterAddress(), true);
+            }
         }
         
         return response;
     }
+    
+    /**
+     * 占用节点集合一致的已登记集群，复用前确认集群健康，不健康则移除登记并新建集群
+     */
+    private RayClusterRegistry.WarmCluster acquireWarmCluster(RayDeploymentRequest request, List<String> nodeIds,
+                                                              Map<String, ServiceInstance> nodeInstanceMap) {
+        int numCpus = 0;
+        int numGpus = 0;
+        int memoryGB = 0;
+        for (String nodeId : nodeIds) {
+            NodeAllocation allocation = nodeAllocation(nodeId, request);
+            numCpus += allocation.getNumCpus();
+            numGpus += allocation.getNumGpus();
+            memoryGB += allocation.getMemoryGB();
+        }
+        RayClusterRegistry.WarmCluster cluster = clusterRegistry.acquire(nodeIds, numCpus, numGpus, memoryGB,
+                request.getDeploymentInstanceId(), request.getModelName());
+        if (cluster == null) {
+            return null;
+        }
+        ServiceInstance masterInstance = nodeInstanceMap.get(cluster.getMasterNode());
+        if (masterInstance != null && verifyRayClusterHealth(masterInstance, cluster.getNodes().size())) {
+            return cluster;
+        }
+        log.info("已登记的Ray集群不可用，重新创建 - 地址: {}", cluster.getClusterAddress());
+        clusterRegistry.release(cluster.getClusterAddress(), false);
+        return null;
+    }
+    
+    private Map<String, Object> reusedClusterStep(RayClusterRegistry.WarmCluster cluster) {
+        return Map.of("status", "SKIPPED", "message", "复用已有集群", "clusterAddress", cluster.getClusterAddress());
+    }
+    
+    /**
+     * 集群各节点启动Ray时使用的资源
+     */
+    private Map<String, NodeAllocation> clusterResources(RayDeploymentRequest request, RayClusterContext context) {
+        Map<String, NodeAllocation> resources = new LinkedHashMap<>();
+        resources.put(context.getMasterNode(), nodeAllocation(context.getMasterNode(), request));
+        for (String workerNodeId : context.getWorkerNodes()) {
+            resources.put(workerNodeId, nodeAllocation(workerNodeId, request));
+        }
+        return resources;
+    }
+    
+    /**
+     * 停止集群各节点上的Ray进程
+     */
+    public void stopRayCluster(List<String> nodeIds) {
+        Map<String, ServiceInstance> nodeInstanceMap = findAllNodeInstances(nodeIds);
+        for (String nodeId : nodeIds) {
+            ServiceInstance instance = nodeInstanceMap.get(nodeId);
+            if (instance == null) {
+                log.warn("停止Ray进程时未找到节点实例: {}", nodeId);
+                continue;
+            }
+            try {
+                String stopUrl = "http://" + instance.getHost() + ":" + instance.getPort() + "/model/ray/stop";
+                restTemplate.postForEntity(stopUrl, null, Result.class);
+                log.info("已停止节点Ray进程 - 节点: {}", nodeId);
+            } catch (Exception e) {
+                log.warn("停止节点Ray进程失败 - 节点: {}: {}", nodeId, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 通知步骤监听器，监听器异常不影响部署
+     */
+    private void notifyStep(Consumer<DeploymentStep> stepListener, DeploymentStep step) {
+        try {
+            stepListener.accept(step);
+        } catch (Exception e) {
+            log.warn("部署步骤监听器处理失败 - 步骤: {}", step.getName(), e);
+        }
+    }
 
     /**
      * 创建环境检查请求对象
@@ -135,10 +355,19 @@ public class DeploymentService {
         response.setTotalNodes(request.getNodeIds().size());
         
         try {
-            // 2. 并行检查每个节点环境（使用预查找的实例）
+            // 2. 优先使用节点发布的环境快照，快照缺失或过期的节点才直接查询（使用预查找的实例）
+            Map<String, ClusterSnapshotStore.NodeSnapshot> snapshots = readNodeSnapshots();
+            Map<String, Long> snapshotAgeMs = new LinkedHashMap<>();
             List<CompletableFuture<NodeEnvironmentInfo>> futures = new ArrayList<>();
             
             for (String nodeId : request.getNodeIds()) {
+                ClusterSnapshotStore.NodeSnapshot snapshot = snapshots.get(nodeId);
+                if (snapshot != null && !snapshot.isStale()) {
+                    snapshotAgeMs.put(nodeId, snapshot.ageMs());
+                    futures.add(CompletableFuture.completedFuture(snapshot.getNodeInfo()));
+                    continue;
+                }
+                snapshotAgeMs.put(nodeId, -1L);
                 ServiceInstance nodeInstance = nodeInstanceMap.get(nodeId);
                 CompletableFuture<NodeEnvironmentInfo> future = CompletableFuture.supplyAsync(
                     () -> checkSingleNodeEnvironmentWithInstance(nodeId, nodeInstance, request), 
@@ -166,6 +395,7 @@ public class DeploymentService {
             
             // 4. 生成环境摘要
             EnvironmentSummary summary = generateEnvironmentSummary(nodeInfos);
+            summary.setSnapshotAgeMs(snapshotAgeMs);
             response.setSummary(summary);
             
             response.setStatus("COMPLETED");
@@ -320,6 +550,18 @@ public class DeploymentService {
     
 
     
+    /**
+     * 读取集群环境快照，Redis不可用时返回空集合，由调用方直接查询节点
+     */
+    private Map<String, ClusterSnapshotStore.NodeSnapshot> readNodeSnapshots() {
+        try {
+            return snapshotStore.readAll();
+        } catch (Exception e) {
+            log.warn("读取集群环境快照失败，直接查询各节点: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+    
     /**
      * 使用预查找的节点实例检查单个节点环境
      */
@@ -467,8 +709,16 @@ public class DeploymentService {
      * 添加部署步骤记录
      */
     private void addDeploymentStep(RayDeploymentResponse response, String stepName, String status, Object details) {
-        DeploymentStep step = new DeploymentStep(stepName, status, details);
-        response.getSteps().add(step);
+        addDeploymentStep(response, new DeploymentStep(stepName, status, details));
+    }
+    
+    /**
+     * 添加部署步骤记录，步骤可能在不同线程完成
+     */
+    private void addDeploymentStep(RayDeploymentResponse response, DeploymentStep step) {
+        synchronized (response) {
+            response.getSteps().add(step);
+        }
     }
     
     /**
@@ -515,6 +765,28 @@ public class DeploymentService {
     
 
     
+    /**
+     * 检查指定节点环境（优先使用节点快照），供放置调度使用
+     */
+    public NodeEnvironmentCheckResponse checkNodesEnvironment(List<String> nodeIds) {
+        return checkNodesEnvironmentWithInstances(nodeIds, findAllNodeInstances(nodeIds));
+    }
+    
+    /**
+     * 注册中心中所有模型服务节点的ID
+     */
+    public List<String> discoverModelNodeIds() {
+        List<String> nodeIds = new ArrayList<>();
+        try {
+            for (ServiceInstance instance : discoveryClient.getInstances(applicationName)) {
+                nodeIds.add(instance.getInstanceId());
+            }
+        } catch (Exception e) {
+            log.warn("获取模型服务节点失败: {}", e.getMessage());
+        }
+        return nodeIds;
+    }
+    
     /**
      * 批量查找所有节点实例
      */
@@ -603,81 +875,82 @@ public class DeploymentService {
     }
     
     /**
-     * 使用上下文创建Ray集群
+     * 启动Ray Head节点，确认GCS可连通后写入集群地址
      */
-    private RayClusterContext createRayClusterWithContext(String masterNodeId, Map<String, ServiceInstance> nodeInstanceMap, 
-                                                         RayDeploymentRequest request, RayClusterContext context) {
-        try {
-            List<String> nodeIds = new ArrayList<>(nodeInstanceMap.keySet());
-            String clusterAddress = "ray://" + masterNodeId + ":6379";
-            
-            // 安全地获取工作节点列表
-            List<String> workerNodes = new ArrayList<>();
-            if (nodeIds.size() > 1) {
-                workerNodes = nodeIds.subList(1, nodeIds.size());
-            }
-            
-            log.info("开始创建Ray集群 - 主节点: {}, 工作节点: {}, 集群地址: {}", 
-                    masterNodeId, workerNodes, clusterAddress);
-            
-            // 1. 启动主节点Ray集群
-            ServiceInstance masterInstance = nodeInstanceMap.get(masterNodeId);
-            if (masterInstance == null) {
-                throw new RuntimeException("无法找到主节点实例: " + masterNodeId);
-            }
-            
-            boolean masterStarted = startRayHeadNode(masterInstance, request);
-            if (!masterStarted) {
-                throw new RuntimeException("主节点Ray集群启动失败");
-            }
-            
-            // 2. 等待主节点启动完成
-            log.info("等待主节点Ray集群启动完成...");
-            Thread.sleep(5000); // 等待5秒
-            
-            // 3. 启动工作节点并加入集群
-            if (!workerNodes.isEmpty()) {
-                log.info("启动 {} 个工作节点加入集群...", workerNodes.size());
-                boolean workersJoined = startRayWorkerNodes(workerNodes, nodeInstanceMap, clusterAddress, request);
-                if (!workersJoined) {
-                    log.warn("部分工作节点加入集群失败，但继续执行");
-                }
-            } else {
-                log.info("没有工作节点需要启动");
-            }
-            
-            // 4. 验证集群状态
-            log.info("验证Ray集群状态...");
-            boolean clusterHealthy = verifyRayClusterHealth(masterInstance, nodeIds.size());
-            if (!clusterHealthy) {
-                log.warn("集群健康检查失败，但继续执行");
-            }
-            
-            // 构建Ray集群上下文
-            return RayClusterContext.builder()
-                    .clusterAddress(clusterAddress)
-                    .masterNode(masterNodeId)
-                    .workerNodes(workerNodes)
-                    .totalNodes(nodeIds.size())
-                    .clusterStatus("READY")
-                    .additionalInfo("集群创建完成 - 主节点: " + masterNodeId + 
-                                  ", 工作节点: " + workerNodes.size() + 
-                                  ", 集群地址: " + clusterAddress)
-                    .build();
-                    
-        } catch (Exception e) {
-            log.error("创建Ray集群失败", e);
-            return RayClusterContext.builder()
-                    .clusterStatus("FAILED")
-                    .additionalInfo("集群创建失败: " + e.getMessage())
-                    .build();
+    private Map<String, Object> startRayHeadWithContext(ServiceInstance masterInstance, RayDeploymentRequest request,
+                                                        RayClusterContext context) {
+        String clusterAddress = "ray://" + context.getMasterNode() + ":6379";
+        log.info("启动Ray Head节点 - 主节点: {}, 集群地址: {}", context.getMasterNode(), clusterAddress);
+        
+        boolean masterStarted = startRayHeadNode(context.getMasterNode(), masterInstance, request);
+        if (!masterStarted) {
+            context.setClusterStatus("FAILED");
+            throw new RuntimeException("主节点Ray集群启动失败");
         }
+        
+        // 确认主节点GCS可以从本节点连通
+        boolean masterReady = readinessService.await("ray-cluster-head",
+                ReadinessProbes.rayGcs(masterInstance.getHost(), 6379), Duration.ofSeconds(60));
+        if (!masterReady) {
+            context.setClusterStatus("FAILED");
+            throw new RuntimeException("主节点Ray GCS未就绪: " + masterInstance.getHost() + ":6379");
+        }
+        
+        context.setClusterAddress(clusterAddress);
+        context.setClusterStatus("HEAD_READY");
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", "SUCCESS");
+        result.put("clusterAddress", clusterAddress);
+        result.put("masterNode", context.getMasterNode());
+        return result;
+    }
+    
+    /**
+     * 工作节点加入集群
+     */
+    private Map<String, Object> joinWorkersWithContext(Map<String, ServiceInstance> nodeInstanceMap,
+                                                       RayDeploymentRequest request, RayClusterContext context) {
+        Map<String, Object> result = new HashMap<>();
+        List<String> workerNodes = context.getWorkerNodes();
+        if (workerNodes == null || workerNodes.isEmpty()) {
+            log.info("没有工作节点需要启动");
+            result.put("status", "SKIPPED");
+            result.put("message", "没有工作节点");
+            return result;
+        }
+        
+        log.info("启动 {} 个工作节点加入集群...", workerNodes.size());
+        boolean workersJoined = startRayWorkerNodes(workerNodes, nodeInstanceMap, context.getClusterAddress(), request);
+        if (!workersJoined) {
+            log.warn("部分工作节点加入集群失败，但继续执行");
+        }
+        result.put("status", workersJoined ? "SUCCESS" : "PARTIAL");
+        result.put("workerNodes", workerNodes);
+        return result;
+    }
+    
+    /**
+     * 验证集群状态，结果写入上下文
+     */
+    private RayClusterContext verifyClusterWithContext(ServiceInstance masterInstance, RayClusterContext context) {
+        log.info("验证Ray集群状态...");
+        boolean clusterHealthy = verifyRayClusterHealth(masterInstance, context.getTotalNodes());
+        if (!clusterHealthy) {
+            log.warn("集群健康检查失败，但继续执行");
+        }
+        context.setClusterStatus("READY");
+        context.setAdditionalInfo("集群创建完成 - 主节点: " + context.getMasterNode() +
+                ", 工作节点: " + context.getWorkerNodes().size() +
+                ", 集群地址: " + context.getClusterAddress() +
+                (clusterHealthy ? "" : "（健康检查未通过）"));
+        return context;
     }
     
     /**
      * 启动主节点Ray集群
      */
-    private boolean startRayHeadNode(ServiceInstance masterInstance, RayDeploymentRequest request) {
+    private boolean startRayHeadNode(String masterNodeId, ServiceInstance masterInstance, RayDeploymentRequest request) {
         try {
             log.info("启动主节点Ray集群 - 节点: {}:{}", masterInstance.getHost(), masterInstance.getPort());
             
@@ -690,9 +963,7 @@ public class DeploymentService {
             clusterConfig.put("gcsServerPort", 6379);
             clusterConfig.put("minWorkerPort", 10002);
             clusterConfig.put("maxWorkerPort", 19999);
-            clusterConfig.put("numCpus", request.getRayConfig() != null ? request.getRayConfig().getNumCpus() : 4);
-            clusterConfig.put("numGpus", request.getRayConfig() != null ? request.getRayConfig().getNumGpus() : 0);
-            clusterConfig.put("memory", request.getRayConfig() != null ? request.getRayConfig().getMemory() : "8G");
+            clusterConfig.putAll(nodeRayResources(masterNodeId, request));
             
             // 调用主节点的Ray集群启动接口
             String startUrl = "http://" + masterInstance.getHost() + ":" + masterInstance.getPort() + "/model/ray/start-head";
@@ -739,7 +1010,7 @@ public class DeploymentService {
                 }
                 
                 CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(
-                    () -> joinRayCluster(workerInstance, clusterAddress, request),
+                    () -> joinRayCluster(workerNodeId, workerInstance, clusterAddress, request),
                     executorService
                 );
                 futures.add(future);
@@ -781,7 +1052,8 @@ public class DeploymentService {
     /**
      * 单个工作节点加入集群
      */
-    private boolean joinRayCluster(ServiceInstance workerInstance, String clusterAddress, RayDeploymentRequest request) {
+    private boolean joinRayCluster(String workerNodeId, ServiceInstance workerInstance, String clusterAddress,
+                                   RayDeploymentRequest request) {
         try {
             log.info("工作节点加入集群 - 节点: {}:{}, 集群: {}", 
                     workerInstance.getHost(), workerInstance.getPort(), clusterAddress);
@@ -790,9 +1062,7 @@ public class DeploymentService {
             Map<String, Object> joinRequest = new HashMap<>();
             joinRequest.put("clusterAddress", clusterAddress);
             joinRequest.put("rayPort", 10001);
-            joinRequest.put("numCpus", request.getRayConfig() != null ? request.getRayConfig().getNumCpus() : 4);
-            joinRequest.put("numGpus", request.getRayConfig() != null ? request.getRayConfig().getNumGpus() : 0);
-            joinRequest.put("memory", request.getRayConfig() != null ? request.getRayConfig().getMemory() : "8G");
+            joinRequest.putAll(nodeRayResources(workerNodeId, request));
             
             // 调用工作节点的加入集群接口
             String joinUrl = "http://" + workerInstance.getHost() + ":" + workerInstance.getPort() + "/model/ray/join-cluster";
@@ -822,6 +1092,52 @@ public class DeploymentService {
         }
     }
     
+    /**
+     * 节点的Ray资源参数：有放置方案时使用方案中该节点的分配，否则使用Ray配置
+     */
+    private Map<String, Object> nodeRayResources(String nodeId, RayDeploymentRequest request) {
+        NodeAllocation allocation = nodeAllocation(nodeId, request);
+        Map<String, Object> resources = new HashMap<>();
+        resources.put("numCpus", allocation.getNumCpus());
+        resources.put("numGpus", allocation.getNumGpus());
+        resources.put("memory", allocation.getMemoryGB());
+        return resources;
+    }
+    
+    private NodeAllocation nodeAllocation(String nodeId, RayDeploymentRequest request) {
+        NodeAllocation allocation = request.getPlacementPlan() != null && request.getPlacementPlan().getAllocations() != null
+                ? request.getPlacementPlan().getAllocations().get(nodeId) : null;
+        if (allocation != null) {
+            return allocation;
+        }
+        RayConfig rayConfig = request.getRayConfig();
+        return new NodeAllocation(nodeId,
+                rayConfig != null && rayConfig.getNumCpus() != null ? rayConfig.getNumCpus() : 4,
+                rayConfig != null && rayConfig.getNumGpus() != null ? rayConfig.getNumGpus() : 0,
+                rayConfig != null && rayConfig.getMemory() != null ? rayConfig.getMemory() : 8,
+                null);
+    }
+    
+    /**
+     * 端点主机为回环或通配地址时替换为节点地址
+     */
+    private String reachableEndpoint(String serviceEndpoint, String nodeHost) {
+        if (serviceEndpoint == null) {
+            return null;
+        }
+        try {
+            URI uri = URI.create(serviceEndpoint);
+            String host = uri.getHost();
+            if ("127.0.0.1".equals(host) || "localhost".equals(host) || "0.0.0.0".equals(host)) {
+                return new URI(uri.getScheme(), uri.getUserInfo(), nodeHost, uri.getPort(),
+                        uri.getPath(), uri.getQuery(), uri.getFragment()).toString();
+            }
+        } catch (Exception e) {
+            log.debug("解析服务端点失败: {}", serviceEndpoint);
+        }
+        return serviceEndpoint;
+    }
+    
     /**
      * 验证Ray集群健康状态
      */
@@ -894,8 +1210,10 @@ public class DeploymentService {
             launchRequest.setModelId(request.getModelId());
             launchRequest.setModelSource(request.getModelSource());
             launchRequest.setClusterAddress(context.getClusterAddress());
+            launchRequest.setModelPath(context.getModelPath());
             launchRequest.setDeploymentType(request.getDeploymentType());
             launchRequest.setRayConfig(request.getRayConfig());
+            launchRequest.setDeploymentInstanceId(request.getDeploymentInstanceId());
             
             // 发送启动RayLLM服务请求到主节点 - 使用正确的host和port
             String launchUrl = "http://" + masterInstance.getHost() + ":" + masterInstance.getPort() + "/model/launch-rayLLM";
@@ -914,7 +1232,8 @@ public class DeploymentService {
                 Map<String, Object> launchData = (Map<String, Object>) launchResponse.getData();
                 
                 if ("SUCCESS".equals(launchData.get("status"))) {
-                    String serviceEndpoint = (String) launchData.get("serviceEndpoint");
+                    // 主节点返回的是本机回环地址，换成主节点地址后其他节点才能访问
+                    String serviceEndpoint = reachableEndpoint((String) launchData.get("serviceEndpoint"), masterInstance.getHost());
                     String serviceStatus = (String) launchData.get("serviceStatus");
                     Integer maxConcurrency = (Integer) launchData.get("maxConcurrency");
                     String gpuMemoryUsage = (String) launchData.get("gpuMemoryUsage");
@@ -957,9 +1276,9 @@ public class DeploymentService {
     }
     
     /**
-     * 下载模型到主节点
+     * 下载模型到指定节点
      */
-    private Map<String, Object> downloadModelToMasterNode(ServiceInstance masterInstance, RayDeploymentRequest request) {
+    private Map<String, Object> downloadModelToNode(ServiceInstance nodeInstance, RayDeploymentRequest request) {
         long startTime = System.currentTimeMillis();
         String modelName = request.getModelName();
         String modelSource = request.getModelSource();
@@ -969,8 +1288,8 @@ public class DeploymentService {
         result.put("modelSource", modelSource);
         
         try {
-            log.info("开始下载模型到主节点 - 模型: {}, 来源: {}, 节点: {}:{}", 
-                    modelName, modelSource, masterInstance.getHost(), masterInstance.getPort());
+            log.info("开始下载模型到节点 - 模型: {}, 来源: {}, 节点: {}:{}", 
+                    modelName, modelSource, nodeInstance.getHost(), nodeInstance.getPort());
             
             // 构建下载请求
             Map<String, Object> downloadRequest = new HashMap<>();
@@ -978,9 +1297,11 @@ public class DeploymentService {
             downloadRequest.put("modelSource", modelSource);
             downloadRequest.put("modelId", request.getModelId());
             downloadRequest.put("downloadTimeout", 3600); // 1小时超时
+            // 部署等待该下载完成，排在手动下载和预取之前
+            downloadRequest.put("priority", DownloadScheduler.Priority.HIGH.name());
             
             // 发送下载请求到主节点 - 使用正确的host和port
-            String downloadUrl = "http://" + masterInstance.getHost() + ":" + masterInstance.getPort() + "/model/download-model";
+            String downloadUrl = "http://" + nodeInstance.getHost() + ":" + nodeInstance.getPort() + "/model/download-model";
             
             HttpEntity<Map<String, Object>> downloadEntity = new HttpEntity<>(downloadRequest);
             ResponseEntity<Result> downloadResponseEntity = restTemplate.exchange(
@@ -1024,7 +1345,7 @@ public class DeploymentService {
             }
             
         } catch (Exception e) {
-            log.error("模型下载失败 - 模型: {}, 节点: {}", modelName, masterInstance.getHost() + ":" + masterInstance.getPort(), e);
+            log.error("模型下载失败 - 模型: {}, 节点: {}", modelName, nodeInstance.getHost() + ":" + nodeInstance.getPort(), e);
             result.put("status", "FAILED");
             result.put("error", e.getMessage());
             
@@ -1040,4 +1361,55 @@ public class DeploymentService {
         
         return result;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 分发模型到工作节点
+     * 各工作节点并行调用自身的模型下载接口，下载时优先从已持有模型文件的节点拉取
+     */
+    private Map<String, Object> distributeModelToWorkerNodes(String masterNodeId,
+                                                             Map<String, ServiceInstance> nodeInstanceMap,
+                                                             RayDeploymentRequest request) {
+        long startTime = System.currentTimeMillis();
+        Map<String, Object> result = new HashMap<>();
+        
+        List<String> workerNodeIds = new ArrayList<>();
+        for (String nodeId : nodeInstanceMap.keySet()) {
+            if (!nodeId.equals(masterNodeId)) {
+                workerNodeIds.add(nodeId);
+            }
+        }
+        if (workerNodeIds.isEmpty()) {
+            result.put("status", "SKIPPED");
+            result.put("message", "没有工作节点需要分发模型");
+            return result;
+        }
+        
+        log.info("开始分发模型到 {} 个工作节点 - 模型: {}", workerNodeIds.size(), request.getModelName());
+        Map<String, CompletableFuture<Map<String, Object>>> futures = new LinkedHashMap<>();
+        for (String workerNodeId : workerNodeIds) {
+            ServiceInstance workerInstance = nodeInstanceMap.get(workerNodeId);
+            futures.put(workerNodeId, CompletableFuture.supplyAsync(
+                    () -> downloadModelToNode(workerInstance, request), executorService));
+        }
+        
+        Map<String, Object> nodeResults = new LinkedHashMap<>();
+        int successCount = 0;
+        for (Map.Entry<String, CompletableFuture<Map<String, Object>>> entry : futures.entrySet()) {
+            Map<String, Object> nodeResult = entry.getValue().join();
+            nodeResults.put(entry.getKey(), nodeResult);
+            if ("SUCCESS".equals(nodeResult.get("status"))) {
+                successCount++;
+            }
+        }
+        
+        long duration = System.currentTimeMillis() - startTime;
+        result.put("status", successCount == workerNodeIds.size() ? "SUCCESS" : "PARTIAL");
+        result.put("totalWorkers", workerNodeIds.size());
+        result.put("successCount", successCount);
+        result.put("nodes", nodeResults);
+        result.put("distributeTime", duration / 1000.0 + " seconds");
+        
+        log.info("模型分发完成 - 成功: {}/{}, 耗时: {}ms", successCount, workerNodeIds.size(), duration);
+        return result;
+    }
+}
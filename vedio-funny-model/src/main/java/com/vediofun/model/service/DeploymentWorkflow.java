@@ -0,0 +1,137 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.dto.DeploymentStep;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 部署工作流（有向无环图）
+ * 步骤声明时指定依赖的步骤，依赖全部完成后在执行器上运行，相互独立的步骤并行执行。
+ * 步骤抛出异常视为失败，依赖它的步骤不再执行并记为 SKIPPED；每个步骤开始、结束时通知监听器
+ */
+@Slf4j
+class DeploymentWorkflow {
+
+    /**
+     * 步骤动作，返回值作为步骤详情
+     */
+    @FunctionalInterface
+    interface StepAction {
+        Object run() throws Exception;
+    }
+
+    private final String deploymentId;
+    private final Executor executor;
+    private final Consumer<DeploymentStep> listener;
+    private final Map<String, CompletableFuture<Object>> steps = new LinkedHashMap<>();
+
+    private volatile String failure;
+
+    DeploymentWorkflow(String deploymentId, Executor executor, Consumer<DeploymentStep> listener) {
+        this.deploymentId = deploymentId;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * 声明步骤，依赖的步骤必须已经声明
+     */
+    DeploymentWorkflow step(String name, List<String> dependsOn, StepAction action) {
+        return step(name, dependsOn, action, details -> "COMPLETED");
+    }
+
+    /**
+     * 声明步骤，并由详情决定步骤状态
+     */
+    DeploymentWorkflow step(String name, List<String> dependsOn, StepAction action,
+                            Function<Object, String> statusResolver) {
+        if (steps.containsKey(name)) {
+            throw new IllegalArgumentException("部署步骤重复: " + name);
+        }
+        CompletableFuture<?>[] upstream = dependsOn.stream()
+                .map(dependency -> {
+                    CompletableFuture<Object> future = steps.get(dependency);
+                    if (future == null) {
+                        throw new IllegalArgumentException("部署步骤 " + name + " 依赖未声明的步骤: " + dependency);
+                    }
+                    return future;
+                })
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture<Object> future = CompletableFuture.allOf(upstream)
+                .handleAsync((ignored, upstreamError) -> {
+                    if (upstreamError != null) {
+                        DeploymentStep skipped = newStep(name, "SKIPPED", dependsOn, null);
+                        skipped.setError("依赖步骤未完成");
+                        skipped.setEndTime(LocalDateTime.now());
+                        skipped.setDurationMs(0L);
+                        listener.accept(skipped);
+                        throw new CompletionException(new IllegalStateException("部署步骤 " + name + " 已跳过"));
+                    }
+                    return runStep(name, dependsOn, action, statusResolver);
+                }, executor);
+        steps.put(name, future);
+        return this;
+    }
+
+    /**
+     * 等待所有步骤结束
+     *
+     * @return 第一个失败步骤的错误信息，全部成功时为 null
+     */
+    String await() {
+        CompletableFuture.allOf(steps.values().toArray(new CompletableFuture[0]))
+                .handle((ignored, error) -> null)
+                .join();
+        return failure;
+    }
+
+    private Object runStep(String name, List<String> dependsOn, StepAction action,
+                           Function<Object, String> statusResolver) {
+        DeploymentStep running = newStep(name, "RUNNING", dependsOn, null);
+        listener.accept(running);
+        long startNanos = System.nanoTime();
+        log.info("部署步骤开始 - 部署ID: {}, 步骤: {}", deploymentId, name);
+        try {
+            Object details = action.run();
+            DeploymentStep completed = newStep(name, statusResolver.apply(details), dependsOn, details);
+            finish(completed, running, startNanos);
+            listener.accept(completed);
+            log.info("部署步骤完成 - 部署ID: {}, 步骤: {}, 耗时: {}ms", deploymentId, name, completed.getDurationMs());
+            return details;
+        } catch (Exception e) {
+            DeploymentStep failed = newStep(name, "FAILED", dependsOn, null);
+            failed.setError(e.getMessage());
+            finish(failed, running, startNanos);
+            listener.accept(failed);
+            if (failure == null) {
+                failure = name + ": " + e.getMessage();
+            }
+            log.error("部署步骤失败 - 部署ID: {}, 步骤: {}", deploymentId, name, e);
+            throw new CompletionException(e);
+        }
+    }
+
+    private static DeploymentStep newStep(String name, String status, List<String> dependsOn, Object details) {
+        DeploymentStep step = new DeploymentStep(name, status, details);
+        step.setDependsOn(new ArrayList<>(dependsOn));
+        step.setStartTime(step.getTimestamp());
+        return step;
+    }
+
+    private static void finish(DeploymentStep step, DeploymentStep running, long startNanos) {
+        step.setStartTime(running.getStartTime());
+        step.setEndTime(LocalDateTime.now());
+        step.setDurationMs((System.nanoTime() - startNanos) / 1_000_000);
+    }
+}
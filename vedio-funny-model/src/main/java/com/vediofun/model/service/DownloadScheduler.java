@@ -0,0 +1,194 @@
+package com.vediofun.model.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局下载调度器
+ * 模型服务内所有文件下载统一经此排队：按优先级出队，同一目标文件的并发请求合并为一次传输，
+ * 源站连接数和带宽由 {@link DownloadThrottle} 统一控制
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DownloadScheduler {
+
+    /**
+     * 同时进行的文件下载数
+     */
+    @Value("${model.download.file-threads:8}")
+    private int fileThreads;
+
+    private final SegmentedDownloadService segmentedDownloadService;
+
+    private final Map<Path, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, fileThreads);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "download-scheduler-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        inFlight.values().forEach(future -> future.completeExceptionally(new IOException("下载调度器已关闭")));
+    }
+
+    /**
+     * 下载优先级
+     */
+    public enum Priority {
+        /** 部署流程中阻塞服务启动的下载 */
+        HIGH,
+        /** 普通下载 */
+        NORMAL,
+        /** 预取等后台下载 */
+        LOW;
+
+        /**
+         * 解析请求中的优先级，未指定或无法识别时为 NORMAL
+         */
+        public static Priority of(String name) {
+            if (name == null || name.isBlank()) {
+                return NORMAL;
+            }
+            try {
+                return valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return NORMAL;
+            }
+        }
+
+        /**
+         * 模型目录中单个文件的优先级：说明文档、图片等不影响服务启动的文件降为 LOW，
+         * 让出下载线程给权重和配置文件
+         */
+        public static Priority forModelFile(String fileName, Priority requested) {
+            String lower = fileName.toLowerCase();
+            if (lower.endsWith(".md") || lower.endsWith(".png") || lower.endsWith(".jpg")
+                    || lower.endsWith(".jpeg") || lower.endsWith(".gif") || lower.endsWith(".gitattributes")) {
+                return LOW;
+            }
+            return requested != null ? requested : NORMAL;
+        }
+    }
+
+    /**
+     * 提交下载任务
+     * 同一目标文件已有进行中的下载时直接复用该下载的结果
+     *
+     * @param expectedSize 已知的文件大小，未知时传 -1
+     * @return 下载完成后的文件大小
+     */
+    public CompletableFuture<Long> submit(String url, Path target, long expectedSize, Priority priority) {
+        return submit(List.of(url), target, expectedSize, priority);
+    }
+
+    /**
+     * 提交多源下载任务，分段在各下载源之间分配
+     *
+     * @param sources 内容相同的下载源，按优先级排列
+     */
+    public CompletableFuture<Long> submit(List<String> sources, Path target, long expectedSize, Priority priority) {
+        Path key = target.toAbsolutePath().normalize();
+        CompletableFuture<Long> created = new CompletableFuture<>();
+        CompletableFuture<Long> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            log.info("目标文件已在下载中，合并请求: {}", key);
+            return existing;
+        }
+
+        created.whenComplete((size, error) -> inFlight.remove(key, created));
+        executor.execute(new DownloadTask(priority, sequence.incrementAndGet(), () -> {
+            try {
+                created.complete(segmentedDownloadService.download(sources, key, expectedSize));
+            } catch (Throwable e) {
+                created.completeExceptionally(e);
+            }
+        }));
+        return created;
+    }
+
+    /**
+     * 下载并等待完成
+     */
+    public long download(String url, Path target, long expectedSize, Priority priority) throws IOException {
+        try {
+            return submit(url, target, expectedSize, priority).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 调度器状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("activeDownloads", executor.getActiveCount());
+        status.put("queuedDownloads", executor.getQueue().size());
+        status.put("inFlightFiles", inFlight.size());
+        return status;
+    }
+
+    /**
+     * 可排序的下载任务，优先级相同时按提交顺序执行
+     */
+    private static class DownloadTask implements Runnable, Comparable<DownloadTask> {
+        private final Priority priority;
+        private final long sequence;
+        private final Runnable action;
+
+        DownloadTask(Priority priority, long sequence, Runnable action) {
+            this.priority = priority != null ? priority : Priority.NORMAL;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            action.run();
+        }
+
+        @Override
+        public int compareTo(DownloadTask other) {
+            int result = priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
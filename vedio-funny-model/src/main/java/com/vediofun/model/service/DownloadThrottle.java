@@ -0,0 +1,163 @@
+package com.vediofun.model.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下载流量控制
+ * 按源站(host)限制并发连接数，并以令牌桶对单个源站和全局下载带宽整形
+ */
+@Slf4j
+@Component
+public class DownloadThrottle {
+
+    /**
+     * 每个源站的最大并发连接数
+     */
+    @Value("${model.download.max-connections-per-host:8}")
+    private int maxConnectionsPerHost;
+
+    /**
+     * 每个源站的带宽上限(MB/s)，0表示不限制
+     */
+    @Value("${model.download.host-bandwidth-mbps:0}")
+    private long hostBandwidthMbps;
+
+    /**
+     * 全局下载带宽上限(MB/s)，0表示不限制
+     */
+    @Value("${model.download.total-bandwidth-mbps:0}")
+    private long totalBandwidthMbps;
+
+    private final Map<String, HostBudget> hostBudgets = new ConcurrentHashMap<>();
+
+    private volatile TokenBucket totalBucket;
+
+    /**
+     * 获取源站连接许可，超出并发上限时阻塞等待
+     */
+    public void acquireConnection(String url) throws IOException {
+        HostBudget budget = budgetOf(url);
+        try {
+            if (!budget.connections.tryAcquire()) {
+                log.debug("源站连接数已达上限，等待空闲连接: {}", budget.host);
+                budget.connections.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待下载连接被中断: " + budget.host);
+        }
+    }
+
+    /**
+     * 释放源站连接许可
+     */
+    public void releaseConnection(String url) {
+        budgetOf(url).connections.release();
+    }
+
+    /**
+     * 消耗下载带宽令牌，超出速率时阻塞至令牌足够
+     */
+    public void consume(String url, long bytes) throws IOException {
+        long waitNanos = budgetOf(url).bandwidth.reserve(bytes);
+        waitNanos = Math.max(waitNanos, totalBucket().reserve(bytes));
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("下载限速等待被中断");
+        }
+    }
+
+    /**
+     * 源站当前使用中的连接数
+     */
+    public Map<String, Integer> activeConnections() {
+        Map<String, Integer> result = new ConcurrentHashMap<>();
+        hostBudgets.forEach((host, budget) ->
+                result.put(host, maxConnectionsPerHost - budget.connections.availablePermits()));
+        return result;
+    }
+
+    private HostBudget budgetOf(String url) {
+        String host = hostOf(url);
+        return hostBudgets.computeIfAbsent(host, h -> new HostBudget(h,
+                Math.max(1, maxConnectionsPerHost), hostBandwidthMbps * 1024 * 1024));
+    }
+
+    private TokenBucket totalBucket() {
+        TokenBucket bucket = totalBucket;
+        if (bucket == null) {
+            synchronized (this) {
+                if (totalBucket == null) {
+                    totalBucket = new TokenBucket(totalBandwidthMbps * 1024 * 1024);
+                }
+                bucket = totalBucket;
+            }
+        }
+        return bucket;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase() : "unknown";
+        } catch (IllegalArgumentException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * 单个源站的连接与带宽预算
+     */
+    private static class HostBudget {
+        private final String host;
+        private final Semaphore connections;
+        private final TokenBucket bandwidth;
+
+        HostBudget(String host, int maxConnections, long bytesPerSecond) {
+            this.host = host;
+            this.connections = new Semaphore(maxConnections, true);
+            this.bandwidth = new TokenBucket(bytesPerSecond);
+        }
+    }
+
+    /**
+     * 令牌桶，容量为一秒的流量
+     * 允许令牌透支，透支部分换算为调用方需要等待的时间
+     */
+    private static class TokenBucket {
+        private final long bytesPerSecond;
+        private double tokens;
+        private long lastRefillNanos = System.nanoTime();
+
+        TokenBucket(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+            this.tokens = bytesPerSecond;
+        }
+
+        synchronized long reserve(long bytes) {
+            if (bytesPerSecond <= 0) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            tokens = Math.min(bytesPerSecond, tokens + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+            lastRefillNanos = now;
+            tokens -= bytes;
+            return tokens >= 0 ? 0 : (long) (-tokens * 1e9 / bytesPerSecond);
+        }
+    }
+}
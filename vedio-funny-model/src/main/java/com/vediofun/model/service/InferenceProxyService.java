@@ -0,0 +1,148 @@
+package com.vediofun.model.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 推理请求转发
+ * 使用共享的 HttpClient 转发到推理服务端点，连接保持复用；响应体以流的形式返回，
+ * 边读边写给客户端，不在内存中缓存完整响应。只在建立连接失败时换端点重试，已发出的请求不重试
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InferenceProxyService {
+
+    /**
+     * 连接推理端点超时(毫秒)
+     */
+    @Value("${model.inference.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    /**
+     * 等待推理端点返回响应头的超时(秒)，流式响应的传输时间不受限制
+     */
+    @Value("${model.inference.response-timeout-seconds:300}")
+    private long responseTimeoutSeconds;
+
+    /**
+     * 单个请求最多尝试的端点数
+     */
+    @Value("${model.inference.max-attempts:2}")
+    private int maxAttempts;
+
+    /**
+     * 转发缓冲区大小(字节)
+     */
+    @Value("${model.inference.buffer-size:8192}")
+    private int bufferSize;
+
+    private final InferenceRouter inferenceRouter;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "inference-proxy-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+    }
+
+    /**
+     * 转发请求到模型的一个推理端点
+     *
+     * @param path 端点下的路径，如 /v1/chat/completions
+     * @throws IllegalStateException 没有可用的推理端点
+     * @throws IOException           请求已发出后失败
+     */
+    public ProxyResponse forward(String modelName, String path, byte[] body, String contentType, String accept)
+            throws IOException {
+        Set<String> tried = new HashSet<>();
+        for (int attempt = 0; attempt < Math.max(1, maxAttempts); attempt++) {
+            InferenceRouter.Lease lease = inferenceRouter.acquire(modelName, tried);
+            if (lease == null) {
+                break;
+            }
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(lease.getEndpoint() + path))
+                    .timeout(Duration.ofSeconds(responseTimeoutSeconds))
+                    .header("Content-Type", contentType != null ? contentType : "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+            if (accept != null) {
+                builder.header("Accept", accept);
+            }
+            try {
+                HttpResponse<InputStream> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+                return new ProxyResponse(response, lease);
+            } catch (ConnectException | HttpConnectTimeoutException e) {
+                lease.close();
+                tried.add(lease.getEndpoint());
+                inferenceRouter.markFailed(modelName, lease.getEndpoint());
+            } catch (IOException e) {
+                lease.close();
+                throw e;
+            } catch (InterruptedException e) {
+                lease.close();
+                Thread.currentThread().interrupt();
+                throw new IOException("推理请求被中断", e);
+            }
+        }
+        throw new IllegalStateException("模型没有可用的推理端点: " + modelName);
+    }
+
+    /**
+     * 把响应体写给客户端并释放端点；flushEachChunk 为 true 时每读到一段就刷新，用于逐token的流式响应。
+     * 客户端断开时关闭上游响应流，推理端点随之中止生成
+     */
+    public void transfer(ProxyResponse upstream, OutputStream out, boolean flushEachChunk) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        try (InferenceRouter.Lease lease = upstream.lease(); InputStream in = upstream.response().body()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                if (flushEachChunk) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * 上游响应及其占用的端点
+     */
+    public record ProxyResponse(HttpResponse<InputStream> response, InferenceRouter.Lease lease) {
+
+        public String contentType() {
+            return response.headers().firstValue("Content-Type").orElse("application/json");
+        }
+
+        public boolean isEventStream() {
+            return contentType().startsWith("text/event-stream");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.entity.ModelDeploymentInstance;
+import com.vediofun.model.repository.ModelDeploymentInstanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 推理路由
+ * 按模型名称解析运行中部署实例的服务端点（短时缓存），在端点间按进行中的请求数选择负载最小者；
+ * 连接失败的端点在冷却期内不再被选中
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InferenceRouter {
+
+    /**
+     * 模型端点列表的缓存时长(秒)
+     */
+    @Value("${model.inference.route-cache-seconds:5}")
+    private long routeCacheSeconds;
+
+    /**
+     * 连接失败的端点暂停路由的时长(秒)
+     */
+    @Value("${model.inference.endpoint-cooldown-seconds:10}")
+    private long endpointCooldownSeconds;
+
+    private final ModelDeploymentInstanceRepository deploymentInstanceRepository;
+
+    /**
+     * 模型名称 -> 端点列表
+     */
+    private final Map<String, CachedRoute> routes = new ConcurrentHashMap<>();
+
+    /**
+     * 端点 -> 负载状态
+     */
+    private final Map<String, EndpointState> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * 为请求选择端点，选中后计入进行中请求数，调用方完成后必须释放
+     *
+     * @param excluded 本次请求已失败的端点
+     * @return 选中的端点，没有可用端点时返回 null
+     */
+    public Lease acquire(String modelName, Collection<String> excluded) {
+        List<String> candidates = resolve(modelName);
+        long now = System.currentTimeMillis();
+        EndpointState best = null;
+        int ties = 0;
+        for (String endpoint : candidates) {
+            if (excluded.contains(endpoint)) {
+                continue;
+            }
+            EndpointState state = endpoints.computeIfAbsent(endpoint, EndpointState::new);
+            if (state.downUntil > now) {
+                continue;
+            }
+            int inFlight = state.inFlight.get();
+            if (best == null || inFlight < best.inFlight.get()) {
+                best = state;
+                ties = 1;
+            } else if (inFlight == best.inFlight.get() && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+                // 负载相同的端点中等概率选择
+                best = state;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        best.inFlight.incrementAndGet();
+        best.totalRequests.incrementAndGet();
+        return new Lease(best);
+    }
+
+    /**
+     * 标记端点连接失败，冷却期内不再路由，并使模型端点缓存失效
+     */
+    public void markFailed(String modelName, String endpoint) {
+        EndpointState state = endpoints.computeIfAbsent(endpoint, EndpointState::new);
+        state.downUntil = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(endpointCooldownSeconds);
+        state.failures.incrementAndGet();
+        routes.remove(modelName);
+        log.warn("推理端点连接失败，暂停路由 {}s - 模型: {}, 端点: {}", endpointCooldownSeconds, modelName, endpoint);
+    }
+
+    /**
+     * 可路由的模型名称
+     */
+    public List<String> listModels() {
+        return deploymentInstanceRepository.findRunningInstances().stream()
+                .filter(instance -> instance.getServiceEndpoint() != null && !instance.getServiceEndpoint().isBlank())
+                .map(ModelDeploymentInstance::getModelName)
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * 各端点的进行中请求数、累计请求数和失败次数
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        endpoints.forEach((endpoint, state) -> status.put(endpoint, Map.of(
+                "inFlight", state.inFlight.get(),
+                "totalRequests", state.totalRequests.get(),
+                "failures", state.failures.get(),
+                "available", state.downUntil <= System.currentTimeMillis())));
+        return status;
+    }
+
+    private List<String> resolve(String modelName) {
+        long now = System.currentTimeMillis();
+        CachedRoute route = routes.get(modelName);
+        if (route != null && route.expiresAt > now) {
+            return route.endpoints;
+        }
+        List<String> resolved = new ArrayList<>();
+        for (ModelDeploymentInstance instance : deploymentInstanceRepository.findByModelName(modelName)) {
+            String endpoint = instance.getServiceEndpoint();
+            if (instance.getStatus() != ModelDeploymentInstance.DeploymentStatus.RUNNING
+                    || endpoint == null || endpoint.isBlank()) {
+                continue;
+            }
+            String normalized = endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+            if (!resolved.contains(normalized)) {
+                resolved.add(normalized);
+            }
+        }
+        routes.put(modelName, new CachedRoute(resolved, now + TimeUnit.SECONDS.toMillis(routeCacheSeconds)));
+        return resolved;
+    }
+
+    /**
+     * 端点占用，close 时释放进行中请求计数
+     */
+    public static class Lease implements AutoCloseable {
+        private final EndpointState state;
+        private boolean released;
+
+        Lease(EndpointState state) {
+            this.state = state;
+        }
+
+        public String getEndpoint() {
+            return state.endpoint;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                state.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private record CachedRoute(List<String> endpoints, long expiresAt) {
+    }
+
+    private static class EndpointState {
+        private final String endpoint;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger totalRequests = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile long downUntil;
+
+        EndpointState(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.vediofun.model.service;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 由 {@link ProcessSupervisor} 托管的子进程
+ * 记录启动命令、当前进程句柄、重启次数，以及最近若干行输出（有界环形缓冲）
+ */
+@Getter
+public class ManagedProcess {
+
+    public enum State {
+        RUNNING, RESTARTING, EXITED, FAILED, STOPPED
+    }
+
+    private final String name;
+    private final List<String> command;
+    private final Map<String, String> environment;
+    private final boolean restartOnExit;
+
+    /**
+     * 关联的模型名称，进程退出/重启时据此更新部署实例状态；为空表示节点级进程
+     */
+    private final String modelName;
+
+    /**
+     * 关联的部署实例ID，进程状态变化只更新该实例；为空表示不关联部署实例
+     */
+    private final Long deploymentInstanceId;
+
+    /**
+     * 重启后的就绪探针，通过后才把部署实例标记为运行中；为空时拉起即视为就绪
+     */
+    private final Function<Process, ReadinessProbe> restartReadiness;
+
+    private final int outputCapacity;
+    private final Deque<String> output;
+    private final List<Consumer<String>> lineListeners = new CopyOnWriteArrayList<>();
+
+    volatile Process process;
+    volatile State state = State.RUNNING;
+    volatile int restarts;
+    volatile int consecutiveFailures;
+    volatile Integer lastExitCode;
+    volatile LocalDateTime startedAt;
+    volatile LocalDateTime exitedAt;
+    volatile long startNanos;
+    volatile ScheduledFuture<?> pendingRestart;
+    volatile boolean awaitingReady;
+
+    ManagedProcess(String name, List<String> command, Map<String, String> environment,
+                   boolean restartOnExit, String modelName, Long deploymentInstanceId,
+                   Function<Process, ReadinessProbe> restartReadiness, int outputCapacity) {
+        this.name = name;
+        this.command = List.copyOf(command);
+        this.environment = environment != null ? Map.copyOf(environment) : Map.of();
+        this.restartOnExit = restartOnExit;
+        this.modelName = modelName;
+        this.deploymentInstanceId = deploymentInstanceId;
+        this.restartReadiness = restartReadiness;
+        this.outputCapacity = Math.max(1, outputCapacity);
+        this.output = new ArrayDeque<>(this.outputCapacity);
+    }
+
+    /**
+     * 当前进程是否存活
+     */
+    public boolean isAlive() {
+        Process current = process;
+        return current != null && current.isAlive();
+    }
+
+    /**
+     * 最近的输出行
+     */
+    public List<String> recentOutput() {
+        synchronized (output) {
+            return new ArrayList<>(output);
+        }
+    }
+
+    /**
+     * 最近的输出，最多 maxLines 行
+     */
+    public String recentOutputText(int maxLines) {
+        List<String> lines = recentOutput();
+        int from = Math.max(0, lines.size() - maxLines);
+        return String.join("\n", lines.subList(from, lines.size()));
+    }
+
+    public Map<String, Object> toStatus() {
+        Process current = process;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("name", name);
+        status.put("state", state.name());
+        status.put("pid", current != null ? current.pid() : null);
+        status.put("alive", isAlive());
+        status.put("restarts", restarts);
+        status.put("lastExitCode", lastExitCode);
+        status.put("startedAt", startedAt);
+        status.put("exitedAt", exitedAt);
+        status.put("modelName", modelName);
+        status.put("deploymentInstanceId", deploymentInstanceId);
+        status.put("recentOutput", recentOutputText(20));
+        return status;
+    }
+
+    void appendLine(String line) {
+        synchronized (output) {
+            if (output.size() >= outputCapacity) {
+                output.pollFirst();
+            }
+            output.addLast(line);
+        }
+        for (Consumer<String> listener : lineListeners) {
+            listener.accept(line);
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.entity.ModelDeploymentInstance;
+import com.vediofun.model.repository.ModelDeploymentInstanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 内容寻址的模型文件存储
+ * 文件按SHA-256存放在 blobs/sha256/xx/xxxx 下，模型目录中的文件以硬链接指向对应blob，
+ * 相同内容的文件在磁盘上只保留一份。blob的引用计数即文件系统的硬链接数减一，
+ * 超出磁盘配额时先按最近使用时间淘汰不再被任何模型引用的blob，仍超出时按LRU整体淘汰空闲的模型目录。
+ * 模型的最近使用时间记录在存储目录下的 models-lru 中（每个模型一个标记文件，文件名为编码后的模型目录），
+ * 不放在模型目录里，避免进入校验清单和被当作空文件去重；运行中或部署中的实例使用的模型目录不会被淘汰。
+ * blob纳入存储后设为只读，所有硬链接共享同一inode，原地修改模型文件会直接失败而不会破坏其他模型
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ModelBlobStore {
+
+    private static final String CHECKSUM_PREFIX = "sha256:";
+
+    /**
+     * 旧版本写在模型目录中的使用时间标记，迁移时删除
+     */
+    static final String LEGACY_LAST_USED_MARKER = ".last-used";
+
+    private static final String LRU_DIR = "models-lru";
+
+    private static final Set<PosixFilePermission> READ_ONLY = PosixFilePermissions.fromString("r--r--r--");
+
+    /**
+     * blob存储目录，需与模型目录位于同一文件系统以便创建硬链接
+     */
+    @Value("${model.store.blob-path:}")
+    private String blobPath;
+
+    /**
+     * blob存储磁盘配额(GB)，0表示不限制
+     */
+    @Value("${model.store.quota-gb:0}")
+    private long quotaGb;
+
+    /**
+     * 模型目录至少空闲多久(小时)才允许被整体淘汰，避免淘汰刚下载或正在部署的模型
+     */
+    @Value("${model.store.model-min-idle-hours:24}")
+    private long modelMinIdleHours;
+
+    private final ModelDeploymentInstanceRepository deploymentInstanceRepository;
+
+    /**
+     * 按校验和从存储中链接文件到目标路径
+     *
+     * @param checksum 文件校验和（sha256:xxx 或纯十六进制）
+     * @return 存储中存在该blob并已链接时返回 true
+     */
+    public boolean linkInto(String checksum, Path target) {
+        String digest = normalize(checksum);
+        if (digest == null) {
+            return false;
+        }
+        Path blob = blobOf(digest);
+        if (!Files.isRegularFile(blob)) {
+            return false;
+        }
+        try {
+            if (Files.exists(target) && Files.isSameFile(blob, target)) {
+                touch(blob);
+                return true;
+            }
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            replaceWithLink(target, blob);
+            touch(blob);
+            log.info("从模型存储链接文件: {} -> {}", target, digest);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("从模型存储链接文件失败: {} - {}", target, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 将模型目录中的文件纳入存储
+     * 存储中已有相同内容时，目录中的文件替换为指向blob的硬链接；否则为文件新建blob
+     *
+     * @param fileChecksums 相对路径 -> 校验和，通常来自目录校验清单
+     * @return 本次去重节省的字节数
+     */
+    public long ingest(Path modelDir, Map<String, String> fileChecksums) {
+        if (fileChecksums == null || fileChecksums.isEmpty()) {
+            return 0;
+        }
+        markModelUsed(modelDir);
+        long savedBytes = 0;
+        int linked = 0;
+        for (Map.Entry<String, String> entry : fileChecksums.entrySet()) {
+            long saved = ingestFile(modelDir.resolve(entry.getKey()), entry.getValue());
+            if (saved > 0) {
+                savedBytes += saved;
+                linked++;
+            }
+        }
+        log.info("模型目录纳入存储完成 - 目录: {}, 文件数: {}, 去重链接: {}, 节省空间: {} bytes",
+                modelDir, fileChecksums.size(), linked, savedBytes);
+        collectGarbage();
+        return savedBytes;
+    }
+
+    /**
+     * 将单个文件纳入存储，纳入后即可通过 {@link #find} 提供给其他节点
+     *
+     * @return 去重节省的字节数
+     */
+    public long ingestFile(Path file, String checksum) {
+        String digest = normalize(checksum);
+        if (digest == null || !Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+            return 0;
+        }
+        Path blob = blobOf(digest);
+        try {
+            long savedBytes = 0;
+            if (Files.isRegularFile(blob)) {
+                if (!Files.isSameFile(blob, file)) {
+                    savedBytes = Files.size(file);
+                    replaceWithLink(file, blob);
+                }
+            } else {
+                Files.createDirectories(blob.getParent());
+                Path temp = blob.resolveSibling(digest + "." + System.nanoTime() + ".tmp");
+                Files.createLink(temp, file);
+                Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            makeReadOnly(blob);
+            touch(blob);
+            return savedBytes;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("文件纳入模型存储失败，保留原文件: {} - {}", file, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 按校验和查找blob
+     *
+     * @return blob路径，不存在时返回 null
+     */
+    public Path find(String checksum) {
+        String digest = normalize(checksum);
+        if (digest == null) {
+            return null;
+        }
+        Path blob = blobOf(digest);
+        return Files.isRegularFile(blob) ? blob : null;
+    }
+
+    /**
+     * blob的引用计数（引用它的模型文件数）
+     */
+    public int referenceCount(String checksum) {
+        String digest = normalize(checksum);
+        if (digest == null || !Files.isRegularFile(blobOf(digest))) {
+            return 0;
+        }
+        return referenceCount(blobOf(digest));
+    }
+
+    /**
+     * 记录模型目录的使用时间，整体淘汰模型时按此时间排序
+     */
+    public void markModelUsed(Path modelDir) {
+        try {
+            Path marker = lruMarkerOf(modelDir);
+            if (Files.exists(marker)) {
+                Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.createDirectories(marker.getParent());
+                Files.createFile(marker);
+            }
+            Files.deleteIfExists(modelDir.resolve(LEGACY_LAST_USED_MARKER));
+        } catch (IOException e) {
+            log.debug("更新模型使用时间失败: {} - {}", modelDir, e.getMessage());
+        }
+    }
+
+    /**
+     * 记录blob被其他节点拉取，未被引用的blob按此时间淘汰
+     */
+    public void markBlobUsed(Path blob) {
+        touch(blob);
+    }
+
+    /**
+     * 超出配额时先按LRU淘汰未被引用的blob，仍超出时按LRU淘汰空闲的模型目录
+     *
+     * @return 回收的字节数
+     */
+    public synchronized long collectGarbage() {
+        long quotaBytes = quotaGb * 1024 * 1024 * 1024;
+        if (quotaBytes <= 0) {
+            return 0;
+        }
+        long reclaimed = collectUnreferenced(quotaBytes);
+        Set<Path> inUse = modelDirsInUse();
+        List<Path> models = inUse != null ? listIdleModels() : new ArrayList<>();
+        for (Path modelDir : models) {
+            if (inUse.contains(modelDir)) {
+                log.debug("模型目录仍被运行中或部署中的实例使用，不淘汰: {}", modelDir);
+                continue;
+            }
+            long usedBytes = listBlobs().stream().mapToLong(BlobEntry::getSize).sum();
+            if (usedBytes <= quotaBytes) {
+                break;
+            }
+            if (deleteModel(modelDir)) {
+                deleteLruMarker(modelDir);
+                log.info("模型存储超出配额，淘汰最久未使用的模型: {}", modelDir);
+                reclaimed += collectUnreferenced(quotaBytes);
+            }
+        }
+        long usedBytes = listBlobs().stream().mapToLong(BlobEntry::getSize).sum();
+        if (usedBytes > quotaBytes) {
+            log.warn("模型存储仍超出配额 - 已用: {} bytes, 配额: {} bytes, 剩余模型均在{}小时内使用过或正在使用",
+                    usedBytes, quotaBytes, modelMinIdleHours);
+        }
+        return reclaimed;
+    }
+
+    /**
+     * 按LRU淘汰未被引用的blob，直到不超出配额
+     */
+    private long collectUnreferenced(long quotaBytes) {
+        List<BlobEntry> blobs = listBlobs();
+        long totalBytes = blobs.stream().mapToLong(BlobEntry::getSize).sum();
+        if (totalBytes <= quotaBytes) {
+            return 0;
+        }
+
+        List<BlobEntry> candidates = blobs.stream()
+                .filter(blob -> blob.getReferences() == 0)
+                .sorted(Comparator.comparingLong(BlobEntry::getLastUsed))
+                .collect(Collectors.toList());
+        long reclaimed = 0;
+        for (BlobEntry blob : candidates) {
+            if (totalBytes - reclaimed <= quotaBytes) {
+                break;
+            }
+            try {
+                // 删除前再次确认没有新的引用
+                if (referenceCount(blob.getPath()) == 0 && Files.deleteIfExists(blob.getPath())) {
+                    reclaimed += blob.getSize();
+                    log.info("回收未引用的blob: {} ({} bytes)", blob.getPath().getFileName(), blob.getSize());
+                }
+            } catch (IOException e) {
+                log.warn("删除blob失败: {} - {}", blob.getPath(), e.getMessage());
+            }
+        }
+        return reclaimed;
+    }
+
+    /**
+     * 纳入过存储且空闲超过最小时长的模型目录，最久未使用的在前
+     */
+    private List<Path> listIdleModels() {
+        Path lruRoot = lruRoot();
+        if (!Files.isDirectory(lruRoot)) {
+            return new ArrayList<>();
+        }
+        long idleBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(modelMinIdleHours);
+        Map<Path, Long> lastUsed = new HashMap<>();
+        try (Stream<Path> stream = Files.list(lruRoot)) {
+            stream.forEach(marker -> {
+                Path modelDir = Paths.get(URLDecoder.decode(marker.getFileName().toString(), StandardCharsets.UTF_8));
+                try {
+                    if (!Files.isDirectory(modelDir)) {
+                        // 模型目录已被手动删除，标记随之清理
+                        Files.deleteIfExists(marker);
+                        return;
+                    }
+                    long time = Files.getLastModifiedTime(marker).toMillis();
+                    if (time < idleBefore) {
+                        lastUsed.put(modelDir, time);
+                    }
+                } catch (IOException e) {
+                    log.debug("读取模型使用时间失败: {} - {}", marker, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("遍历模型使用记录失败: {}", e.getMessage());
+        }
+        return lastUsed.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 运行中或部署中的实例使用的模型目录（实例记录的模型路径，以及按模型名推断的本地目录）
+     *
+     * @return 查询失败时返回 null，此时不淘汰任何模型目录
+     */
+    private Set<Path> modelDirsInUse() {
+        Set<Path> dirs = new HashSet<>();
+        try {
+            List<ModelDeploymentInstance> instances = new ArrayList<>(
+                    deploymentInstanceRepository.findByStatus(ModelDeploymentInstance.DeploymentStatus.RUNNING));
+            instances.addAll(deploymentInstanceRepository.findByStatus(ModelDeploymentInstance.DeploymentStatus.DEPLOYING));
+            for (ModelDeploymentInstance instance : instances) {
+                if (instance.getModelPath() != null && !instance.getModelPath().isBlank()) {
+                    dirs.add(normalizePath(Paths.get(instance.getModelPath())));
+                }
+                if (instance.getModelName() != null && !instance.getModelName().isBlank()) {
+                    dirs.add(normalizePath(Paths.get(ModelDownloadService.MODELS_BASE_PATH, instance.getModelName())));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("查询使用中的模型失败，本次不淘汰模型目录: {}", e.getMessage());
+            return null;
+        }
+        return dirs;
+    }
+
+    private boolean deleteModel(Path modelDir) {
+        try (Stream<Path> stream = Files.walk(modelDir)) {
+            for (Path path : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("淘汰模型目录失败: {} - {}", modelDir, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 存储状态
+     */
+    public Map<String, Object> getStatus() {
+        List<BlobEntry> blobs = listBlobs();
+        Map<String, Object> status = new HashMap<>();
+        status.put("blobPath", blobRoot().toString());
+        status.put("blobCount", blobs.size());
+        status.put("totalBytes", blobs.stream().mapToLong(BlobEntry::getSize).sum());
+        status.put("unreferencedCount", blobs.stream().filter(blob -> blob.getReferences() == 0).count());
+        status.put("unreferencedBytes", blobs.stream()
+                .filter(blob -> blob.getReferences() == 0).mapToLong(BlobEntry::getSize).sum());
+        status.put("quotaGb", quotaGb);
+        return status;
+    }
+
+    /**
+     * 以临时硬链接加原子重命名的方式替换目标文件，避免出现文件缺失的中间状态
+     */
+    private void replaceWithLink(Path target, Path blob) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + "." + System.nanoTime() + ".link");
+        Files.createLink(temp, blob);
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private List<BlobEntry> listBlobs() {
+        Path root = blobRoot();
+        if (!Files.isDirectory(root)) {
+            return new ArrayList<>();
+        }
+        List<BlobEntry> blobs = new ArrayList<>();
+        try (Stream<Path> stream = Files.walk(root)) {
+            stream.filter(path -> Files.isRegularFile(path) && !path.getFileName().toString().endsWith(".tmp"))
+                    .forEach(path -> {
+                        try {
+                            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                            blobs.add(new BlobEntry(path, attributes.size(),
+                                    attributes.lastModifiedTime().toMillis(), referenceCount(path)));
+                        } catch (IOException e) {
+                            log.debug("读取blob属性失败: {} - {}", path, e.getMessage());
+                        }
+                    });
+        } catch (IOException e) {
+            log.warn("遍历模型存储失败: {}", e.getMessage());
+        }
+        return blobs;
+    }
+
+    /**
+     * 硬链接数减去blob自身即为引用数；无法读取链接数时视为被引用，避免误删
+     */
+    private int referenceCount(Path blob) {
+        try {
+            Object links = Files.getAttribute(blob, "unix:nlink");
+            return links instanceof Number ? ((Number) links).intValue() - 1 : 1;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * blob设为只读，需要修改模型文件时应先复制出独立的文件再修改
+     */
+    private void makeReadOnly(Path blob) {
+        try {
+            Files.setPosixFilePermissions(blob, READ_ONLY);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("设置blob只读失败: {} - {}", blob, e.getMessage());
+        }
+    }
+
+    private void touch(Path blob) {
+        try {
+            Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("更新blob使用时间失败: {}", blob);
+        }
+    }
+
+    /**
+     * 模型目录对应的使用时间标记，文件名为编码后的模型目录绝对路径
+     */
+    private Path lruMarkerOf(Path modelDir) {
+        String name = URLEncoder.encode(normalizePath(modelDir).toString(), StandardCharsets.UTF_8);
+        return lruRoot().resolve(name);
+    }
+
+    private void deleteLruMarker(Path modelDir) {
+        try {
+            Files.deleteIfExists(lruMarkerOf(modelDir));
+        } catch (IOException e) {
+            log.debug("删除模型使用时间标记失败: {} - {}", modelDir, e.getMessage());
+        }
+    }
+
+    private Path lruRoot() {
+        return blobRoot().getParent().resolve(LRU_DIR);
+    }
+
+    private static Path normalizePath(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private Path blobOf(String digest) {
+        return blobRoot().resolve(digest.substring(0, 2)).resolve(digest);
+    }
+
+    private Path blobRoot() {
+        if (blobPath != null && !blobPath.isEmpty()) {
+            return Paths.get(blobPath, "sha256");
+        }
+        return Paths.get(ModelDownloadService.MODELS_BASE_PATH, ".blobs", "sha256");
+    }
+
+    /**
+     * 校验和统一为小写十六进制，格式不合法时返回 null
+     */
+    static String normalize(String checksum) {
+        if (checksum == null) {
+            return null;
+        }
+        String digest = checksum.startsWith(CHECKSUM_PREFIX)
+                ? checksum.substring(CHECKSUM_PREFIX.length()) : checksum;
+        digest = digest.trim().toLowerCase();
+        return digest.matches("[0-9a-f]{64}") ? digest : null;
+    }
+
+    /**
+     * blob信息
+     */
+    private static class BlobEntry {
+        private final Path path;
+        private final long size;
+        private final long lastUsed;
+        private final int references;
+
+        BlobEntry(Path path, long size, long lastUsed, int references) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+            this.references = references;
+        }
+
+        Path getPath() { return path; }
+        long getSize() { return size; }
+        long getLastUsed() { return lastUsed; }
+        int getReferences() { return references; }
+    }
+}
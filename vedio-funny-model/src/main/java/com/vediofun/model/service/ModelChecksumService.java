@@ -0,0 +1,161 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.dto.ChecksumManifest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 模型文件校验服务
+ * 以流式方式计算文件SHA-256，内存占用与文件大小无关
+ */
+@Slf4j
+@Service
+public class ModelChecksumService {
+
+    /**
+     * 复用的直接缓冲区大小（1MB）
+     */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final int POOL_SIZE = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(POOL_SIZE, runnable -> {
+        Thread thread = new Thread(runnable, "model-checksum");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 固定数量的直接缓冲区，与校验线程数相同；被占满时（如请求线程直接调用）临时使用堆缓冲区
+     */
+    private final BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    public ModelChecksumService() {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            buffers.offer(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * 计算目录校验清单
+     * 各文件并行计算，再按相对路径排序生成确定性的目录校验和
+     */
+    public ChecksumManifest calculateManifest(String dirPath) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Path root = Paths.get(dirPath);
+        List<Path> files = listFiles(root);
+
+        List<CompletableFuture<String>> futures = new ArrayList<>(files.size());
+        for (Path file : files) {
+            futures.add(CompletableFuture.supplyAsync(() -> calculateFileChecksum(file), executorService));
+        }
+
+        Map<String, String> checksums = new LinkedHashMap<>();
+        MessageDigest manifestDigest = newDigest();
+        long totalBytes = 0;
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            String relativePath = toRelativePath(root, file);
+            String checksum = futures.get(i).join();
+            checksums.put(relativePath, checksum);
+            manifestDigest.update((relativePath + "\0" + checksum + "\n").getBytes(StandardCharsets.UTF_8));
+            totalBytes += Files.size(file);
+        }
+
+        long duration = Math.max(1, System.currentTimeMillis() - startTime);
+        ChecksumManifest manifest = new ChecksumManifest();
+        manifest.setManifestChecksum("sha256:" + HEX.formatHex(manifestDigest.digest()));
+        manifest.setFiles(checksums);
+        manifest.setFileCount(checksums.size());
+        manifest.setTotalBytes(totalBytes);
+        manifest.setDurationMs(duration);
+        manifest.setThroughputMBps(totalBytes / (1024.0 * 1024) / (duration / 1000.0));
+
+        log.info("目录校验完成 - 目录: {}, 文件数: {}, 总大小: {} bytes, 耗时: {}ms, 吞吐: {} MB/s",
+                dirPath, checksums.size(), totalBytes, duration,
+                String.format("%.1f", manifest.getThroughputMBps()));
+        return manifest;
+    }
+
+    /**
+     * 流式计算单个文件的校验和
+     */
+    public String calculateFileChecksum(Path file) {
+        MessageDigest md = newDigest();
+        ByteBuffer pooled = buffers.poll();
+        ByteBuffer buffer = pooled != null ? pooled : ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                md.update(buffer);
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("计算文件校验和失败: " + file + " - " + e.getMessage(), e);
+        } finally {
+            if (pooled != null) {
+                buffers.offer(pooled);
+            }
+        }
+        return "sha256:" + HEX.formatHex(md.digest());
+    }
+
+    /**
+     * 递归列出目录下的所有普通文件，按相对路径排序；旧版本遗留的使用时间标记不属于模型内容
+     */
+    private List<Path> listFiles(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().equals(ModelBlobStore.LEGACY_LAST_USED_MARKER))
+                    .sorted((a, b) -> toRelativePath(root, a).compareTo(toRelativePath(root, b)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private String toRelativePath(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
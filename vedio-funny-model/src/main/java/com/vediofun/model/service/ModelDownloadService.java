@@ -1,5 +1,6 @@
 package com.vediofun.model.service;
 
+import com.vediofun.model.dto.ChecksumManifest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,13 +8,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,26 +24,40 @@ public class ModelDownloadService {
     private static final Logger log = LoggerFactory.getLogger(ModelDownloadService.class);
     
     // 模型存储基础路径（从环境变量读取，默认为/tmp/vedio-funny/models）
-    private static final String MODELS_BASE_PATH = System.getProperty("MODELS_BASE_PATH", 
+    static final String MODELS_BASE_PATH = System.getProperty("MODELS_BASE_PATH", 
             System.getenv().getOrDefault("MODELS_BASE_PATH", "/tmp/vedio-funny/models"));
     
     @Autowired
     private ModelScopeDownloadService modelScopeDownloadService;
     
+    @Autowired
+    private ModelChecksumService modelChecksumService;
+    
+    @Autowired
+    private DownloadScheduler downloadScheduler;
+    
+    @Autowired
+    private ModelBlobStore modelBlobStore;
+    
     /**
      * 下载模型（支持完整模型目录下载）
+     *
+     * @param priority 部署流程触发的下载为 HIGH，手动下载为 NORMAL，预取为 LOW
      */
-    public Map<String, Object> downloadModel(String modelName, String modelSource, Long modelId) {
+    public Map<String, Object> downloadModel(String modelName, String modelSource, Long modelId,
+                                             DownloadScheduler.Priority priority) {
         long startTime = System.currentTimeMillis();
         Map<String, Object> result = new HashMap<>();
         
         try {
-            log.info("开始下载模型 - 模型: {}, 来源: {}, ID: {}", modelName, modelSource, modelId);
+            log.info("开始下载模型 - 模型: {}, 来源: {}, ID: {}, 优先级: {}", modelName, modelSource, modelId, priority);
             
             // 创建模型存储目录
             String modelDir = MODELS_BASE_PATH + "/" + modelName;
             Path modelPath = Paths.get(modelDir);
             Files.createDirectories(modelPath);
+            // 部署流程每次都会经过下载，先记录使用时间，避免下载期间被配额淘汰
+            modelBlobStore.markModelUsed(modelPath);
             
             // 根据模型来源选择下载方式
             java.util.List<String> downloadedFiles = new java.util.ArrayList<>();
@@ -54,7 +65,7 @@ public class ModelDownloadService {
             
             if ("modelscope".equalsIgnoreCase(modelSource) || "ms".equalsIgnoreCase(modelSource)) {
                 // 使用ModelScope专用下载服务
-                Map<String, Object> downloadResult = modelScopeDownloadService.downloadModelScopeModel(modelName, MODELS_BASE_PATH);
+                Map<String, Object> downloadResult = modelScopeDownloadService.downloadModelScopeModel(modelName, MODELS_BASE_PATH, priority);
                 
                 if ("success".equals(downloadResult.get("status"))) {
                     downloadSuccess = true;
@@ -68,12 +79,12 @@ public class ModelDownloadService {
                     result.putAll(downloadResult);
                 }
             } else if ("huggingface".equalsIgnoreCase(modelSource) || "hf".equalsIgnoreCase(modelSource)) {
-                downloadSuccess = downloadHuggingFaceCompleteModel(modelName, modelDir, downloadedFiles);
+                downloadSuccess = downloadHuggingFaceCompleteModel(modelName, modelDir, downloadedFiles, priority);
             } else {
                 // 单文件下载模式（向后兼容）
                 String downloadUrl = getModelDownloadUrl(modelName, modelSource);
                 if (downloadUrl != null) {
-                    String filePath = downloadModelFile(downloadUrl, modelDir, modelName);
+                    String filePath = downloadModelFile(downloadUrl, modelDir, modelName, priority);
                     if (filePath != null) {
                         downloadedFiles.add(filePath);
                         downloadSuccess = true;
@@ -95,7 +106,15 @@ public class ModelDownloadService {
                 result.put("downloadedFiles", downloadedFiles);
                 result.put("fileCount", downloadedFiles.size());
                 result.put("modelSize", formatFileSize(totalSize));
-                result.put("checksum", calculateDirectoryChecksum(modelDir));
+                ChecksumManifest manifest = calculateDirectoryChecksum(modelDir);
+                result.put("checksum", manifest != null ? manifest.getManifestChecksum() : "unknown");
+                if (manifest != null) {
+                    result.put("fileChecksums", manifest.getFiles());
+                    result.put("checksumThroughput", String.format("%.1f MB/s", manifest.getThroughputMBps()));
+                    // 纳入内容寻址存储，相同内容的文件以硬链接去重
+                    long savedBytes = modelBlobStore.ingest(modelPath, manifest.getFiles());
+                    result.put("dedupSaved", formatFileSize(savedBytes));
+                }
                 result.put("downloadTime", String.format("%.1f seconds", downloadTime));
                 
                 log.info("模型下载完成 - 模型: {}, 目录: {}, 文件数: {}, 总大小: {}, 耗时: {}秒", 
@@ -180,103 +199,18 @@ public class ModelDownloadService {
     /**
      * 下载模型文件（支持文件存在性检查和断点续传）
      */
-    private String downloadModelFile(String downloadUrl, String targetDir, String modelName) throws IOException {
+    private String downloadModelFile(String downloadUrl, String targetDir, String modelName,
+                                     DownloadScheduler.Priority priority) throws IOException {
         String fileName = extractFileNameFromUrl(downloadUrl, modelName);
         String filePath = targetDir + "/" + fileName;
         
-        // 检查文件是否已存在且完整
-        if (Files.exists(Paths.get(filePath))) {
-            long localFileSize = Files.size(Paths.get(filePath));
-            long remoteFileSize = getRemoteFileSize(downloadUrl);
-            
-            if (localFileSize == remoteFileSize && remoteFileSize > 0) {
-                log.info("文件已存在且大小匹配，跳过下载: {} ({})", 
-                        filePath, formatFileSize(localFileSize));
-                return filePath;
-            } else if (localFileSize != remoteFileSize) {
-                log.info("文件已存在但大小不匹配，重新下载: 本地={}, 远程={}", 
-                        formatFileSize(localFileSize), formatFileSize(remoteFileSize));
-                Files.delete(Paths.get(filePath));
-            }
-        }
-        
         log.info("开始下载文件 - URL: {}, 目标路径: {}", downloadUrl, filePath);
-        
-        URL url = new URL(downloadUrl);
-        URLConnection connection = url.openConnection();
-        
-        // 设置请求头（可能需要认证）
-        connection.setRequestProperty("User-Agent", "VedioFun-Model-Downloader/1.0");
-        connection.setConnectTimeout(30000); // 30秒连接超时
-        // 移除读取超时限制，允许长时间下载大型模型
-        connection.setReadTimeout(0);
-        
-        long fileSize = connection.getContentLengthLong();
-        log.info("文件大小: {}", formatFileSize(fileSize));
-        
-        try (InputStream inputStream = connection.getInputStream();
-             FileOutputStream outputStream = new FileOutputStream(filePath);
-             BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream)) {
-            
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            long totalBytesRead = 0;
-            long lastProgressTime = System.currentTimeMillis();
-            
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                bufferedOutputStream.write(buffer, 0, bytesRead);
-                totalBytesRead += bytesRead;
-                
-                // 每5秒输出一次进度
-                long currentTime = System.currentTimeMillis();
-                if (currentTime - lastProgressTime > 5000) {
-                    double progress = fileSize > 0 ? (double) totalBytesRead / fileSize * 100 : 0;
-                    log.info("下载进度: {}% ({}/{})", 
-                            String.format("%.1f", progress), formatFileSize(totalBytesRead), 
-                            fileSize > 0 ? formatFileSize(fileSize) : "未知");
-                    lastProgressTime = currentTime;
-                }
-            }
-            
-            log.info("文件下载完成 - 总大小: {}", formatFileSize(totalBytesRead));
-            
-            // 验证下载完整性
-            if (fileSize > 0 && totalBytesRead != fileSize) {
-                log.warn("下载文件大小不匹配: 期望={}, 实际={}", 
-                        formatFileSize(fileSize), formatFileSize(totalBytesRead));
-            }
-        }
+        long fileSize = downloadScheduler.download(downloadUrl, Paths.get(filePath), -1, priority);
+        log.info("文件下载完成 - 总大小: {}", formatFileSize(fileSize));
         
         return filePath;
     }
     
-    /**
-     * 获取远程文件大小
-     */
-    private long getRemoteFileSize(String downloadUrl) {
-        try {
-            URL url = new URL(downloadUrl);
-            URLConnection connection = url.openConnection();
-            connection.setRequestProperty("User-Agent", "VedioFun-Model-Downloader/1.0");
-            connection.setConnectTimeout(10000);
-            connection.setReadTimeout(10000);
-            
-            if (connection instanceof HttpURLConnection) {
-                HttpURLConnection httpConnection = (HttpURLConnection) connection;
-                httpConnection.setRequestMethod("HEAD");
-                
-                if (httpConnection.getResponseCode() == 200) {
-                    return httpConnection.getContentLengthLong();
-                }
-            } else {
-                return connection.getContentLengthLong();
-            }
-        } catch (Exception e) {
-            log.warn("无法获取远程文件大小: {}", e.getMessage());
-        }
-        return -1; // 无法确定大小
-    }
-    
     /**
      * 从URL提取文件名
      */
@@ -296,27 +230,7 @@ public class ModelDownloadService {
      */
     private String calculateFileChecksum(String filePath) {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            
-            try (FileInputStream fis = new FileInputStream(filePath);
-                 BufferedInputStream bis = new BufferedInputStream(fis)) {
-                
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                
-                while ((bytesRead = bis.read(buffer)) != -1) {
-                    md.update(buffer, 0, bytesRead);
-                }
-            }
-            
-            byte[] digest = md.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
-            }
-            
-            return "sha256:" + sb.toString();
-            
+            return modelChecksumService.calculateFileChecksum(Paths.get(filePath));
         } catch (Exception e) {
             log.warn("计算文件校验和失败: {}", e.getMessage());
             return "sha256:unavailable";
@@ -341,7 +255,8 @@ public class ModelDownloadService {
     /**
      * 下载ModelScope完整模型
      */
-    private boolean downloadModelScopeCompleteModel(String modelName, String modelDir, java.util.List<String> downloadedFiles) {
+    private boolean downloadModelScopeCompleteModel(String modelName, String modelDir, java.util.List<String> downloadedFiles,
+                                                    DownloadScheduler.Priority priority) {
         try {
             log.info("开始下载ModelScope完整模型: {}", modelName);
             
@@ -364,7 +279,7 @@ public class ModelDownloadService {
             for (String fileName : commonFiles) {
                 try {
                     String fileUrl = baseUrl + fileName;
-                    String filePath = downloadSingleFile(fileUrl, modelDir, fileName);
+                    String filePath = downloadSingleFile(fileUrl, modelDir, fileName, priority);
                     if (filePath != null) {
                         downloadedFiles.add(filePath);
                         successCount++;
@@ -391,7 +306,8 @@ public class ModelDownloadService {
     /**
      * 下载HuggingFace完整模型
      */
-    private boolean downloadHuggingFaceCompleteModel(String modelName, String modelDir, java.util.List<String> downloadedFiles) {
+    private boolean downloadHuggingFaceCompleteModel(String modelName, String modelDir, java.util.List<String> downloadedFiles,
+                                                     DownloadScheduler.Priority priority) {
         try {
             log.info("开始下载HuggingFace完整模型: {}", modelName);
             
@@ -414,7 +330,7 @@ public class ModelDownloadService {
             for (String fileName : commonFiles) {
                 try {
                     String fileUrl = baseUrl + fileName;
-                    String filePath = downloadSingleFile(fileUrl, modelDir, fileName);
+                    String filePath = downloadSingleFile(fileUrl, modelDir, fileName, priority);
                     if (filePath != null) {
                         downloadedFiles.add(filePath);
                         successCount++;
@@ -441,37 +357,13 @@ public class ModelDownloadService {
     /**
      * 下载单个文件
      */
-    private String downloadSingleFile(String fileUrl, String modelDir, String fileName) {
+    private String downloadSingleFile(String fileUrl, String modelDir, String fileName, DownloadScheduler.Priority priority) {
         try {
-            URL url = new URL(fileUrl);
-            URLConnection connection = url.openConnection();
-            connection.setRequestProperty("User-Agent", "VedioFun-Model-Downloader/1.0");
-            connection.setConnectTimeout(30000); // 30秒连接超时
-            // 移除读取超时限制，允许长时间下载大型模型
-            connection.setReadTimeout(0);
-            
             String filePath = modelDir + "/" + fileName;
-            
-            try (InputStream inputStream = connection.getInputStream();
-                 FileOutputStream outputStream = new FileOutputStream(filePath)) {
-                
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                long totalBytesRead = 0;
-                
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                    totalBytesRead += bytesRead;
-                    
-                    // 每下载10MB打印进度
-                    if (totalBytesRead % (10 * 1024 * 1024) == 0) {
-                        log.info("下载进度 - 文件: {}, 已下载: {}", fileName, formatFileSize(totalBytesRead));
-                    }
-                }
-                
-                log.info("文件下载完成 - 文件: {}, 大小: {}", fileName, formatFileSize(totalBytesRead));
-                return filePath;
-            }
+            long fileSize = downloadScheduler.download(fileUrl, Paths.get(filePath), -1,
+                    DownloadScheduler.Priority.forModelFile(fileName, priority));
+            log.info("文件下载完成 - 文件: {}, 大小: {}", fileName, formatFileSize(fileSize));
+            return filePath;
             
         } catch (Exception e) {
             log.debug("下载文件失败: {} - {}", fileName, e.getMessage());
@@ -548,35 +440,14 @@ public class ModelDownloadService {
     }
     
     /**
-     * 计算目录校验和
+     * 计算目录校验清单（流式计算，文件并行）
      */
-    private String calculateDirectoryChecksum(String dirPath) {
+    private ChecksumManifest calculateDirectoryChecksum(String dirPath) {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            File dir = new File(dirPath);
-            File[] files = dir.listFiles();
-            
-            if (files != null) {
-                java.util.Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
-                
-                for (File file : files) {
-                    if (file.isFile()) {
-                        md.update(file.getName().getBytes());
-                        md.update(Files.readAllBytes(file.toPath()));
-                    }
-                }
-            }
-            
-            byte[] digest = md.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
-            }
-            return "sha256:" + sb.toString();
-            
+            return modelChecksumService.calculateManifest(dirPath);
         } catch (Exception e) {
             log.warn("计算目录校验和失败: {}", e.getMessage());
-            return "unknown";
+            return null;
         }
     }
     
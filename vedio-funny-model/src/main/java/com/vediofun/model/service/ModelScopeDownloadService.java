@@ -2,6 +2,7 @@ package com.vediofun.model.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -13,8 +14,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
 
 /**
  * ModelScope模型下载服务
@@ -22,19 +22,21 @@ import java.util.concurrent.Executors;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class ModelScopeDownloadService {
     
     private static final String MODELSCOPE_API_BASE = "https://www.modelscope.cn/api/v1/models";
     private static final String MODELSCOPE_FILES_API = "https://www.modelscope.cn/api/v1/models/%s/repo/files";
     private static final String MODELSCOPE_DOWNLOAD_BASE = "https://www.modelscope.cn/api/v1/models/%s/repo?Revision=master&FilePath=%s";
     
-    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PeerModelDistributor peerModelDistributor;
+    private final ModelBlobStore modelBlobStore;
     
     /**
      * 下载ModelScope模型
      */
-    public Map<String, Object> downloadModelScopeModel(String modelName, String targetDir) {
+    public Map<String, Object> downloadModelScopeModel(String modelName, String targetDir, DownloadScheduler.Priority priority) {
         long startTime = System.currentTimeMillis();
         Map<String, Object> result = new HashMap<>();
         List<String> downloadedFiles = new ArrayList<>();
@@ -51,19 +53,11 @@ public class ModelScopeDownloadService {
             List<ModelFile> modelFiles = getModelFilesList(modelName);
             log.info("发现 {} 个文件需要下载", modelFiles.size());
             
-            // 并发下载文件
+            // 提交到全局下载调度器并发下载
             List<CompletableFuture<DownloadResult>> downloadFutures = new ArrayList<>();
             
             for (ModelFile file : modelFiles) {
-                CompletableFuture<DownloadResult> future = CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return downloadSingleFile(modelName, file, modelPath.toString());
-                    } catch (Exception e) {
-                        log.error("下载文件失败: {} - {}", file.getPath(), e.getMessage());
-                        return new DownloadResult(file.getPath(), false, e.getMessage());
-                    }
-                }, executorService);
-                downloadFutures.add(future);
+                downloadFutures.add(downloadSingleFile(modelName, file, modelPath.toString(), priority));
             }
             
             // 等待所有下载完成
@@ -140,10 +134,11 @@ public class ModelScopeDownloadService {
                     String path = fileNode.get("Path").asText();
                     String type = fileNode.get("Type").asText();
                     long size = fileNode.get("Size").asLong(0);
+                    String sha256 = fileNode.hasNonNull("Sha256") ? fileNode.get("Sha256").asText() : null;
                     
                     // 只下载文件，跳过目录
                     if (!"tree".equals(type)) {
-                        files.add(new ModelFile(path, size, type));
+                        files.add(new ModelFile(path, size, type, sha256));
                     }
                 }
             }
@@ -161,79 +156,29 @@ public class ModelScopeDownloadService {
     /**
      * 下载单个文件
      */
-    private DownloadResult downloadSingleFile(String modelName, ModelFile file, String targetDir) {
-        try {
-            String downloadUrl = String.format(MODELSCOPE_DOWNLOAD_BASE, modelName, file.getPath());
-            Path filePath = Paths.get(targetDir, file.getPath());
-            
-            // 创建父目录
-            Files.createDirectories(filePath.getParent());
-            
-            // 检查文件是否已存在
-            if (Files.exists(filePath)) {
-                long localFileSize = Files.size(filePath);
-                log.info("文件已存在，跳过下载: {} ({})",
-                        file.getPath(), formatFileSize(localFileSize));
-                return new DownloadResult(file.getPath(), true, "文件已存在，跳过下载");
-            }
-            
-            log.info("下载文件: {} -> {}", downloadUrl, filePath);
-            
-            HttpURLConnection connection = (HttpURLConnection) new URL(downloadUrl).openConnection();
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("User-Agent", "VedioFun-Model-Downloader/1.0");
-            connection.setConnectTimeout(30000);
-            connection.setReadTimeout(0); // 无超时限制
-            
-            // 检查响应码
-            int responseCode = connection.getResponseCode();
-            if (responseCode != 200) {
-                return new DownloadResult(file.getPath(), false, "HTTP " + responseCode);
-            }
-            
-            long remoteFileSize = connection.getContentLengthLong();
-            
-            // 下载文件
-            try (InputStream inputStream = connection.getInputStream();
-                 FileOutputStream outputStream = new FileOutputStream(filePath.toFile());
-                 BufferedInputStream bufferedInput = new BufferedInputStream(inputStream);
-                 BufferedOutputStream bufferedOutput = new BufferedOutputStream(outputStream)) {
-                
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                long totalBytesRead = 0;
-                long lastProgressTime = System.currentTimeMillis();
-                
-                while ((bytesRead = bufferedInput.read(buffer)) != -1) {
-                    bufferedOutput.write(buffer, 0, bytesRead);
-                    totalBytesRead += bytesRead;
-                    
-                    // 每5秒输出一次进度
-                    long currentTime = System.currentTimeMillis();
-                    if (currentTime - lastProgressTime > 5000) {
-                        double progress = remoteFileSize > 0 ? (double) totalBytesRead / remoteFileSize * 100 : 0;
-                        log.info("{}下载进度: {}% ({}/{})", 
-                                file.getPath(), String.format("%.1f", progress), formatFileSize(totalBytesRead), 
-                                remoteFileSize > 0 ? formatFileSize(remoteFileSize) : "未知");
-                        lastProgressTime = currentTime;
-                    }
-                }
-                
-                log.info("文件下载完成: {} ({})", file.getPath(), formatFileSize(totalBytesRead));
-                
-                // 验证下载完整性
-                if (remoteFileSize > 0 && totalBytesRead != remoteFileSize) {
-                    log.warn("下载文件大小不匹配: {} 期望={}, 实际={}", 
-                            file.getPath(), formatFileSize(remoteFileSize), formatFileSize(totalBytesRead));
-                }
-                
-                return new DownloadResult(file.getPath(), true, null);
-            }
-            
-        } catch (Exception e) {
-            log.error("下载文件失败: {} - {}", file.getPath(), e.getMessage());
-            return new DownloadResult(file.getPath(), false, e.getMessage());
+    private CompletableFuture<DownloadResult> downloadSingleFile(String modelName, ModelFile file, String targetDir,
+                                                                 DownloadScheduler.Priority priority) {
+        String downloadUrl = String.format(MODELSCOPE_DOWNLOAD_BASE, modelName, file.getPath());
+        Path filePath = Paths.get(targetDir, file.getPath());
+        
+        // 本地存储中已有相同内容的文件时直接链接，无需下载
+        if (modelBlobStore.linkInto(file.getSha256(), filePath)) {
+            return CompletableFuture.completedFuture(new DownloadResult(file.getPath(), true, "从本地存储链接"));
         }
+        
+        log.info("下载文件: {} -> {}", downloadUrl, filePath);
+        return peerModelDistributor.fetch(file.getSha256(), downloadUrl, filePath, file.getSize(),
+                        DownloadScheduler.Priority.forModelFile(file.getPath(), priority))
+                .handle((fileSize, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        log.error("下载文件失败: {} - {}", file.getPath(), cause.getMessage());
+                        return new DownloadResult(file.getPath(), false, cause.getMessage());
+                    }
+                    log.info("文件下载完成: {} ({})", file.getPath(), formatFileSize(fileSize));
+                    return new DownloadResult(file.getPath(), true, null);
+                });
     }
     
     /**
@@ -271,16 +216,23 @@ public class ModelScopeDownloadService {
         private final String path;
         private final long size;
         private final String type;
+        private final String sha256;
         
         public ModelFile(String path, long size, String type) {
+            this(path, size, type, null);
+        }
+        
+        public ModelFile(String path, long size, String type, String sha256) {
             this.path = path;
             this.size = size;
             this.type = type;
+            this.sha256 = sha256;
         }
         
         public String getPath() { return path; }
         public long getSize() { return size; }
         public String getType() { return type; }
+        public String getSha256() { return sha256; }
     }
     
     /**
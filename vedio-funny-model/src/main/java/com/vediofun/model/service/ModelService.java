@@ -2,6 +2,7 @@ package com.vediofun.model.service;
 
 import com.vediofun.model.entity.Model;
 import com.vediofun.model.entity.ModelDeploymentInstance;
+import com.vediofun.model.dto.DeploymentStep;
 import com.vediofun.model.dto.InstallEnvironmentRequest;
 import com.vediofun.model.dto.InstallEnvironmentResult;
 import com.vediofun.model.dto.RayDeploymentRequest;
@@ -17,6 +18,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 模型服务接口，定义模型管理的基本操作
@@ -117,6 +119,15 @@ public interface ModelService {
      */
     RayDeploymentResponse deployModelToRayCluster(RayDeploymentRequest request);
 
+    /**
+     * 部署模型到Ray集群，每个部署步骤开始和结束时回调监听器
+     *
+     * @param request 部署请求对象
+     * @param stepListener 部署步骤监听器
+     * @return 部署结果信息
+     */
+    RayDeploymentResponse deployModelToRayCluster(RayDeploymentRequest request, Consumer<DeploymentStep> stepListener);
+
     /**
      * 创建Ray集群
      */
@@ -136,6 +147,11 @@ public interface ModelService {
      * 获取Ray集群状态
      */
     RayClusterStatus getRayClusterStatus(Map<String, Object> request);
+    
+    /**
+     * 停止当前节点的Ray及RayLLM进程
+     */
+    RayClusterInfo stopRayNode();
 
     /**
      * 启动RayLLM服务
@@ -145,11 +161,12 @@ public interface ModelService {
      * @param clusterAddress Ray集群地址
      * @param maxConcurrency 最大并发数
      * @param modelEngine 模型引擎（vllm/tgi等）
+     * @param deploymentInstanceId 关联的部署实例ID，可为空
      * @return 启动结果信息
      */
     Map<String, Object> launchRayLLMService(String modelName, String modelPath, 
                                           String clusterAddress, Integer maxConcurrency, 
-                                          String modelEngine);
+                                          String modelEngine, Long deploymentInstanceId);
 
     /**
      * 保存模型部署实例
@@ -185,4 +202,11 @@ public interface ModelService {
      * @return 运行中的部署实例列表
      */
     List<ModelDeploymentInstance> getRunningDeploymentInstances();
+
+    /**
+     * 探测运行中部署实例的服务端点，不可连接的实例标记为错误，并更新最近健康检查时间
+     *
+     * @return 实例ID -> 端点是否可连接
+     */
+    Map<Long, Boolean> checkRunningDeploymentInstancesHealth();
 }
@@ -0,0 +1,672 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.dto.CpuInfo;
+import com.vediofun.model.dto.DiskInfo;
+import com.vediofun.model.dto.GpuInfo;
+import com.vediofun.model.dto.MemoryInfo;
+import com.vediofun.model.dto.NetworkInfo;
+import com.vediofun.model.dto.NodeEnvironmentInfo;
+import com.vediofun.model.util.ResourceUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 节点环境清单
+ * 按分区（CPU、内存、磁盘、网络、GPU、Ray环境）在后台定时采集并缓存，每个分区有独立的刷新周期。
+ * 查询直接由缓存组装，不再在请求线程上执行 nvidia-smi、环境检查脚本等耗时操作；
+ * CPU和内存读取 /proc，非Linux系统退回 OperatingSystemMXBean。
+ * 外部命令的输出在独立线程中读取，采集线程按超时等待进程结束，超时后强制结束进程及其子进程
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NodeInventoryService {
+
+    public enum Section {
+        CPU, MEMORY, DISK, NETWORK, GPU, RAY;
+
+        public static Section parse(String value) {
+            return Section.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final Path PROC_STAT = Paths.get("/proc/stat");
+    private static final Path PROC_CPUINFO = Paths.get("/proc/cpuinfo");
+    private static final Path PROC_LOADAVG = Paths.get("/proc/loadavg");
+    private static final Path PROC_MEMINFO = Paths.get("/proc/meminfo");
+
+    private static final long GPU_QUERY_TIMEOUT_SECONDS = 10;
+    private static final long RAY_CHECK_TIMEOUT_SECONDS = 60;
+    private static final long OUTPUT_DRAIN_TIMEOUT_SECONDS = 5;
+
+    @Value("${model.inventory.cpu-ttl-seconds:5}")
+    private long cpuTtlSeconds;
+
+    @Value("${model.inventory.memory-ttl-seconds:5}")
+    private long memoryTtlSeconds;
+
+    @Value("${model.inventory.disk-ttl-seconds:60}")
+    private long diskTtlSeconds;
+
+    @Value("${model.inventory.network-ttl-seconds:300}")
+    private long networkTtlSeconds;
+
+    @Value("${model.inventory.gpu-ttl-seconds:30}")
+    private long gpuTtlSeconds;
+
+    @Value("${model.inventory.ray-ttl-seconds:600}")
+    private long rayTtlSeconds;
+
+    private final ResourceUtil resourceUtil;
+
+    private final Map<Section, Sample> samples = new ConcurrentHashMap<>();
+    private final Map<Section, Object> sectionLocks = new EnumMap<>(Section.class);
+
+    /**
+     * 上一次 /proc/stat 的累计值，用于计算两次采样间的CPU使用率
+     */
+    private long[] lastCpuTicks;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 读取外部命令输出的线程
+     */
+    private ExecutorService outputReader;
+
+    @PostConstruct
+    public void init() {
+        for (Section section : Section.values()) {
+            sectionLocks.put(section, new Object());
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "node-inventory-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger readerIndex = new AtomicInteger();
+        outputReader = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "node-inventory-output-" + readerIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Section section : Section.values()) {
+            scheduler.scheduleWithFixedDelay(() -> collectQuietly(section), 0, ttlSeconds(section), TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        outputReader.shutdownNow();
+    }
+
+    /**
+     * 由缓存组装节点环境信息，尚未采集过的分区在当前线程采集
+     * 节点ID、IP、操作系统等标识信息由调用方填充
+     */
+    public NodeEnvironmentInfo snapshot() {
+        NodeEnvironmentInfo nodeInfo = new NodeEnvironmentInfo();
+        nodeInfo.setCpuInfo(sample(Section.CPU));
+        nodeInfo.setMemoryInfo(sample(Section.MEMORY));
+        nodeInfo.setDiskInfo(sample(Section.DISK));
+        nodeInfo.setNetworkInfo(sample(Section.NETWORK));
+        List<GpuInfo> gpuInfos = sample(Section.GPU);
+        nodeInfo.setGpuInfos(new ArrayList<>(gpuInfos));
+
+        NodeEnvironmentInfo rayInfo = sample(Section.RAY);
+        nodeInfo.setPythonInstalled(rayInfo.getPythonInstalled());
+        nodeInfo.setPythonVersion(rayInfo.getPythonVersion());
+        nodeInfo.setRayInstalled(rayInfo.getRayInstalled());
+        nodeInfo.setRayVersion(rayInfo.getRayVersion());
+        nodeInfo.setModelEnginesInstalled(rayInfo.getModelEnginesInstalled());
+        return nodeInfo;
+    }
+
+    /**
+     * 立即重新采集指定分区
+     */
+    public void refresh(Collection<Section> sections) {
+        for (Section section : sections) {
+            collect(section);
+        }
+    }
+
+    /**
+     * 分区数据已过期（如安装环境后），在后台重新采集；采集完成前查询仍返回原有数据
+     */
+    public void invalidate(Section section) {
+        scheduler.execute(() -> collectQuietly(section));
+    }
+
+    /**
+     * 各分区的采集时间、缓存时长和采集耗时
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        long now = System.nanoTime();
+        for (Section section : Section.values()) {
+            Map<String, Object> sectionStatus = new LinkedHashMap<>();
+            Sample sample = samples.get(section);
+            sectionStatus.put("ttlSeconds", ttlSeconds(section));
+            sectionStatus.put("collectedAt", sample != null ? sample.collectedAt : null);
+            sectionStatus.put("ageMs", sample != null ? TimeUnit.NANOSECONDS.toMillis(now - sample.collectedAtNanos) : null);
+            sectionStatus.put("collectMs", sample != null ? sample.collectMs : null);
+            status.put(section.name(), sectionStatus);
+        }
+        return status;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T sample(Section section) {
+        Sample sample = samples.get(section);
+        if (sample == null) {
+            sample = collect(section);
+        }
+        return (T) sample.value;
+    }
+
+    private void collectQuietly(Section section) {
+        try {
+            collect(section);
+        } catch (Exception e) {
+            log.warn("节点环境采集失败 - 分区: {}: {}", section, e.getMessage());
+        }
+    }
+
+    /**
+     * 同一分区同时只采集一次，等待中的调用直接使用刚采集的结果
+     */
+    private Sample collect(Section section) {
+        synchronized (sectionLocks.get(section)) {
+            Sample existing = samples.get(section);
+            long startNanos = System.nanoTime();
+            if (existing != null && startNanos - existing.collectedAtNanos < TimeUnit.MILLISECONDS.toNanos(100)) {
+                return existing;
+            }
+            Object value = collector(section).get();
+            long endNanos = System.nanoTime();
+            Sample sample = new Sample(value, endNanos, LocalDateTime.now(),
+                    TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos));
+            samples.put(section, sample);
+            log.debug("节点环境分区已采集 - 分区: {}, 耗时: {}ms", section, sample.collectMs);
+            return sample;
+        }
+    }
+
+    private Supplier<Object> collector(Section section) {
+        return switch (section) {
+            case CPU -> this::collectCpuInfo;
+            case MEMORY -> this::collectMemoryInfo;
+            case DISK -> this::collectDiskInfo;
+            case NETWORK -> this::collectNetworkInfo;
+            case GPU -> this::collectGpuInfo;
+            case RAY -> this::collectRayEnvironment;
+        };
+    }
+
+    private long ttlSeconds(Section section) {
+        long ttl = switch (section) {
+            case CPU -> cpuTtlSeconds;
+            case MEMORY -> memoryTtlSeconds;
+            case DISK -> diskTtlSeconds;
+            case NETWORK -> networkTtlSeconds;
+            case GPU -> gpuTtlSeconds;
+            case RAY -> rayTtlSeconds;
+        };
+        return Math.max(1, ttl);
+    }
+
+    /**
+     * CPU信息：/proc/cpuinfo、/proc/loadavg，使用率取两次 /proc/stat 采样的差值
+     */
+    private CpuInfo collectCpuInfo() {
+        CpuInfo cpuInfo = new CpuInfo();
+        int cores = Runtime.getRuntime().availableProcessors();
+        cpuInfo.setLogicalCores(cores);
+        cpuInfo.setPhysicalCores(cores);
+        cpuInfo.setArchitecture(System.getProperty("os.arch"));
+
+        try {
+            if (Files.isReadable(PROC_CPUINFO)) {
+                Set<String> physicalCores = new HashSet<>();
+                String physicalId = "0";
+                for (String line : Files.readAllLines(PROC_CPUINFO, StandardCharsets.UTF_8)) {
+                    int separator = line.indexOf(':');
+                    if (separator < 0) {
+                        continue;
+                    }
+                    String key = line.substring(0, separator).trim();
+                    String value = line.substring(separator + 1).trim();
+                    switch (key) {
+                        case "model name" -> cpuInfo.setModel(value);
+                        case "cpu MHz" -> cpuInfo.setCurrentFrequency(Double.parseDouble(value));
+                        case "physical id" -> physicalId = value;
+                        case "core id" -> physicalCores.add(physicalId + ":" + value);
+                        default -> {
+                        }
+                    }
+                }
+                if (!physicalCores.isEmpty()) {
+                    cpuInfo.setPhysicalCores(physicalCores.size());
+                }
+            }
+
+            if (Files.isReadable(PROC_LOADAVG)) {
+                String[] loads = Files.readString(PROC_LOADAVG).trim().split("\\s+");
+                cpuInfo.setLoadAverage1min(Double.parseDouble(loads[0]));
+                cpuInfo.setLoadAverage5min(Double.parseDouble(loads[1]));
+                cpuInfo.setLoadAverage15min(Double.parseDouble(loads[2]));
+            } else {
+                OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+                double loadAverage = osBean.getSystemLoadAverage();
+                cpuInfo.setLoadAverage1min(loadAverage >= 0 ? loadAverage : 0.0);
+            }
+
+            Double usage = cpuUsageFromProcStat();
+            if (usage == null) {
+                // 首次采样或非Linux系统，按负载估算
+                double loadAverage = cpuInfo.getLoadAverage1min() != null ? cpuInfo.getLoadAverage1min() : 0.0;
+                usage = Math.min(100.0, loadAverage / cores * 100);
+            }
+            cpuInfo.setCpuUsage(usage);
+        } catch (Exception e) {
+            log.warn("获取CPU信息失败", e);
+            cpuInfo.setLoadAverage1min(0.0);
+            cpuInfo.setCpuUsage(0.0);
+        }
+        return cpuInfo;
+    }
+
+    private Double cpuUsageFromProcStat() throws IOException {
+        if (!Files.isReadable(PROC_STAT)) {
+            return null;
+        }
+        String cpuLine;
+        try (BufferedReader reader = Files.newBufferedReader(PROC_STAT, StandardCharsets.US_ASCII)) {
+            cpuLine = reader.readLine();
+        }
+        if (cpuLine == null || !cpuLine.startsWith("cpu ")) {
+            return null;
+        }
+        // cpu user nice system idle iowait irq softirq steal ...
+        String[] fields = cpuLine.trim().split("\\s+");
+        long total = 0;
+        for (int i = 1; i < fields.length && i <= 8; i++) {
+            total += Long.parseLong(fields[i]);
+        }
+        long idle = Long.parseLong(fields[4]) + (fields.length > 5 ? Long.parseLong(fields[5]) : 0);
+
+        long[] previous = lastCpuTicks;
+        lastCpuTicks = new long[]{total, idle};
+        if (previous == null || total <= previous[0]) {
+            return null;
+        }
+        long totalDelta = total - previous[0];
+        long idleDelta = idle - previous[1];
+        return Math.max(0.0, Math.min(100.0, (double) (totalDelta - idleDelta) / totalDelta * 100));
+    }
+
+    /**
+     * 系统内存：/proc/meminfo，非Linux系统使用 com.sun.management.OperatingSystemMXBean
+     */
+    private MemoryInfo collectMemoryInfo() {
+        MemoryInfo memoryInfo = new MemoryInfo();
+        try {
+            long totalKb;
+            long availableKb;
+            long swapTotalKb;
+            long swapFreeKb;
+            if (Files.isReadable(PROC_MEMINFO)) {
+                Map<String, Long> meminfo = new HashMap<>();
+                for (String line : Files.readAllLines(PROC_MEMINFO, StandardCharsets.US_ASCII)) {
+                    String[] fields = line.split(":\\s*|\\s+");
+                    if (fields.length >= 2) {
+                        meminfo.put(fields[0], Long.parseLong(fields[1]));
+                    }
+                }
+                totalKb = meminfo.getOrDefault("MemTotal", 0L);
+                availableKb = meminfo.getOrDefault("MemAvailable", meminfo.getOrDefault("MemFree", 0L));
+                swapTotalKb = meminfo.getOrDefault("SwapTotal", 0L);
+                swapFreeKb = meminfo.getOrDefault("SwapFree", 0L);
+                memoryInfo.setCachedMemoryMB(meminfo.getOrDefault("Cached", 0L) / 1024);
+                memoryInfo.setBufferedMemoryMB(meminfo.getOrDefault("Buffers", 0L) / 1024);
+            } else if (ManagementFactory.getOperatingSystemMXBean()
+                    instanceof com.sun.management.OperatingSystemMXBean osBean) {
+                totalKb = osBean.getTotalMemorySize() / 1024;
+                availableKb = osBean.getFreeMemorySize() / 1024;
+                swapTotalKb = osBean.getTotalSwapSpaceSize() / 1024;
+                swapFreeKb = osBean.getFreeSwapSpaceSize() / 1024;
+            } else {
+                totalKb = availableKb = swapTotalKb = swapFreeKb = 0;
+            }
+
+            memoryInfo.setTotalMemoryMB(totalKb / 1024);
+            memoryInfo.setFreeMemoryMB(availableKb / 1024);
+            memoryInfo.setUsedMemoryMB((totalKb - availableKb) / 1024);
+            memoryInfo.setMemoryUsage(totalKb > 0 ? (double) (totalKb - availableKb) / totalKb * 100 : 0.0);
+            memoryInfo.setTotalSwapMB(swapTotalKb / 1024);
+            memoryInfo.setFreeSwapMB(swapFreeKb / 1024);
+            memoryInfo.setUsedSwapMB((swapTotalKb - swapFreeKb) / 1024);
+            memoryInfo.setSwapUsage(swapTotalKb > 0 ? (double) (swapTotalKb - swapFreeKb) / swapTotalKb * 100 : 0.0);
+        } catch (Exception e) {
+            log.warn("获取内存信息失败", e);
+            memoryInfo.setTotalMemoryMB(0L);
+            memoryInfo.setUsedMemoryMB(0L);
+            memoryInfo.setFreeMemoryMB(0L);
+            memoryInfo.setMemoryUsage(0.0);
+            memoryInfo.setTotalSwapMB(0L);
+            memoryInfo.setUsedSwapMB(0L);
+            memoryInfo.setFreeSwapMB(0L);
+            memoryInfo.setSwapUsage(0.0);
+        }
+        return memoryInfo;
+    }
+
+    /**
+     * GPU信息：nvidia-smi，未安装驱动时返回空列表
+     */
+    private List<GpuInfo> collectGpuInfo() {
+        List<GpuInfo> gpuInfos = new ArrayList<>();
+        try {
+            CommandResult result = runCommand(new ProcessBuilder("nvidia-smi",
+                    "--query-gpu=index,name,memory.total,memory.used,memory.free,utilization.gpu",
+                    "--format=csv,noheader,nounits"), GPU_QUERY_TIMEOUT_SECONDS);
+            if (result == null) {
+                log.warn("nvidia-smi 执行超时");
+                return gpuInfos;
+            }
+
+            for (String line : result.output().split("\n")) {
+                String[] parts = line.split(",");
+                if (parts.length < 5) {
+                    continue;
+                }
+                GpuInfo gpuInfo = new GpuInfo();
+                gpuInfo.setIndex(Integer.parseInt(parts[0].trim()));
+                gpuInfo.setName(parts[1].trim());
+                gpuInfo.setTotalMemoryMB(Long.parseLong(parts[2].trim()));
+                gpuInfo.setUsedMemoryMB(Long.parseLong(parts[3].trim()));
+                gpuInfo.setFreeMemoryMB(Long.parseLong(parts[4].trim()));
+                gpuInfo.setMemoryUtilization(gpuInfo.getTotalMemoryMB() > 0 ?
+                        (double) gpuInfo.getUsedMemoryMB() / gpuInfo.getTotalMemoryMB() * 100 : 0.0);
+                gpuInfo.setGpuUtilization(parts.length > 5 ? parseDouble(parts[5]) : 0.0);
+                gpuInfo.setStatus("ONLINE");
+                gpuInfos.add(gpuInfo);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.debug("无法获取GPU信息，可能没有安装NVIDIA驱动或GPU: {}", e.getMessage());
+        }
+        return gpuInfos;
+    }
+
+    private DiskInfo collectDiskInfo() {
+        DiskInfo diskInfo = new DiskInfo();
+        try {
+            java.io.File root = new java.io.File("/");
+            long totalSpace = root.getTotalSpace();
+            long freeSpace = root.getFreeSpace();
+            long usedSpace = totalSpace - freeSpace;
+
+            diskInfo.setTotalDiskGB(totalSpace / (1024 * 1024 * 1024));
+            diskInfo.setFreeDiskGB(freeSpace / (1024 * 1024 * 1024));
+            diskInfo.setUsedDiskGB(usedSpace / (1024 * 1024 * 1024));
+            diskInfo.setDiskUsage(totalSpace > 0 ? (double) usedSpace / totalSpace * 100 : 0.0);
+
+            // 设置其他磁盘信息的默认值
+            diskInfo.setDiskType("SSD"); // 简化处理
+            diskInfo.setFileSystemType("ext4"); // 简化处理
+            diskInfo.setReadSpeedMBps(0.0);
+            diskInfo.setWriteSpeedMBps(0.0);
+        } catch (Exception e) {
+            log.warn("获取磁盘信息失败", e);
+            diskInfo.setTotalDiskGB(0L);
+            diskInfo.setFreeDiskGB(0L);
+            diskInfo.setUsedDiskGB(0L);
+            diskInfo.setDiskUsage(0.0);
+            diskInfo.setDiskType("unknown");
+            diskInfo.setFileSystemType("unknown");
+            diskInfo.setReadSpeedMBps(0.0);
+            diskInfo.setWriteSpeedMBps(0.0);
+        }
+        return diskInfo;
+    }
+
+    private NetworkInfo collectNetworkInfo() {
+        NetworkInfo networkInfo = new NetworkInfo();
+        try {
+            java.net.InetAddress localHost = java.net.InetAddress.getLocalHost();
+            networkInfo.setHostname(localHost.getHostName());
+            networkInfo.setIpAddress(localHost.getHostAddress());
+
+            // 检查网络连通性（ping Google DNS）
+            java.net.InetAddress googleDns = java.net.InetAddress.getByName("8.8.8.8");
+            boolean reachable = googleDns.isReachable(5000); // 5秒超时
+            networkInfo.setNetworkStatus(reachable ? "CONNECTED" : "DISCONNECTED");
+
+            // 设置其他网络信息的默认值
+            networkInfo.setPrimaryInterface("eth0");
+            networkInfo.setSubnetMask("255.255.255.0");
+            networkInfo.setGateway("192.168.1.1");
+            networkInfo.setDnsServers("8.8.8.8,8.8.4.4");
+            networkInfo.setBandwidthMbps(1000.0);
+            networkInfo.setLatencyMs(reachable ? 10.0 : -1.0);
+            networkInfo.setUploadSpeedMBps(0.0);
+            networkInfo.setDownloadSpeedMBps(0.0);
+        } catch (Exception e) {
+            log.warn("获取网络信息失败", e);
+            networkInfo.setHostname("unknown");
+            networkInfo.setIpAddress("127.0.0.1");
+            networkInfo.setNetworkStatus("ERROR");
+            networkInfo.setPrimaryInterface("unknown");
+            networkInfo.setSubnetMask("unknown");
+            networkInfo.setGateway("unknown");
+            networkInfo.setDnsServers("unknown");
+            networkInfo.setBandwidthMbps(0.0);
+            networkInfo.setLatencyMs(-1.0);
+            networkInfo.setUploadSpeedMBps(0.0);
+            networkInfo.setDownloadSpeedMBps(0.0);
+        }
+        return networkInfo;
+    }
+
+    /**
+     * Python/Ray/模型引擎环境：执行 ray-env-check.sh 脚本并解析JSON输出
+     */
+    private NodeEnvironmentInfo collectRayEnvironment() {
+        NodeEnvironmentInfo rayInfo = new NodeEnvironmentInfo();
+        try {
+            String scriptPath = resourceUtil.getScriptPath("ray-env-check.sh");
+            ProcessBuilder processBuilder = resourceUtil.createScriptProcessBuilder(scriptPath, "json");
+            CommandResult result = runCommand(processBuilder, RAY_CHECK_TIMEOUT_SECONDS);
+            if (result == null) {
+                setDefaultRayEnvironment(rayInfo, "脚本执行超时");
+                return rayInfo;
+            }
+
+            int exitCode = result.exitCode();
+            String scriptOutput = result.output().trim();
+            log.debug("ray-env-check.sh脚本输出: {}", scriptOutput);
+            if (exitCode == 0 || exitCode == 1) { // 0=准备就绪, 1=未准备就绪但有输出
+                parseRayEnvironmentJson(scriptOutput, rayInfo);
+            } else {
+                log.error("ray-env-check.sh脚本执行失败，退出码: {}", exitCode);
+                setDefaultRayEnvironment(rayInfo, "脚本执行失败: 退出码 " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            setDefaultRayEnvironment(rayInfo, "脚本执行中断");
+        } catch (Exception e) {
+            log.error("使用ray-env-check.sh检查Ray环境失败", e);
+            setDefaultRayEnvironment(rayInfo, "脚本执行异常: " + e.getMessage());
+        }
+        return rayInfo;
+    }
+
+    /**
+     * 执行外部命令：输出在独立线程中读取，当前线程按超时等待进程结束
+     *
+     * @return 退出码和输出，超时返回 null（进程及其子进程已被强制结束）
+     */
+    private CommandResult runCommand(ProcessBuilder processBuilder, long timeoutSeconds)
+            throws IOException, InterruptedException {
+        Process process = processBuilder.redirectErrorStream(true).start();
+        CompletableFuture<String> output = CompletableFuture.supplyAsync(() -> readOutput(process), outputReader);
+        if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+            // 先结束子进程，避免其继续持有输出管道使读取线程无法结束
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+            output.cancel(true);
+            return null;
+        }
+        try {
+            return new CommandResult(process.exitValue(), output.get(OUTPUT_DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } catch (TimeoutException e) {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            throw new IOException("读取命令输出超时", e);
+        } catch (ExecutionException e) {
+            throw new IOException("读取命令输出失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static String readOutput(Process process) {
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append("\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toString();
+    }
+
+    private void parseRayEnvironmentJson(String jsonOutput, NodeEnvironmentInfo rayInfo) {
+        // 查找JSON开始位置（跳过可能的非JSON前缀）
+        int jsonStart = jsonOutput.indexOf("{");
+        if (jsonStart == -1) {
+            log.error("未找到有效的JSON输出: {}", jsonOutput);
+            setDefaultRayEnvironment(rayInfo, "JSON格式错误");
+            return;
+        }
+        String jsonPart = jsonOutput.substring(jsonStart);
+
+        // 简单的JSON解析（避免引入复杂依赖）
+        boolean condaAvailable = jsonPart.contains("\"available\": true");
+        boolean rayEnvExists = jsonPart.contains("\"exists\": true");
+        boolean rayInstalled = jsonPart.contains("\"installed\": true");
+        boolean rayReady = jsonPart.contains("\"rayReady\": true");
+        boolean modelEnginesInstalled = jsonPart.contains("\"modelEnginesInstalled\": true");
+        String envName = extractJsonValue(jsonPart, "name");
+
+        if (condaAvailable && rayEnvExists) {
+            rayInfo.setPythonInstalled(true);
+            rayInfo.setPythonVersion("Python 3.12 (conda: " + envName + ")");
+        } else if (condaAvailable) {
+            rayInfo.setPythonInstalled(true);
+            rayInfo.setPythonVersion("Conda可用，但Ray环境不存在");
+        } else {
+            rayInfo.setPythonInstalled(false);
+            rayInfo.setPythonVersion("Conda未安装");
+        }
+
+        if (rayInstalled && rayReady) {
+            rayInfo.setRayInstalled(true);
+            rayInfo.setRayVersion("Ray 2.8.0 (环境: " + envName + ")");
+        } else if (rayEnvExists) {
+            rayInfo.setRayInstalled(false);
+            rayInfo.setRayVersion("Ray环境存在但Ray未安装");
+        } else {
+            rayInfo.setRayInstalled(false);
+            rayInfo.setRayVersion("Ray环境不存在");
+        }
+        rayInfo.setModelEnginesInstalled(modelEnginesInstalled);
+
+        log.info("Ray环境检查完成 - Python: {}, Ray: {}, ModelEngines: {}",
+                rayInfo.getPythonInstalled(), rayInfo.getRayInstalled(), rayInfo.getModelEnginesInstalled());
+    }
+
+    private static String extractJsonValue(String json, String key) {
+        Matcher matcher = Pattern.compile("\"" + key + "\":\\s*\"([^\"]+)\"").matcher(json);
+        return matcher.find() ? matcher.group(1) : "unknown";
+    }
+
+    private static void setDefaultRayEnvironment(NodeEnvironmentInfo rayInfo, String errorMessage) {
+        rayInfo.setPythonInstalled(false);
+        rayInfo.setPythonVersion("检查失败: " + errorMessage);
+        rayInfo.setRayInstalled(false);
+        rayInfo.setRayVersion("检查失败: " + errorMessage);
+        rayInfo.setModelEnginesInstalled(false);
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    /**
+     * 分区采集结果
+     */
+    private record CommandResult(int exitCode, String output) {
+    }
+
+    private static final class Sample {
+        private final Object value;
+        private final long collectedAtNanos;
+        private final LocalDateTime collectedAt;
+        private final long collectMs;
+
+        Sample(Object value, long collectedAtNanos, LocalDateTime collectedAt, long collectMs) {
+            this.value = value;
+            this.collectedAtNanos = collectedAtNanos;
+            this.collectedAt = collectedAt;
+            this.collectMs = collectMs;
+        }
+    }
+}
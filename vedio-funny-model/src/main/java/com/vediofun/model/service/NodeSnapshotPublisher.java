@@ -0,0 +1,143 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.dto.NodeEnvironmentInfo;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 节点环境快照发布
+ * 服务就绪后定时读取本节点环境清单，关键指标（环境就绪状态、GPU数量与空闲显存、空闲内存和磁盘）变化时立即发布，
+ * 未变化时按心跳周期发布，使主节点能据发布时间判断快照是否过期。
+ * 只发布状态为 ONLINE 且节点ID已在注册中心登记的快照，避免以降级生成的临时ID发布无法对应节点的快照
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NodeSnapshotPublisher {
+
+    @Value("${model.snapshot.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 检查环境变化的周期(秒)
+     */
+    @Value("${model.snapshot.check-interval-seconds:2}")
+    private long checkIntervalSeconds;
+
+    /**
+     * 无变化时的发布周期(秒)
+     */
+    @Value("${model.snapshot.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    private final ModelService modelService;
+    private final ClusterSnapshotStore snapshotStore;
+    private final DiscoveryClient discoveryClient;
+
+    private ScheduledExecutorService scheduler;
+    private String lastFingerprint;
+    private long lastPublishedAt;
+    private volatile String nodeId;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "node-snapshot-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::publishIfNeeded, 0, Math.max(1, checkIntervalSeconds), TimeUnit.SECONDS);
+        log.info("节点环境快照发布已启动 - 检查周期: {}s, 心跳: {}s", checkIntervalSeconds, heartbeatSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        if (nodeId != null) {
+            try {
+                snapshotStore.remove(nodeId);
+            } catch (Exception e) {
+                log.debug("移除节点环境快照失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void publishIfNeeded() {
+        try {
+            NodeEnvironmentInfo nodeInfo = modelService.checkCurrentNodeEnvironment();
+            if (!"ONLINE".equals(nodeInfo.getStatus()) || !isRegistered(nodeInfo.getNodeId())) {
+                log.debug("节点状态或节点ID未就绪，跳过发布 - 节点: {}, 状态: {}", nodeInfo.getNodeId(), nodeInfo.getStatus());
+                return;
+            }
+            String fingerprint = fingerprint(nodeInfo);
+            long now = System.currentTimeMillis();
+            boolean changed = !fingerprint.equals(lastFingerprint);
+            if (!changed && now - lastPublishedAt < TimeUnit.SECONDS.toMillis(heartbeatSeconds)) {
+                return;
+            }
+            snapshotStore.publish(nodeInfo);
+            if (nodeId != null && !nodeId.equals(nodeInfo.getNodeId())) {
+                // 重新注册后节点ID变化，移除旧ID下的快照
+                snapshotStore.remove(nodeId);
+            }
+            nodeId = nodeInfo.getNodeId();
+            lastFingerprint = fingerprint;
+            lastPublishedAt = now;
+            if (changed) {
+                log.info("节点环境已变化，已发布快照 - 节点: {}, 指标: {}", nodeId, fingerprint);
+            }
+        } catch (Exception e) {
+            log.warn("发布节点环境快照失败: {}", e.getMessage());
+        }
+    }
+
+    private boolean isRegistered(String candidateId) {
+        return candidateId != null && discoveryClient.getInstances(applicationName).stream()
+                .anyMatch(instance -> candidateId.equals(instance.getInstanceId()));
+    }
+
+    /**
+     * 关键指标摘要，容量类指标按GB取整以忽略细微波动
+     */
+    private static String fingerprint(NodeEnvironmentInfo nodeInfo) {
+        StringBuilder sb = new StringBuilder()
+                .append(nodeInfo.getNodeId()).append('|')
+                .append(nodeInfo.getStatus()).append('|')
+                .append(nodeInfo.getPythonInstalled()).append('|')
+                .append(nodeInfo.getRayInstalled()).append('|')
+                .append(nodeInfo.getModelEnginesInstalled()).append('|');
+        if (nodeInfo.getGpuInfos() != null) {
+            sb.append("gpu=").append(nodeInfo.getGpuInfos().size());
+            long freeGpuMemoryMB = nodeInfo.getGpuInfos().stream()
+                    .mapToLong(gpu -> gpu.getFreeMemoryMB() != null ? gpu.getFreeMemoryMB() : 0L)
+                    .sum();
+            sb.append('/').append(freeGpuMemoryMB / 1024).append('|');
+        }
+        if (nodeInfo.getMemoryInfo() != null && nodeInfo.getMemoryInfo().getFreeMemoryMB() != null) {
+            sb.append("mem=").append(nodeInfo.getMemoryInfo().getFreeMemoryMB() / 1024).append('|');
+        }
+        if (nodeInfo.getDiskInfo() != null) {
+            sb.append("disk=").append(nodeInfo.getDiskInfo().getFreeDiskGB());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,303 @@
+package com.vediofun.model.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 节点间模型分发服务
+ * 每个模型服务节点通过 /model/blobs/{digest} 对外提供本地存储中的文件（支持Range分段）。
+ * 下载已知校验和的文件时，先探测注册中心中已持有该文件的节点，分段分散到多个节点并行拉取，
+ * 源站放在最后只补齐节点拉取失败的分段。正在下载同一文件的节点也会被探测到，
+ * 它已下载完成的范围可以立即拉取，多个节点同时部署时只有最早开始下载的节点访问源站，其余节点依次跟随；
+ * 下载完成并校验通过的节点随即成为完整的分发源。
+ * 节点列表短时缓存，探测在探测线程池上并行进行，调用方线程不等待探测结果
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PeerModelDistributor {
+
+    public static final String BLOB_ENDPOINT = "/model/blobs/";
+
+    /**
+     * 节点正在下载该文件时，HEAD响应中携带的下载开始时间(毫秒时间戳)
+     */
+    public static final String DOWNLOAD_STARTED_HEADER = "X-Download-Started";
+
+    @Value("${spring.application.name}")
+    private String serviceName;
+
+    /**
+     * 是否启用节点间分发
+     */
+    @Value("${model.p2p.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 单个文件最多使用的节点数
+     */
+    @Value("${model.p2p.max-peers:4}")
+    private int maxPeers;
+
+    /**
+     * 节点探测超时(毫秒)
+     */
+    @Value("${model.p2p.probe-timeout-ms:2000}")
+    private int probeTimeoutMs;
+
+    /**
+     * 注册中心节点列表缓存时间(毫秒)，同一模型的各文件共用
+     */
+    @Value("${model.p2p.instances-cache-ms:5000}")
+    private long instancesCacheMs;
+
+    private final DiscoveryClient discoveryClient;
+    private final DownloadScheduler downloadScheduler;
+    private final ModelBlobStore modelBlobStore;
+    private final ModelChecksumService modelChecksumService;
+    private final SegmentedDownloadService segmentedDownloadService;
+
+    private final AtomicInteger probeThreadIndex = new AtomicInteger();
+    private final ExecutorService probeExecutor = Executors.newFixedThreadPool(8, runnable -> {
+        Thread thread = new Thread(runnable, "peer-probe-" + probeThreadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 校验和 -> 本节点进行中的下载
+     */
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private volatile CachedInstances cachedInstances;
+
+    @PreDestroy
+    public void shutdown() {
+        probeExecutor.shutdownNow();
+    }
+
+    /**
+     * 下载文件，优先从其他节点拉取
+     * 下载完成后校验内容并纳入本地存储；校验失败时删除文件，节点提供的内容改为仅从源站重新下载并再次校验，
+     * 仍不匹配则下载失败，不会发布未通过校验的内容
+     *
+     * @param checksum 文件校验和，未知时为 null（此时只从源站下载）
+     * @param originUrl 源站下载地址
+     * @param expectedSize 已知的文件大小，未知时传 -1
+     */
+    public CompletableFuture<Long> fetch(String checksum, String originUrl, Path target,
+                                         long expectedSize, DownloadScheduler.Priority priority) {
+        String digest = ModelBlobStore.normalize(checksum);
+        if (digest == null) {
+            return downloadScheduler.submit(originUrl, target, expectedSize, priority);
+        }
+
+        InFlight download = new InFlight(target, System.currentTimeMillis());
+        InFlight existing = inFlight.putIfAbsent(digest, download);
+        CompletableFuture<List<String>> discovery = enabled
+                ? findPeers(digest, existing != null ? existing.startedAt : download.startedAt)
+                : CompletableFuture.completedFuture(List.of());
+
+        return discovery.thenCompose(peers -> {
+            List<String> sources = new ArrayList<>(peers);
+            sources.add(originUrl);
+            if (!peers.isEmpty()) {
+                log.info("从 {} 个节点分发文件: {} -> {}", peers.size(), digest, target);
+            }
+            return downloadScheduler.submit(sources, target, expectedSize, priority)
+                    .thenCompose(size -> {
+                        if (verifyAndPublish(target, digest)) {
+                            return CompletableFuture.completedFuture(size);
+                        }
+                        deleteQuietly(target);
+                        if (peers.isEmpty()) {
+                            return CompletableFuture.<Long>failedFuture(new IOException("源站文件校验和不匹配: " + target));
+                        }
+                        log.warn("节点分发的文件校验失败，改为从源站重新下载: {}", target);
+                        return downloadScheduler.submit(originUrl, target, expectedSize, priority)
+                                .thenApply(retrySize -> {
+                                    if (!verifyAndPublish(target, digest)) {
+                                        deleteQuietly(target);
+                                        throw new CompletionException(new IOException("源站文件校验和不匹配: " + target));
+                                    }
+                                    return retrySize;
+                                });
+                    });
+        }).whenComplete((size, error) -> inFlight.remove(digest, download));
+    }
+
+    /**
+     * 本节点正在下载该文件时返回下载开始时间，否则返回 null
+     */
+    public Long downloadStartedAt(String digest) {
+        InFlight download = findInFlight(digest);
+        return download != null ? download.startedAt : null;
+    }
+
+    /**
+     * 本节点正在下载的文件中已完成的部分，尚未开始传输或不在下载中时返回 null
+     */
+    public SegmentedDownloadService.PartialFile findPartial(String digest) {
+        InFlight download = findInFlight(digest);
+        return download != null ? segmentedDownloadService.findPartial(download.target) : null;
+    }
+
+    private InFlight findInFlight(String digest) {
+        String normalized = ModelBlobStore.normalize(digest);
+        return normalized != null ? inFlight.get(normalized) : null;
+    }
+
+    /**
+     * 查找持有指定文件的节点，已完成的节点在前，同类节点按响应时间排序，取最快的若干个；
+     * 排在前面的节点分到靠前的分段。正在下载的节点只选取比本节点更早开始的，节点之间不会互相等待
+     *
+     * @param startedAt 本节点开始下载该文件的时间
+     * @return 所有探测结束后完成，不占用调用方线程
+     */
+    public CompletableFuture<List<String>> findPeers(String digest, long startedAt) {
+        List<ServiceInstance> instances = instances();
+        if (instances.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        List<CompletableFuture<PeerCandidate>> probes = instances.stream()
+                .map(instance -> CompletableFuture.supplyAsync(() -> probePeer(instance, digest), probeExecutor))
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(probes.toArray(new CompletableFuture[0]))
+                .handle((ignored, error) -> probes.stream()
+                        .map(probe -> probe.isCompletedExceptionally() ? null : probe.getNow(null))
+                        // 已完成的节点开始时间为 -1，始终保留
+                        .filter(candidate -> candidate != null && candidate.getStartedAt() < startedAt)
+                        .sorted(Comparator.comparing((PeerCandidate candidate) -> candidate.getStartedAt() >= 0)
+                                .thenComparingLong(PeerCandidate::getLatencyNanos))
+                        .limit(Math.max(0, maxPeers))
+                        .map(PeerCandidate::getUrl)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * 注册中心中的模型服务节点，短时缓存，同一模型的各文件不重复查询
+     */
+    private List<ServiceInstance> instances() {
+        CachedInstances cached = cachedInstances;
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.instances();
+        }
+        try {
+            List<ServiceInstance> instances = discoveryClient.getInstances(serviceName);
+            List<ServiceInstance> copy = instances != null ? List.copyOf(instances) : List.of();
+            cachedInstances = new CachedInstances(copy, now + instancesCacheMs);
+            return copy;
+        } catch (Exception e) {
+            log.warn("获取模型服务节点列表失败: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * 以HEAD请求探测节点是否持有文件
+     */
+    private PeerCandidate probePeer(ServiceInstance instance, String digest) {
+        String url = "http://" + instance.getHost() + ":" + instance.getPort() + BLOB_ENDPOINT + digest;
+        long startTime = System.nanoTime();
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(probeTimeoutMs);
+            connection.setReadTimeout(probeTimeoutMs);
+            try {
+                if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+                    String started = connection.getHeaderField(DOWNLOAD_STARTED_HEADER);
+                    return new PeerCandidate(url, System.nanoTime() - startTime,
+                            started != null ? Long.parseLong(started.trim()) : -1);
+                }
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.debug("探测节点失败: {} - {}", url, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 校验下载内容，校验通过后纳入本地存储供其他节点拉取
+     */
+    private boolean verifyAndPublish(Path target, String digest) {
+        String actual = ModelBlobStore.normalize(modelChecksumService.calculateFileChecksum(target));
+        if (!digest.equals(actual)) {
+            log.warn("文件校验和不匹配: {} 期望={}, 实际={}", target, digest, actual);
+            return false;
+        }
+        modelBlobStore.ingestFile(target, digest);
+        return true;
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除文件失败: {} - {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * 候选节点
+     */
+    private static class PeerCandidate {
+        private final String url;
+        private final long latencyNanos;
+        /** 节点仍在下载时为开始时间，已完成时为 -1 */
+        private final long startedAt;
+
+        PeerCandidate(String url, long latencyNanos, long startedAt) {
+            this.url = url;
+            this.latencyNanos = latencyNanos;
+            this.startedAt = startedAt;
+        }
+
+        String getUrl() { return url; }
+        long getLatencyNanos() { return latencyNanos; }
+        long getStartedAt() { return startedAt; }
+    }
+
+    private record CachedInstances(List<ServiceInstance> instances, long expiresAt) {
+    }
+
+    /**
+     * 本节点进行中的下载
+     */
+    private static class InFlight {
+        private final Path target;
+        private final long startedAt;
+
+        InFlight(Path target, long startedAt) {
+            this.target = target;
+            this.startedAt = startedAt;
+        }
+    }
+}
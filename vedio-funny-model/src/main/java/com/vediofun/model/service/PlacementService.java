@@ -0,0 +1,434 @@
+package com.vediofun.model.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vediofun.model.dto.GpuInfo;
+import com.vediofun.model.dto.NodeAllocation;
+import com.vediofun.model.dto.NodeEnvironmentCheckResponse;
+import com.vediofun.model.dto.NodeEnvironmentInfo;
+import com.vediofun.model.dto.PlacementPlan;
+import com.vediofun.model.dto.RayDeploymentRequest;
+import com.vediofun.model.dto.ResourceRequirement;
+import com.vediofun.model.entity.ModelDeploymentInstance;
+import com.vediofun.model.repository.ModelDeploymentInstanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ray部署放置调度
+ * 按节点实时环境（CPU、内存、GPU空闲显存、磁盘）扣除已有部署实例的资源分配得到各节点可用容量，
+ * 再按策略选择节点并拆分资源：BINPACK 优先填满已有负载的节点以减少占用节点数，SPREAD 把负载均摊到最空闲的节点。
+ * 分配结果写入部署实例的 deploymentConfig.allocations，供后续调度扣除。
+ * 节点环境的远程查询（{@link #probe}）与按已有分配计算方案（{@link #plan(RayDeploymentRequest, Candidates)}）分开，
+ * 调用方只需对后者串行化
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PlacementService {
+
+    public static final String STRATEGY_BINPACK = "BINPACK";
+    public static final String STRATEGY_SPREAD = "SPREAD";
+
+    @Value("${model.placement.default-strategy:BINPACK}")
+    private String defaultStrategy;
+
+    /**
+     * 请求未指定每块GPU显存需求时，空闲显存达到该值(MB)的GPU才视为可用
+     */
+    @Value("${model.placement.min-free-gpu-memory-mb:1024}")
+    private long minFreeGpuMemoryMB;
+
+    /**
+     * 每个节点为系统保留的内存(GB)
+     */
+    @Value("${model.placement.memory-headroom-gb:2}")
+    private int memoryHeadroomGB;
+
+    /**
+     * 每个节点为系统保留的CPU核心数
+     */
+    @Value("${model.placement.cpu-headroom:1}")
+    private int cpuHeadroom;
+
+    private final DeploymentService deploymentService;
+    private final ModelDeploymentInstanceRepository deploymentInstanceRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 生成放置方案
+     *
+     * @throws IllegalArgumentException 策略或资源需求无效
+     * @throws IllegalStateException    候选节点资源不足
+     */
+    public PlacementPlan plan(RayDeploymentRequest request) {
+        return plan(request, probe(request));
+    }
+
+    /**
+     * 查询候选节点的实时环境，不依赖已有部署的资源分配，无需持有放置锁
+     *
+     * @throws IllegalArgumentException 策略或资源需求无效
+     * @throws IllegalStateException    没有候选节点
+     */
+    public Candidates probe(RayDeploymentRequest request) {
+        resolveRequirement(request);
+        resolveStrategy(request.getPlacementStrategy());
+        List<String> candidateIds = request.getNodeIds() != null && !request.getNodeIds().isEmpty()
+                ? request.getNodeIds() : deploymentService.discoverModelNodeIds();
+        if (candidateIds.isEmpty()) {
+            throw new IllegalStateException("没有可用的候选节点");
+        }
+        NodeEnvironmentCheckResponse envResponse = deploymentService.checkNodesEnvironment(candidateIds);
+        List<NodeEnvironmentInfo> nodeInfos = envResponse.getNodeInfos() != null ? envResponse.getNodeInfos() : List.of();
+        return new Candidates(candidateIds, nodeInfos);
+    }
+
+    /**
+     * 按已查询的节点环境扣除已有部署的资源分配后生成放置方案
+     *
+     * @throws IllegalArgumentException 策略或资源需求无效
+     * @throws IllegalStateException    候选节点资源不足
+     */
+    public PlacementPlan plan(RayDeploymentRequest request, Candidates candidates) {
+        ResourceRequirement requirement = resolveRequirement(request);
+        String strategy = resolveStrategy(request.getPlacementStrategy());
+        int needCpus = valueOf(requirement.getNumCpus());
+        int needGpus = valueOf(requirement.getNumGpus());
+        int needMemoryGB = valueOf(requirement.getMemoryGB());
+        Integer nodeCount = requirement.getNodeCount();
+        List<String> candidateIds = candidates.getCandidateIds();
+
+        Map<String, String> rejected = new LinkedHashMap<>();
+        List<NodeCapacity> capacities = collectCapacities(candidates.getNodeInfos(), requirement,
+                needGpus > 0, needMemoryGB > 0, rejected);
+        List<NodeCapacity> selected = selectNodes(capacities, strategy, needCpus, needGpus, needMemoryGB, nodeCount);
+        if (selected == null) {
+            throw new IllegalStateException(String.format(
+                    "候选节点资源不足 - 需求: %d CPU, %d GPU, %dGB 内存, 可用: %d CPU, %d GPU, %dGB 内存, 未入选节点: %s",
+                    needCpus, needGpus, needMemoryGB,
+                    capacities.stream().mapToInt(c -> c.cpus).sum(),
+                    capacities.stream().mapToInt(c -> c.gpus).sum(),
+                    capacities.stream().mapToInt(c -> c.memoryGB).sum(),
+                    rejected));
+        }
+
+        Map<NodeCapacity, int[]> assigned = new LinkedHashMap<>();
+        selected.forEach(node -> assigned.put(node, new int[3]));
+        // 每个节点至少1核CPU；有内存需求时每个节点至少1GB内存，避免节点上的Ray进程分不到内存。剩余资源按策略拆分
+        int memoryFloorGB = needMemoryGB > 0 ? 1 : 0;
+        selected.forEach(node -> {
+            assigned.get(node)[0] = 1;
+            assigned.get(node)[2] = memoryFloorGB;
+        });
+        distribute(selected, assigned, 0, needCpus - selected.size(), STRATEGY_SPREAD.equals(strategy));
+        distribute(selected, assigned, 1, needGpus, STRATEGY_SPREAD.equals(strategy));
+        distribute(selected, assigned, 2, Math.max(0, needMemoryGB - memoryFloorGB * selected.size()),
+                STRATEGY_SPREAD.equals(strategy));
+
+        // 主节点取分配GPU最多、其次内存最多的节点，放在方案首位
+        NodeCapacity master = selected.stream()
+                .max(Comparator.<NodeCapacity>comparingInt(node -> assigned.get(node)[1])
+                        .thenComparingInt(node -> assigned.get(node)[2]))
+                .orElseThrow();
+        List<NodeCapacity> ordered = new ArrayList<>(selected);
+        ordered.remove(master);
+        ordered.add(0, master);
+
+        Map<String, NodeAllocation> allocations = new LinkedHashMap<>();
+        for (NodeCapacity node : ordered) {
+            int[] amount = assigned.get(node);
+            allocations.put(node.nodeId, new NodeAllocation(node.nodeId, amount[0], amount[1], amount[2],
+                    node.freeRatioAfter(amount)));
+        }
+
+        PlacementPlan plan = new PlacementPlan();
+        plan.setStrategy(strategy);
+        plan.setMasterNode(master.nodeId);
+        plan.setWorkerNodes(ordered.subList(1, ordered.size()).stream().map(node -> node.nodeId).toList());
+        plan.setAllocations(allocations);
+        plan.setCandidateNodes(candidateIds.size());
+        plan.setRejectedNodes(rejected);
+        log.info("放置方案 - 策略: {}, 主节点: {}, 分配: {}", strategy, plan.getMasterNode(), allocations.values());
+        return plan;
+    }
+
+    /**
+     * 各候选节点可用容量：实时空闲资源与（总量 - 已分配）取较小值，不满足GPU/内存/磁盘要求的节点记入 rejected
+     */
+    private List<NodeCapacity> collectCapacities(List<NodeEnvironmentInfo> nodeInfos, ResourceRequirement requirement,
+                                                 boolean gpuRequired, boolean memoryRequired,
+                                                 Map<String, String> rejected) {
+        Map<String, int[]> reserved = reservedAllocations();
+        long gpuMemoryMB = requirement.getGpuMemoryMB() != null ? requirement.getGpuMemoryMB() : minFreeGpuMemoryMB;
+
+        List<NodeCapacity> capacities = new ArrayList<>();
+        for (NodeEnvironmentInfo info : nodeInfos) {
+            if (!"ONLINE".equals(info.getStatus())) {
+                rejected.put(info.getNodeId(), "节点不在线");
+                continue;
+            }
+            if (info.getCpuInfo() == null || info.getMemoryInfo() == null) {
+                rejected.put(info.getNodeId(), "缺少CPU或内存信息");
+                continue;
+            }
+            int[] used = reserved.getOrDefault(info.getNodeId(), new int[3]);
+
+            int totalCpus = valueOf(info.getCpuInfo().getLogicalCores());
+            int busyCpus = info.getCpuInfo().getLoadAverage1min() != null
+                    ? (int) Math.ceil(info.getCpuInfo().getLoadAverage1min()) : 0;
+            int cpus = Math.min(totalCpus - used[0], totalCpus - busyCpus) - cpuHeadroom;
+
+            int totalGpus = info.getGpuInfos() != null ? info.getGpuInfos().size() : 0;
+            int freeGpus = 0;
+            if (info.getGpuInfos() != null) {
+                for (GpuInfo gpu : info.getGpuInfos()) {
+                    if (gpu.getFreeMemoryMB() != null && gpu.getFreeMemoryMB() >= gpuMemoryMB) {
+                        freeGpus++;
+                    }
+                }
+            }
+            int gpus = Math.max(0, Math.min(freeGpus, totalGpus - used[1]));
+
+            int totalMemoryGB = (int) (valueOf(info.getMemoryInfo().getTotalMemoryMB()) / 1024);
+            int freeMemoryGB = (int) (valueOf(info.getMemoryInfo().getFreeMemoryMB()) / 1024);
+            int memoryGB = Math.min(freeMemoryGB, totalMemoryGB - used[2]) - memoryHeadroomGB;
+
+            if (cpus <= 0) {
+                rejected.put(info.getNodeId(), "CPU已满");
+                continue;
+            }
+            if (memoryRequired && memoryGB <= 0) {
+                rejected.put(info.getNodeId(), "内存不足");
+                continue;
+            }
+            if (gpuRequired && gpus == 0) {
+                rejected.put(info.getNodeId(), "没有满足显存要求的空闲GPU");
+                continue;
+            }
+            if (requirement.getDiskGB() != null && (info.getDiskInfo() == null
+                    || valueOf(info.getDiskInfo().getFreeDiskGB()) < requirement.getDiskGB())) {
+                rejected.put(info.getNodeId(), "磁盘空间不足");
+                continue;
+            }
+            capacities.add(new NodeCapacity(info.getNodeId(), cpus, gpus, Math.max(0, memoryGB),
+                    totalCpus, totalGpus, totalMemoryGB));
+        }
+        return capacities;
+    }
+
+    /**
+     * 选择节点，资源不足时返回 null。
+     * BINPACK：单节点放得下时选剩余最少的节点，否则按容量从大到小选最少的节点；
+     * SPREAD：按容量从大到小选取，未指定节点数时使用全部可用节点
+     */
+    private List<NodeCapacity> selectNodes(List<NodeCapacity> capacities, String strategy,
+                                           int needCpus, int needGpus, int needMemoryGB, Integer nodeCount) {
+        List<NodeCapacity> byCapacity = new ArrayList<>(capacities);
+        byCapacity.sort(Comparator.comparingDouble((NodeCapacity node) -> node.freeRatio()).reversed());
+
+        if (STRATEGY_BINPACK.equals(strategy) && (nodeCount == null || nodeCount == 1)) {
+            NodeCapacity best = capacities.stream()
+                    .filter(node -> node.cpus >= needCpus && node.gpus >= needGpus && node.memoryGB >= needMemoryGB)
+                    .min(Comparator.comparingDouble(NodeCapacity::freeRatio))
+                    .orElse(null);
+            if (best != null) {
+                return List.of(best);
+            }
+            if (nodeCount != null) {
+                return null;
+            }
+        }
+
+        int limit = nodeCount != null ? nodeCount
+                : STRATEGY_SPREAD.equals(strategy) ? Math.min(byCapacity.size(), needCpus) : byCapacity.size();
+        if (byCapacity.size() < limit) {
+            return null;
+        }
+        List<NodeCapacity> selected = new ArrayList<>();
+        int cpus = 0;
+        int gpus = 0;
+        int memoryGB = 0;
+        for (NodeCapacity node : byCapacity) {
+            if (selected.size() >= limit) {
+                break;
+            }
+            selected.add(node);
+            cpus += node.cpus;
+            gpus += node.gpus;
+            memoryGB += node.memoryGB;
+            if (nodeCount == null && STRATEGY_BINPACK.equals(strategy)
+                    && cpus >= needCpus && gpus >= needGpus && memoryGB >= needMemoryGB) {
+                break;
+            }
+        }
+        boolean enough = cpus >= needCpus && gpus >= needGpus && memoryGB >= needMemoryGB;
+        return enough ? selected : null;
+    }
+
+    /**
+     * 拆分某项资源：分散策略逐个单位轮流分配给尚有余量的节点，装箱策略按顺序填满每个节点
+     */
+    private void distribute(List<NodeCapacity> nodes, Map<NodeCapacity, int[]> assigned, int resource,
+                            int amount, boolean roundRobin) {
+        int remaining = amount;
+        if (!roundRobin) {
+            for (NodeCapacity node : nodes) {
+                int[] current = assigned.get(node);
+                int take = Math.min(remaining, node.capacity(resource) - current[resource]);
+                current[resource] += Math.max(0, take);
+                remaining -= Math.max(0, take);
+            }
+            return;
+        }
+        List<NodeCapacity> open = new ArrayList<>(nodes);
+        while (remaining > 0 && !open.isEmpty()) {
+            Iterator<NodeCapacity> iterator = open.iterator();
+            while (iterator.hasNext() && remaining > 0) {
+                NodeCapacity node = iterator.next();
+                int[] current = assigned.get(node);
+                if (current[resource] >= node.capacity(resource)) {
+                    iterator.remove();
+                    continue;
+                }
+                current[resource]++;
+                remaining--;
+            }
+        }
+    }
+
+    /**
+     * 已运行或部署中的实例在各节点上的资源分配（CPU、GPU、内存GB）
+     */
+    private Map<String, int[]> reservedAllocations() {
+        Map<String, int[]> reserved = new HashMap<>();
+        List<ModelDeploymentInstance> instances = new ArrayList<>(
+                deploymentInstanceRepository.findByStatus(ModelDeploymentInstance.DeploymentStatus.RUNNING));
+        instances.addAll(deploymentInstanceRepository.findByStatus(ModelDeploymentInstance.DeploymentStatus.DEPLOYING));
+        for (ModelDeploymentInstance instance : instances) {
+            if (instance.getDeploymentConfig() == null) {
+                continue;
+            }
+            try {
+                JsonNode allocations = objectMapper.readTree(instance.getDeploymentConfig()).path("allocations");
+                allocations.fields().forEachRemaining(entry -> {
+                    int[] used = reserved.computeIfAbsent(entry.getKey(), key -> new int[3]);
+                    used[0] += entry.getValue().path("numCpus").asInt();
+                    used[1] += entry.getValue().path("numGpus").asInt();
+                    used[2] += entry.getValue().path("memoryGB").asInt();
+                });
+            } catch (Exception e) {
+                log.debug("解析部署实例资源分配失败 - 实例ID: {}: {}", instance.getId(), e.getMessage());
+            }
+        }
+        return reserved;
+    }
+
+    private static ResourceRequirement resolveRequirement(RayDeploymentRequest request) {
+        ResourceRequirement requirement = request.getResources() != null
+                ? request.getResources() : ResourceRequirement.fromRayConfig(request.getRayConfig());
+        int needCpus = valueOf(requirement.getNumCpus());
+        Integer nodeCount = requirement.getNodeCount();
+        if (needCpus <= 0) {
+            throw new IllegalArgumentException("CPU需求必须大于0");
+        }
+        if (nodeCount != null && (nodeCount <= 0 || nodeCount > needCpus)) {
+            throw new IllegalArgumentException("节点数量必须在1到CPU需求数之间");
+        }
+        return requirement;
+    }
+
+    private String resolveStrategy(String strategy) {
+        String resolved = (strategy != null && !strategy.isBlank() ? strategy : defaultStrategy).toUpperCase(Locale.ROOT);
+        if (!STRATEGY_BINPACK.equals(resolved) && !STRATEGY_SPREAD.equals(resolved)) {
+            throw new IllegalArgumentException("不支持的放置策略: " + strategy);
+        }
+        return resolved;
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    /**
+     * 候选节点及其实时环境
+     */
+    public static class Candidates {
+        private final List<String> candidateIds;
+        private final List<NodeEnvironmentInfo> nodeInfos;
+
+        Candidates(List<String> candidateIds, List<NodeEnvironmentInfo> nodeInfos) {
+            this.candidateIds = candidateIds;
+            this.nodeInfos = nodeInfos;
+        }
+
+        public List<String> getCandidateIds() {
+            return candidateIds;
+        }
+
+        public List<NodeEnvironmentInfo> getNodeInfos() {
+            return nodeInfos;
+        }
+    }
+
+    /**
+     * 节点可用容量
+     */
+    private static class NodeCapacity {
+        private final String nodeId;
+        private final int cpus;
+        private final int gpus;
+        private final int memoryGB;
+        private final int totalCpus;
+        private final int totalGpus;
+        private final int totalMemoryGB;
+
+        NodeCapacity(String nodeId, int cpus, int gpus, int memoryGB, int totalCpus, int totalGpus, int totalMemoryGB) {
+            this.nodeId = nodeId;
+            this.cpus = cpus;
+            this.gpus = gpus;
+            this.memoryGB = memoryGB;
+            this.totalCpus = totalCpus;
+            this.totalGpus = totalGpus;
+            this.totalMemoryGB = totalMemoryGB;
+        }
+
+        int capacity(int resource) {
+            return resource == 0 ? cpus : resource == 1 ? gpus : memoryGB;
+        }
+
+        /**
+         * 可用资源占总量的比例，有GPU的节点计入GPU维度
+         */
+        double freeRatio() {
+            return freeRatioAfter(new int[3]);
+        }
+
+        double freeRatioAfter(int[] amount) {
+            double ratio = ratio(cpus - amount[0], totalCpus) + ratio(memoryGB - amount[2], totalMemoryGB);
+            if (totalGpus > 0) {
+                return (ratio + ratio(gpus - amount[1], totalGpus)) / 3;
+            }
+            return ratio / 2;
+        }
+
+        private static double ratio(int free, int total) {
+            return total > 0 ? Math.max(0, (double) free) / total : 0;
+        }
+    }
+}
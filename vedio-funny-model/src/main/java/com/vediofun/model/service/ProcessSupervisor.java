@@ -0,0 +1,375 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.entity.ModelDeploymentInstance;
+import com.vediofun.model.repository.ModelDeploymentInstanceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 子进程守护服务
+ * 托管 Ray、RayLLM 等长期运行的子进程：每个进程由独立的守护线程读取输出并写入有界缓冲，
+ * 进程退出通过 {@link Process#onExit()} 在守护调度线程上处理，不占用公共线程池。
+ * 需要重启的进程按指数退避重新拉起，连续失败超过上限后放弃；关联模型的部署实例同步更新状态
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProcessSupervisor {
+
+    /**
+     * 每个进程保留的输出行数
+     */
+    @Value("${model.supervisor.output-lines:500}")
+    private int outputLines;
+
+    @Value("${model.supervisor.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${model.supervisor.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    /**
+     * 连续重启上限，超过后不再重启
+     */
+    @Value("${model.supervisor.max-restarts:5}")
+    private int maxRestarts;
+
+    /**
+     * 运行超过该时长(秒)后退出，视为稳定运行过，连续失败次数清零
+     */
+    @Value("${model.supervisor.stable-seconds:60}")
+    private long stableSeconds;
+
+    /**
+     * 停止进程时等待其正常退出的时间(秒)，超时后强制结束
+     */
+    @Value("${model.supervisor.stop-timeout-seconds:10}")
+    private long stopTimeoutSeconds;
+
+    /**
+     * 重启后等待就绪的期限(秒)，超时仍未就绪则结束进程，按退避策略重新拉起
+     */
+    @Value("${model.supervisor.restart-ready-timeout-seconds:600}")
+    private long restartReadyTimeoutSeconds;
+
+    @Value("${model.supervisor.restart-ready-poll-ms:1000}")
+    private long restartReadyPollMs;
+
+    private final ModelDeploymentInstanceRepository deploymentInstanceRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ManagedProcess> processes = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean shuttingDown;
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "process-supervisor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("model.process.alive", processes,
+                        registry -> registry.values().stream().filter(ManagedProcess::isAlive).count())
+                .description("存活的托管进程数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 服务停止时只停止守护，不结束子进程
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        processes.values().forEach(this::cancelPendingRestart);
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 启动不关联部署实例的托管进程，同名进程仍在运行时先停止
+     */
+    public ManagedProcess start(String name, List<String> command, Map<String, String> environment,
+                                boolean restartOnExit, String modelName,
+                                Consumer<String> lineListener) throws IOException {
+        return start(name, command, environment, restartOnExit, modelName, null, lineListener, null);
+    }
+
+    /**
+     * 启动托管进程，同名进程仍在运行时先停止
+     *
+     * @param restartOnExit 进程退出后是否按退避策略重启
+     * @param modelName 关联的模型名称，可为空
+     * @param deploymentInstanceId 关联的部署实例ID，进程退出/重启时只更新该实例，可为空
+     * @param lineListener 输出行监听器，在进程启动前注册，可为空
+     * @param restartReadiness 根据重启后的进程构造就绪探针，通过后才标记实例运行中，可为空
+     */
+    public ManagedProcess start(String name, List<String> command, Map<String, String> environment,
+                                boolean restartOnExit, String modelName, Long deploymentInstanceId,
+                                Consumer<String> lineListener,
+                                Function<Process, ReadinessProbe> restartReadiness) throws IOException {
+        stop(name);
+        ManagedProcess managed = new ManagedProcess(name, command, environment, restartOnExit, modelName,
+                deploymentInstanceId, restartReadiness, outputLines);
+        if (lineListener != null) {
+            managed.getLineListeners().add(lineListener);
+        }
+        processes.put(name, managed);
+        launch(managed);
+        log.info("托管进程已启动 - 名称: {}, PID: {}, 自动重启: {}", name, managed.process.pid(), restartOnExit);
+        return managed;
+    }
+
+    /**
+     * 停止托管进程及其子进程，不再重启
+     *
+     * @return 是否存在该进程
+     */
+    public boolean stop(String name) {
+        ManagedProcess managed = processes.remove(name);
+        if (managed == null) {
+            return false;
+        }
+        managed.state = ManagedProcess.State.STOPPED;
+        cancelPendingRestart(managed);
+        Process process = managed.process;
+        if (process != null && process.isAlive()) {
+            terminate(process);
+            log.info("托管进程已停止 - 名称: {}, PID: {}", name, process.pid());
+        }
+        return true;
+    }
+
+    public Optional<ManagedProcess> get(String name) {
+        return Optional.ofNullable(processes.get(name));
+    }
+
+    /**
+     * 所有托管进程状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new TreeMap<>();
+        processes.forEach((name, managed) -> status.put(name, managed.toStatus()));
+        return status;
+    }
+
+    private void launch(ManagedProcess managed) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(managed.getCommand());
+        processBuilder.redirectErrorStream(true);
+        processBuilder.environment().putAll(managed.getEnvironment());
+        Process process = processBuilder.start();
+
+        managed.process = process;
+        managed.state = ManagedProcess.State.RUNNING;
+        managed.startedAt = LocalDateTime.now();
+        managed.startNanos = System.nanoTime();
+
+        Thread pump = new Thread(() -> pumpOutput(managed, process), "process-output-" + managed.getName());
+        pump.setDaemon(true);
+        pump.start();
+        process.onExit().thenAcceptAsync(exited -> onExit(managed, exited), scheduler);
+    }
+
+    private void pumpOutput(ManagedProcess managed, Process process) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    managed.appendLine(line);
+                } catch (Exception e) {
+                    log.warn("处理进程输出失败 - 名称: {}: {}", managed.getName(), e.getMessage());
+                }
+                log.debug("[{}] {}", managed.getName(), line);
+            }
+        } catch (IOException e) {
+            log.debug("进程输出已关闭 - 名称: {}: {}", managed.getName(), e.getMessage());
+        }
+    }
+
+    private void onExit(ManagedProcess managed, Process exited) {
+        if (managed.process != exited) {
+            return;
+        }
+        int exitCode = exited.exitValue();
+        managed.lastExitCode = exitCode;
+        managed.exitedAt = LocalDateTime.now();
+        if (managed.state == ManagedProcess.State.STOPPED || shuttingDown) {
+            return;
+        }
+
+        long uptimeSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - managed.startNanos);
+        log.warn("托管进程退出 - 名称: {}, 退出码: {}, 运行 {}s, 最近输出:\n{}",
+                managed.getName(), exitCode, uptimeSeconds, managed.recentOutputText(20));
+
+        if (!managed.isRestartOnExit()) {
+            managed.state = ManagedProcess.State.EXITED;
+            updateInstance(managed, exitCode == 0 ? ModelDeploymentInstance.DeploymentStatus.STOPPED
+                    : ModelDeploymentInstance.DeploymentStatus.ERROR, "进程已退出，退出码: " + exitCode);
+            return;
+        }
+        // 重启后一直没有就绪的进程不算稳定运行过
+        if (uptimeSeconds >= stableSeconds && !managed.awaitingReady) {
+            managed.consecutiveFailures = 0;
+        }
+        scheduleRestart(managed, "进程已退出，退出码: " + exitCode);
+    }
+
+    private void scheduleRestart(ManagedProcess managed, String reason) {
+        int failures = ++managed.consecutiveFailures;
+        if (failures > maxRestarts) {
+            managed.state = ManagedProcess.State.FAILED;
+            log.error("托管进程连续失败 {} 次，不再重启 - 名称: {}", maxRestarts, managed.getName());
+            updateInstance(managed, ModelDeploymentInstance.DeploymentStatus.ERROR,
+                    reason + "，已连续重启 " + maxRestarts + " 次");
+            return;
+        }
+        long delayMs = Math.min(Math.max(1, initialBackoffMs) << Math.min(failures - 1, 20), maxBackoffMs);
+        managed.state = ManagedProcess.State.RESTARTING;
+        updateInstance(managed, ModelDeploymentInstance.DeploymentStatus.ERROR,
+                reason + "，" + delayMs + "ms 后重启");
+        log.info("托管进程将在 {}ms 后重启 - 名称: {}, 第 {} 次", delayMs, managed.getName(), failures);
+        managed.pendingRestart = scheduler.schedule(() -> restart(managed), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void restart(ManagedProcess managed) {
+        if (managed.state != ManagedProcess.State.RESTARTING || shuttingDown) {
+            return;
+        }
+        try {
+            launch(managed);
+            managed.restarts++;
+            Counter.builder("model.process.restarts")
+                    .description("托管进程重启次数")
+                    .tag("name", managed.getName())
+                    .register(meterRegistry)
+                    .increment();
+            log.info("托管进程已重启 - 名称: {}, PID: {}", managed.getName(), managed.process.pid());
+        } catch (IOException e) {
+            log.error("托管进程重启失败 - 名称: {}", managed.getName(), e);
+            scheduleRestart(managed, "进程重启失败: " + e.getMessage());
+            return;
+        }
+        if (managed.getRestartReadiness() == null) {
+            updateInstance(managed, ModelDeploymentInstance.DeploymentStatus.RUNNING, null);
+            return;
+        }
+        Process process = managed.process;
+        managed.awaitingReady = true;
+        awaitRestartReady(managed, process, managed.getRestartReadiness().apply(process),
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(restartReadyTimeoutSeconds));
+    }
+
+    /**
+     * 在守护调度线程上轮询重启后的就绪探针，不阻塞调度线程；
+     * 就绪后才把部署实例标记为运行中，进程退出交给 {@link #onExit} 处理，超时则结束进程重新拉起
+     */
+    private void awaitRestartReady(ManagedProcess managed, Process process, ReadinessProbe probe, long deadlineNanos) {
+        if (managed.process != process || managed.state != ManagedProcess.State.RUNNING || shuttingDown) {
+            return;
+        }
+        try {
+            if (probe.check()) {
+                managed.awaitingReady = false;
+                log.info("托管进程重启后已就绪 - 名称: {}, PID: {}", managed.getName(), process.pid());
+                updateInstance(managed, ModelDeploymentInstance.DeploymentStatus.RUNNING, null);
+                return;
+            }
+        } catch (ReadinessProbes.ProbeAbortedException e) {
+            return;
+        } catch (Exception e) {
+            log.debug("托管进程尚未就绪 - 名称: {}: {}", managed.getName(), e.getMessage());
+        }
+        if (System.nanoTime() >= deadlineNanos) {
+            log.warn("托管进程重启后 {}s 内未就绪，结束后重新拉起 - 名称: {}, 探针: {}",
+                    restartReadyTimeoutSeconds, managed.getName(), probe.describe());
+            updateInstance(managed, ModelDeploymentInstance.DeploymentStatus.ERROR,
+                    "进程重启后 " + restartReadyTimeoutSeconds + "s 内未就绪");
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+            return;
+        }
+        managed.pendingRestart = scheduler.schedule(() -> awaitRestartReady(managed, process, probe, deadlineNanos),
+                restartReadyPollMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 先通知进程及其子进程退出，超时后强制结束
+     */
+    private void terminate(Process process) {
+        List<ProcessHandle> descendants = process.descendants().toList();
+        process.destroy();
+        descendants.forEach(ProcessHandle::destroy);
+        try {
+            process.onExit().get(stopTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.warn("进程未在 {}s 内退出，强制结束 - PID: {}", stopTimeoutSeconds, process.pid());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.debug("等待进程退出失败 - PID: {}: {}", process.pid(), e.getMessage());
+        }
+        descendants.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+        if (process.isAlive()) {
+            process.destroyForcibly();
+        }
+    }
+
+    private void cancelPendingRestart(ManagedProcess managed) {
+        ScheduledFuture<?> pending = managed.pendingRestart;
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+
+    /**
+     * 更新进程关联的部署实例状态；实例已停止或被替换时不再改动
+     */
+    private void updateInstance(ManagedProcess managed, ModelDeploymentInstance.DeploymentStatus status,
+                                 String errorMessage) {
+        Long instanceId = managed.getDeploymentInstanceId();
+        if (instanceId == null) {
+            return;
+        }
+        try {
+            deploymentInstanceRepository.findById(instanceId)
+                    .filter(instance -> instance.getStatus() == ModelDeploymentInstance.DeploymentStatus.RUNNING
+                            || instance.getStatus() == ModelDeploymentInstance.DeploymentStatus.ERROR)
+                    .ifPresent(instance -> {
+                        instance.setStatus(status);
+                        if (errorMessage != null) {
+                            instance.setErrorMessage(errorMessage);
+                        }
+                        instance.setLastHealthCheck(LocalDateTime.now());
+                        deploymentInstanceRepository.save(instance);
+                    });
+        } catch (Exception e) {
+            log.warn("更新部署实例状态失败 - 实例ID: {}: {}", instanceId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.vediofun.model.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 空闲Ray集群回收
+ * 定时从集群登记中取出空闲超时的集群（部署实例已不在运行且主节点推理端点不可连接），停止其各节点上的Ray进程
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RayClusterReaper {
+
+    @Value("${model.cluster-pool.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 检查空闲集群的周期(秒)
+     */
+    @Value("${model.cluster-pool.reap-interval-seconds:60}")
+    private long reapIntervalSeconds;
+
+    private final RayClusterRegistry clusterRegistry;
+    private final DeploymentService deploymentService;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ray-cluster-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, reapIntervalSeconds);
+        scheduler.scheduleWithFixedDelay(this::reap, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void reap() {
+        try {
+            for (RayClusterRegistry.WarmCluster cluster : clusterRegistry.collectIdle()) {
+                log.info("回收空闲Ray集群 - 地址: {}, 节点: {}", cluster.getClusterAddress(), cluster.getNodes());
+                deploymentService.stopRayCluster(cluster.getNodes());
+            }
+        } catch (Exception e) {
+            log.warn("回收空闲Ray集群失败: {}", e.getMessage());
+        }
+    }
+}
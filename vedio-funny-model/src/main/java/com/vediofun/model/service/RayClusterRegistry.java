@@ -0,0 +1,419 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.dto.NodeAllocation;
+import com.vediofun.model.dto.RayClusterContext;
+import com.vediofun.model.entity.ModelDeploymentInstance;
+import com.vediofun.model.repository.ModelDeploymentInstanceRepository;
+import com.vediofun.model.util.PortProbe;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预热Ray集群登记
+ * 记录本节点发起部署创建的Ray集群（节点组成、各节点Ray资源、当前承载的部署实例），
+ * 新部署的节点集合与已有集群相同、资源足够且集群空闲或承载同一模型时直接复用，跳过环境安装与集群启动；
+ * 承载的部署实例不再运行且推理端点不再可连接后开始计算空闲时间，超过 idle-ttl-minutes 由回收任务停止集群。
+ * 登记只存在于发起部署的协调节点内存中，其他协调节点可能已在相同节点上部署；
+ * 停止任何节点前都以部署实例表为准，节点仍被运行中或部署中的其他实例使用时只移除登记、不停止。
+ * 部署实例状态可能落后于实际进程（心跳超时、部署失败但推理服务仍在运行），
+ * 回收和交给其他模型复用前还会探测主节点的推理端点，端点可连接的集群视为仍在使用
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RayClusterRegistry {
+
+    @Value("${model.cluster-pool.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 集群空闲超过该时长(分钟)后回收
+     */
+    @Value("${model.cluster-pool.idle-ttl-minutes:30}")
+    private long idleTtlMinutes;
+
+    /**
+     * 探测推理端点的连接超时(毫秒)
+     */
+    @Value("${model.cluster-pool.serving-probe-timeout-ms:1000}")
+    private long servingProbeTimeoutMs;
+
+    private final ModelDeploymentInstanceRepository deploymentInstanceRepository;
+
+    /**
+     * 集群地址 -> 集群
+     */
+    private final Map<String, WarmCluster> clusters = new LinkedHashMap<>();
+
+    /**
+     * 登记新建的集群，与其节点有重叠的旧集群已被新集群替换，一并移除
+     *
+     * @return 被替换的旧集群中不属于新集群、也未被其他部署实例使用的节点，由调用方停止其Ray进程
+     */
+    public List<String> register(RayClusterContext context, Map<String, NodeAllocation> resources,
+                                 Long deploymentInstanceId, String modelName) {
+        if (!enabled || context.getClusterAddress() == null) {
+            return List.of();
+        }
+        List<String> nodes = new ArrayList<>();
+        nodes.add(context.getMasterNode());
+        if (context.getWorkerNodes() != null) {
+            nodes.addAll(context.getWorkerNodes());
+        }
+        List<WarmCluster> overlapping;
+        synchronized (this) {
+            overlapping = clusters.values().stream()
+                    .filter(cluster -> cluster.nodes.stream().anyMatch(nodes::contains))
+                    .toList();
+        }
+        // 查询部署实例、探测推理端点不持有锁；主节点不在新集群中且推理服务仍在运行的旧集群不停止其剩余节点
+        Set<String> inUse = nodesInUse(deploymentInstanceId);
+        Set<WarmCluster> serving = new HashSet<>();
+        overlapping.stream()
+                .filter(cluster -> !nodes.contains(cluster.masterNode) && isServing(cluster))
+                .forEach(serving::add);
+
+        Set<String> leftover = new LinkedHashSet<>();
+        synchronized (this) {
+            clusters.values().removeIf(cluster -> {
+                if (cluster.nodes.stream().noneMatch(nodes::contains)) {
+                    return false;
+                }
+                if (inUse != null && overlapping.contains(cluster) && !serving.contains(cluster)) {
+                    cluster.nodes.stream()
+                            .filter(node -> !nodes.contains(node) && !inUse.contains(node))
+                            .forEach(leftover::add);
+                }
+                log.info("Ray集群被新集群替换，移除登记 - 地址: {}", cluster.clusterAddress);
+                return true;
+            });
+
+            WarmCluster cluster = new WarmCluster(context.getClusterAddress(), context.getMasterNode(), nodes,
+                    new LinkedHashMap<>(resources));
+            cluster.deploymentInstanceId = deploymentInstanceId;
+            cluster.modelName = modelName;
+            cluster.serviceEndpoint = context.getServiceEndpoint();
+            clusters.put(cluster.clusterAddress, cluster);
+            log.info("登记Ray集群 - 地址: {}, 节点: {}", cluster.clusterAddress, nodes);
+        }
+        return new ArrayList<>(leftover);
+    }
+
+    /**
+     * 占用可复用的集群：节点集合与请求一致、各项资源总量满足需求，且集群空闲或承载同一模型。
+     * 多个集群满足时取资源最少的
+     *
+     * @return 被占用的集群，没有可复用集群时返回 null
+     */
+    public WarmCluster acquire(List<String> nodeIds, int numCpus, int numGpus, int memoryGB,
+                               Long deploymentInstanceId, String modelName) {
+        if (!enabled) {
+            return null;
+        }
+        Set<String> requested = new HashSet<>(nodeIds);
+        List<WarmCluster> candidates;
+        synchronized (this) {
+            candidates = clusters.values().stream()
+                    .filter(candidate -> !candidate.leased)
+                    .filter(candidate -> new HashSet<>(candidate.nodes).equals(requested))
+                    .filter(candidate -> candidate.total(0) >= numCpus && candidate.total(1) >= numGpus
+                            && candidate.total(2) >= memoryGB)
+                    .toList();
+        }
+        // 查询部署实例状态、探测推理端点不持有锁
+        List<WarmCluster> usable = candidates.stream()
+                .filter(candidate -> Objects.equals(candidate.modelName, modelName) || !isInUse(candidate))
+                .toList();
+
+        synchronized (this) {
+            WarmCluster cluster = usable.stream()
+                    .filter(candidate -> !candidate.leased && clusters.get(candidate.clusterAddress) == candidate)
+                    .min(Comparator.comparingInt((WarmCluster candidate) -> candidate.total(1))
+                            .thenComparingInt(candidate -> candidate.total(0)))
+                    .orElse(null);
+            if (cluster == null) {
+                return null;
+            }
+            cluster.leased = true;
+            cluster.previousInstanceId = cluster.deploymentInstanceId;
+            cluster.previousModelName = cluster.modelName;
+            cluster.deploymentInstanceId = deploymentInstanceId;
+            cluster.modelName = modelName;
+            cluster.idleSince = 0;
+            cluster.reuseCount++;
+            log.info("复用Ray集群 - 地址: {}, 模型: {}, 复用次数: {}", cluster.clusterAddress, modelName, cluster.reuseCount);
+            return cluster;
+        }
+    }
+
+    /**
+     * 结束占用；集群已不可用时移除登记
+     */
+    public synchronized void release(String clusterAddress, boolean healthy) {
+        WarmCluster cluster = clusters.get(clusterAddress);
+        if (cluster == null) {
+            return;
+        }
+        cluster.leased = false;
+        if (!healthy) {
+            clusters.remove(clusterAddress);
+            log.info("Ray集群不可用，移除登记 - 地址: {}", clusterAddress);
+        }
+    }
+
+    public synchronized void invalidate(String clusterAddress) {
+        clusters.remove(clusterAddress);
+    }
+
+    /**
+     * 复用集群的部署结束后调用。
+     * 新部署已启动推理服务时（无论成功与否），主节点上原有的推理进程已被替换，集群上原有的部署实例标记为 STOPPED；
+     * 未走到启动推理服务就失败时原有服务不受影响，集群归还给原有的部署实例
+     *
+     * @param launched 新部署是否已启动推理服务
+     * @param serviceEndpoint 新部署的推理端点，启动失败时为空
+     */
+    public void finishReuse(WarmCluster cluster, boolean launched, String serviceEndpoint) {
+        Long replacedId = cluster.previousInstanceId;
+        String previousModelName = cluster.previousModelName;
+        cluster.previousInstanceId = null;
+        cluster.previousModelName = null;
+        if (!launched) {
+            synchronized (this) {
+                cluster.deploymentInstanceId = replacedId;
+                cluster.modelName = previousModelName;
+            }
+            return;
+        }
+        cluster.serviceEndpoint = serviceEndpoint;
+        if (replacedId == null || Objects.equals(replacedId, cluster.deploymentInstanceId)) {
+            return;
+        }
+        try {
+            deploymentInstanceRepository.findById(replacedId)
+                    .filter(instance -> instance.getStatus() == ModelDeploymentInstance.DeploymentStatus.RUNNING
+                            || instance.getStatus() == ModelDeploymentInstance.DeploymentStatus.DEPLOYING
+                            || instance.getStatus() == ModelDeploymentInstance.DeploymentStatus.ERROR)
+                    .ifPresent(instance -> {
+                        instance.setStatus(ModelDeploymentInstance.DeploymentStatus.STOPPED);
+                        instance.setErrorMessage("已被同一集群上的部署实例 " + cluster.deploymentInstanceId + " 替换");
+                        deploymentInstanceRepository.save(instance);
+                        log.info("部署实例已被替换 - 实例ID: {}, 新实例ID: {}", replacedId, cluster.deploymentInstanceId);
+                    });
+        } catch (Exception e) {
+            log.warn("更新被替换的部署实例状态失败 - 实例ID: {}: {}", replacedId, e.getMessage());
+        }
+    }
+
+    /**
+     * 取出空闲超过TTL的集群并移除登记，由调用方停止集群。
+     * 节点已被其他部署实例使用（如其他协调节点在相同节点上新建了集群）的集群只移除登记，不返回
+     */
+    public List<WarmCluster> collectIdle() {
+        List<WarmCluster> candidates;
+        synchronized (this) {
+            candidates = clusters.values().stream().filter(cluster -> !cluster.leased).toList();
+        }
+        // 查询部署实例状态、探测推理端点不持有锁
+        Map<WarmCluster, Boolean> active = new LinkedHashMap<>();
+        candidates.forEach(cluster -> active.put(cluster, isInUse(cluster)));
+        Set<String> inUse = nodesInUse(null);
+        if (inUse == null) {
+            return List.of();
+        }
+
+        long now = System.currentTimeMillis();
+        long ttlMs = TimeUnit.MINUTES.toMillis(idleTtlMinutes);
+        List<WarmCluster> expired = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<WarmCluster, Boolean> entry : active.entrySet()) {
+                WarmCluster cluster = entry.getKey();
+                if (cluster.leased || clusters.get(cluster.clusterAddress) != cluster) {
+                    continue;
+                }
+                if (entry.getValue()) {
+                    cluster.idleSince = 0;
+                } else if (cluster.idleSince == 0) {
+                    cluster.idleSince = now;
+                } else if (now - cluster.idleSince >= ttlMs) {
+                    clusters.remove(cluster.clusterAddress);
+                    expired.add(cluster);
+                }
+            }
+        }
+        return expired.stream()
+                .filter(cluster -> {
+                    boolean claimed = cluster.nodes.stream().anyMatch(inUse::contains);
+                    if (claimed) {
+                        log.info("Ray集群节点已被其他部署实例使用，只移除登记 - 地址: {}, 节点: {}",
+                                cluster.clusterAddress, cluster.nodes);
+                    }
+                    return !claimed;
+                })
+                .toList();
+    }
+
+    /**
+     * 已登记集群的状态
+     */
+    public synchronized Map<String, Object> getStatus() {
+        List<Map<String, Object>> items = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (WarmCluster cluster : clusters.values()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("clusterAddress", cluster.clusterAddress);
+            item.put("masterNode", cluster.masterNode);
+            item.put("nodes", cluster.nodes);
+            item.put("resources", cluster.resources.values());
+            item.put("deploymentInstanceId", cluster.deploymentInstanceId);
+            item.put("modelName", cluster.modelName);
+            item.put("serviceEndpoint", cluster.serviceEndpoint);
+            item.put("leased", cluster.leased);
+            item.put("reuseCount", cluster.reuseCount);
+            item.put("idleMs", cluster.idleSince > 0 ? now - cluster.idleSince : 0);
+            items.add(item);
+        }
+        return Map.of("enabled", enabled, "idleTtlMinutes", idleTtlMinutes, "clusters", items);
+    }
+
+    /**
+     * 部署实例表中运行中或部署中的实例所使用的节点，不含 excludeInstanceId
+     *
+     * @return 查询失败时返回 null，此时调用方不应停止任何节点
+     */
+    private Set<String> nodesInUse(Long excludeInstanceId) {
+        Set<String> nodes = new HashSet<>();
+        try {
+            List<ModelDeploymentInstance> instances = new ArrayList<>(
+                    deploymentInstanceRepository.findByStatus(ModelDeploymentInstance.DeploymentStatus.RUNNING));
+            instances.addAll(deploymentInstanceRepository.findByStatus(ModelDeploymentInstance.DeploymentStatus.DEPLOYING));
+            for (ModelDeploymentInstance instance : instances) {
+                if (Objects.equals(instance.getId(), excludeInstanceId) || instance.getNodeIds() == null) {
+                    continue;
+                }
+                for (String nodeId : instance.getNodeIds().split(",")) {
+                    if (!nodeId.isBlank()) {
+                        nodes.add(nodeId.trim());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("查询部署实例节点失败: {}", e.getMessage());
+            return null;
+        }
+        return nodes;
+    }
+
+    /**
+     * 集群是否仍在使用：承载的部署实例仍在部署或运行，或主节点的推理端点仍可连接
+     */
+    private boolean isInUse(WarmCluster cluster) {
+        return isActive(cluster) || isServing(cluster);
+    }
+
+    /**
+     * 集群主节点的推理端点是否可连接
+     */
+    private boolean isServing(WarmCluster cluster) {
+        String endpoint = cluster.serviceEndpoint;
+        if (endpoint == null) {
+            return false;
+        }
+        try {
+            URI uri = URI.create(endpoint);
+            if (uri.getHost() == null) {
+                return false;
+            }
+            int port = uri.getPort() > 0 ? uri.getPort() : "https".equals(uri.getScheme()) ? 443 : 80;
+            return PortProbe.isReachable(uri.getHost(), port, servingProbeTimeoutMs);
+        } catch (IllegalArgumentException e) {
+            log.debug("推理端点格式错误 - 地址: {}: {}", endpoint, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 集群承载的部署实例是否仍在部署或运行
+     */
+    private boolean isActive(WarmCluster cluster) {
+        if (cluster.deploymentInstanceId == null) {
+            return false;
+        }
+        try {
+            return deploymentInstanceRepository.findById(cluster.deploymentInstanceId)
+                    .map(instance -> instance.getStatus() == ModelDeploymentInstance.DeploymentStatus.RUNNING
+                            || instance.getStatus() == ModelDeploymentInstance.DeploymentStatus.DEPLOYING)
+                    .orElse(false);
+        } catch (Exception e) {
+            log.debug("查询部署实例状态失败 - 实例ID: {}: {}", cluster.deploymentInstanceId, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 已登记的Ray集群
+     */
+    @Getter
+    public static class WarmCluster {
+        private final String clusterAddress;
+        private final String masterNode;
+
+        /**
+         * 节点ID列表，主节点在前
+         */
+        private final List<String> nodes;
+
+        /**
+         * 节点ID -> 启动Ray时设置的资源
+         */
+        private final Map<String, NodeAllocation> resources;
+
+        private final long createdAt = System.currentTimeMillis();
+        private volatile Long deploymentInstanceId;
+        private volatile String modelName;
+        private volatile boolean leased;
+        private volatile long idleSince;
+        private volatile int reuseCount;
+
+        /**
+         * 主节点上推理服务的端点，尚未启动或启动失败时为空
+         */
+        private volatile String serviceEndpoint;
+
+        /**
+         * 本次复用前承载的部署实例及模型，复用结束后据此替换或归还
+         */
+        private volatile Long previousInstanceId;
+        private volatile String previousModelName;
+
+        WarmCluster(String clusterAddress, String masterNode, List<String> nodes, Map<String, NodeAllocation> resources) {
+            this.clusterAddress = clusterAddress;
+            this.masterNode = masterNode;
+            this.nodes = nodes;
+            this.resources = resources;
+        }
+
+        int total(int resource) {
+            return resources.values().stream().mapToInt(allocation -> {
+                Integer value = resource == 0 ? allocation.getNumCpus()
+                        : resource == 1 ? allocation.getNumGpus() : allocation.getMemoryGB();
+                return value != null ? value : 0;
+            }).sum();
+        }
+    }
+}
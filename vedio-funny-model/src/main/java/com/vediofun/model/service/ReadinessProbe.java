@@ -0,0 +1,67 @@
+package com.vediofun.model.service;
+
+/**
+ * 就绪探针
+ * 每次调用检查一次目标是否就绪，由 {@link ReadinessService} 按退避间隔反复调用直到就绪或超时
+ */
+@FunctionalInterface
+public interface ReadinessProbe {
+
+    /**
+     * 检查一次目标是否就绪，抛出异常视为未就绪
+     */
+    boolean check() throws Exception;
+
+    /**
+     * 探针描述，用于日志
+     */
+    default String describe() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * 两个探针都就绪才算就绪
+     */
+    default ReadinessProbe and(ReadinessProbe other) {
+        ReadinessProbe self = this;
+        return new ReadinessProbe() {
+            @Override
+            public boolean check() throws Exception {
+                return self.check() && other.check();
+            }
+
+            @Override
+            public String describe() {
+                return self.describe() + " && " + other.describe();
+            }
+        };
+    }
+
+    /**
+     * 任一探针就绪即算就绪
+     */
+    default ReadinessProbe or(ReadinessProbe other) {
+        ReadinessProbe self = this;
+        return new ReadinessProbe() {
+            @Override
+            public boolean check() throws Exception {
+                return safeCheck(self) || other.check();
+            }
+
+            @Override
+            public String describe() {
+                return self.describe() + " || " + other.describe();
+            }
+        };
+    }
+
+    private static boolean safeCheck(ReadinessProbe probe) {
+        try {
+            return probe.check();
+        } catch (ReadinessProbes.ProbeAbortedException e) {
+            throw e;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
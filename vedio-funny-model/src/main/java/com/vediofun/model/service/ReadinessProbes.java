@@ -0,0 +1,127 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.util.PortProbe;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * 常用就绪探针：TCP端口、HTTP健康检查、Ray GCS、进程输出日志匹配
+ */
+public final class ReadinessProbes {
+
+    /**
+     * 单次探测的连接/读取超时(毫秒)
+     */
+    private static final int PROBE_TIMEOUT_MS = 1000;
+
+    private ReadinessProbes() {
+    }
+
+    /**
+     * TCP端口可连接
+     */
+    public static ReadinessProbe tcp(String host, int port) {
+        return named("tcp://" + host + ":" + port, () -> PortProbe.isReachable(host, port, PROBE_TIMEOUT_MS));
+    }
+
+    /**
+     * HTTP GET返回2xx
+     */
+    public static ReadinessProbe http(String url) {
+        return named(url, () -> {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(PROBE_TIMEOUT_MS);
+            connection.setReadTimeout(PROBE_TIMEOUT_MS);
+            try {
+                int code = connection.getResponseCode();
+                return code >= 200 && code < 300;
+            } finally {
+                connection.disconnect();
+            }
+        });
+    }
+
+    /**
+     * Ray GCS可连接（ray start --port 指定的GCS端口）
+     * 不依赖Dashboard，Dashboard未安装或启动较慢时不影响集群就绪判断
+     */
+    public static ReadinessProbe rayGcs(String host, int gcsPort) {
+        return named("ray-gcs://" + host + ":" + gcsPort, tcp(host, gcsPort));
+    }
+
+    /**
+     * 进程存活；进程退出后抛出 {@link ProbeAbortedException}，等待立即失败
+     */
+    public static ReadinessProbe processAlive(Process process) {
+        return named("process(" + process.pid() + ")", () -> {
+            if (!process.isAlive()) {
+                throw new ProbeAbortedException("进程已退出，退出码: " + process.exitValue());
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 进程输出日志匹配，需将进程输出逐行交给 {@link LogLineProbe#accept(String)}
+     */
+    public static LogLineProbe logLine(String regex) {
+        return new LogLineProbe(Pattern.compile(regex).asPredicate(), regex);
+    }
+
+    private static ReadinessProbe named(String description, ReadinessProbe probe) {
+        return new ReadinessProbe() {
+            @Override
+            public boolean check() throws Exception {
+                return probe.check();
+            }
+
+            @Override
+            public String describe() {
+                return description;
+            }
+        };
+    }
+
+    /**
+     * 日志行匹配探针，读取进程输出的线程调用 accept，出现匹配行后即就绪
+     */
+    public static class LogLineProbe implements ReadinessProbe {
+        private final Predicate<String> matcher;
+        private final String description;
+        private final AtomicBoolean matched = new AtomicBoolean();
+
+        LogLineProbe(Predicate<String> matcher, String description) {
+            this.matcher = matcher;
+            this.description = description;
+        }
+
+        public void accept(String line) {
+            if (!matched.get() && line != null && matcher.test(line)) {
+                matched.set(true);
+            }
+        }
+
+        @Override
+        public boolean check() {
+            return matched.get();
+        }
+
+        @Override
+        public String describe() {
+            return "log(" + description + ")";
+        }
+    }
+
+    /**
+     * 目标已不可能就绪（如进程已退出），抛出后等待立即结束，不再重试
+     */
+    public static class ProbeAbortedException extends RuntimeException {
+        public ProbeAbortedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.vediofun.model.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 就绪等待服务
+ * 以指数退避反复执行就绪探针，目标就绪后立即返回，超过期限或探针中止时返回失败。
+ * 每个步骤的等待耗时记录到指标 model.deploy.readiness（按 step/outcome 区分），并汇总供状态接口查询
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReadinessService {
+
+    /**
+     * 首次重试间隔(毫秒)
+     */
+    @Value("${model.readiness.initial-backoff-ms:100}")
+    private long initialBackoffMs;
+
+    /**
+     * 最大重试间隔(毫秒)
+     */
+    @Value("${model.readiness.max-backoff-ms:2000}")
+    private long maxBackoffMs;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, StepStats> stepStats = new ConcurrentHashMap<>();
+
+    /**
+     * 等待探针就绪
+     *
+     * @param step 步骤名，用于日志和指标
+     * @param timeout 最长等待时间
+     * @return 是否在期限内就绪
+     */
+    public boolean await(String step, ReadinessProbe probe, Duration timeout) {
+        long startTime = System.nanoTime();
+        long deadline = startTime + timeout.toNanos();
+        long backoffMs = Math.max(1, initialBackoffMs);
+        int attempts = 0;
+        String outcome = "timeout";
+        String lastError = null;
+
+        try {
+            while (true) {
+                attempts++;
+                try {
+                    if (probe.check()) {
+                        outcome = "ready";
+                        return true;
+                    }
+                    lastError = null;
+                } catch (ReadinessProbes.ProbeAbortedException e) {
+                    outcome = "aborted";
+                    lastError = e.getMessage();
+                    return false;
+                } catch (Exception e) {
+                    lastError = e.getMessage();
+                }
+
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return false;
+                }
+                Thread.sleep(Math.min(backoffMs, remainingMs));
+                backoffMs = Math.min(backoffMs * 2, Math.max(1, maxBackoffMs));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+            return false;
+        } finally {
+            long elapsedNanos = System.nanoTime() - startTime;
+            record(step, outcome, elapsedNanos);
+            if ("ready".equals(outcome)) {
+                log.info("{} 就绪: {}, 耗时 {}ms, 探测 {} 次", step, probe.describe(),
+                        TimeUnit.NANOSECONDS.toMillis(elapsedNanos), attempts);
+            } else {
+                log.warn("{} 未就绪({}): {}, 耗时 {}ms, 探测 {} 次, 最后错误: {}", step, outcome, probe.describe(),
+                        TimeUnit.NANOSECONDS.toMillis(elapsedNanos), attempts, lastError);
+            }
+        }
+    }
+
+    /**
+     * 各步骤就绪耗时汇总
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new TreeMap<>();
+        stepStats.forEach((step, stats) -> status.put(step, stats.toMap()));
+        return status;
+    }
+
+    private void record(String step, String outcome, long elapsedNanos) {
+        Timer.builder("model.deploy.readiness")
+                .description("部署步骤等待就绪的耗时")
+                .tag("step", step)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        stepStats.computeIfAbsent(step, s -> new StepStats()).record(outcome, elapsedNanos);
+    }
+
+    /**
+     * 单个步骤的耗时统计
+     */
+    private static class StepStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile long lastNanos;
+        private volatile String lastOutcome;
+
+        void record(String outcome, long elapsedNanos) {
+            count.incrementAndGet();
+            if (!"ready".equals(outcome)) {
+                failures.incrementAndGet();
+            }
+            totalNanos.addAndGet(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            lastNanos = elapsedNanos;
+            lastOutcome = outcome;
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.get();
+            Map<String, Object> map = new HashMap<>();
+            map.put("count", n);
+            map.put("failures", failures.get());
+            map.put("avgMs", n > 0 ? TimeUnit.NANOSECONDS.toMillis(totalNanos.get() / n) : 0);
+            map.put("maxMs", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+            map.put("lastMs", TimeUnit.NANOSECONDS.toMillis(lastNanos));
+            map.put("lastOutcome", lastOutcome);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,717 @@
+package com.vediofun.model.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分段并行下载服务
+ * 大文件按HTTP Range拆分为多个分段并发下载，通过FileChannel按位置写入预分配文件，
+ * 下载进度记录在旁路日志文件中，中断后可从断点精确续传。日志同时记录远程文件的 ETag/Last-Modified，
+ * 续传请求携带 If-Range，远程文件已变化时丢弃已下载的部分重新下载。
+ * 多源下载时最后一个源为源站，分段先从其他节点拉取，节点都失败后才回退到源站；
+ * 进行中的下载通过 {@link #findPartial} 对外提供已完成的范围，其他节点无需等待整个文件下载完成
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SegmentedDownloadService {
+
+    private static final String USER_AGENT = "VedioFun-Model-Downloader/1.0";
+    private static final String PART_SUFFIX = ".part";
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private static final int IO_BUFFER_SIZE = 256 * 1024;
+    private static final long JOURNAL_FLUSH_BYTES = 4L * 1024 * 1024;
+    private static final int MAX_SEGMENT_RETRIES = 3;
+    private static final long PROGRESS_LOG_INTERVAL_MS = 5000;
+    private static final long PEER_WAIT_INTERVAL_MS = 1000;
+
+    /**
+     * 单个分段的最小大小(MB)
+     */
+    @Value("${model.download.segment-size-mb:64}")
+    private long segmentSizeMb;
+
+    /**
+     * 单个文件的最大分段数
+     */
+    @Value("${model.download.max-segments-per-file:16}")
+    private int maxSegmentsPerFile;
+
+    /**
+     * 分段下载线程数
+     */
+    @Value("${model.download.segment-threads:32}")
+    private int segmentThreads;
+
+    /**
+     * 节点仍在下载所需范围时，没有任何进展的最长等待时间(秒)，超时后换下一个源
+     */
+    @Value("${model.p2p.peer-wait-seconds:30}")
+    private long peerWaitSeconds;
+
+    private final DownloadThrottle downloadThrottle;
+
+    /**
+     * .part 文件 -> 进行中的分段下载
+     */
+    private final Map<Path, PartialFile> activeDownloads = new ConcurrentHashMap<>();
+
+    private ExecutorService segmentExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        segmentExecutor = Executors.newFixedThreadPool(Math.max(1, segmentThreads), runnable -> {
+            Thread thread = new Thread(runnable, "segment-download-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (segmentExecutor != null) {
+            segmentExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 下载文件到目标路径
+     * 目标文件已存在且大小与远程一致时直接跳过；否则写入 .part 文件，完成后原子重命名
+     *
+     * @param expectedSize 已知的文件大小，未知时传 -1
+     * @return 文件大小（字节）
+     */
+    public long download(String url, Path target, long expectedSize) throws IOException {
+        return download(List.of(url), target, expectedSize);
+    }
+
+    /**
+     * 从多个内容相同的下载源下载文件
+     * 最后一个源视为源站：各分段先轮流分配到其余的源（其他节点），节点失败时切换到下一个节点，
+     * 所有节点都失败后才从源站下载该分段
+     *
+     * @param sources 下载源列表，源站放在最后
+     * @param expectedSize 已知的文件大小，未知时传 -1
+     * @return 文件大小（字节）
+     */
+    public long download(List<String> sources, Path target, long expectedSize) throws IOException {
+        if (sources == null || sources.isEmpty()) {
+            throw new IllegalArgumentException("下载源不能为空");
+        }
+        if (expectedSize > 0 && Files.exists(target) && Files.size(target) == expectedSize) {
+            log.info("文件已存在且大小匹配，跳过下载: {} ({})", target, formatFileSize(expectedSize));
+            return expectedSize;
+        }
+
+        try {
+            return download(sources, target, probe(sources));
+        } catch (RemoteChangedException e) {
+            log.warn("远程文件在续传期间已变化，丢弃已下载部分重新下载: {}", target);
+            Files.deleteIfExists(Paths.get(target + PART_SUFFIX));
+            Files.deleteIfExists(Paths.get(target + PART_SUFFIX + JOURNAL_SUFFIX));
+            return download(sources, target, probe(sources));
+        }
+    }
+
+    private long download(List<String> sources, Path target, RemoteFile remote) throws IOException {
+        if (Files.exists(target)) {
+            long localSize = Files.size(target);
+            if (remote.size > 0 && localSize == remote.size) {
+                log.info("文件已存在且大小匹配，跳过下载: {} ({})", target, formatFileSize(localSize));
+                return localSize;
+            }
+            log.info("文件已存在但大小不匹配，重新下载: {} 本地={}, 远程={}",
+                    target, formatFileSize(localSize), formatFileSize(remote.size));
+        }
+
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path partFile = Paths.get(target + PART_SUFFIX);
+        Path journalFile = Paths.get(target + PART_SUFFIX + JOURNAL_SUFFIX);
+
+        if (remote.acceptRanges && remote.size > 0) {
+            downloadSegmented(remote, partFile, journalFile);
+        } else {
+            log.info("服务器不支持分段下载，使用单连接下载: {}", remote.url);
+            Files.deleteIfExists(journalFile);
+            downloadStream(remote.url, partFile);
+        }
+
+        Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(journalFile);
+        return Files.size(target);
+    }
+
+    /**
+     * 查找目标文件进行中的分段下载
+     *
+     * @return 没有进行中的分段下载时返回 null
+     */
+    public PartialFile findPartial(Path target) {
+        return activeDownloads.get(Paths.get(target + PART_SUFFIX).toAbsolutePath().normalize());
+    }
+
+    /**
+     * 依次探测下载源，使用第一个可用的源确定文件大小和Range支持情况
+     */
+    private RemoteFile probe(List<String> sources) throws IOException {
+        IOException lastError = null;
+        for (int i = 0; i < sources.size(); i++) {
+            try {
+                RemoteFile remote = probe(sources.get(i));
+                remote.rangeSources = sources.subList(i, sources.size());
+                return remote;
+            } catch (IOException e) {
+                log.warn("下载源不可用，尝试下一个: {} - {}", sources.get(i), e.getMessage());
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * 探测远程文件大小和Range支持情况
+     */
+    private RemoteFile probe(String url) throws IOException {
+        HttpURLConnection connection = openConnection(url);
+        downloadThrottle.acquireConnection(url);
+        connection.setRequestProperty("Range", "bytes=0-0");
+        try {
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                return new RemoteFile(url, parseTotalSize(connection.getHeaderField("Content-Range")), true,
+                        validatorOf(connection));
+            }
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                return new RemoteFile(url, connection.getContentLengthLong(), false, null);
+            }
+            throw new IOException("HTTP " + responseCode);
+        } finally {
+            connection.disconnect();
+            downloadThrottle.releaseConnection(url);
+        }
+    }
+
+    /**
+     * 续传校验值：优先使用强 ETag，其次 Last-Modified；弱 ETag 不能用于 If-Range
+     */
+    private String validatorOf(HttpURLConnection connection) {
+        String etag = connection.getHeaderField("ETag");
+        if (etag != null && !etag.isBlank() && !etag.startsWith("W/")) {
+            return etag;
+        }
+        String lastModified = connection.getHeaderField("Last-Modified");
+        return lastModified != null && !lastModified.isBlank() ? lastModified : null;
+    }
+
+    /**
+     * 分段并行下载
+     */
+    private void downloadSegmented(RemoteFile remote, Path partFile, Path journalFile) throws IOException {
+        long totalSize = remote.size;
+        long minSegmentSize = Math.max(1, segmentSizeMb) * 1024 * 1024;
+        long segmentSize = Math.max(minSegmentSize, (totalSize + maxSegmentsPerFile - 1) / Math.max(1, maxSegmentsPerFile));
+        int segmentCount = (int) ((totalSize + segmentSize - 1) / segmentSize);
+
+        if (!Files.exists(partFile)) {
+            Files.deleteIfExists(journalFile);
+        }
+
+        try (FileChannel channel = FileChannel.open(partFile,
+                     StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             DownloadJournal journal = DownloadJournal.open(journalFile, totalSize, segmentSize, segmentCount,
+                     remote.validator)) {
+
+            if (channel.size() != totalSize) {
+                // 预分配文件空间，避免分段写入时反复扩展文件
+                channel.truncate(Math.min(channel.size(), totalSize));
+                channel.write(ByteBuffer.wrap(new byte[1]), totalSize - 1);
+            }
+
+            Path key = partFile.toAbsolutePath().normalize();
+            activeDownloads.put(key, new PartialFile(partFile, totalSize, segmentSize, journal));
+            try {
+                downloadSegments(remote, channel, journal, partFile, segmentSize, segmentCount);
+            } finally {
+                activeDownloads.remove(key);
+            }
+        }
+    }
+
+    private void downloadSegments(RemoteFile remote, FileChannel channel, DownloadJournal journal, Path partFile,
+                                  long segmentSize, int segmentCount) throws IOException {
+        long totalSize = remote.size;
+        long resumed = journal.completedBytes();
+        if (resumed > 0) {
+            log.info("从断点续传: {} 已完成 {}/{}", partFile, formatFileSize(resumed), formatFileSize(totalSize));
+        }
+        log.info("开始分段下载 - URL: {}, 大小: {}, 分段数: {}, 下载源: {}",
+                remote.url, formatFileSize(totalSize), segmentCount, remote.rangeSources.size());
+
+        Progress progress = new Progress(partFile.getFileName().toString(), totalSize, resumed);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            int index = i;
+            long start = index * segmentSize;
+            long end = Math.min(totalSize, start + segmentSize) - 1;
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    downloadSegment(remote, channel, journal, index, start, end, progress);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, segmentExecutor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        }
+
+        channel.force(false);
+        log.info("分段下载完成 - 文件: {}, 大小: {}, 平均速率: {}/s",
+                partFile, formatFileSize(totalSize), formatFileSize(progress.bytesPerSecond()));
+    }
+
+    /**
+     * 下载单个分段，失败时从日志记录的位置切换下载源重试
+     * 先依次尝试各节点，节点都失败后才使用最后的源站；节点只返回部分数据时继续向同一节点请求剩余部分，
+     * 节点返回503表示它仍在下载该范围，等待其进度，超过等待时间没有进展才换下一个源
+     */
+    private void downloadSegment(RemoteFile remote, FileChannel channel, DownloadJournal journal,
+                                 int index, long start, long end, Progress progress) throws IOException {
+        List<String> sources = remote.rangeSources;
+        int peerCount = sources.size() - 1;
+        long length = end - start + 1;
+        int maxRetries = MAX_SEGMENT_RETRIES + peerCount;
+        long peerWaitNanos = TimeUnit.SECONDS.toNanos(Math.max(0, peerWaitSeconds));
+        int attempt = 0;
+        long waitingSince = 0;
+        while (journal.progress(index) < length) {
+            boolean fromPeer = attempt < peerCount;
+            String url = fromPeer ? sources.get((index + attempt) % peerCount) : sources.get(peerCount);
+            long before = journal.progress(index);
+            try {
+                // If-Range 只发给探测过的源，其他源的 ETag 与之无关
+                transferRange(url, url.equals(remote.url) ? remote.validator : null,
+                        channel, journal, index, start, length, progress);
+            } catch (RemoteChangedException e) {
+                throw e;
+            } catch (IOException e) {
+                if (journal.progress(index) > before) {
+                    waitingSince = 0;
+                    continue;
+                }
+                if (fromPeer && e instanceof RangeNotReadyException) {
+                    long now = System.nanoTime();
+                    if (waitingSince == 0) {
+                        waitingSince = now;
+                    }
+                    if (now - waitingSince < peerWaitNanos) {
+                        sleepQuietly(PEER_WAIT_INTERVAL_MS);
+                        continue;
+                    }
+                }
+                waitingSince = 0;
+                if (++attempt > maxRetries) {
+                    throw new IOException("分段" + index + "下载失败: " + e.getMessage(), e);
+                }
+                log.warn("分段{}下载中断，第{}次重试: {}", index, attempt, e.getMessage());
+                if (attempt > peerCount) {
+                    sleepQuietly(1000L * (attempt - peerCount));
+                }
+            }
+        }
+    }
+
+    /**
+     * 请求分段剩余的字节范围并按位置写入文件
+     */
+    private void transferRange(String url, String validator, FileChannel channel, DownloadJournal journal,
+                               int index, long start, long length, Progress progress) throws IOException {
+        long done = journal.progress(index);
+        HttpURLConnection connection = openConnection(url);
+        downloadThrottle.acquireConnection(url);
+        connection.setRequestProperty("Range", "bytes=" + (start + done) + "-" + (start + length - 1));
+        if (validator != null) {
+            connection.setRequestProperty("If-Range", validator);
+        }
+        long unflushed = 0;
+        long recorded = done;
+        try {
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_OK && validator != null) {
+                throw new RemoteChangedException(url);
+            }
+            if (responseCode == HttpURLConnection.HTTP_UNAVAILABLE) {
+                throw new RangeNotReadyException(url);
+            }
+            if (responseCode != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("分段请求未返回206: HTTP " + responseCode);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+            try (ReadableByteChannel in = Channels.newChannel(connection.getInputStream())) {
+                while (done < length) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), length - done));
+                    int read = in.read(buffer);
+                    if (read == -1) {
+                        break;
+                    }
+                    buffer.flip();
+                    long position = start + done;
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    done += read;
+                    unflushed += read;
+                    progress.add(read);
+                    downloadThrottle.consume(url, read);
+                    if (unflushed >= JOURNAL_FLUSH_BYTES) {
+                        // 数据落盘后再记录进度，避免崩溃后日志领先于文件内容
+                        channel.force(false);
+                        journal.update(index, done);
+                        recorded = done;
+                        unflushed = 0;
+                    }
+                }
+            }
+        } finally {
+            connection.disconnect();
+            downloadThrottle.releaseConnection(url);
+            if (done > recorded) {
+                channel.force(false);
+                journal.update(index, done);
+            }
+        }
+        if (done < length) {
+            throw new IOException("连接提前关闭，已接收 " + done + "/" + length);
+        }
+    }
+
+    /**
+     * 服务器不支持Range时的单连接下载
+     */
+    private void downloadStream(String url, Path partFile) throws IOException {
+        HttpURLConnection connection = openConnection(url);
+        downloadThrottle.acquireConnection(url);
+        try {
+            int responseCode = connection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + responseCode);
+            }
+            long remoteSize = connection.getContentLengthLong();
+            Progress progress = new Progress(partFile.getFileName().toString(), remoteSize, 0);
+            ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+            try (InputStream inputStream = connection.getInputStream();
+                 ReadableByteChannel in = Channels.newChannel(inputStream);
+                 FileChannel out = FileChannel.open(partFile, StandardOpenOption.CREATE,
+                         StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    int read = buffer.remaining();
+                    progress.add(read);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                    downloadThrottle.consume(url, read);
+                }
+                if (remoteSize > 0 && out.size() != remoteSize) {
+                    throw new IOException("下载文件大小不匹配: 期望=" + remoteSize + ", 实际=" + out.size());
+                }
+            }
+        } finally {
+            connection.disconnect();
+            downloadThrottle.releaseConnection(url);
+        }
+    }
+
+    private HttpURLConnection openConnection(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("User-Agent", USER_AGENT);
+        connection.setConnectTimeout(30000);
+        connection.setReadTimeout(60000);
+        return connection;
+    }
+
+    /**
+     * 解析 Content-Range: bytes 0-0/12345 中的总大小
+     */
+    private long parseTotalSize(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0 || "*".equals(contentRange.substring(slash + 1).trim())) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 格式化文件大小
+     */
+    private static String formatFileSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        } else if (bytes < 1024 * 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        } else {
+            return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+        }
+    }
+
+    /**
+     * 远程文件信息
+     */
+    private static class RemoteFile {
+        private final String url;
+        private final long size;
+        private final boolean acceptRanges;
+        private final String validator;
+        private List<String> rangeSources;
+
+        RemoteFile(String url, long size, boolean acceptRanges, String validator) {
+            this.url = url;
+            this.size = size;
+            this.acceptRanges = acceptRanges;
+            this.validator = validator;
+        }
+    }
+
+    /**
+     * 续传时远程文件已变化（If-Range 不匹配，服务器返回完整内容）
+     */
+    private static class RemoteChangedException extends IOException {
+        RemoteChangedException(String url) {
+            super("远程文件已变化: " + url);
+        }
+    }
+
+    /**
+     * 下载源暂时没有所需范围（节点仍在下载该文件）
+     */
+    private static class RangeNotReadyException extends IOException {
+        RangeNotReadyException(String url) {
+            super("下载源尚未下载该范围: " + url);
+        }
+    }
+
+    /**
+     * 进行中的分段下载，各分段从起点开始已写入并落盘的部分可以提供给其他节点
+     */
+    public static class PartialFile {
+        private final Path partFile;
+        private final long size;
+        private final long segmentSize;
+        private final DownloadJournal journal;
+
+        PartialFile(Path partFile, long size, long segmentSize, DownloadJournal journal) {
+            this.partFile = partFile;
+            this.size = size;
+            this.segmentSize = segmentSize;
+            this.journal = journal;
+        }
+
+        public Path getPartFile() { return partFile; }
+        public long getSize() { return size; }
+
+        /**
+         * 从指定位置开始连续可读的字节数，该位置尚未下载时返回0
+         */
+        public long availableBytes(long position) {
+            if (position < 0 || position >= size) {
+                return 0;
+            }
+            int index = (int) (position / segmentSize);
+            long segmentStart = index * segmentSize;
+            return Math.max(0, segmentStart + journal.progress(index) - position);
+        }
+    }
+
+    /**
+     * 下载进度统计，多个分段线程共享，每5秒输出一次
+     */
+    private static class Progress {
+        private final String name;
+        private final long totalSize;
+        private final long startTime = System.currentTimeMillis();
+        private final long resumedBytes;
+        private final AtomicLong transferred = new AtomicLong();
+        private final AtomicLong lastLogTime = new AtomicLong(System.currentTimeMillis());
+
+        Progress(String name, long totalSize, long resumedBytes) {
+            this.name = name;
+            this.totalSize = totalSize;
+            this.resumedBytes = resumedBytes;
+        }
+
+        void add(long bytes) {
+            long total = transferred.addAndGet(bytes);
+            long now = System.currentTimeMillis();
+            long last = lastLogTime.get();
+            if (now - last > PROGRESS_LOG_INTERVAL_MS && lastLogTime.compareAndSet(last, now)) {
+                long completed = resumedBytes + total;
+                double percent = totalSize > 0 ? (double) completed / totalSize * 100 : 0;
+                log.info("{}下载进度: {}% ({}/{}), 速率: {}/s", name, String.format("%.1f", percent),
+                        formatFileSize(completed), totalSize > 0 ? formatFileSize(totalSize) : "未知",
+                        formatFileSize(bytesPerSecond()));
+            }
+        }
+
+        long bytesPerSecond() {
+            long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+            return transferred.get() * 1000 / elapsed;
+        }
+    }
+
+    /**
+     * 分段下载日志
+     * 文件头记录总大小、分段大小、分段数和远程文件校验值的摘要，之后每个分段占8字节记录已完成字节数，
+     * 更新时按固定位置覆盖写入
+     */
+    private static class DownloadJournal implements Closeable {
+        private static final long MAGIC = 0x5646444C4A524E32L;
+        private static final int HEADER_SIZE = 8 + 8 + 8 + 4 + 8;
+
+        private final FileChannel channel;
+        private final long[] progress;
+
+        private DownloadJournal(FileChannel channel, long[] progress) {
+            this.channel = channel;
+            this.progress = progress;
+        }
+
+        static DownloadJournal open(Path file, long totalSize, long segmentSize, int segmentCount,
+                                    String validator) throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long[] progress = new long[segmentCount];
+            long validatorHash = hash(validator);
+            if (readExisting(channel, totalSize, segmentSize, validatorHash, progress)) {
+                return new DownloadJournal(channel, progress);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 8 * segmentCount);
+            header.putLong(MAGIC).putLong(totalSize).putLong(segmentSize).putInt(segmentCount).putLong(validatorHash);
+            // 连同各分段的初始进度一起写入，日志大小固定，只有部分分段有进度时也能被识别
+            header.rewind();
+            channel.truncate(0);
+            channel.write(header, 0);
+            return new DownloadJournal(channel, progress);
+        }
+
+        /**
+         * 读取已有日志，参数一致时恢复各分段进度
+         */
+        private static boolean readExisting(FileChannel channel, long totalSize, long segmentSize,
+                                            long validatorHash, long[] progress) throws IOException {
+            if (channel.size() != HEADER_SIZE + 8L * progress.length) {
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) != -1) {
+                // 读取完整日志
+            }
+            buffer.flip();
+            if (buffer.getLong() != MAGIC || buffer.getLong() != totalSize
+                    || buffer.getLong() != segmentSize || buffer.getInt() != progress.length
+                    || buffer.getLong() != validatorHash) {
+                return false;
+            }
+            for (int i = 0; i < progress.length; i++) {
+                progress[i] = buffer.getLong();
+            }
+            return true;
+        }
+
+        /**
+         * 校验值的64位FNV-1a摘要，没有校验值时为0
+         */
+        private static long hash(String validator) {
+            if (validator == null) {
+                return 0;
+            }
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : validator.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        synchronized long progress(int index) {
+            return progress[index];
+        }
+
+        synchronized long completedBytes() {
+            long total = 0;
+            for (long value : progress) {
+                total += value;
+            }
+            return total;
+        }
+
+        synchronized void update(int index, long done) throws IOException {
+            progress[index] = done;
+            ByteBuffer value = ByteBuffer.allocate(8).putLong(done);
+            value.flip();
+            channel.write(value, HEADER_SIZE + 8L * index);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
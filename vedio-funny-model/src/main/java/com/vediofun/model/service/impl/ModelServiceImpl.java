@@ -5,6 +5,7 @@ import com.vediofun.model.entity.ModelDeploymentInstance;
 import com.vediofun.model.repository.ModelRepository;
 import com.vediofun.model.repository.ModelDeploymentInstanceRepository;
 import com.vediofun.model.service.ModelService;
+import com.vediofun.model.dto.DeploymentStep;
 import com.vediofun.model.dto.InstallEnvironmentRequest;
 import com.vediofun.model.dto.InstallEnvironmentResult;
 import com.vediofun.model.dto.RayClusterInfo;
@@ -12,15 +13,18 @@ import com.vediofun.model.dto.RayClusterStatus;
 import com.vediofun.model.dto.RayDeploymentRequest;
 import com.vediofun.model.dto.RayDeploymentResponse;
 import com.vediofun.model.dto.NodeEnvironmentInfo;
-import com.vediofun.model.dto.GpuInfo;
-import com.vediofun.model.dto.CpuInfo;
-import com.vediofun.model.dto.MemoryInfo;
-import com.vediofun.model.dto.DiskInfo;
-import com.vediofun.model.dto.NetworkInfo;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
 
 import com.vediofun.model.service.DeploymentService;
+import com.vediofun.model.service.ModelBlobStore;
+import com.vediofun.model.service.ReadinessProbe;
+import com.vediofun.model.service.ReadinessProbes;
+import com.vediofun.model.service.ReadinessService;
+import com.vediofun.model.service.ManagedProcess;
+import com.vediofun.model.service.ProcessSupervisor;
+import com.vediofun.model.service.NodeInventoryService;
+import com.vediofun.model.util.PortProbe;
 import com.vediofun.model.util.ResourceUtil;
 import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
@@ -40,20 +44,41 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ModelServiceImpl implements ModelService {
 
+    /**
+     * 托管进程名称，每个节点各只运行一个
+     */
+    private static final String RAY_HEAD_PROCESS = "ray-head";
+    private static final String RAY_WORKER_PROCESS = "ray-worker";
+    private static final String RAYLLM_PROCESS = "rayllm";
+    
+    /**
+     * ray start 完成启动后输出的日志
+     */
+    private static final String RAY_STARTED_PATTERN = "Ray runtime started";
+    
+    /**
+     * 端口探测超时(毫秒)
+     */
+    private static final long PORT_PROBE_TIMEOUT_MS = 1000;
+
     private final ModelRepository modelRepository;
     private final ModelDeploymentInstanceRepository deploymentInstanceRepository;
 
@@ -75,6 +100,30 @@ public class ModelServiceImpl implements ModelService {
     @Autowired
     private ResourceUtil resourceUtil;
     
+    @Autowired
+    private ReadinessService readinessService;
+    
+    @Autowired
+    private ProcessSupervisor processSupervisor;
+    
+    @Autowired
+    private NodeInventoryService nodeInventoryService;
+    
+    @Autowired
+    private ModelBlobStore modelBlobStore;
+    
+    /**
+     * Ray节点启动后等待就绪的最长时间(秒)
+     */
+    @Value("${model.readiness.ray-timeout-seconds:60}")
+    private long rayReadyTimeoutSeconds;
+    
+    /**
+     * 推理服务启动后等待就绪的最长时间(秒)，模型加载较慢时需要调大
+     */
+    @Value("${model.readiness.llm-timeout-seconds:600}")
+    private long llmReadyTimeoutSeconds;
+    
     private String getClusterServiceUrl(String nodeId) {
         String serviceId = "vedio-funny-model"; // 修改为正确的服务ID
         
@@ -202,32 +251,22 @@ public class ModelServiceImpl implements ModelService {
             String osInfo = checkOsInfo();
             nodeInfo.setOsInfo(osInfo);
             
-            // 4. 检查Python和Ray环境（使用ray-env-check.sh脚本）
-            checkRayEnvironmentWithScript(nodeInfo);
-            
-            // 6. 检查CPU信息
-            CpuInfo cpuInfo = checkCpuInfo();
-            nodeInfo.setCpuInfo(cpuInfo);
-            
-            // 7. 检查内存信息
-            MemoryInfo memoryInfo = checkMemoryInfo();
-            nodeInfo.setMemoryInfo(memoryInfo);
-            
-            // 8. 检查GPU信息
-            List<GpuInfo> gpuInfos = checkGpuInfo();
-            nodeInfo.setGpuInfos(gpuInfos);
-            
-            // 9. 检查磁盘信息
-            DiskInfo diskInfo = checkDiskInfo();
-            nodeInfo.setDiskInfo(diskInfo);
-            
-            // 10. 检查网络信息
-            NetworkInfo networkInfo = checkNetworkInfo();
-            nodeInfo.setNetworkInfo(networkInfo);
+            // 4. 硬件与Ray环境信息来自后台采集的节点清单
+            NodeEnvironmentInfo inventory = nodeInventoryService.snapshot();
+            nodeInfo.setPythonInstalled(inventory.getPythonInstalled());
+            nodeInfo.setPythonVersion(inventory.getPythonVersion());
+            nodeInfo.setRayInstalled(inventory.getRayInstalled());
+            nodeInfo.setRayVersion(inventory.getRayVersion());
+            nodeInfo.setModelEnginesInstalled(inventory.getModelEnginesInstalled());
+            nodeInfo.setCpuInfo(inventory.getCpuInfo());
+            nodeInfo.setMemoryInfo(inventory.getMemoryInfo());
+            nodeInfo.setGpuInfos(inventory.getGpuInfos());
+            nodeInfo.setDiskInfo(inventory.getDiskInfo());
+            nodeInfo.setNetworkInfo(inventory.getNetworkInfo());
             
             log.info("当前节点环境检查完成 - NodeId: {}, IP: {}, Python: {}, Ray: {}, GPU: {}", 
                     currentNodeId, localIp, nodeInfo.getPythonInstalled(), 
-                    nodeInfo.getRayInstalled(), gpuInfos != null ? gpuInfos.size() : 0);
+                    nodeInfo.getRayInstalled(), nodeInfo.getGpuInfos() != null ? nodeInfo.getGpuInfos().size() : 0);
             
             return nodeInfo;
             
@@ -322,6 +361,8 @@ public class ModelServiceImpl implements ModelService {
             commandBuilder.append(" --include-dashboard=true");
             commandBuilder.append(" --dashboard-host=0.0.0.0");
             commandBuilder.append(" --temp-dir=/tmp/ray");
+            // 前台运行，任一Ray进程退出时命令随之退出，由进程守护重启
+            commandBuilder.append(" --block");
             
             String command = commandBuilder.toString();
 
@@ -331,46 +372,33 @@ public class ModelServiceImpl implements ModelService {
                     rayEnvPath, command);
             log.info("执行Ray启动命令: {}", fullCommand);
 
-            // 执行Ray启动命令
-            ProcessBuilder processBuilder = new ProcessBuilder("bash", "-c", fullCommand);
-            processBuilder.redirectErrorStream(true);
-            
-            // 设置环境变量
-            Map<String, String> env = processBuilder.environment();
+            // 由进程守护启动Ray Head节点
+            Map<String, String> env = new HashMap<>();
             env.put("RAY_ENABLE_WINDOWS_OR_OSX_CLUSTER", "1");
             env.put("RAY_TMPDIR", "/tmp/ray");
-            
-            Process process = processBuilder.start();
-            
-            // 读取输出
-            StringBuilder output = new StringBuilder();
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
+            ReadinessProbes.LogLineProbe started = ReadinessProbes.logLine(RAY_STARTED_PATTERN);
+            ManagedProcess managed = processSupervisor.start(RAY_HEAD_PROCESS,
+                    List.of("bash", "-c", fullCommand), env, true, null, started::accept);
+            
+            // 等待启动完成且GCS可连接后再返回，避免工作节点过早加入
+            ReadinessProbe headReady = ReadinessProbes.processAlive(managed.getProcess())
+                    .and(started)
+                    .and(ReadinessProbes.rayGcs("127.0.0.1", rayPort));
+            if (!readinessService.await("ray-head-gcs", headReady, Duration.ofSeconds(rayReadyTimeoutSeconds))) {
+                String output = managed.recentOutputText(50);
+                processSupervisor.stop(RAY_HEAD_PROCESS);
+                log.error("Ray Head节点启动失败 - 端口: {}, 输出: {}", rayPort, output);
+                return RayClusterInfo.failure("Ray Head节点启动失败: " + output);
             }
             
-            int exitCode = process.waitFor();
+            // 获取集群地址
+            String localIp = getLocalIpAddress();
+            String clusterAddress = String.format("ray://%s:%d", localIp, rayPort);
             
-            if (exitCode == 0) {
-                // 等待一下让服务完全启动
-                Thread.sleep(3000);
-                
-                // 获取集群地址
-                String localIp = getLocalIpAddress();
-                String clusterAddress = String.format("ray://%s:%d", localIp, rayPort);
-                
-                log.info("Ray Head节点启动成功 - 集群地址: {}", clusterAddress);
-                log.info("Ray输出: {}", output.toString());
-                
-                return RayClusterInfo.success(clusterAddress, "head",
-                        String.format("Ray Head节点启动成功，集群地址: %s", clusterAddress));
-            } else {
-                log.error("Ray Head节点启动失败 - 退出码: {}, 输出: {}", exitCode, output.toString());
-                return RayClusterInfo.failure("Ray Head节点启动失败: " + output.toString());
-            }
+            log.info("Ray Head节点启动成功 - 集群地址: {}, PID: {}", clusterAddress, managed.getProcess().pid());
+            
+            return RayClusterInfo.success(clusterAddress, "head",
+                    String.format("Ray Head节点启动成功，集群地址: %s", clusterAddress));
 
         } catch (Exception e) {
             log.error("Ray Head节点启动异常", e);
@@ -451,6 +479,7 @@ public class ModelServiceImpl implements ModelService {
             commandBuilder.append(" --memory=").append(memory);
             commandBuilder.append(" --object-store-memory=").append(objectStoreMemory);
             commandBuilder.append(" --temp-dir=/tmp/ray");
+            commandBuilder.append(" --block");
             
             String command = commandBuilder.toString();
             log.info("执行Ray加入集群命令: {}", command);
@@ -460,42 +489,33 @@ public class ModelServiceImpl implements ModelService {
             String fullCommand = String.format("source %s && source $CONDA_HOME/etc/profile.d/conda.sh && conda activate $RAY_ENV_NAME && %s", 
                     rayEnvPath, command);
             
-            // 执行Ray加入集群命令
-            ProcessBuilder processBuilder = new ProcessBuilder("bash", "-c", fullCommand);
-            processBuilder.redirectErrorStream(true);
-            
-            // 设置环境变量
-            Map<String, String> env = processBuilder.environment();
+            // 由进程守护启动Worker节点
+            Map<String, String> env = new HashMap<>();
             env.put("RAY_ENABLE_WINDOWS_OR_OSX_CLUSTER", "1");
             env.put("RAY_TMPDIR", "/tmp/ray");
-            
-            Process process = processBuilder.start();
-            
-            // 读取输出
-            StringBuilder output = new StringBuilder();
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
+            ReadinessProbes.LogLineProbe started = ReadinessProbes.logLine(RAY_STARTED_PATTERN);
+            ManagedProcess managed = processSupervisor.start(RAY_WORKER_PROCESS,
+                    List.of("bash", "-c", fullCommand), env, true, null, started::accept);
+            
+            // 启动完成且本节点可以连到Head节点的GCS
+            ReadinessProbe workerReady = ReadinessProbes.processAlive(managed.getProcess()).and(started);
+            int separator = headAddress.lastIndexOf(':');
+            if (separator > 0) {
+                String headHost = headAddress.substring(0, separator);
+                int headPort = Integer.parseInt(headAddress.substring(separator + 1));
+                workerReady = workerReady.and(ReadinessProbes.rayGcs(headHost, headPort));
+            }
+            if (!readinessService.await("ray-worker-join", workerReady, Duration.ofSeconds(rayReadyTimeoutSeconds))) {
+                String output = managed.recentOutputText(50);
+                processSupervisor.stop(RAY_WORKER_PROCESS);
+                log.error("Worker节点加入集群失败 - 集群: {}, 输出: {}", headAddress, output);
+                return RayClusterInfo.failure("Worker节点加入集群失败: " + output);
             }
             
-            int exitCode = process.waitFor();
+            log.info("Worker节点成功加入Ray集群: {}, PID: {}", clusterAddress, managed.getProcess().pid());
             
-            if (exitCode == 0) {
-                // 等待一下让连接建立
-                Thread.sleep(2000);
-                
-                log.info("Worker节点成功加入Ray集群: {}", clusterAddress);
-                log.info("Ray输出: {}", output.toString());
-                
-                return RayClusterInfo.success(clusterAddress, "worker",
-                        String.format("Worker节点成功加入集群: %s", clusterAddress));
-            } else {
-                log.error("Worker节点加入集群失败 - 退出码: {}, 输出: {}", exitCode, output.toString());
-                return RayClusterInfo.failure("Worker节点加入集群失败: " + output.toString());
-            }
+            return RayClusterInfo.success(clusterAddress, "worker",
+                    String.format("Worker节点成功加入集群: %s", clusterAddress));
 
         } catch (Exception e) {
             log.error("Worker节点加入集群异常", e);
@@ -503,6 +523,21 @@ public class ModelServiceImpl implements ModelService {
         }
     }
 
+    @Override
+    public RayClusterInfo stopRayNode() {
+        // 先停推理服务，再停工作节点和主节点进程
+        List<String> stopped = new ArrayList<>();
+        for (String name : List.of(RAYLLM_PROCESS, RAY_WORKER_PROCESS, RAY_HEAD_PROCESS)) {
+            if (processSupervisor.stop(name)) {
+                stopped.add(name);
+            }
+        }
+        log.info("已停止当前节点Ray进程: {}", stopped);
+        RayClusterInfo info = RayClusterInfo.success(null, null, "已停止: " + stopped);
+        info.setDetails(Map.of("stoppedProcesses", stopped));
+        return info;
+    }
+
     @Override
     public RayClusterStatus getRayClusterStatus(Map<String, Object> request) {
         log.info("开始查询Ray集群状态 - 请求参数: {}", request);
@@ -565,7 +600,7 @@ public class ModelServiceImpl implements ModelService {
     @Override
     public Map<String, Object> launchRayLLMService(String modelName, String modelPath, 
                                                  String clusterAddress, Integer maxConcurrency, 
-                                                 String modelEngine) {
+                                                 String modelEngine, Long deploymentInstanceId) {
         long startTime = System.currentTimeMillis();
         Map<String, Object> result = new HashMap<>();
         
@@ -584,6 +619,7 @@ public class ModelServiceImpl implements ModelService {
             if (!checkModelFileExists(modelPath)) {
                 throw new RuntimeException("模型文件不存在: " + modelPath);
             }
+            modelBlobStore.markModelUsed(Paths.get(modelPath));
             
             // 3. 检查Ray环境
             NodeEnvironmentInfo envInfo = checkCurrentNodeEnvironment();
@@ -593,7 +629,7 @@ public class ModelServiceImpl implements ModelService {
             
             // 4. 启动RayLLM服务
             Map<String, Object> launchResult = startRayLLMProcess(
-                    modelName, modelPath, maxConcurrency, modelEngine);
+                    modelName, modelPath, maxConcurrency, modelEngine, deploymentInstanceId);
             
             if ("SUCCESS".equals(launchResult.get("status"))) {
                 result.put("status", "SUCCESS");
@@ -689,7 +725,8 @@ public class ModelServiceImpl implements ModelService {
      * 启动RayLLM进程
      */
     private Map<String, Object> startRayLLMProcess(String modelName, String modelPath, 
-                                                 Integer maxConcurrency, String modelEngine) {
+                                                 Integer maxConcurrency, String modelEngine,
+                                                 Long deploymentInstanceId) {
         Map<String, Object> result = new HashMap<>();
         
         try {
@@ -701,30 +738,22 @@ public class ModelServiceImpl implements ModelService {
             // 打印完整的启动命令
             log.info("RayLLM启动命令: {}", command);
             
-            // 启动进程（前台运行，但异步处理）
-            ProcessBuilder pb = new ProcessBuilder();
-            pb.command("bash", "-c", command);
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
+            // 推理服务打印这些日志即表示已开始监听
+            ReadinessProbes.LogLineProbe startupLog = ReadinessProbes.logLine(
+                    "Uvicorn running on|Application startup complete|Connected to all shards|Deployed app");
             
-            // 异步读取输出
-            CompletableFuture<StringBuilder> outputFuture = CompletableFuture.supplyAsync(() -> {
-                StringBuilder output = new StringBuilder();
-                try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                        new java.io.InputStreamReader(process.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        output.append(line).append("\n");
-                        log.info("RayLLM启动输出: {}", line);
-                    }
-                } catch (Exception e) {
-                    log.error("读取RayLLM输出失败", e);
-                }
-                return output;
-            });
+            // 由进程守护前台运行，输出由守护线程读取，退出后按退避策略重启；
+            // 重启后进程存活且端口恢复监听才把部署实例标记为运行中
+            ManagedProcess managed = processSupervisor.start(RAYLLM_PROCESS,
+                    List.of("bash", "-c", command), Map.of(), true, modelName, deploymentInstanceId,
+                    startupLog::accept, restarted -> ReadinessProbes.processAlive(restarted)
+                            .and(ReadinessProbes.tcp("127.0.0.1", 8000)));
+            Process process = managed.getProcess();
             
-            // 等待一段时间让服务启动
-            Thread.sleep(15000); // 等待15秒
+            // 等待服务就绪：健康检查通过或输出启动完成日志，进程提前退出时立即结束等待
+            ReadinessProbe serviceReady = ReadinessProbes.processAlive(process)
+                    .and(ReadinessProbes.http("http://127.0.0.1:8000/health").or(startupLog));
+            readinessService.await("rayllm-start", serviceReady, Duration.ofSeconds(llmReadyTimeoutSeconds));
             
             // 检查进程是否还在运行
             boolean isRunning = process.isAlive();
@@ -742,7 +771,9 @@ public class ModelServiceImpl implements ModelService {
                 log.info("RayLLM进程启动成功 - 模型: {}", modelName);
                     } else {
                 result.put("status", "FAILED");
-                result.put("error", "RayLLM启动失败 - 进程运行: " + isRunning + ", 端口监听: " + portListening);
+                result.put("error", "RayLLM启动失败 - 进程运行: " + isRunning + ", 端口监听: " + portListening
+                        + ", 输出: " + managed.recentOutputText(20));
+                processSupervisor.stop(RAYLLM_PROCESS);
                 log.error("RayLLM进程启动失败 - 模型: {}", modelName);
             }
             
@@ -760,16 +791,7 @@ public class ModelServiceImpl implements ModelService {
      * 检查端口是否被监听
      */
     private boolean checkPortListening(int port) {
-        try {
-            // 使用netstat命令检查端口
-            ProcessBuilder pb = new ProcessBuilder("lsof", "-i", ":" + port);
-            Process process = pb.start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
-        } catch (Exception e) {
-            log.warn("检查端口{}监听状态失败", port, e);
-            return false;
-        }
+        return PortProbe.isListening(port, PORT_PROBE_TIMEOUT_MS);
     }
     
     /**
@@ -1045,152 +1067,6 @@ public class ModelServiceImpl implements ModelService {
         }
     }
 
-    /**
-     * 使用ray-env-check.sh脚本检查Python和Ray环境
-     */
-    private void checkRayEnvironmentWithScript(NodeEnvironmentInfo nodeInfo) {
-        try {
-            log.info("使用ray-env-check.sh脚本检查Ray环境");
-
-            // 获取脚本路径
-            String scriptPath = getScriptPath("ray-env-check.sh");
-
-            // 执行ray-env-check.sh脚本获取JSON输出 - 使用新的方法传递环境变量
-            ProcessBuilder processBuilder = resourceUtil.createScriptProcessBuilder(scriptPath, "json");
-
-            Process process = processBuilder.start();
-            StringBuilder output = new StringBuilder();
-
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
-            }
-
-            int exitCode = process.waitFor();
-            String scriptOutput = output.toString().trim();
-
-            log.info("ray-env-check.sh脚本输出: {}", scriptOutput);
-
-            if (exitCode == 0 || exitCode == 1) { // 0=准备就绪, 1=未准备就绪但有输出
-                // 解析JSON输出
-                parseRayEnvironmentJson(scriptOutput, nodeInfo);
-                } else {
-                log.error("ray-env-check.sh脚本执行失败，退出码: {}", exitCode);
-                setDefaultRayEnvironmentInfo(nodeInfo, "脚本执行失败: 退出码 " + exitCode);
-            }
-
-        } catch (Exception e) {
-            log.error("使用ray-env-check.sh检查Ray环境失败", e);
-            setDefaultRayEnvironmentInfo(nodeInfo, "脚本执行异常: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 解析ray-env-check.sh脚本的JSON输出
-     */
-    private void parseRayEnvironmentJson(String jsonOutput, NodeEnvironmentInfo nodeInfo) {
-        try {
-            // 查找JSON开始位置（跳过可能的非JSON前缀）
-            int jsonStart = jsonOutput.indexOf("{");
-            if (jsonStart == -1) {
-                log.error("未找到有效的JSON输出: {}", jsonOutput);
-                setDefaultRayEnvironmentInfo(nodeInfo, "JSON格式错误");
-                return;
-            }
-
-            String jsonPart = jsonOutput.substring(jsonStart);
-            log.debug("解析JSON: {}", jsonPart);
-
-            // 简单的JSON解析（避免引入复杂依赖）
-            boolean condaAvailable = jsonPart.contains("\"available\": true");
-            boolean rayEnvExists = jsonPart.contains("\"exists\": true");
-            boolean rayInstalled = jsonPart.contains("\"installed\": true");
-            boolean rayReady = jsonPart.contains("\"rayReady\": true");
-            boolean modelEnginesInstalled = jsonPart.contains("\"modelEnginesInstalled\": true");
-
-            // 提取环境名称
-            String envName = extractJsonValue(jsonPart, "name");
-            String condaPath = extractJsonValue(jsonPart, "path");
-
-            // 设置Python环境信息
-            if (condaAvailable && rayEnvExists) {
-                nodeInfo.setPythonInstalled(true);
-                nodeInfo.setPythonVersion("Python 3.12 (conda: " + envName + ")");
-            } else if (condaAvailable) {
-                nodeInfo.setPythonInstalled(true);
-                nodeInfo.setPythonVersion("Conda可用，但Ray环境不存在");
-                } else {
-                nodeInfo.setPythonInstalled(false);
-                nodeInfo.setPythonVersion("Conda未安装");
-            }
-
-            // 设置Ray环境信息
-            if (rayInstalled && rayReady) {
-                nodeInfo.setRayInstalled(true);
-                nodeInfo.setRayVersion("Ray 2.8.0 (环境: " + envName + ")");
-            } else if (rayEnvExists) {
-                nodeInfo.setRayInstalled(false);
-                nodeInfo.setRayVersion("Ray环境存在但Ray未安装");
-            } else {
-                nodeInfo.setRayInstalled(false);
-                nodeInfo.setRayVersion("Ray环境不存在");
-            }
-            
-            // 设置模型引擎依赖信息
-            if (modelEnginesInstalled) {
-                nodeInfo.setModelEnginesInstalled(true);
-            } else {
-                nodeInfo.setModelEnginesInstalled(false);
-            }
-            
-            log.info("Ray环境检查完成 - Python: {}, Ray: {}, ModelEngines: {}", 
-                    nodeInfo.getPythonInstalled(), nodeInfo.getRayInstalled(), nodeInfo.getModelEnginesInstalled());
-            
-        } catch (Exception e) {
-            log.error("解析Ray环境JSON失败", e);
-            setDefaultRayEnvironmentInfo(nodeInfo, "JSON解析错误: " + e.getMessage());
-        }
-    }
-    
-    /**
-     * 从JSON字符串中提取指定键的值
-     */
-    private String extractJsonValue(String json, String key) {
-        try {
-            String pattern = "\"" + key + "\":\\s*\"([^\"]+)\"";
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(json);
-            if (m.find()) {
-                return m.group(1);
-            }
-        } catch (Exception e) {
-            log.debug("提取JSON值失败: key={}, error={}", key, e.getMessage());
-        }
-        return "unknown";
-    }
-    
-    /**
-     * 设置默认的Ray环境信息（当检查失败时）
-     */
-    private void setDefaultRayEnvironmentInfo(NodeEnvironmentInfo nodeInfo, String errorMessage) {
-        nodeInfo.setPythonInstalled(false);
-        nodeInfo.setPythonVersion("检查失败: " + errorMessage);
-        nodeInfo.setRayInstalled(false);
-        nodeInfo.setRayVersion("检查失败: " + errorMessage);
-        nodeInfo.setModelEnginesInstalled(false);
-    }
-    
-    /**
-     * 获取脚本文件路径
-     */
-    private String getScriptPath(String scriptName) {
-        // 从classpath中获取脚本路径
-        return resourceUtil.getScriptPath(scriptName);
-    }
-    
     /**
      * 获取Ray命令的完整路径（从conda环境中）
      */
@@ -1277,224 +1153,6 @@ public class ModelServiceImpl implements ModelService {
     
 
     
-    /**
-     * 检查CPU信息
-     */
-    private CpuInfo checkCpuInfo() {
-        CpuInfo cpuInfo = new CpuInfo();
-        
-        try {
-            // 获取CPU核心数
-            int cores = Runtime.getRuntime().availableProcessors();
-            cpuInfo.setLogicalCores(cores);
-            cpuInfo.setPhysicalCores(cores); // 简化处理，实际可能需要更复杂的逻辑
-            
-            // 获取系统负载
-            java.lang.management.OperatingSystemMXBean osBean = 
-                java.lang.management.ManagementFactory.getOperatingSystemMXBean();
-            double loadAverage = osBean.getSystemLoadAverage();
-            cpuInfo.setLoadAverage1min(loadAverage >= 0 ? loadAverage : 0.0);
-            
-            // 设置CPU架构
-            cpuInfo.setArchitecture(System.getProperty("os.arch"));
-            
-            // 获取CPU使用率（基于系统负载估算）
-            if (loadAverage >= 0) {
-                double cpuUsage = Math.min(100.0, (loadAverage / cores) * 100);
-                cpuInfo.setCpuUsage(cpuUsage);
-                } else {
-                cpuInfo.setCpuUsage(0.0);
-            }
-            
-        } catch (Exception e) {
-            log.warn("获取CPU信息失败", e);
-            cpuInfo.setLogicalCores(1);
-            cpuInfo.setPhysicalCores(1);
-            cpuInfo.setLoadAverage1min(0.0);
-            cpuInfo.setArchitecture("unknown");
-            cpuInfo.setCpuUsage(0.0);
-        }
-        
-        return cpuInfo;
-    }
-    
-    /**
-     * 检查内存信息
-     */
-    private MemoryInfo checkMemoryInfo() {
-        MemoryInfo memoryInfo = new MemoryInfo();
-        
-        try {
-            java.lang.management.MemoryMXBean memoryBean = 
-                java.lang.management.ManagementFactory.getMemoryMXBean();
-            
-            java.lang.management.MemoryUsage heapMemory = memoryBean.getHeapMemoryUsage();
-            java.lang.management.MemoryUsage nonHeapMemory = memoryBean.getNonHeapMemoryUsage();
-            
-            // 获取JVM内存信息（注意：这不是系统总内存）
-            long totalMemory = heapMemory.getMax() + nonHeapMemory.getMax();
-            long usedMemory = heapMemory.getUsed() + nonHeapMemory.getUsed();
-            
-            memoryInfo.setTotalMemoryMB(totalMemory / (1024 * 1024));
-            memoryInfo.setUsedMemoryMB(usedMemory / (1024 * 1024));
-            memoryInfo.setFreeMemoryMB((totalMemory - usedMemory) / (1024 * 1024));
-            
-            double usage = totalMemory > 0 ? (double) usedMemory / totalMemory * 100 : 0.0;
-            memoryInfo.setMemoryUsage(usage);
-            
-            // 设置交换分区信息（简化处理）
-            memoryInfo.setTotalSwapMB(0L);
-            memoryInfo.setUsedSwapMB(0L);
-            memoryInfo.setFreeSwapMB(0L);
-            memoryInfo.setSwapUsage(0.0);
-            
-        } catch (Exception e) {
-            log.warn("获取内存信息失败", e);
-            memoryInfo.setTotalMemoryMB(0L);
-            memoryInfo.setUsedMemoryMB(0L);
-            memoryInfo.setFreeMemoryMB(0L);
-            memoryInfo.setMemoryUsage(0.0);
-            memoryInfo.setTotalSwapMB(0L);
-            memoryInfo.setUsedSwapMB(0L);
-            memoryInfo.setFreeSwapMB(0L);
-            memoryInfo.setSwapUsage(0.0);
-        }
-        
-        return memoryInfo;
-    }
-    
-    /**
-     * 检查GPU信息
-     */
-    private List<GpuInfo> checkGpuInfo() {
-        List<GpuInfo> gpuInfos = new ArrayList<>();
-        
-        try {
-            // 尝试执行nvidia-smi命令获取GPU信息
-            Process process = Runtime.getRuntime().exec(
-                "nvidia-smi --query-gpu=index,name,memory.total,memory.used,memory.free --format=csv,noheader,nounits");
-            java.io.BufferedReader reader = new java.io.BufferedReader(
-                new java.io.InputStreamReader(process.getInputStream()));
-            
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 5) {
-                    GpuInfo gpuInfo = new GpuInfo();
-                    gpuInfo.setIndex(Integer.parseInt(parts[0].trim()));
-                    gpuInfo.setName(parts[1].trim());
-                    gpuInfo.setTotalMemoryMB(Long.parseLong(parts[2].trim()));
-                    gpuInfo.setUsedMemoryMB(Long.parseLong(parts[3].trim()));
-                    gpuInfo.setFreeMemoryMB(Long.parseLong(parts[4].trim()));
-                    
-                    double memoryUtilization = gpuInfo.getTotalMemoryMB() > 0 ? 
-                        (double) gpuInfo.getUsedMemoryMB() / gpuInfo.getTotalMemoryMB() * 100 : 0.0;
-                    gpuInfo.setMemoryUtilization(memoryUtilization);
-                    
-                    // 设置其他GPU信息的默认值
-                    gpuInfo.setGpuUtilization(0.0);
-                    gpuInfo.setStatus("ONLINE");
-                    
-                    gpuInfos.add(gpuInfo);
-                }
-            }
-            
-            reader.close();
-            process.waitFor();
-            
-        } catch (Exception e) {
-            log.warn("无法获取GPU信息，可能没有安装NVIDIA驱动或GPU");
-            // 返回空列表表示没有GPU
-        }
-        
-        return gpuInfos;
-    }
-    
-    /**
-     * 检查磁盘信息
-     */
-    private DiskInfo checkDiskInfo() {
-        DiskInfo diskInfo = new DiskInfo();
-        
-        try {
-            java.io.File root = new java.io.File("/");
-            
-            long totalSpace = root.getTotalSpace();
-            long freeSpace = root.getFreeSpace();
-            long usedSpace = totalSpace - freeSpace;
-            
-            diskInfo.setTotalDiskGB(totalSpace / (1024 * 1024 * 1024));
-            diskInfo.setFreeDiskGB(freeSpace / (1024 * 1024 * 1024));
-            diskInfo.setUsedDiskGB(usedSpace / (1024 * 1024 * 1024));
-            
-            double usage = totalSpace > 0 ? (double) usedSpace / totalSpace * 100 : 0.0;
-            diskInfo.setDiskUsage(usage);
-            
-            // 设置其他磁盘信息的默认值
-            diskInfo.setDiskType("SSD"); // 简化处理
-            diskInfo.setFileSystemType("ext4"); // 简化处理
-            diskInfo.setReadSpeedMBps(0.0);
-            diskInfo.setWriteSpeedMBps(0.0);
-            
-        } catch (Exception e) {
-            log.warn("获取磁盘信息失败", e);
-            diskInfo.setTotalDiskGB(0L);
-            diskInfo.setFreeDiskGB(0L);
-            diskInfo.setUsedDiskGB(0L);
-            diskInfo.setDiskUsage(0.0);
-            diskInfo.setDiskType("unknown");
-            diskInfo.setFileSystemType("unknown");
-            diskInfo.setReadSpeedMBps(0.0);
-            diskInfo.setWriteSpeedMBps(0.0);
-        }
-        
-        return diskInfo;
-    }
-    
-    /**
-     * 检查网络信息
-     */
-    private NetworkInfo checkNetworkInfo() {
-        NetworkInfo networkInfo = new NetworkInfo();
-        
-        try {
-            java.net.InetAddress localHost = java.net.InetAddress.getLocalHost();
-            networkInfo.setHostname(localHost.getHostName());
-            networkInfo.setIpAddress(localHost.getHostAddress());
-            
-            // 检查网络连通性（ping Google DNS）
-            java.net.InetAddress googleDns = java.net.InetAddress.getByName("8.8.8.8");
-            boolean reachable = googleDns.isReachable(5000); // 5秒超时
-            networkInfo.setNetworkStatus(reachable ? "CONNECTED" : "DISCONNECTED");
-            
-            // 设置其他网络信息的默认值
-            networkInfo.setPrimaryInterface("eth0");
-            networkInfo.setSubnetMask("255.255.255.0");
-            networkInfo.setGateway("192.168.1.1");
-            networkInfo.setDnsServers("8.8.8.8,8.8.4.4");
-            networkInfo.setBandwidthMbps(1000.0);
-            networkInfo.setLatencyMs(reachable ? 10.0 : -1.0);
-            networkInfo.setUploadSpeedMBps(0.0);
-            networkInfo.setDownloadSpeedMBps(0.0);
-            
-        } catch (Exception e) {
-            log.warn("获取网络信息失败", e);
-            networkInfo.setHostname("unknown");
-            networkInfo.setIpAddress("127.0.0.1");
-            networkInfo.setNetworkStatus("ERROR");
-            networkInfo.setPrimaryInterface("unknown");
-            networkInfo.setSubnetMask("unknown");
-            networkInfo.setGateway("unknown");
-            networkInfo.setDnsServers("unknown");
-            networkInfo.setBandwidthMbps(0.0);
-            networkInfo.setLatencyMs(-1.0);
-            networkInfo.setUploadSpeedMBps(0.0);
-            networkInfo.setDownloadSpeedMBps(0.0);
-        }
-        
-        return networkInfo;
-    }
-    
     @Override
     public String installMiniconda() {
         log.info("开始执行Miniconda安装");
@@ -1658,11 +1316,19 @@ public class ModelServiceImpl implements ModelService {
         } catch (Exception e) {
             log.error("环境安装异常", e);
             return InstallEnvironmentResult.failure("环境安装异常: " + e.getMessage());
+        } finally {
+            // 安装后环境已变化，在后台重新执行检查脚本
+            nodeInventoryService.invalidate(NodeInventoryService.Section.RAY);
         }
     }
     
     @Override
     public RayDeploymentResponse deployModelToRayCluster(RayDeploymentRequest request) {
+        return deployModelToRayCluster(request, step -> { });
+    }
+
+    @Override
+    public RayDeploymentResponse deployModelToRayCluster(RayDeploymentRequest request, Consumer<DeploymentStep> stepListener) {
         // 1. 验证请求参数
         if (request == null) {
             throw new IllegalArgumentException("部署请求不能为空");
@@ -1695,7 +1361,7 @@ public class ModelServiceImpl implements ModelService {
         
         try {
             // 2. 执行完整的Ray部署流程
-            return executeRayDeploymentWorkflow(request);
+            return executeRayDeploymentWorkflow(request, stepListener);
             
         } catch (Exception e) {
             log.error("Ray模型部署失败", e);
@@ -1713,9 +1379,9 @@ public class ModelServiceImpl implements ModelService {
     /**
      * 执行完整的Ray部署工作流程
      */
-    private RayDeploymentResponse executeRayDeploymentWorkflow(RayDeploymentRequest request) {
+    private RayDeploymentResponse executeRayDeploymentWorkflow(RayDeploymentRequest request, Consumer<DeploymentStep> stepListener) {
         log.info("委托给DeploymentRuntime执行Ray部署工作流程");
-        return deploymentRuntime.executeRayDeploymentWorkflow(request);
+        return deploymentRuntime.executeRayDeploymentWorkflow(request, stepListener);
     }
     
     @Override
@@ -1862,4 +1528,58 @@ public class ModelServiceImpl implements ModelService {
         log.info("查询运行中的部署实例");
         return deploymentInstanceRepository.findRunningInstances();
     }
-} 
\ No newline at end of file
+
+    @Override
+    public Map<Long, Boolean> checkRunningDeploymentInstancesHealth() {
+        List<ModelDeploymentInstance> instances = deploymentInstanceRepository.findRunningInstances();
+        Map<Long, InetSocketAddress> endpoints = new HashMap<>();
+        for (ModelDeploymentInstance instance : instances) {
+            InetSocketAddress address = toSocketAddress(instance.getServiceEndpoint());
+            if (address != null) {
+                endpoints.put(instance.getId(), address);
+            }
+        }
+        
+        // 所有端点在一次探测中并发完成
+        Map<InetSocketAddress, Boolean> reachable = PortProbe.probeAll(new HashSet<>(endpoints.values()),
+                PORT_PROBE_TIMEOUT_MS);
+        
+        Map<Long, Boolean> result = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (ModelDeploymentInstance instance : instances) {
+            InetSocketAddress address = endpoints.get(instance.getId());
+            if (address == null) {
+                continue;
+            }
+            boolean healthy = reachable.getOrDefault(address, false);
+            result.put(instance.getId(), healthy);
+            instance.setLastHealthCheck(now);
+            if (!healthy) {
+                instance.setStatus(ModelDeploymentInstance.DeploymentStatus.ERROR);
+                instance.setErrorMessage("服务端点不可连接: " + instance.getServiceEndpoint());
+                log.warn("部署实例健康检查失败 - 实例ID: {}, 端点: {}", instance.getId(), instance.getServiceEndpoint());
+            }
+        }
+        deploymentInstanceRepository.saveAll(instances);
+        return result;
+    }
+    
+    /**
+     * 服务端点URL转为TCP地址，无法解析时返回null
+     */
+    private InetSocketAddress toSocketAddress(String serviceEndpoint) {
+        if (serviceEndpoint == null || serviceEndpoint.isBlank()) {
+            return null;
+        }
+        try {
+            java.net.URI uri = java.net.URI.create(serviceEndpoint);
+            if (uri.getHost() == null) {
+                return null;
+            }
+            int port = uri.getPort() > 0 ? uri.getPort() : ("https".equals(uri.getScheme()) ? 443 : 80);
+            return new InetSocketAddress(uri.getHost(), port);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.vediofun.model.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端口探测工具
+ * 使用非阻塞 SocketChannel 发起连接，由一个 Selector 同时等待所有连接结果，单线程即可批量探测大量端点；
+ * 本机端口连接失败时再解析 /proc/net/tcp 与 /proc/net/tcp6 中的 LISTEN 记录（仅Linux）
+ */
+@Slf4j
+public final class PortProbe {
+
+    private static final List<Path> PROC_NET_TCP = List.of(Paths.get("/proc/net/tcp"), Paths.get("/proc/net/tcp6"));
+
+    /**
+     * /proc/net/tcp 中 LISTEN 状态的编码
+     */
+    private static final String TCP_LISTEN = "0A";
+
+    private PortProbe() {
+    }
+
+    /**
+     * 端点是否可连接
+     */
+    public static boolean isReachable(String host, int port, long timeoutMs) {
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        return probeAll(List.of(address), timeoutMs).getOrDefault(address, false);
+    }
+
+    /**
+     * 本机端口是否处于监听状态：先尝试连接回环地址，失败时读取 /proc/net/tcp{,6}
+     */
+    public static boolean isListening(int port, long timeoutMs) {
+        if (isReachable("127.0.0.1", port, timeoutMs)) {
+            return true;
+        }
+        return listeningPorts().contains(port);
+    }
+
+    /**
+     * 并发探测多个端点，所有连接共用一个 Selector，总耗时不超过 timeoutMs
+     *
+     * @return 端点 -> 是否可连接，保持传入顺序
+     */
+    public static Map<InetSocketAddress, Boolean> probeAll(Collection<InetSocketAddress> addresses, long timeoutMs) {
+        Map<InetSocketAddress, Boolean> results = new LinkedHashMap<>();
+        addresses.forEach(address -> results.put(address, false));
+        if (addresses.isEmpty()) {
+            return results;
+        }
+
+        try (Selector selector = Selector.open()) {
+            int pending = 0;
+            for (InetSocketAddress address : results.keySet()) {
+                if (address.isUnresolved()) {
+                    continue;
+                }
+                SocketChannel channel = null;
+                try {
+                    channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    if (channel.connect(address)) {
+                        results.put(address, true);
+                        channel.close();
+                    } else {
+                        channel.register(selector, SelectionKey.OP_CONNECT, address);
+                        pending++;
+                    }
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                }
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (pending > 0) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    break;
+                }
+                selector.select(remainingMs);
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    try {
+                        if (channel.finishConnect()) {
+                            results.put((InetSocketAddress) key.attachment(), true);
+                        }
+                    } catch (IOException e) {
+                        // 连接被拒绝或不可达
+                    } finally {
+                        key.cancel();
+                        closeQuietly(channel);
+                        pending--;
+                    }
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+        } catch (IOException e) {
+            log.warn("端口探测失败: {}", e.getMessage());
+        }
+        return results;
+    }
+
+    /**
+     * 本机处于 LISTEN 状态的TCP端口，非Linux系统返回空集合
+     */
+    public static Set<Integer> listeningPorts() {
+        Set<Integer> ports = new HashSet<>();
+        for (Path path : PROC_NET_TCP) {
+            if (!Files.isReadable(path)) {
+                continue;
+            }
+            try {
+                List<String> lines = Files.readAllLines(path, StandardCharsets.US_ASCII);
+                // 首行为表头，字段: sl local_address rem_address st ...，地址格式为 十六进制IP:十六进制端口
+                for (int i = 1; i < lines.size(); i++) {
+                    String[] fields = lines.get(i).trim().split("\\s+");
+                    if (fields.length < 4 || !TCP_LISTEN.equals(fields[3])) {
+                        continue;
+                    }
+                    int separator = fields[1].lastIndexOf(':');
+                    if (separator > 0) {
+                        ports.add(Integer.parseInt(fields[1].substring(separator + 1), 16));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                log.debug("解析 {} 失败: {}", path, e.getMessage());
+            }
+        }
+        return ports;
+    }
+
+    private static void closeQuietly(java.nio.channels.Channel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 关闭失败不影响探测结果
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.vediofun.model.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vediofun.model.dto.RayDeploymentRequest;
+import com.vediofun.model.dto.RayDeploymentResponse;
+import com.vediofun.model.entity.ModelDeploymentInstance;
+import com.vediofun.model.repository.ModelDeploymentInstanceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 部署任务服务测试
+ * 部署工作流由模拟的 ModelService 直接返回结果，验证实例记录的最终状态
+ */
+class DeploymentJobServiceTest {
+
+    private ModelService modelService;
+    private DeploymentJobService service;
+    private final AtomicReference<ModelDeploymentInstance> saved = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        modelService = mock(ModelService.class);
+        when(modelService.saveDeploymentInstance(any())).thenAnswer(invocation -> {
+            ModelDeploymentInstance instance = invocation.getArgument(0);
+            if (instance.getId() == null) {
+                instance.setId(1L);
+            }
+            saved.set(instance);
+            return instance;
+        });
+
+        service = new DeploymentJobService(modelService, mock(ModelDeploymentInstanceRepository.class),
+                mock(PlacementService.class), new ObjectMapper());
+        ReflectionTestUtils.setField(service, "jobThreads", 1);
+        ReflectionTestUtils.setField(service, "jobQueueSize", 4);
+        ReflectionTestUtils.setField(service, "sseTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(service, "jobRetentionMinutes", 30L);
+        ReflectionTestUtils.setField(service, "heartbeatSeconds", 30L);
+        ReflectionTestUtils.setField(service, "staleSeconds", 120L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void completedWorkflowMarksInstanceRunning() {
+        stubWorkflowResult("COMPLETED");
+
+        Long jobId = service.submit(request());
+
+        // 提交时保存一次，任务结束后再保存一次
+        verify(modelService, timeout(5000).times(2)).saveDeploymentInstance(any());
+        assertEquals(1L, jobId);
+        assertEquals(ModelDeploymentInstance.DeploymentStatus.RUNNING, saved.get().getStatus());
+        assertEquals("http://10.0.0.1:8000", saved.get().getServiceEndpoint());
+    }
+
+    @Test
+    void failedWorkflowMarksInstanceFailed() {
+        stubWorkflowResult("FAILED");
+
+        service.submit(request());
+
+        verify(modelService, timeout(5000).times(2)).saveDeploymentInstance(any());
+        assertEquals(ModelDeploymentInstance.DeploymentStatus.FAILED, saved.get().getStatus());
+    }
+
+    @Test
+    void workflowExceptionMarksInstanceFailed() {
+        when(modelService.deployModelToRayCluster(any(RayDeploymentRequest.class), any()))
+                .thenThrow(new IllegalStateException("节点不可达"));
+
+        service.submit(request());
+
+        verify(modelService, timeout(5000).times(2)).saveDeploymentInstance(any());
+        assertEquals(ModelDeploymentInstance.DeploymentStatus.FAILED, saved.get().getStatus());
+        assertEquals("节点不可达", saved.get().getErrorMessage());
+    }
+
+    private void stubWorkflowResult(String status) {
+        RayDeploymentResponse response = new RayDeploymentResponse();
+        response.setStatus(status);
+        response.setClusterAddress("10.0.0.1:6379");
+        response.setServiceEndpoint("http://10.0.0.1:8000");
+        when(modelService.deployModelToRayCluster(any(RayDeploymentRequest.class), any())).thenReturn(response);
+    }
+
+    private static RayDeploymentRequest request() {
+        RayDeploymentRequest request = new RayDeploymentRequest();
+        request.setModelId(7L);
+        request.setModelName("qwen");
+        request.setNodeIds(List.of("node-1"));
+        return request;
+    }
+}
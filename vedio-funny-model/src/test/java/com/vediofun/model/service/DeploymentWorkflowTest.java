@@ -0,0 +1,143 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.dto.DeploymentStep;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 部署工作流测试
+ * 除并行用例外均使用调用线程直接执行步骤，步骤顺序与监听器通知可确定
+ */
+class DeploymentWorkflowTest {
+
+    private final List<DeploymentStep> events = new CopyOnWriteArrayList<>();
+
+    @Test
+    void allStepsCompleteInDependencyOrder() {
+        DeploymentWorkflow workflow = new DeploymentWorkflow("d-1", Runnable::run, events::add)
+                .step("prepare", List.of(), () -> "ok")
+                .step("launch", List.of("prepare"), () -> "started");
+
+        assertNull(workflow.await());
+        assertEquals(List.of("prepare:RUNNING", "prepare:COMPLETED", "launch:RUNNING", "launch:COMPLETED"),
+                statuses());
+        assertEquals(List.of("prepare"), last("launch").getDependsOn());
+    }
+
+    @Test
+    void dependentsOfFailedStepAreSkipped() {
+        AtomicBoolean launched = new AtomicBoolean();
+        AtomicBoolean verified = new AtomicBoolean();
+
+        DeploymentWorkflow workflow = new DeploymentWorkflow("d-2", Runnable::run, events::add)
+                .step("download", List.of(), () -> {
+                    throw new IllegalStateException("下载失败");
+                })
+                .step("launch", List.of("download"), () -> {
+                    launched.set(true);
+                    return null;
+                })
+                .step("verify", List.of("launch"), () -> {
+                    verified.set(true);
+                    return null;
+                });
+
+        assertEquals("download: 下载失败", workflow.await());
+        assertFalse(launched.get());
+        assertFalse(verified.get());
+        assertEquals("FAILED", last("download").getStatus());
+        assertEquals("下载失败", last("download").getError());
+        assertEquals("SKIPPED", last("launch").getStatus());
+        assertEquals("依赖步骤未完成", last("launch").getError());
+        assertEquals("SKIPPED", last("verify").getStatus());
+    }
+
+    @Test
+    void firstFailureIsReported() {
+        DeploymentWorkflow workflow = new DeploymentWorkflow("d-3", Runnable::run, events::add)
+                .step("env", List.of(), () -> {
+                    throw new IllegalStateException("环境检查失败");
+                })
+                .step("ports", List.of(), () -> {
+                    throw new IllegalStateException("端口被占用");
+                })
+                .step("cluster", List.of("env", "ports"), () -> null);
+
+        assertEquals("env: 环境检查失败", workflow.await());
+        assertEquals("FAILED", last("ports").getStatus());
+        assertEquals("SKIPPED", last("cluster").getStatus());
+    }
+
+    @Test
+    void statusResolverDecidesCompletedStatus() {
+        DeploymentWorkflow workflow = new DeploymentWorkflow("d-4", Runnable::run, events::add)
+                .step("reuse", List.of(), () -> Boolean.FALSE,
+                        details -> Boolean.TRUE.equals(details) ? "COMPLETED" : "SKIPPED");
+
+        assertNull(workflow.await());
+        assertEquals("SKIPPED", last("reuse").getStatus());
+        assertNull(last("reuse").getError());
+    }
+
+    @Test
+    void independentStepsRunInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch bothStarted = new CountDownLatch(2);
+            DeploymentWorkflow.StepAction meet = () -> {
+                bothStarted.countDown();
+                // 两个步骤都开始后才能结束，串行执行时会超时失败
+                if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("步骤未并行执行");
+                }
+                return null;
+            };
+            DeploymentWorkflow workflow = new DeploymentWorkflow("d-5", executor, events::add)
+                    .step("download", List.of(), meet)
+                    .step("cluster", List.of(), meet)
+                    .step("launch", List.of("download", "cluster"), () -> null);
+
+            assertNull(workflow.await());
+            assertEquals("COMPLETED", last("launch").getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsDuplicateAndUndeclaredSteps() {
+        DeploymentWorkflow workflow = new DeploymentWorkflow("d-6", Runnable::run, events::add)
+                .step("prepare", List.of(), () -> null);
+
+        assertThrows(IllegalArgumentException.class, () -> workflow.step("prepare", List.of(), () -> null));
+        assertThrows(IllegalArgumentException.class, () -> workflow.step("launch", List.of("download"), () -> null));
+        assertTrue(events.stream().allMatch(step -> "prepare".equals(step.getName())));
+    }
+
+    private List<String> statuses() {
+        return events.stream().map(step -> step.getName() + ":" + step.getStatus()).toList();
+    }
+
+    private DeploymentStep last(String name) {
+        DeploymentStep found = null;
+        for (DeploymentStep step : events) {
+            if (name.equals(step.getName())) {
+                found = step;
+            }
+        }
+        return found;
+    }
+}
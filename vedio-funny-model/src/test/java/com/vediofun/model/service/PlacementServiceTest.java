@@ -0,0 +1,175 @@
+package com.vediofun.model.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vediofun.model.dto.CpuInfo;
+import com.vediofun.model.dto.GpuInfo;
+import com.vediofun.model.dto.MemoryInfo;
+import com.vediofun.model.dto.NodeAllocation;
+import com.vediofun.model.dto.NodeEnvironmentInfo;
+import com.vediofun.model.dto.PlacementPlan;
+import com.vediofun.model.dto.RayDeploymentRequest;
+import com.vediofun.model.dto.ResourceRequirement;
+import com.vediofun.model.entity.ModelDeploymentInstance;
+import com.vediofun.model.repository.ModelDeploymentInstanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ray部署放置调度测试
+ * 节点环境直接构造，已有部署实例的资源分配由模拟的部署实例表提供
+ */
+class PlacementServiceTest {
+
+    private final List<ModelDeploymentInstance> instances = new ArrayList<>();
+    private PlacementService service;
+
+    @BeforeEach
+    void setUp() {
+        ModelDeploymentInstanceRepository repository = mock(ModelDeploymentInstanceRepository.class);
+        when(repository.findByStatus(any())).thenAnswer(invocation -> instances.stream()
+                .filter(instance -> instance.getStatus() == invocation.getArgument(0))
+                .toList());
+
+        service = new PlacementService(mock(DeploymentService.class), repository, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "defaultStrategy", "BINPACK");
+        ReflectionTestUtils.setField(service, "minFreeGpuMemoryMB", 1024L);
+        ReflectionTestUtils.setField(service, "memoryHeadroomGB", 2);
+        ReflectionTestUtils.setField(service, "cpuHeadroom", 1);
+    }
+
+    @Test
+    void binpackPicksTightestNodeThatFits() {
+        PlacementPlan plan = plan(request(null, 4, 0, 8, null), node("big", 32, 128), node("small", 8, 32));
+
+        assertEquals("BINPACK", plan.getStrategy());
+        assertEquals("small", plan.getMasterNode());
+        assertTrue(plan.getWorkerNodes().isEmpty());
+        NodeAllocation allocation = plan.getAllocations().get("small");
+        assertEquals(4, allocation.getNumCpus());
+        assertEquals(8, allocation.getMemoryGB());
+    }
+
+    @Test
+    void spreadDistributesEvenly() {
+        PlacementPlan plan = plan(request("spread", 6, 0, 6, null),
+                node("n1", 8, 32), node("n2", 8, 32), node("n3", 8, 32));
+
+        assertEquals("SPREAD", plan.getStrategy());
+        assertEquals(3, plan.getAllocations().size());
+        for (NodeAllocation allocation : plan.getAllocations().values()) {
+            assertEquals(2, allocation.getNumCpus());
+            assertEquals(2, allocation.getMemoryGB());
+        }
+    }
+
+    @Test
+    void masterIsNodeWithMostGpus() {
+        PlacementPlan plan = plan(request("SPREAD", 4, 3, 0, 2),
+                node("one-gpu", 8, 32, 20_000L), node("two-gpu", 8, 32, 20_000L, 20_000L));
+
+        assertEquals("two-gpu", plan.getMasterNode());
+        assertEquals(List.of("one-gpu"), plan.getWorkerNodes());
+        assertEquals(List.of("two-gpu", "one-gpu"), new ArrayList<>(plan.getAllocations().keySet()));
+        assertEquals(2, plan.getAllocations().get("two-gpu").getNumGpus());
+        assertEquals(1, plan.getAllocations().get("one-gpu").getNumGpus());
+    }
+
+    @Test
+    void unsuitableNodesAreRejected() {
+        NodeEnvironmentInfo offline = node("offline", 64, 256, 80_000L);
+        offline.setStatus("OFFLINE");
+        NodeEnvironmentInfo busyGpu = node("busy-gpu", 64, 256, 500L);
+        NodeEnvironmentInfo busyCpu = node("busy-cpu", 8, 32, 20_000L);
+        busyCpu.getCpuInfo().setLoadAverage1min(6.5);
+
+        PlacementPlan plan = plan(request(null, 2, 1, 0, null),
+                offline, busyGpu, busyCpu, node("ok", 8, 32, 20_000L));
+
+        assertEquals("ok", plan.getMasterNode());
+        assertEquals("节点不在线", plan.getRejectedNodes().get("offline"));
+        assertEquals("没有满足显存要求的空闲GPU", plan.getRejectedNodes().get("busy-gpu"));
+        assertEquals("CPU已满", plan.getRejectedNodes().get("busy-cpu"));
+    }
+
+    @Test
+    void existingAllocationsReduceCapacity() {
+        ModelDeploymentInstance running = new ModelDeploymentInstance();
+        running.setStatus(ModelDeploymentInstance.DeploymentStatus.RUNNING);
+        running.setDeploymentConfig("{\"allocations\":{\"n1\":{\"numCpus\":6,\"numGpus\":0,\"memoryGB\":8}}}");
+        instances.add(running);
+
+        assertThrows(IllegalStateException.class, () -> plan(request(null, 2, 0, 0, null), node("n1", 8, 32)));
+        assertEquals(1, plan(request(null, 1, 0, 0, null), node("n1", 8, 32))
+                .getAllocations().get("n1").getNumCpus());
+    }
+
+    @Test
+    void insufficientCapacityThrows() {
+        assertThrows(IllegalStateException.class,
+                () -> plan(request(null, 8, 0, 0, null), node("n1", 4, 32), node("n2", 4, 32)));
+        assertThrows(IllegalStateException.class,
+                () -> plan(request(null, 2, 0, 64, 1), node("n1", 8, 32), node("n2", 8, 32)));
+    }
+
+    @Test
+    void invalidRequirementIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> plan(request(null, 0, 0, 0, null), node("n1", 8, 32)));
+        assertThrows(IllegalArgumentException.class, () -> plan(request(null, 2, 0, 0, 3), node("n1", 8, 32)));
+        assertThrows(IllegalArgumentException.class,
+                () -> plan(request("RANDOM", 2, 0, 0, null), node("n1", 8, 32)));
+    }
+
+    private PlacementPlan plan(RayDeploymentRequest request, NodeEnvironmentInfo... nodes) {
+        List<String> ids = Arrays.stream(nodes).map(NodeEnvironmentInfo::getNodeId).toList();
+        return service.plan(request, new PlacementService.Candidates(ids, List.of(nodes)));
+    }
+
+    private static RayDeploymentRequest request(String strategy, int cpus, int gpus, int memoryGB, Integer nodeCount) {
+        ResourceRequirement requirement = new ResourceRequirement();
+        requirement.setNumCpus(cpus);
+        requirement.setNumGpus(gpus);
+        requirement.setMemoryGB(memoryGB);
+        requirement.setNodeCount(nodeCount);
+        RayDeploymentRequest request = new RayDeploymentRequest();
+        request.setResources(requirement);
+        request.setPlacementStrategy(strategy);
+        return request;
+    }
+
+    /**
+     * 空载节点，空闲内存等于总内存，每块GPU按给定的空闲显存(MB)
+     */
+    private static NodeEnvironmentInfo node(String nodeId, int cores, long memoryGB, Long... gpuFreeMemoryMB) {
+        CpuInfo cpu = new CpuInfo();
+        cpu.setLogicalCores(cores);
+        cpu.setLoadAverage1min(0.0);
+        MemoryInfo memory = new MemoryInfo();
+        memory.setTotalMemoryMB(memoryGB * 1024);
+        memory.setFreeMemoryMB(memoryGB * 1024);
+        List<GpuInfo> gpus = new ArrayList<>();
+        for (Long freeMemoryMB : gpuFreeMemoryMB) {
+            GpuInfo gpu = new GpuInfo();
+            gpu.setFreeMemoryMB(freeMemoryMB);
+            gpus.add(gpu);
+        }
+        NodeEnvironmentInfo info = new NodeEnvironmentInfo();
+        info.setNodeId(nodeId);
+        info.setStatus("ONLINE");
+        info.setCpuInfo(cpu);
+        info.setMemoryInfo(memory);
+        info.setGpuInfos(gpus);
+        return info;
+    }
+}
@@ -0,0 +1,214 @@
+package com.vediofun.model.service;
+
+import com.vediofun.model.dto.NodeAllocation;
+import com.vediofun.model.dto.RayClusterContext;
+import com.vediofun.model.entity.ModelDeploymentInstance;
+import com.vediofun.model.repository.ModelDeploymentInstanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 预热Ray集群登记测试
+ * 部署实例表由内存中的实例模拟；集群不登记推理端点，不进行网络探测
+ */
+class RayClusterRegistryTest {
+
+    private static final String ADDRESS = "10.0.0.1:6379";
+
+    private final Map<Long, ModelDeploymentInstance> instances = new ConcurrentHashMap<>();
+    private ModelDeploymentInstanceRepository repository;
+    private RayClusterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ModelDeploymentInstanceRepository.class);
+        when(repository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(instances.get(invocation.<Long>getArgument(0))));
+        when(repository.findByStatus(any())).thenAnswer(invocation -> instances.values().stream()
+                .filter(instance -> instance.getStatus() == invocation.getArgument(0))
+                .toList());
+
+        registry = new RayClusterRegistry(repository);
+        ReflectionTestUtils.setField(registry, "enabled", true);
+        ReflectionTestUtils.setField(registry, "idleTtlMinutes", 0L);
+        ReflectionTestUtils.setField(registry, "servingProbeTimeoutMs", 100L);
+    }
+
+    @Test
+    void activeClusterIsOnlyReusedBySameModel() {
+        instance(1L, "qwen", ModelDeploymentInstance.DeploymentStatus.RUNNING, "n1,n2");
+        registerCluster(1L, "qwen", "n1", "n2");
+
+        assertNull(registry.acquire(List.of("n1", "n2"), 4, 2, 16, 2L, "llama"));
+
+        RayClusterRegistry.WarmCluster cluster = registry.acquire(List.of("n2", "n1"), 4, 2, 16, 2L, "qwen");
+        assertNotNull(cluster);
+        assertEquals(2L, cluster.getDeploymentInstanceId());
+        assertEquals(1, cluster.getReuseCount());
+    }
+
+    @Test
+    void idleClusterIsReusedByOtherModel() {
+        instance(1L, "qwen", ModelDeploymentInstance.DeploymentStatus.STOPPED, "n1,n2");
+        registerCluster(1L, "qwen", "n1", "n2");
+
+        RayClusterRegistry.WarmCluster cluster = registry.acquire(List.of("n1", "n2"), 4, 2, 16, 2L, "llama");
+
+        assertNotNull(cluster);
+        assertEquals("llama", cluster.getModelName());
+    }
+
+    @Test
+    void clusterMustMatchNodesAndResources() {
+        registerCluster(1L, "qwen", "n1", "n2");
+
+        assertNull(registry.acquire(List.of("n1"), 1, 0, 0, 2L, "qwen"));
+        assertNull(registry.acquire(List.of("n1", "n2", "n3"), 1, 0, 0, 2L, "qwen"));
+        assertNull(registry.acquire(List.of("n1", "n2"), 4, 3, 16, 2L, "qwen"));
+        assertNull(registry.acquire(List.of("n1", "n2"), 4, 2, 17, 2L, "qwen"));
+        assertNotNull(registry.acquire(List.of("n1", "n2"), 4, 2, 16, 2L, "qwen"));
+    }
+
+    @Test
+    void leasedClusterIsNotAcquiredTwice() {
+        registerCluster(1L, "qwen", "n1", "n2");
+
+        RayClusterRegistry.WarmCluster first = registry.acquire(List.of("n1", "n2"), 1, 0, 0, 2L, "qwen");
+        assertNotNull(first);
+        assertNull(registry.acquire(List.of("n1", "n2"), 1, 0, 0, 3L, "qwen"));
+
+        registry.release(ADDRESS, true);
+        assertSame(first, registry.acquire(List.of("n1", "n2"), 1, 0, 0, 3L, "qwen"));
+    }
+
+    @Test
+    void unhealthyReleaseRemovesCluster() {
+        registerCluster(1L, "qwen", "n1", "n2");
+        assertNotNull(registry.acquire(List.of("n1", "n2"), 1, 0, 0, 2L, "qwen"));
+
+        registry.release(ADDRESS, false);
+
+        assertNull(registry.acquire(List.of("n1", "n2"), 1, 0, 0, 3L, "qwen"));
+    }
+
+    @Test
+    void failedReuseBeforeLaunchRestoresPreviousOwner() {
+        instance(1L, "qwen", ModelDeploymentInstance.DeploymentStatus.RUNNING, "n1,n2");
+        registerCluster(1L, "qwen", "n1", "n2");
+        RayClusterRegistry.WarmCluster cluster = registry.acquire(List.of("n1", "n2"), 1, 0, 0, 2L, "qwen");
+
+        registry.finishReuse(cluster, false, null);
+
+        assertEquals(1L, cluster.getDeploymentInstanceId());
+        assertEquals(ModelDeploymentInstance.DeploymentStatus.RUNNING, instances.get(1L).getStatus());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void launchedReuseStopsReplacedInstance() {
+        instance(1L, "qwen", ModelDeploymentInstance.DeploymentStatus.RUNNING, "n1,n2");
+        registerCluster(1L, "qwen", "n1", "n2");
+        RayClusterRegistry.WarmCluster cluster = registry.acquire(List.of("n1", "n2"), 1, 0, 0, 2L, "qwen");
+
+        registry.finishReuse(cluster, true, null);
+
+        assertEquals(2L, cluster.getDeploymentInstanceId());
+        assertEquals(ModelDeploymentInstance.DeploymentStatus.STOPPED, instances.get(1L).getStatus());
+        verify(repository).save(instances.get(1L));
+    }
+
+    @Test
+    void idleClusterIsCollectedAfterTtl() {
+        instance(1L, "qwen", ModelDeploymentInstance.DeploymentStatus.STOPPED, "n1,n2");
+        registerCluster(1L, "qwen", "n1", "n2");
+
+        // 第一次只记录空闲开始时间
+        assertTrue(registry.collectIdle().isEmpty());
+        List<RayClusterRegistry.WarmCluster> expired = registry.collectIdle();
+
+        assertEquals(1, expired.size());
+        assertEquals(ADDRESS, expired.get(0).getClusterAddress());
+        assertNull(registry.acquire(List.of("n1", "n2"), 1, 0, 0, 2L, "qwen"));
+    }
+
+    @Test
+    void activeClusterIsNotCollected() {
+        instance(1L, "qwen", ModelDeploymentInstance.DeploymentStatus.RUNNING, "n1,n2");
+        registerCluster(1L, "qwen", "n1", "n2");
+
+        assertTrue(registry.collectIdle().isEmpty());
+        assertTrue(registry.collectIdle().isEmpty());
+        assertNotNull(registry.acquire(List.of("n1", "n2"), 1, 0, 0, 1L, "qwen"));
+    }
+
+    @Test
+    void clusterWithClaimedNodesIsUnregisteredButNotReturned() {
+        instance(1L, "qwen", ModelDeploymentInstance.DeploymentStatus.STOPPED, "n1,n2");
+        registerCluster(1L, "qwen", "n1", "n2");
+        assertTrue(registry.collectIdle().isEmpty());
+
+        // 其他协调节点在 n2 上部署了新实例
+        instance(3L, "llama", ModelDeploymentInstance.DeploymentStatus.RUNNING, "n2,n3");
+
+        assertTrue(registry.collectIdle().isEmpty());
+        assertNull(registry.acquire(List.of("n1", "n2"), 1, 0, 0, 2L, "qwen"));
+    }
+
+    @Test
+    void registeringOverlappingClusterReturnsUnusedLeftoverNodes() {
+        registerCluster(1L, "qwen", "n1", "n2", "n3");
+        instance(3L, "llama", ModelDeploymentInstance.DeploymentStatus.RUNNING, "n3");
+
+        List<String> leftover = register("10.0.0.2:6379", 2L, "llama", "n2", "n4");
+
+        assertEquals(List.of("n1"), leftover);
+        assertNull(registry.acquire(List.of("n1", "n2", "n3"), 1, 0, 0, 4L, "qwen"));
+    }
+
+    private void registerCluster(Long instanceId, String modelName, String... nodes) {
+        register(ADDRESS, instanceId, modelName, nodes);
+    }
+
+    /**
+     * 每个节点 2 CPU、1 GPU、8GB 内存
+     */
+    private List<String> register(String address, Long instanceId, String modelName, String... nodes) {
+        Map<String, NodeAllocation> resources = new LinkedHashMap<>();
+        for (String node : nodes) {
+            resources.put(node, new NodeAllocation(node, 2, 1, 8, 0.5));
+        }
+        RayClusterContext context = RayClusterContext.builder()
+                .clusterAddress(address)
+                .masterNode(nodes[0])
+                .workerNodes(List.of(nodes).subList(1, nodes.length))
+                .build();
+        return registry.register(context, resources, instanceId, modelName);
+    }
+
+    private void instance(Long id, String modelName, ModelDeploymentInstance.DeploymentStatus status, String nodeIds) {
+        ModelDeploymentInstance instance = new ModelDeploymentInstance();
+        instance.setId(id);
+        instance.setModelName(modelName);
+        instance.setStatus(status);
+        instance.setNodeIds(nodeIds);
+        instances.put(id, instance);
+    }
+}
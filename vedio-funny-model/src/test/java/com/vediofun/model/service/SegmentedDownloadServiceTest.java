@@ -0,0 +1,238 @@
+package com.vediofun.model.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分段下载服务测试
+ * 使用本地 HttpServer 模拟支持 Range/If-Range 的下载源，/peer.bin 模拟提供相同内容的其他节点
+ */
+class SegmentedDownloadServiceTest {
+
+    private static final int FILE_SIZE = 3 * 1024 * 1024 + 123;
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private SegmentedDownloadService service;
+
+    private volatile byte[] content;
+    private volatile String etag;
+    private volatile int statusOverride;
+    private volatile boolean peerFailing;
+
+    /**
+     * 剩余可发送的字节数，耗尽后中断当前响应并对后续请求返回500
+     */
+    private final AtomicLong byteBudget = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicInteger partialResponses = new AtomicInteger();
+    private final AtomicLong originBytesServed = new AtomicLong();
+    /**
+     * 节点对分段请求返回503（仍在下载）的剩余次数
+     */
+    private final AtomicInteger peerNotReadyResponses = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = randomBytes(FILE_SIZE, 1);
+        etag = "\"v1\"";
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/model.bin", this::handle);
+        server.createContext("/peer.bin", this::handle);
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        DownloadThrottle throttle = new DownloadThrottle();
+        ReflectionTestUtils.setField(throttle, "maxConnectionsPerHost", 8);
+        service = new SegmentedDownloadService(throttle);
+        ReflectionTestUtils.setField(service, "segmentSizeMb", 1L);
+        ReflectionTestUtils.setField(service, "maxSegmentsPerFile", 16);
+        ReflectionTestUtils.setField(service, "segmentThreads", 4);
+        ReflectionTestUtils.setField(service, "peerWaitSeconds", 10L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void downloadsAllSegmentsWithRangeRequests() throws IOException {
+        Path target = tempDir.resolve("model.bin");
+
+        long size = service.download(url(), target, -1);
+
+        assertEquals(FILE_SIZE, size);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        // 探测请求 + 4个分段
+        assertTrue(partialResponses.get() >= 5);
+        assertFalse(Files.exists(tempDir.resolve("model.bin.part")));
+        assertFalse(Files.exists(tempDir.resolve("model.bin.part.journal")));
+    }
+
+    @Test
+    void resumesFromJournalAfterFailedDownload() throws IOException {
+        Path target = tempDir.resolve("model.bin");
+        byteBudget.set(FILE_SIZE / 2);
+        assertThrows(IOException.class, () -> service.download(url(), target, -1));
+        assertTrue(Files.exists(tempDir.resolve("model.bin.part.journal")));
+
+        byteBudget.set(Long.MAX_VALUE);
+        bytesServed.set(0);
+        service.download(url(), target, -1);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertTrue(bytesServed.get() < FILE_SIZE, "续传应只下载剩余部分，实际: " + bytesServed.get());
+    }
+
+    @Test
+    void restartsWhenRemoteFileChangesBetweenAttempts() throws IOException {
+        Path target = tempDir.resolve("model.bin");
+        byteBudget.set(FILE_SIZE / 2);
+        assertThrows(IOException.class, () -> service.download(url(), target, -1));
+
+        byteBudget.set(Long.MAX_VALUE);
+        content = randomBytes(FILE_SIZE, 2);
+        etag = "\"v2\"";
+        service.download(url(), target, -1);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+    }
+
+    @Test
+    void failsWhenSourceReturnsError() {
+        statusOverride = 404;
+        Path target = tempDir.resolve("model.bin");
+
+        assertThrows(IOException.class, () -> service.download(url(), target, -1));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void downloadsFromPeerBeforeOrigin() throws IOException {
+        Path target = tempDir.resolve("model.bin");
+
+        service.download(List.of(peerUrl(), url()), target, -1);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(0, originBytesServed.get());
+    }
+
+    @Test
+    void fallsBackToOriginWhenPeerFails() throws IOException {
+        peerFailing = true;
+        Path target = tempDir.resolve("model.bin");
+
+        service.download(List.of(peerUrl(), url()), target, -1);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertTrue(originBytesServed.get() > 0);
+    }
+
+    @Test
+    void waitsForPeerThatIsStillDownloadingRange() throws IOException {
+        peerNotReadyResponses.set(2);
+        Path target = tempDir.resolve("model.bin");
+
+        service.download(List.of(peerUrl(), url()), target, -1);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(0, originBytesServed.get());
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/model.bin";
+    }
+
+    private String peerUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/peer.bin";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = content;
+        String currentEtag = etag;
+        if (statusOverride > 0 || byteBudget.get() <= 0) {
+            exchange.sendResponseHeaders(statusOverride > 0 ? statusOverride : 500, -1);
+            exchange.close();
+            return;
+        }
+
+        boolean peer = exchange.getRequestURI().getPath().equals("/peer.bin");
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (peer && range != null && !range.equals("bytes=0-0")
+                && (peerFailing || peerNotReadyResponses.getAndDecrement() > 0)) {
+            exchange.sendResponseHeaders(peerFailing ? 500 : 503, -1);
+            exchange.close();
+            return;
+        }
+
+        long from = 0;
+        long to = body.length - 1;
+        int status = 200;
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        if (range != null && (ifRange == null || ifRange.equals(currentEtag))) {
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            from = Long.parseLong(bounds[0]);
+            to = Math.min(to, Long.parseLong(bounds[1]));
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + body.length);
+            partialResponses.incrementAndGet();
+        }
+        exchange.getResponseHeaders().set("ETag", currentEtag);
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.sendResponseHeaders(status, to - from + 1);
+
+        OutputStream out = exchange.getResponseBody();
+        long position = from;
+        while (position <= to) {
+            int length = (int) Math.min(64 * 1024, to - position + 1);
+            if (byteBudget.addAndGet(-length) < 0) {
+                // 抛出异常使服务器直接断开连接，模拟传输中断
+                throw new IOException("模拟连接中断");
+            }
+            out.write(body, (int) position, length);
+            bytesServed.addAndGet(length);
+            if (!peer) {
+                originBytesServed.addAndGet(length);
+            }
+            position += length;
+        }
+        out.close();
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}